@@ -0,0 +1,145 @@
+/*
+ * CommandQueue.pop, driven by a DRAM controller built from the MainMemoryController section of
+ * the configuration (the chip is built with MemControllerToUse = DRAM).
+ *
+ * One operation is one DRAM clock cycle, run the way RunnableThread runs it : the controller's
+ * oneCycleOperation (which pops the command queue and issues the command to its rank), the core
+ * cycles up to the next DRAM cycle (whose events carry the commands through the ranks and back
+ * to the controller), and enqueueToCommandQ.
+ *
+ * Read and write transactions (a third are writes) arrive with probability arrivalRate every
+ * DRAM cycle, at most MAX_PENDING of them waiting for room in the command queue, at the addresses
+ * of the stream : sequential streams mostly hit in the open rows, random ones mostly do not.
+ * Every scheduling policy is measured, replacing the one of the configuration.
+ * */
+
+package dram;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import config.MainMemoryConfig;
+import config.SystemConfig;
+import generic.CommunicationInterface;
+import generic.Event;
+import generic.EventQueue;
+import generic.GlobalClock;
+import generic.RequestType;
+import main.AddressStream;
+import main.ArchitecturalComponent;
+import main.BenchmarkChip;
+import memorysystem.AddressCarryingEvent;
+import memorysystem.Cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CommandQueueBenchmark {
+
+	static final int MAX_PENDING = 32;
+
+	@Param({AddressStream.SEQUENTIAL, AddressStream.RANDOM})
+	String pattern;
+
+	@Param({"0.05", "0.2"})
+	double arrivalRate;
+
+	@Param({"RankThenBankRoundRobin", "FRFCFS", "PARBS"})
+	String schedulingPolicy;
+
+	// bytes over which the transactions fall
+	@Param({"1073741824"})
+	long footprint;
+
+	MainMemoryDRAMController controller;
+	EventQueue eventQueue;
+	AddressStream stream;
+	Random random;
+	AddressCarryingEvent request;
+	long numResponses;
+
+	// core cycles per DRAM cycle, and the accumulated fraction of one
+	double coreCyclesPerRAMCycle;
+	double coreCycles;
+
+	// stands for the interconnect : counts the responses instead of sending them to the cache
+	class ResponseCounter implements CommunicationInterface {
+
+		public void sendMessage(Event event) {
+			numResponses++;
+		}
+
+		public MainMemoryDRAMController getNearestMemoryController(int chanNum) {
+			return controller;
+		}
+
+		public MainMemoryDRAMController chooseMCDRAMorDDRmodule(long addr) {
+			return controller;
+		}
+
+		public MainMemoryDRAMController chooseMCDRAMmodule(long addr) {
+			return controller;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		BenchmarkChip.create(true);
+
+		MainMemoryConfig.schedulingPolicy = MainMemoryConfig.SchedulingPolicy.valueOf(schedulingPolicy);
+		controller = new MainMemoryDRAMController(SystemConfig.mainMemoryConfig);
+		controller.setChannelNumber(0);
+		controller.setComInterface(new ResponseCounter());
+
+		// the controller and its ranks schedule their events on the queue of the channel
+		eventQueue = controller.getEventQueue();
+
+		double coreFrequency = ArchitecturalComponent.getCores()[0].getFrequency();
+		double ramFrequency = 1000 / SystemConfig.mainMemoryConfig.tCK;
+		coreCyclesPerRAMCycle = coreFrequency / ramFrequency;
+
+		stream = new AddressStream(pattern, footprint, 1 << 20, 42);
+		random = new Random(42);
+
+		// the controller answers the cache that sent the request
+		Cache l1 = ArchitecturalComponent.getCores()[0].getExecEngine().getCoreMemorySystem().getL1Cache();
+		request = new AddressCarryingEvent(eventQueue, 0, l1, controller, RequestType.Cache_Read, 0);
+	}
+
+	@Benchmark
+	public long cycle() {
+		if(controller.pendingTransQueue.size() < MAX_PENDING && random.nextDouble() < arrivalRate) {
+			request.setAddress(stream.next());
+			request.setRequestType(random.nextInt(3) == 0 ? RequestType.Cache_Write : RequestType.Cache_Read);
+			controller.handleEvent(eventQueue, request);
+		}
+
+		controller.oneCycleOperation();
+
+		coreCycles += coreCyclesPerRAMCycle;
+		while(coreCycles >= 1) {
+			eventQueue.processEvents();
+			GlobalClock.setCurrentTime(GlobalClock.getCurrentTime() + 1);
+			coreCycles -= 1;
+		}
+
+		controller.enqueueToCommandQ();
+		return numResponses;
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * FilePacket.fetchManyPackets on a synthetic trace of one application thread, in the text (gz)
+ * and in the binary format.
+ *
+ * The trace is the loop body of a numerical kernel : loads, stores, integer and floating point
+ * arithmetic and a loop branch, with its memory packets and the branch packet, as the PIN tool
+ * writes it. It is written to a temporary directory once per trial (the binary trace with
+ * BinaryTraceWriter.convert) and opened again whenever it has been read to the end.
+ *
+ * One operation is one packet handed to the pipeline's input queue, BATCH packets at a time ;
+ * the asm char pool is emptied after every batch, as the decoder would.
+ * */
+
+package emulatorinterface.communication.filePacket;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import generic.CircularPacketQueue;
+import main.BenchmarkChip;
+import main.CustomObjectPool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FilePacketBenchmark {
+
+	static final int BATCH = 1024;
+	static final int NUM_ITERATIONS = 100000;
+
+	static final String LOOP_BODY[][] = {
+		{"mov rax,qword ptr [rbx+0x8]", "R"},
+		{"add rcx,rax", null},
+		{"imul rdx,rcx", null},
+		{"mov qword ptr [rsi+0x10],rdx", "W"},
+		{"add rbx,0x40", null},
+		{"movsd xmm0,qword ptr [rdi]", "R"},
+		{"addsd xmm1,xmm0", null},
+		{"mulsd xmm2,xmm1", null},
+		{"sub r8,0x1", null},
+		{"cmp r8,rax", null},
+		{"jne 0x400000", "B"},
+	};
+
+	@Param({"text", "binary"})
+	String format;
+
+	File directory;
+	String basename;
+	FilePacket filePacket;
+	CircularPacketQueue packets;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		BenchmarkChip.create(false);
+
+		directory = File.createTempFile("tejas-jmh-trace", "");
+		directory.delete();
+		directory.mkdirs();
+		basename = new File(directory, "trace").getPath();
+
+		String textTrace = basename + "_0.gz";
+		writeTrace(textTrace);
+		if(format.equals("binary")) {
+			BinaryTraceWriter.convert(textTrace, basename + "_0" + BinaryTraceFormat.EXTENSION);
+			new File(textTrace).delete();
+		}
+
+		packets = new CircularPacketQueue(BATCH);
+		filePacket = new FilePacket(new String[] {basename});
+	}
+
+	static void writeTrace(String fileName) throws IOException {
+		Random random = new Random(42);
+		BufferedWriter output = new BufferedWriter(new OutputStreamWriter(
+				new GZIPOutputStream(new FileOutputStream(fileName))));
+		try {
+			long data = 0x10000000L;
+			for(int iteration = 0; iteration < NUM_ITERATIONS; iteration++) {
+				long ip = 0x400000L;
+				for(int i = 0; i < LOOP_BODY.length; i++, ip += 4) {
+					output.write(ip + " 27 " + LOOP_BODY[i][0] + "\n");
+					String kind = LOOP_BODY[i][1];
+					if("R".equals(kind)) {
+						output.write(ip + " 2 " + (data + random.nextInt(1 << 17) * 8L) + "\n");
+					} else if("W".equals(kind)) {
+						output.write(ip + " 3 " + (data + random.nextInt(1 << 13) * 8L) + "\n");
+					} else if("B".equals(kind)) {
+						output.write(ip + " " + (iteration < NUM_ITERATIONS - 1 ? 4 : 5) + " " + 0x400000L + "\n");
+					}
+				}
+			}
+		} finally {
+			output.close();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public int fetchManyPackets() {
+		packets.clear();
+		int numFetched = 0;
+		while(numFetched < BATCH) {
+			int n = filePacket.fetchManyPackets(0, packets);
+			numFetched += n;
+			if(n == 0) {
+				// end of the trace : read it again
+				filePacket.finish();
+				filePacket = new FilePacket(new String[] {basename});
+			}
+		}
+		CustomObjectPool.getCustomAsmCharPool().clear(0);
+		return numFetched;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		filePacket.finish();
+		File files[] = directory.listFiles();
+		if(files != null) {
+			for(File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * EventQueue.addEvent / processEvents.
+ *
+ * The event mix follows what the memory system schedules : most events are due within a few
+ * cycles (cache and NOC hops), some a few hundred cycles ahead (main memory) and a few far in the
+ * future (DRAM refresh, state updates), beyond the timing wheel.
+ *
+ *	steadyState		: one simulated cycle, with inFlight events pending ; every event that is
+ *					  handled schedules itself again, like a request moving through the hierarchy
+ *	burstAndDrain	: BURST events added at once and then drained, jumping the clock from one
+ *					  event to the next as the simulator does when it skips idle cycles
+ * */
+
+package generic;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import memorysystem.AddressCarryingEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventQueueBenchmark {
+
+	static final int BURST = 4096;
+	static final int NUM_DELAYS = 1 << 16;
+
+	// events pending in steadyState
+	@Param({"64", "1024"})
+	int inFlight;
+
+	EventQueue eventQueue;
+	EventQueue burstQueue;
+	Sink sink;
+	long delays[];
+	int nextDelay;
+	AddressCarryingEvent burst[];
+
+	// handles the events ; in steady state, every event is scheduled again
+	class Sink extends SimulationElement {
+
+		boolean reschedule = true;
+		long numHandled = 0;
+
+		Sink() {
+			super(PortType.Unlimited, 1, 1, 0, 1);
+		}
+
+		public void handleEvent(EventQueue eventQ, Event event) {
+			numHandled++;
+			if(reschedule) {
+				event.setEventTime(GlobalClock.getCurrentTime() + nextDelay());
+				eventQ.addEvent(event);
+			}
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		GlobalClock.setCurrentTime(0);
+
+		Random random = new Random(42);
+		delays = new long[NUM_DELAYS];
+		for(int i = 0; i < NUM_DELAYS; i++) {
+			int kind = random.nextInt(100);
+			if(kind < 85) {
+				delays[i] = 1 + random.nextInt(20);
+			} else if(kind < 98) {
+				delays[i] = 100 + random.nextInt(200);
+			} else {
+				delays[i] = 2000 + random.nextInt(10000);
+			}
+		}
+
+		eventQueue = new EventQueue();
+		sink = new Sink();
+		for(int i = 0; i < inFlight; i++) {
+			eventQueue.addEvent(new AddressCarryingEvent(eventQueue, nextDelay(), sink, sink,
+					RequestType.Cache_Read, i * 64));
+		}
+
+		burstQueue = new EventQueue();
+		burst = new AddressCarryingEvent[BURST];
+		for(int i = 0; i < BURST; i++) {
+			burst[i] = new AddressCarryingEvent(null, 0, sink, sink, RequestType.Cache_Read, i * 64);
+		}
+	}
+
+	long nextDelay() {
+		nextDelay = (nextDelay + 1) & (NUM_DELAYS - 1);
+		return delays[nextDelay];
+	}
+
+	@Benchmark
+	public long steadyState() {
+		sink.reschedule = true;
+		GlobalClock.setCurrentTime(GlobalClock.getCurrentTime() + 1);
+		eventQueue.processEvents();
+		return sink.numHandled;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BURST)
+	public long burstAndDrain() {
+		// the burst uses a queue of its own so that the steady state events do not interfere
+		EventQueue queue = burstQueue;
+		sink.reschedule = false;
+
+		long now = GlobalClock.getCurrentTime();
+		for(int i = 0; i < BURST; i++) {
+			queue.addEvent(burst[i].update(queue, now + nextDelay(), sink, sink, RequestType.Cache_Read));
+		}
+
+		while(!queue.isEmpty()) {
+			GlobalClock.setCurrentTime(Math.max(GlobalClock.getCurrentTime(), queue.getNextEventTime()));
+			queue.processEvents();
+		}
+		return sink.numHandled;
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Synthetic address streams for the memory system benchmarks. A stream is generated once, with a
+ * fixed seed, into an array whose length is a power of 2, and then replayed in a loop so that the
+ * benchmarks do not measure the random number generator.
+ *
+ *	sequential	: one access per cache line, walking the working set (streaming kernels)
+ *	strided		: accesses 4 KB apart, one line per page (column walks, TLB-unfriendly loops)
+ *	random		: uniform over the working set (pointer chasing, hash tables)
+ *	hotset		: 90% of the accesses to 10% of the working set (typical reuse)
+ * */
+
+package main;
+
+import java.util.Random;
+
+public class AddressStream {
+
+	public static final String SEQUENTIAL = "sequential";
+	public static final String STRIDED = "strided";
+	public static final String RANDOM = "random";
+	public static final String HOTSET = "hotset";
+
+	static final int LINE_SIZE = 64;
+	static final int PAGE_SIZE = 4096;
+	// keeps the stream away from address 0, which some of the simulator treats specially
+	static final long BASE = 0x10000000L;
+
+	final long addresses[];
+	final int mask;
+	int next = 0;
+
+	/*
+	 * length (a power of 2) addresses of the given pattern over workingSetBytes bytes
+	 */
+	public AddressStream(String pattern, long workingSetBytes, int length, long seed) {
+		if(length <= 0 || (length & (length - 1)) != 0) {
+			throw new IllegalArgumentException("stream length must be a power of 2 : " + length);
+		}
+
+		addresses = new long[length];
+		mask = length - 1;
+
+		long numLines = Math.max(1, workingSetBytes / LINE_SIZE);
+		long numPages = Math.max(1, workingSetBytes / PAGE_SIZE);
+		Random random = new Random(seed);
+
+		for(int i = 0; i < length; i++) {
+			long line;
+			if(pattern.equals(SEQUENTIAL)) {
+				line = i % numLines;
+			} else if(pattern.equals(STRIDED)) {
+				line = (i % numPages) * (PAGE_SIZE / LINE_SIZE) + (i / numPages) % (PAGE_SIZE / LINE_SIZE);
+			} else if(pattern.equals(RANDOM)) {
+				line = (long)(random.nextDouble() * numLines);
+			} else if(pattern.equals(HOTSET)) {
+				long hotLines = Math.max(1, numLines / 10);
+				if(random.nextInt(10) != 0) {
+					line = (long)(random.nextDouble() * hotLines);
+				} else {
+					line = (long)(random.nextDouble() * numLines);
+				}
+			} else {
+				throw new IllegalArgumentException("unknown address stream : " + pattern);
+			}
+			// a random offset within the line, as loads and stores are rarely line aligned
+			addresses[i] = BASE + line * LINE_SIZE + random.nextInt(LINE_SIZE / 8) * 8;
+		}
+	}
+
+	public long next() {
+		long address = addresses[next];
+		next = (next + 1) & mask;
+		return address;
+	}
+
+	public int length() {
+		return addresses.length;
+	}
+}
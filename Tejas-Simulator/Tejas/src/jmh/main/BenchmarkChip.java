@@ -0,0 +1,105 @@
+/*
+ * Builds the simulated chip for the JMH benchmarks, the same way Main does before it starts the
+ * emulator : parse the configuration, initialise the statistics and the object pools, and create
+ * the cores, caches, interconnect and memory controllers.
+ *
+ * The configuration is the file named by the tejas.config system property (the jmh target of
+ * build.xml sets it, src/simulator/config/knl.xml by default). The emulator is never started, so
+ * the emulator type is forced to none and the communication type to file.
+ *
+ * Each JMH fork is a separate JVM, so the chip is built at most once per fork.
+ * */
+
+package main;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import config.CommunicationType;
+import config.EmulatorConfig;
+import config.EmulatorType;
+import config.SimulationConfig;
+import config.SystemConfig;
+import config.XMLParser;
+import emulatorinterface.translator.x86.objparser.ObjParser;
+import generic.GlobalClock;
+import generic.Statistics;
+
+public class BenchmarkChip {
+
+	public static final String CONFIG_PROPERTY = "tejas.config";
+	public static final String DEFAULT_CONFIG = "src/simulator/config/knl.xml";
+
+	static boolean created = false;
+
+	/*
+	 * builds the chip described by the configuration. If dramController is set, the main memory
+	 * is simulated by the DRAM controllers (MemControllerToUse = DRAM) whatever the configuration
+	 * says.
+	 */
+	public static synchronized void create(boolean dramController) {
+		if(created) {
+			return;
+		}
+		created = true;
+
+		String configFileName = System.getProperty(CONFIG_PROPERTY, DEFAULT_CONFIG);
+		if(dramController) {
+			configFileName = withDRAMController(configFileName);
+		}
+
+		SimulationConfig.outputFileName = new File(System.getProperty("java.io.tmpdir"),
+				"tejas-jmh-stats.txt").getPath();
+		XMLParser.parse(configFileName);
+
+		EmulatorConfig.emulatorType = EmulatorType.none;
+		EmulatorConfig.communicationType = CommunicationType.file;
+		SimulationConfig.subsetSimulation = false;
+
+		Statistics.initStatistics();
+		Main.initializeObjectPools();
+
+		ObjParser.initializeThreadMicroOpsList(SystemConfig.numEmuThreadsPerJavaThread);
+		ObjParser.initializeDynamicInstructionBuffer(SystemConfig.numEmuThreadsPerJavaThread*SystemConfig.numEmuThreadsPerJavaThread);
+		ObjParser.initializeControlMicroOps();
+
+		ArchitecturalComponent.createChip();
+		GlobalClock.setCurrentTime(0);
+	}
+
+	// copy of the configuration with <MemControllerToUse>DRAM</MemControllerToUse>
+	static String withDRAMController(String configFileName) {
+		try {
+			File config = new File(configFileName);
+			byte bytes[] = new byte[(int)config.length()];
+			FileInputStream input = new FileInputStream(config);
+			try {
+				int n = 0;
+				while(n < bytes.length) {
+					n += input.read(bytes, n, bytes.length - n);
+				}
+			} finally {
+				input.close();
+			}
+
+			String text = new String(bytes, "UTF-8").replaceAll(
+					"<MemControllerToUse>\\s*SIMPLE\\s*</MemControllerToUse>",
+					"<MemControllerToUse>DRAM</MemControllerToUse>");
+
+			File copy = File.createTempFile("tejas-jmh-dram", ".xml");
+			copy.deleteOnExit();
+			FileOutputStream output = new FileOutputStream(copy);
+			try {
+				output.write(text.getBytes("UTF-8"));
+			} finally {
+				output.close();
+			}
+			return copy.getPath();
+		} catch (IOException e) {
+			misc.Error.showErrorAndExit("Error in reading config file " + configFileName + " : " + e);
+			return null;
+		}
+	}
+}
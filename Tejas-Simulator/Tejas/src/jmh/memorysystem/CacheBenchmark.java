@@ -0,0 +1,92 @@
+/*
+ * Cache lookup and fill on the L1 data cache of core 0 of the configured chip, and on the cache
+ * below it.
+ *
+ * Every operation looks up the next address of the stream (accessAndMark, as handleAccess does)
+ * and fills the line on a miss, evicting the replacement policy's victim. The working set is a
+ * multiple of the cache size, so that the hit rate depends on the address pattern.
+ * */
+
+package memorysystem;
+
+import java.util.concurrent.TimeUnit;
+
+import main.AddressStream;
+import main.ArchitecturalComponent;
+import main.BenchmarkChip;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CacheBenchmark {
+
+	@Param({"L1", "L2"})
+	String level;
+
+	@Param({AddressStream.SEQUENTIAL, AddressStream.RANDOM, AddressStream.HOTSET})
+	String pattern;
+
+	// working set, in multiples of the cache size
+	@Param({"2"})
+	int workingSet;
+
+	Cache cache;
+	AddressStream stream;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		BenchmarkChip.create(false);
+
+		CoreMemorySystem coreMemorySystem = ArchitecturalComponent.getCores()[0]
+				.getExecEngine().getCoreMemorySystem();
+		cache = coreMemorySystem.getL1Cache();
+		if(level.equals("L2")) {
+			// the cache the L1 misses go to : a private L2, or the tile's L2 on KNL
+			cache = cache.nextLevel;
+			if(cache == null) {
+				misc.Error.showErrorAndExit("the L1 data cache of core 0 has no next level cache");
+			}
+		}
+
+		stream = new AddressStream(pattern, (long)cache.size * workingSet, 1 << 20, 42);
+
+		// warm the cache up so that the measurement starts in steady state
+		for(int i = 0; i < stream.length(); i++) {
+			accessOrFill(stream.next());
+		}
+	}
+
+	CacheLine accessOrFill(long address) {
+		CacheLine cl = cache.accessAndMark(address);
+		if(cl != null) {
+			return cl;
+		}
+		return cache.fill(address, MESIF.EXCLUSIVE);
+	}
+
+	@Benchmark
+	public CacheLine accessAndFill() {
+		return accessOrFill(stream.next());
+	}
+
+	@Benchmark
+	public CacheLine accessOnly() {
+		return cache.accessAndMark(stream.next());
+	}
+}
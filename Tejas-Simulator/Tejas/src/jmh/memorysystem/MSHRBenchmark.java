@@ -0,0 +1,106 @@
+/*
+ * MSHR lookups, as a cache sees them on a stream of misses.
+ *
+ * Every operation takes the next miss address : if the line is already pending, the request is
+ * merged into its entry ; otherwise, when the MSHR is full, the oldest entry is completed first
+ * (removeEventsFromMSHR / releaseWaitingEvents, as a fill does), and a new entry is created. A
+ * third of the requests are writes. The MSHR is attached to the L1 data cache of core 0.
+ * */
+
+package memorysystem;
+
+import java.util.concurrent.TimeUnit;
+
+import generic.RequestType;
+import main.AddressStream;
+import main.ArchitecturalComponent;
+import main.BenchmarkChip;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MSHRBenchmark {
+
+	@Param({"16", "64"})
+	int mshrSize;
+
+	@Param({AddressStream.RANDOM, AddressStream.HOTSET})
+	String pattern;
+
+	// bytes over which the misses fall : small enough for requests to the same line to overlap
+	@Param({"65536"})
+	long footprint;
+
+	MSHR mshr;
+	AddressStream stream;
+
+	// line addresses of the pending entries, oldest first
+	long pending[];
+	int pendingHead, numPending;
+
+	AddressCarryingEvent events[];
+	int nextEvent;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		BenchmarkChip.create(false);
+
+		Cache cache = ArchitecturalComponent.getCores()[0].getExecEngine()
+				.getCoreMemorySystem().getL1Cache();
+		mshr = new MSHR(mshrSize, cache.blockSizeBits, cache);
+		stream = new AddressStream(pattern, footprint, 1 << 20, 42);
+
+		pending = new long[mshrSize];
+
+		// the MSHR holds at most mshrSize requests, so that many events (and some slack) are reused
+		events = new AddressCarryingEvent[4 * mshrSize];
+		for(int i = 0; i < events.length; i++) {
+			events[i] = new AddressCarryingEvent(null, 0, cache, cache,
+					(i % 3 == 2) ? RequestType.Cache_Write : RequestType.Cache_Read, 0);
+		}
+	}
+
+	@Benchmark
+	public int miss() {
+		long address = stream.next();
+
+		if(!mshr.isAddrInMSHR(address)) {
+			while(numPending > 0 && (mshr.isMSHRFull() || numPending == pending.length)) {
+				complete();
+			}
+			pending[(pendingHead + numPending) % pending.length] = address;
+			numPending++;
+		}
+
+		AddressCarryingEvent event = events[nextEvent];
+		nextEvent = (nextEvent + 1) % events.length;
+		event.setAddress(address);
+		mshr.addToMSHR(event);
+
+		return numPending;
+	}
+
+	// the oldest pending line is filled
+	void complete() {
+		long address = pending[pendingHead];
+		pendingHead = (pendingHead + 1) % pending.length;
+		numPending--;
+		mshr.releaseWaitingEvents(mshr.removeEventsFromMSHR(address));
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Router.handleEvent on the mesh of the configured chip.
+ *
+ *	traffic		: one operation is a round in which every node of the mesh sends one message,
+ *				  through its NocInterface, and the round ends when all the messages have
+ *				  reached their destination (so buffer allocation and collisions are included)
+ *	route		: Router.RouteComputation alone, over the pairs of the traffic pattern
+ *
+ * The traffic patterns are the usual synthetic ones :
+ *	uniform		: to a random node
+ *	complement	: to the node mirrored through the centre of the mesh
+ *	hotspot		: a quarter of the messages to one node (a memory controller), the rest uniform
+ *	neighbour	: to the next node of the same row
+ * */
+
+package net;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import generic.Event;
+import generic.EventQueue;
+import generic.GlobalClock;
+import generic.PortType;
+import generic.RequestType;
+import generic.SimulationElement;
+import main.ArchitecturalComponent;
+import main.BenchmarkChip;
+import memorysystem.AddressCarryingEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RouterBenchmark {
+
+	static final int NUM_ROUNDS = 64;
+
+	@Param({"uniform", "complement", "hotspot", "neighbour"})
+	String pattern;
+
+	EventQueue eventQueue;
+	Sink sinks[];
+	int numNodes;
+
+	// destinations of NUM_ROUNDS rounds, one per node and round
+	int destination[][];
+	int round;
+
+	AddressCarryingEvent messages[];
+	int numDelivered;
+
+	// sends and receives messages on behalf of the element attached to a NocInterface
+	class Sink extends SimulationElement {
+
+		final NocInterface nocInterface;
+
+		Sink(NocInterface nocInterface) {
+			super(PortType.Unlimited, 1, 1, 0, 1);
+			this.nocInterface = nocInterface;
+			setComInterface(nocInterface);
+		}
+
+		public void handleEvent(EventQueue eventQ, Event event) {
+			numDelivered++;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		BenchmarkChip.create(false);
+
+		NOC noc = (NOC)ArchitecturalComponent.getInterConnect();
+		NocInterface elements[][] = noc.getNetworkElements();
+		int numRows = noc.getNumRows();
+		int numColumns = noc.getNumColumns();
+
+		numNodes = numRows * numColumns;
+		sinks = new Sink[numNodes];
+		for(int i = 0; i < numRows; i++) {
+			for(int j = 0; j < numColumns; j++) {
+				sinks[i * numColumns + j] = new Sink(elements[i][j]);
+			}
+		}
+
+		Random random = new Random(42);
+		int hotspot = (numRows / 2) * numColumns + numColumns / 2;
+		destination = new int[NUM_ROUNDS][numNodes];
+		for(int r = 0; r < NUM_ROUNDS; r++) {
+			for(int node = 0; node < numNodes; node++) {
+				int x = node / numColumns, y = node % numColumns;
+				int to;
+				if(pattern.equals("uniform")) {
+					to = random.nextInt(numNodes);
+				} else if(pattern.equals("complement")) {
+					to = (numRows - 1 - x) * numColumns + (numColumns - 1 - y);
+				} else if(pattern.equals("hotspot")) {
+					to = (random.nextInt(4) == 0) ? hotspot : random.nextInt(numNodes);
+				} else if(pattern.equals("neighbour")) {
+					to = x * numColumns + (y + 1) % numColumns;
+				} else {
+					throw new IllegalArgumentException("unknown traffic pattern : " + pattern);
+				}
+				if(to == node) {
+					// a message to itself never enters the mesh
+					to = (node + 1) % numNodes;
+				}
+				destination[r][node] = to;
+			}
+		}
+
+		eventQueue = new EventQueue();
+		messages = new AddressCarryingEvent[numNodes];
+		for(int node = 0; node < numNodes; node++) {
+			messages[node] = new AddressCarryingEvent(eventQueue, 0, sinks[node], sinks[node],
+					RequestType.Cache_Read, node * 64);
+		}
+	}
+
+	@Benchmark
+	public int traffic() {
+		int to[] = destination[round];
+		round = (round + 1) % NUM_ROUNDS;
+
+		numDelivered = 0;
+		for(int node = 0; node < numNodes; node++) {
+			AddressCarryingEvent message = messages[node];
+			message.update(eventQueue, 0, sinks[node], sinks[to[node]], RequestType.Cache_Read);
+			message.hopLength = 0;
+			sinks[node].sendEvent(message);
+		}
+
+		while(!eventQueue.isEmpty()) {
+			GlobalClock.setCurrentTime(Math.max(GlobalClock.getCurrentTime(), eventQueue.getNextEventTime()));
+			eventQueue.processEvents();
+		}
+
+		if(numDelivered != numNodes) {
+			misc.Error.showErrorAndExit("only " + numDelivered + " of " + numNodes + " messages were delivered");
+		}
+		return numDelivered;
+	}
+
+	@Benchmark
+	public int route() {
+		int to[] = destination[round];
+		round = (round + 1) % NUM_ROUNDS;
+
+		int sum = 0;
+		for(int node = 0; node < numNodes; node++) {
+			Router router = sinks[node].nocInterface.getRouter();
+			sum += router.RouteComputation(router.getID(), sinks[to[node]].nocInterface.getId()).ordinal();
+		}
+		return sum;
+	}
+}
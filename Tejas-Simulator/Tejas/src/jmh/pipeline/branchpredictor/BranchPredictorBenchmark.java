@@ -0,0 +1,146 @@
+/*
+ * BranchPredictor.predict / Train, as the pipeline calls them for every branch : predict, then
+ * train with the outcome. The table sizes are those of core 0 in the configuration.
+ *
+ * The branches come from NUM_BRANCHES static branches, executed in a random order weighted
+ * towards a few hot ones. A branch is one of :
+ *	loop		: taken tripCount-1 times, then not taken (trip counts of 4 to 64)
+ *	biased		: taken 95% of the time
+ *	correlated	: the outcome of the previous branch
+ *	random		: taken half of the time
+ * mix gives the share of each kind.
+ * */
+
+package pipeline.branchpredictor;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import config.BranchPredictorConfig;
+import config.SystemConfig;
+import main.BenchmarkChip;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BranchPredictorBenchmark {
+
+	static final int NUM_BRANCHES = 4096;
+	static final int STREAM_LENGTH = 1 << 20;
+
+	@Param({"TAGE", "TAGESCL", "HashedPerceptron", "GShare", "Bimodal"})
+	String predictor;
+
+	// percentages of loop, biased, correlated and random branches
+	@Param({"40/40/10/10", "10/30/20/40"})
+	String mix;
+
+	BranchPredictor branchPredictor;
+	long address[];
+	boolean outcome[];
+	int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		BenchmarkChip.create(false);
+
+		BranchPredictorConfig config = SystemConfig.core[0].branchPredictor;
+		if(predictor.equals("TAGE")) {
+			branchPredictor = new TAGE(null, config.PCBits, config.saturating_bits);
+		} else if(predictor.equals("TAGESCL")) {
+			branchPredictor = new TAGESCL(null, config.TAGETables, config.TAGETableBits,
+					config.TAGEMinHistory, config.TAGEMaxHistory);
+		} else if(predictor.equals("HashedPerceptron")) {
+			branchPredictor = new HashedPerceptronPredictor(null, config.PerceptronTables,
+					config.PerceptronTableBits, config.PerceptronMaxHistory);
+		} else if(predictor.equals("GShare")) {
+			branchPredictor = new GShare(null, config.BHRsize, config.saturating_bits);
+		} else if(predictor.equals("Bimodal")) {
+			branchPredictor = new BimodalPredictor(null, config.PCBits, config.saturating_bits);
+		} else {
+			throw new IllegalArgumentException("unknown branch predictor : " + predictor);
+		}
+
+		generateStream();
+	}
+
+	void generateStream() {
+		String shares[] = mix.split("/");
+		int loopShare = Integer.parseInt(shares[0]);
+		int biasedShare = loopShare + Integer.parseInt(shares[1]);
+		int correlatedShare = biasedShare + Integer.parseInt(shares[2]);
+
+		Random random = new Random(42);
+		long pc[] = new long[NUM_BRANCHES];
+		int kind[] = new int[NUM_BRANCHES];
+		int tripCount[] = new int[NUM_BRANCHES];
+		int iteration[] = new int[NUM_BRANCHES];
+		for(int b = 0; b < NUM_BRANCHES; b++) {
+			// branches of a text segment, a few bytes apart
+			pc[b] = 0x400000L + b * 24 + random.nextInt(16);
+			int share = random.nextInt(100);
+			kind[b] = (share < loopShare) ? 0 : (share < biasedShare) ? 1 : (share < correlatedShare) ? 2 : 3;
+			tripCount[b] = 4 + random.nextInt(61);
+		}
+
+		address = new long[STREAM_LENGTH];
+		outcome = new boolean[STREAM_LENGTH];
+		boolean previous = false;
+		int i = 0;
+		while(i < STREAM_LENGTH) {
+			// the hot branches are executed most of the time
+			int b = (int)(NUM_BRANCHES * Math.pow(random.nextDouble(), 3));
+
+			// a loop branch runs all its iterations in a row
+			int repeat = (kind[b] == 0) ? tripCount[b] : 1;
+			for(int r = 0; r < repeat && i < STREAM_LENGTH; r++, i++) {
+				boolean taken;
+				switch(kind[b]) {
+					case 0:
+						iteration[b] = (iteration[b] + 1) % tripCount[b];
+						taken = (iteration[b] != 0);
+						break;
+					case 1:
+						taken = random.nextInt(100) < 95;
+						break;
+					case 2:
+						taken = previous;
+						break;
+					default:
+						taken = random.nextBoolean();
+						break;
+				}
+				address[i] = pc[b];
+				outcome[i] = taken;
+				previous = taken;
+			}
+		}
+	}
+
+	@Benchmark
+	public boolean predictAndTrain() {
+		long pc = address[next];
+		boolean taken = outcome[next];
+		next = (next + 1) & (STREAM_LENGTH - 1);
+
+		boolean prediction = branchPredictor.predict(pc, taken);
+		branchPredictor.Train(pc, taken, prediction);
+		return prediction;
+	}
+}
@@ -6,7 +6,18 @@ public class BranchPredictorConfig {
 	public int saturating_bits;
 	public BP predictorMode;
 	
+	//TAGE-SC-L : number of tagged tables, log2 of their size, shortest and longest history
+	public int TAGETables;
+	public int TAGETableBits;
+	public int TAGEMinHistory;
+	public int TAGEMaxHistory;
+	
+	//hashed perceptron : number of weight tables, log2 of their size, longest history
+	public int PerceptronTables;
+	public int PerceptronTableBits;
+	public int PerceptronMaxHistory;
+	
 	public static enum BP {
-		NoPredictor, PerfectPredictor, AlwaysTaken, AlwaysNotTaken, Tournament, Bimodal, GShare, GAg, GAp, PAg, PAp,TAGE
+		NoPredictor, PerfectPredictor, AlwaysTaken, AlwaysNotTaken, Tournament, Bimodal, GShare, GAg, GAp, PAg, PAp,TAGE, TAGESCL, HashedPerceptron
 	}
 }
@@ -61,9 +61,15 @@ public class CacheConfig
 
 	public boolean isDirectory = false;
 	
+	public Replacement replacement = Replacement.LRU;
+	
 	public static enum WritePolicy{
 		WRITE_BACK, WRITE_THROUGH
 	}
+	
+	public static enum Replacement{
+		LRU, PLRU, SRRIP, BRRIP, DRRIP
+	}
 
 	//Getters and setters
 	
@@ -36,6 +36,7 @@ public class CoreConfig
 	public PipelineType pipelineType;
 		
 	public int ITLBSize;
+	public int ITLBAssociativity;
 	public int ITLBLatency;
 	public int ITLBMissPenalty;
 	public PortType ITLBPortType;
@@ -43,11 +44,20 @@ public class CoreConfig
 	public int ITLBPortOccupancy;
 	
 	public int DTLBSize;
+	public int DTLBAssociativity;
 	public int DTLBLatency;
 	public int DTLBMissPenalty;
 	public PortType DTLBPortType;
 	public int DTLBAccessPorts;
 	public int DTLBPortOccupancy;
+	
+	public int STLBSize;				//0 if the core has no STLB
+	public int STLBAssociativity;
+	public int STLBLatency;
+	
+	public boolean pageWalkerEnabled;	//if false, a TLB miss costs a fixed penalty
+	public int pageSizeBits;
+	public int pageWalkCacheSize;		//entries per page table level above the leaf
 
 	public int DecodeWidth;
 	public int IssueWidth;
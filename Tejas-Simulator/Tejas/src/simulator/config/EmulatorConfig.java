@@ -14,4 +14,7 @@ public class EmulatorConfig {
 	public static String QemuTool = null;
 	public static String ShmLibDirectory;
 	public static String KillEmulatorScript;
+	
+	// directory of the cached static translations of executables (pin), null if not cached
+	public static String StaticTranslationCache = null;
 }
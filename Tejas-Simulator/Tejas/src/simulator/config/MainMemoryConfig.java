@@ -18,7 +18,9 @@ public class MainMemoryConfig {
 	public static enum SchedulingPolicy
 	{
 		RankThenBankRoundRobin,
-		BankThenRankRoundRobin
+		BankThenRankRoundRobin,
+		FRFCFS,				//row hits first, then oldest first
+		PARBS				//FRFCFS within thread-aware batches
 	};
 	
 	public static RowBufferPolicy rowBufferPolicy; 	
@@ -43,6 +45,12 @@ public class MainMemoryConfig {
 	public int numRows;
 	public int numCols;
 	public int TRANSQUEUE_DEPTH;
+	
+	//FRFCFS and PARBS : writes wait until writeHighWatermark of them are queued, and are then drained down to writeLowWatermark
+	public int writeHighWatermark;
+	public int writeLowWatermark;
+	//PARBS : requests of a source to a bank marked in a batch
+	public int batchingCap;
 	//public int CMD_QUEUE_DEPTH = 32;
 	public static int TOTAL_ROW_ACCESSES;
 
@@ -53,4 +53,8 @@ public class SimulationConfig
 	
 	public static boolean collectDataWorkingSetInfo;
 	public static long dataWorkingSetChunkSize;
+	
+	public static boolean skipIdleCycles; //fast-forward the clock over cycles in which no core can make progress
+	public static int numPipelineThreads; //number of threads on which the pipelines of the cores are stepped
+	public static boolean profileSimulator; //collect event counts and wall-time samples of the simulator itself
 }
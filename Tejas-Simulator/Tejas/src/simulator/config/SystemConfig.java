@@ -14,9 +14,10 @@
 package config;
 
 import generic.PortType;
-import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Vector;
+import memorysystem.PageTable;
+import memorysystem.coherence.CHAHomeResolver;
 import memorysystem.coherence.Coherence;
 import memorysystem.coherence.Directory;
 
@@ -76,9 +77,10 @@ public class SystemConfig {
   public static long ddrSize = 0; // todo
 
   public static long mcdramPhysStartAddr = 0x3040000000L;
-  public static HashMap<Long, Long> physAddr = new HashMap<Long, Long>();
+  public static PageTable pageTable; // null : no address file
 
   public static Vector<Coherence> chaList = new Vector<Coherence>();
+  public static CHAHomeResolver chaHomeResolver;
 
   // public static int[] mappingSNC = {0,1,4,5,6,10,11,12,16,
   // 2,3,7,8,9,13,14,15,19,
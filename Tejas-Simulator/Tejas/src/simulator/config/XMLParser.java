@@ -123,6 +123,20 @@ public class XMLParser {
         return config;
     }
     
+    private static int getPageSizeBits(String pageSize) {
+        if (pageSize.equals("4KB")) {
+            return 12;
+        } else if (pageSize.equals("2MB")) {
+            return 21;
+        } else if (pageSize.equals("1GB")) {
+            return 30;
+        } else {
+            misc.Error.showErrorAndExit(
+                    "Invalid page size : " + pageSize + ". Use 4KB, 2MB or 1GB");
+            return -1;
+        }
+    }
+    
     private static boolean isAttributePresent(Element element, String str) {
         return (element.getAttribute(str) != "");
     }
@@ -222,6 +236,10 @@ public class XMLParser {
                 emulatorElmnt);
         EmulatorConfig.KillEmulatorScript = getImmediateString(
                 "KillEmulatorScript", emulatorElmnt);
+        if (isElementPresent("StaticTranslationCache", emulatorElmnt)) {
+            EmulatorConfig.StaticTranslationCache = getImmediateString(
+                    "StaticTranslationCache", emulatorElmnt);
+        }
         
         EmulatorConfig.storeExecutionTraceInAFile = Boolean
                 .parseBoolean(getImmediateString("StoreExecutionTraceInAFile",
@@ -389,6 +407,30 @@ public class XMLParser {
         } else {
             SimulationConfig.broadcast = false;
         }
+        
+        // optional : configs written before it do not skip
+        if (isElementPresent("SkipIdleCycles", simulationElmnt)) {
+            SimulationConfig.skipIdleCycles = Boolean.parseBoolean(
+                    getImmediateString("SkipIdleCycles", simulationElmnt));
+        } else {
+            SimulationConfig.skipIdleCycles = false;
+        }
+        
+        // optional : configs written before it step the pipelines serially
+        if (isElementPresent("PipelineThreads", simulationElmnt)) {
+            SimulationConfig.numPipelineThreads = Integer.parseInt(
+                    getImmediateString("PipelineThreads", simulationElmnt));
+        } else {
+            SimulationConfig.numPipelineThreads = 1;
+        }
+        
+        // optional : configs written before it do not profile
+        if (isElementPresent("ProfileSimulator", simulationElmnt)) {
+            SimulationConfig.profileSimulator = Boolean.parseBoolean(
+                    getImmediateString("ProfileSimulator", simulationElmnt));
+        } else {
+            SimulationConfig.profileSimulator = false;
+        }
     }
     
     private static EnergyConfig getEnergyConfig(Element parent) {
@@ -568,6 +610,12 @@ public class XMLParser {
                     .getElementsByTagName("ITLB")).item(0);
             core.ITLBSize = Integer
                     .parseInt(getImmediateString("Size", iTLBElmnt));
+            if (isElementPresent("Associativity", iTLBElmnt)) {
+                core.ITLBAssociativity = Integer.parseInt(
+                        getImmediateString("Associativity", iTLBElmnt));
+            } else {
+                core.ITLBAssociativity = core.ITLBSize;
+            }
             core.ITLBLatency = Integer
                     .parseInt(getImmediateString("Latency", iTLBElmnt));
             core.ITLBMissPenalty = Integer
@@ -584,6 +632,12 @@ public class XMLParser {
                     .getElementsByTagName("DTLB")).item(0);
             core.DTLBSize = Integer
                     .parseInt(getImmediateString("Size", dTLBElmnt));
+            if (isElementPresent("Associativity", dTLBElmnt)) {
+                core.DTLBAssociativity = Integer.parseInt(
+                        getImmediateString("Associativity", dTLBElmnt));
+            } else {
+                core.DTLBAssociativity = core.DTLBSize;
+            }
             core.DTLBLatency = Integer
                     .parseInt(getImmediateString("Latency", dTLBElmnt));
             core.DTLBMissPenalty = Integer
@@ -596,6 +650,31 @@ public class XMLParser {
                     .parseInt(getImmediateString("PortOccupancy", dTLBElmnt));
             core.dTLBPower = getEnergyConfig(dTLBElmnt);
             
+            if (isElementPresent("STLB", coreElmnt)) {
+                Element sTLBElmnt = (Element) (coreElmnt
+                        .getElementsByTagName("STLB")).item(0);
+                core.STLBSize = Integer
+                        .parseInt(getImmediateString("Size", sTLBElmnt));
+                core.STLBAssociativity = Integer.parseInt(
+                        getImmediateString("Associativity", sTLBElmnt));
+                core.STLBLatency = Integer
+                        .parseInt(getImmediateString("Latency", sTLBElmnt));
+            } else {
+                core.STLBSize = 0;
+            }
+            
+            if (isElementPresent("PageWalker", coreElmnt)) {
+                Element pageWalkerElmnt = (Element) (coreElmnt
+                        .getElementsByTagName("PageWalker")).item(0);
+                core.pageWalkerEnabled = true;
+                core.pageSizeBits = getPageSizeBits(
+                        getImmediateString("PageSize", pageWalkerElmnt));
+                core.pageWalkCacheSize = Integer.parseInt(getImmediateString(
+                        "PageWalkCacheSize", pageWalkerElmnt));
+            } else {
+                core.pageWalkerEnabled = false;
+            }
+            
             Element decodeElmnt = (Element) (coreElmnt
                     .getElementsByTagName("Decode")).item(0);
             core.DecodeWidth = Integer
@@ -945,6 +1024,22 @@ public class XMLParser {
                 getImmediateString("TRANSQUEUE_DEPTH", MemControllerElmnt));
         mainMemConfig.TOTAL_ROW_ACCESSES = Integer.parseInt(
                 getImmediateString("TOTAL_ROW_ACCESSES", MemControllerElmnt));
+        // optional, only used by FRFCFS and PARBS
+        mainMemConfig.writeHighWatermark = 24;
+        mainMemConfig.writeLowWatermark = 8;
+        mainMemConfig.batchingCap = 5;
+        if (isElementPresent("writeHighWatermark", MemControllerElmnt)) {
+            mainMemConfig.writeHighWatermark = Integer.parseInt(
+                    getImmediateString("writeHighWatermark", MemControllerElmnt));
+        }
+        if (isElementPresent("writeLowWatermark", MemControllerElmnt)) {
+            mainMemConfig.writeLowWatermark = Integer.parseInt(
+                    getImmediateString("writeLowWatermark", MemControllerElmnt));
+        }
+        if (isElementPresent("batchingCap", MemControllerElmnt)) {
+            mainMemConfig.batchingCap = Integer.parseInt(
+                    getImmediateString("batchingCap", MemControllerElmnt));
+        }
         
         mainMemConfig.tCK = Double
                 .parseDouble(getImmediateString("tCK", MemControllerElmnt));
@@ -1154,6 +1249,13 @@ public class XMLParser {
         cache.mshrSize = Integer
                 .parseInt(getImmediateString("MSHRSize", CacheType));
         
+        if (isElementPresent("Replacement", CacheType)) {
+            cache.replacement = CacheConfig.Replacement
+                    .valueOf(getImmediateString("Replacement", CacheType));
+        } else {
+            cache.replacement = CacheConfig.Replacement.LRU;
+        }
+        
         cache.coherenceName = getImmediateString("Coherence", CacheType);
         
         cache.numberOfBuses = Integer
@@ -1211,12 +1313,53 @@ public class XMLParser {
         else if (tempStr.equalsIgnoreCase("TAGE")) {
             branchPredictor.predictorMode = BP.TAGE;
         }
+        else if (tempStr.equalsIgnoreCase("TAGESCL") || tempStr.equalsIgnoreCase("TAGE-SC-L"))
+            branchPredictor.predictorMode = BP.TAGESCL;
+        else if (tempStr.equalsIgnoreCase("HashedPerceptron"))
+            branchPredictor.predictorMode = BP.HashedPerceptron;
         branchPredictor.PCBits = Integer
                 .parseInt(getImmediateString("PCBits", predictorElmnt));
         branchPredictor.BHRsize = Integer
                 .parseInt(getImmediateString("BHRsize", predictorElmnt));
         branchPredictor.saturating_bits = Integer
                 .parseInt(getImmediateString("SaturatingBits", predictorElmnt));
+        // optional, only used by TAGESCL
+        branchPredictor.TAGETables = 12;
+        branchPredictor.TAGETableBits = 10;
+        branchPredictor.TAGEMinHistory = 4;
+        branchPredictor.TAGEMaxHistory = 640;
+        if (isElementPresent("TAGETables", predictorElmnt)) {
+            branchPredictor.TAGETables = Integer
+                    .parseInt(getImmediateString("TAGETables", predictorElmnt));
+        }
+        if (isElementPresent("TAGETableBits", predictorElmnt)) {
+            branchPredictor.TAGETableBits = Integer
+                    .parseInt(getImmediateString("TAGETableBits", predictorElmnt));
+        }
+        if (isElementPresent("TAGEMinHistory", predictorElmnt)) {
+            branchPredictor.TAGEMinHistory = Integer
+                    .parseInt(getImmediateString("TAGEMinHistory", predictorElmnt));
+        }
+        if (isElementPresent("TAGEMaxHistory", predictorElmnt)) {
+            branchPredictor.TAGEMaxHistory = Integer
+                    .parseInt(getImmediateString("TAGEMaxHistory", predictorElmnt));
+        }
+        // optional, only used by HashedPerceptron
+        branchPredictor.PerceptronTables = 16;
+        branchPredictor.PerceptronTableBits = 10;
+        branchPredictor.PerceptronMaxHistory = 256;
+        if (isElementPresent("PerceptronTables", predictorElmnt)) {
+            branchPredictor.PerceptronTables = Integer
+                    .parseInt(getImmediateString("PerceptronTables", predictorElmnt));
+        }
+        if (isElementPresent("PerceptronTableBits", predictorElmnt)) {
+            branchPredictor.PerceptronTableBits = Integer
+                    .parseInt(getImmediateString("PerceptronTableBits", predictorElmnt));
+        }
+        if (isElementPresent("PerceptronMaxHistory", predictorElmnt)) {
+            branchPredictor.PerceptronMaxHistory = Integer
+                    .parseInt(getImmediateString("PerceptronMaxHistory", predictorElmnt));
+        }
     }
     
     private static boolean setDirectoryCoherent(String immediateString) {
@@ -1334,6 +1477,10 @@ public class XMLParser {
             result = SchedulingPolicy.RankThenBankRoundRobin;
         else if (inputStr.equalsIgnoreCase("BankThenRankRoundRobin"))
             result = SchedulingPolicy.BankThenRankRoundRobin;
+        else if (inputStr.equalsIgnoreCase("FRFCFS"))
+            result = SchedulingPolicy.FRFCFS;
+        else if (inputStr.equalsIgnoreCase("PARBS"))
+            result = SchedulingPolicy.PARBS;
         else {
             System.err.println(
                     "XML Configuration error : Invalid DRAM Scheduling Policy specified");
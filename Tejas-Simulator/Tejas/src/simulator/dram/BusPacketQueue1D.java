@@ -1,5 +1,81 @@
 package dram;
 
+import misc.Error;
+
+//Bounded ring buffer of bus packets, in the order in which they were enqueued.
+//Removing a packet from the middle shifts the shorter side of the queue.
 public class BusPacketQueue1D {
 
+	MainMemoryBusPacket packets[];
+	int head;
+	int size;
+
+	public BusPacketQueue1D(int capacity)
+	{
+		packets = new MainMemoryBusPacket[capacity];
+		head = 0;
+		size = 0;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public int capacity()
+	{
+		return packets.length;
+	}
+
+	public MainMemoryBusPacket get(int i)
+	{
+		return packets[index(i)];
+	}
+
+	public void add(MainMemoryBusPacket busPacket)
+	{
+		if (size == packets.length)
+		{
+			Error.showErrorAndExit("== Error - Enqueued more than allowed in command queue");
+		}
+		packets[index(size)] = busPacket;
+		size++;
+	}
+
+	public MainMemoryBusPacket remove(int i)
+	{
+		MainMemoryBusPacket busPacket = packets[index(i)];
+		if (i < size / 2)
+		{
+			//shift the packets before i one place back
+			for (int k = i; k > 0; k--)
+			{
+				packets[index(k)] = packets[index(k - 1)];
+			}
+			packets[head] = null;
+			head = index(1);
+		}
+		else
+		{
+			//shift the packets after i one place forward
+			for (int k = i; k < size - 1; k++)
+			{
+				packets[index(k)] = packets[index(k + 1)];
+			}
+			packets[index(size - 1)] = null;
+		}
+		size--;
+		return busPacket;
+	}
+
+	int index(int i)
+	{
+		int j = head + i;
+		return (j >= packets.length) ? j - packets.length : j;
+	}
 }
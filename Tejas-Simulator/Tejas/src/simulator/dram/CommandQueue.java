@@ -1,6 +1,6 @@
 package dram;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 //import com.sun.xml.internal.bind.v2.runtime.unmarshaller.XsiNilLoader.Array;
 
@@ -15,15 +15,52 @@ import main.Main;
 import misc.Error;
 import net.Bus;
 
+/*
+ * Command queues of a DRAM channel, one ring buffer per rank (PerRank) or per
+ * rank and bank (PerRankPerBank), and the command scheduler.
+ *
+ * RankThenBankRoundRobin and BankThenRankRoundRobin issue the first issuable
+ * command of the next queue in round-robin order. FRFCFS issues, among the
+ * issuable commands of all the queues, column accesses to open rows (row hits)
+ * first, then the oldest. PARBS adds thread-aware batching on top of FRFCFS :
+ * the oldest batchingCap requests of every source in every bank are marked,
+ * marked requests go first, and among them the sources with the fewest marked
+ * requests go first ; a new batch is formed when the marked requests are done.
+ * Both hold writes back while reads are waiting, until writeHighWatermark
+ * writes are queued, and then drain them down to writeLowWatermark.
+ *
+ * The number of queued column accesses to the open row of every bank is kept
+ * up to date (it is recounted when the bank opens another row), so that the
+ * first-ready schedulers skip the queues of banks that can take neither a
+ * column access nor an activate.
+ *
+ * The tFAW window of every rank is a ring of the RAM cycles at which its last
+ * (at most four) activates expire. When pop() finds nothing to issue, nothing
+ * can be issued before the next expiry or getNextIssueTime(), unless a command
+ * is enqueued, a refresh is requested or a bank changes state : the controller
+ * sleeps until then.
+ */
 public class CommandQueue {
 	
-	ArrayList<MainMemoryBusPacket> BusPacketQueue1D;
-	ArrayList<ArrayList<MainMemoryBusPacket>> perRankQueue;
-	ArrayList<ArrayList<ArrayList<MainMemoryBusPacket>>> queues;
+	BusPacketQueue1D queues[][];
 	//QueuingStructure queuingStructure;				//in mainmemconfig
 	int numBankQueues;
 	int CMD_QUEUE_DEPTH;												
 	
+	//row-hit index : per bank, number of queued column accesses to indexedRow
+	int indexedRow[][];
+	int numRowHits[][];
+	
+	//write draining
+	int numQueuedWrites;
+	boolean drainingWrites;
+	
+	//PAR-BS batching
+	int numSources;
+	int numMarked;
+	int markCounts[];
+	int sourceLoad[];
+	
 	BankState[][] bankStates;
 	int rowAccessCounters[][];
 	
@@ -35,7 +72,12 @@ public class CommandQueue {
 	int refreshRank;
 	boolean refreshWaiting;
 	boolean sendAct;
-	ArrayList<ArrayList<Integer>> tFAWCountdown;
+	
+	//tFAW : per rank, the RAM cycles at which the activates in the window expire
+	static final int FAW_ACTIVATES = 4;
+	long tFAWExpiry[][];
+	int tFAWHead[];
+	int tFAWSize[];
 
 	public CommandQueue(MainMemoryConfig mainMemoryConfig,BankState bankStates[][])
 	{
@@ -50,17 +92,21 @@ public class CommandQueue {
 				
 		this.mainMemoryConfig=mainMemoryConfig;
 		rowAccessCounters=new int[mainMemoryConfig.numRanks][mainMemoryConfig.numBanks];
-		tFAWCountdown=new ArrayList<ArrayList<Integer>>(mainMemoryConfig.numRanks);
-		
-		for (int i=0;i<mainMemoryConfig.numRanks;i++)
-		{
-			//init the empty vectors here so we don't seg fault later
-			tFAWCountdown.add(new ArrayList<Integer>());
-		}
+		tFAWExpiry=new long[mainMemoryConfig.numRanks][FAW_ACTIVATES];
+		tFAWHead=new int[mainMemoryConfig.numRanks];
+		tFAWSize=new int[mainMemoryConfig.numRanks];
 		
 		
 		this.bankStates=bankStates;
 		
+		indexedRow=new int[mainMemoryConfig.numRanks][mainMemoryConfig.numBanks];
+		numRowHits=new int[mainMemoryConfig.numRanks][mainMemoryConfig.numBanks];
+		for (int i=0;i<mainMemoryConfig.numRanks;i++)
+		{
+			Arrays.fill(indexedRow[i], -1);
+		}
+		markCounts=new int[0];
+		sourceLoad=new int[0];
 		
 		if (mainMemoryConfig.queuingStructure==QueuingStructure.PerRank)
 		{
@@ -80,23 +126,14 @@ public class CommandQueue {
 		//BusPacketQueue1D = new ArrayList<MainMemoryBusPacket>();
 		this.CMD_QUEUE_DEPTH = 1024;									
 		
-		//perRankQueue = new ArrayList<ArrayList<MainMemoryBusPacket>>();
-		queues = new ArrayList<ArrayList<ArrayList<MainMemoryBusPacket>>>();
+		queues = new BusPacketQueue1D[mainMemoryConfig.numRanks][numBankQueues];
 		for (int rank=0; rank<mainMemoryConfig.numRanks; rank++)
 		{
 			//this loop will run only once for per-rank and NUM_BANKS times for per-rank-per-bank
-			perRankQueue = new ArrayList<ArrayList<MainMemoryBusPacket>>();
-			
 			for (int bank=0; bank<numBankQueues; bank++)
 			{
-				BusPacketQueue1D = new ArrayList<MainMemoryBusPacket>();
-				
-				//actualQueue	= BusPacket1D();
-				//System.out.println(BusPacketQueue1D);
-				perRankQueue.add(BusPacketQueue1D);
-				
+				queues[rank][bank] = new BusPacketQueue1D(CMD_QUEUE_DEPTH);
 			}
-			queues.add(perRankQueue);
 		}
 		
 	}
@@ -109,30 +146,111 @@ public class CommandQueue {
 		int bank = busPacket.bank;
 		if (mainMemoryConfig.queuingStructure==QueuingStructure.PerRank)
 		{
-			queues.get(rank).get(0).add(busPacket);
+			//full queues are reported by add()
+			queues[rank][0].add(busPacket);
 			//if(mainMemoryConfig.DEBUG_CMDQ)
 			//	Test.outputLog.print("Enqueued to command queue for rank "+ rank + "\n");
-			if (queues.get(rank).get(0).size()>CMD_QUEUE_DEPTH)	
-			{
-				Error.showErrorAndExit("== Error - Enqueued more than allowed in command queue");
-			}
 		}
 		else if (mainMemoryConfig.queuingStructure==QueuingStructure.PerRankPerBank)
 		{
-			queues.get(rank).get(bank).add(busPacket);
-			if (queues.get(rank).get(bank).size()>CMD_QUEUE_DEPTH)
-			{
-				Error.showErrorAndExit("== Error - Enqueued more than allowed in command queue");
-			}
+			queues[rank][bank].add(busPacket);
 		}
 		else
 		{
 			Error.showErrorAndExit("== Error - Unknown queuing structure");
 			
 		}
+		
+		if (isColumnAccess(busPacket))
+		{
+			if (busPacket.row == indexedRow[rank][bank])
+			{
+				numRowHits[rank][bank]++;
+			}
+			if (busPacket.write)
+			{
+				numQueuedWrites++;
+			}
+		}
+		if (busPacket.source >= numSources)
+		{
+			numSources = busPacket.source + 1;
+		}
 	
 	}
 	
+	//removes the i-th packet of queue, keeping the row-hit index, the write count and the batch up to date
+	MainMemoryBusPacket remove(BusPacketQueue1D queue, int i)
+	{
+		MainMemoryBusPacket busPacket = queue.remove(i);
+		if (isColumnAccess(busPacket))
+		{
+			if (busPacket.row == indexedRow[busPacket.rank][busPacket.bank])
+			{
+				numRowHits[busPacket.rank][busPacket.bank]--;
+			}
+			if (busPacket.write)
+			{
+				numQueuedWrites--;
+			}
+			if (busPacket.marked)
+			{
+				numMarked--;
+			}
+		}
+		return busPacket;
+	}
+	
+	static boolean isColumnAccess(MainMemoryBusPacket busPacket)
+	{
+		switch (busPacket.busPacketType)
+		{
+		case READ:
+		case READ_P:
+		case WRITE:
+		case WRITE_P:
+			return true;
+		default:
+			return false;
+		}
+	}
+	
+	//number of queued column accesses to the row open in the bank, 0 if no row is open
+	int getNumRowHits(int rank, int bank)
+	{
+		BankState bankState = bankStates[rank][bank];
+		if (bankState.currentBankState != CurrentBankState.ROW_ACTIVE)
+		{
+			return 0;
+		}
+		if (indexedRow[rank][bank] != bankState.openRowAddress)
+		{
+			//the bank opened another row since the last count
+			indexedRow[rank][bank] = bankState.openRowAddress;
+			numRowHits[rank][bank] = 0;
+			BusPacketQueue1D queue = getCommandQueue(rank, bank);
+			for (int i=0;i<queue.size();i++)
+			{
+				MainMemoryBusPacket packet = queue.get(i);
+				if (packet.bank == bank && packet.row == bankState.openRowAddress && isColumnAccess(packet))
+				{
+					numRowHits[rank][bank]++;
+				}
+			}
+		}
+		return numRowHits[rank][bank];
+	}
+	
+	//true if an activate could be issued to the bank now
+	boolean canActivate(int rank, int bank, long currentClockCycle)
+	{
+		BankState bankState = bankStates[rank][bank];
+		return (bankState.currentBankState == CurrentBankState.IDLE ||
+				bankState.currentBankState == CurrentBankState.REFRESHING) &&
+				currentClockCycle >= bankState.nextActivate &&
+				tFAWSize[rank] < FAW_ACTIVATES;
+	}
+	
 	
 	//checks if busPacket is allowed to be issued
 	boolean isIssuable(MainMemoryBusPacket busPacket,long currentClockCycle )
@@ -148,7 +266,7 @@ public class CommandQueue {
 			if ((bankStates[busPacket.rank][busPacket.bank].currentBankState == CurrentBankState.IDLE ||
 			        bankStates[busPacket.rank][busPacket.bank].currentBankState == CurrentBankState.REFRESHING) &&
 			        currentClockCycle >= bankStates[busPacket.rank][busPacket.bank].nextActivate &&
-			        tFAWCountdown.get(busPacket.rank).size() < 4)
+			        tFAWSize[busPacket.rank] < FAW_ACTIVATES)
 			{
 				return true;
 			}
@@ -165,7 +283,7 @@ public class CommandQueue {
 						Main.outputLog.print(String.valueOf(bankStates[busPacket.rank][busPacket.bank].currentBankState == CurrentBankState.IDLE) + " ");
 						Main.outputLog.print(String.valueOf(bankStates[busPacket.rank][busPacket.bank].currentBankState == CurrentBankState.REFRESHING) + " ");
 						Main.outputLog.print(String.valueOf(currentClockCycle >= bankStates[busPacket.rank][busPacket.bank].nextActivate) + " ");
-						Main.outputLog.print(String.valueOf(tFAWCountdown.get(busPacket.rank).size() < 4) + " \n");
+						Main.outputLog.print(String.valueOf(tFAWSize[busPacket.rank] < FAW_ACTIVATES) + " \n");
 						Main.outputLog.print(bankStates[0][3].currentBankState.toString());
 										
 					}
@@ -235,33 +353,21 @@ public class CommandQueue {
 	
 	
 	//Removes the next item from the command queue based on the system's
-	//command scheduling policy
-	public MainMemoryBusPacket pop(long currentClockCycle)
+	//command scheduling policy. ramCycle is the RAM cycle of the parent MemoryController
+	public MainMemoryBusPacket pop(long currentClockCycle, long ramCycle)
 	{
 		MainMemoryBusPacket busPacket=null;
-		//this can be done here because pop() is called every clock cycle by the parent MemoryController
 		//	figures out the sliding window requirement for tFAW
 		//
 		//deal with tFAW book-keeping
-		//	each rank has it's own counter since the restriction is on a device level
+		//	each rank has it's own window since the restriction is on a device level
 		for (int i=0;i<mainMemoryConfig.numRanks;i++)
 		{
-			//decrement all the counters we have going
-			for (int j=0;j<tFAWCountdown.get(i).size();j++)
-			{
-				tFAWCountdown.get(i).set(j,tFAWCountdown.get(i).get(j)-1);
-				
-			}
-	
-			//the head will always be the smallest counter, so check if it has reached 0
-			if (tFAWCountdown.get(i).size()>0 && tFAWCountdown.get(i).get(0)==0)
-				
+			//the head will always expire first
+			while (tFAWSize[i]>0 && tFAWExpiry[i][tFAWHead[i]]<=ramCycle)
 			{
-				//tFAWCountdown[i].erase(tFAWCountdown[i].begin());
-				//Main.debugPrinter.print("\nFinally removed\n");
-				//Main.debugPrinter.print(i+" :rank\n");
-				//Main.debugPrinter.print("size: "+tFAWCountdown.get(i).size());
-				tFAWCountdown.get(i).remove(0);
+				tFAWHead[i] = (tFAWHead[i] + 1) % FAW_ACTIVATES;
+				tFAWSize[i]--;
 			}
 		}
 	
@@ -283,7 +389,7 @@ public class CommandQueue {
 				//look for an open bank
 				for (int b=0;b<mainMemoryConfig.numBanks;b++)
 				{
-					ArrayList<MainMemoryBusPacket> queue = getCommandQueue(refreshRank,b);
+					BusPacketQueue1D queue = getCommandQueue(refreshRank,b);
 					//checks to make sure that all banks are idle
 					if (bankStates[refreshRank][b].currentBankState == CurrentBankState.ROW_ACTIVE)
 					{
@@ -299,7 +405,7 @@ public class CommandQueue {
 								if (packet.busPacketType != BusPacketType.ACTIVATE && isIssuable(packet,currentClockCycle))
 								{
 									busPacket = packet;
-									queue.remove(j);
+									remove(queue, j);
 									sendingREF = true;
 								}
 								break;
@@ -337,9 +443,14 @@ public class CommandQueue {
 				boolean foundIssuable = false;
 				int startingRank = nextRank;
 				int startingBank = nextBank;
-				do
+				if (!isRoundRobin())
 				{
-					ArrayList<MainMemoryBusPacket> queue = getCommandQueue(nextRank, nextBank);
+					busPacket = popFirstReady(currentClockCycle);
+					foundIssuable = (busPacket != null);
+				}
+				while (isRoundRobin())
+				{
+					BusPacketQueue1D queue = getCommandQueue(nextRank, nextBank);
 					//make sure there is something in this queue first
 					//	also make sure a rank isn't waiting for a refresh
 					//	if a rank is waiting for a refresh, don't issue anything to it until the
@@ -359,8 +470,7 @@ public class CommandQueue {
 											queue.get(i-1).physicalAddress == queue.get(i).physicalAddress)
 										continue;
 	
-									busPacket = queue.get(i);
-									queue.remove(i);
+									busPacket = remove(queue, i);
 									foundIssuable = true;
 									break;
 								}
@@ -373,8 +483,7 @@ public class CommandQueue {
 	
 								//no need to search because if the front can't be sent,
 								// then no chance something behind it can go instead
-								busPacket = queue.get(0);
-								queue.remove(0);
+								busPacket = remove(queue, 0);
 								foundIssuable = true;
 							}
 						}
@@ -406,7 +515,6 @@ public class CommandQueue {
 						}
 					}
 				}
-				while (true);
 	
 				//if we couldn't find anything to send, return false
 				if (!foundIssuable){ 
@@ -430,7 +538,7 @@ public class CommandQueue {
 						sendREF = false;
 						boolean closeRow = true;
 						//search for commands going to an open row
-						ArrayList<MainMemoryBusPacket> refreshQueue = getCommandQueue(refreshRank,b);
+						BusPacketQueue1D refreshQueue = getCommandQueue(refreshRank,b);
 	
 						for (int j=0;j<refreshQueue.size();j++)
 						{
@@ -448,7 +556,7 @@ public class CommandQueue {
 									{
 										//send it out
 										busPacket = packet;
-										refreshQueue.remove(j);
+										remove(refreshQueue, j);
 										sendingREForPRE = true;
 									}
 									break;
@@ -496,9 +604,14 @@ public class CommandQueue {
 				int startingRank = nextRank;
 				int startingBank = nextBank;
 				boolean foundIssuable = false;
-				do // round robin over queues
+				if (!isRoundRobin())
+				{
+					busPacket = popFirstReady(currentClockCycle);
+					foundIssuable = (busPacket != null);
+				}
+				while (isRoundRobin()) // round robin over queues
 				{
-					ArrayList<MainMemoryBusPacket> queue = getCommandQueue(nextRank,nextBank);
+					BusPacketQueue1D queue = getCommandQueue(nextRank,nextBank);
 					//make sure there is something there first
 					if (!(queue.size()==0) && !((nextRank == refreshRank) && refreshWaiting))
 					{
@@ -523,34 +636,7 @@ public class CommandQueue {
 								}
 								if (dependencyFound) continue;
 	
-								busPacket = packet;
-	
-								//if the bus packet before is an activate, that is the act that was
-								//	paired with the column access we are removing, so we have to remove
-								//	that activate as well (check i>0 because if i==0 then theres nothing before it)
-								if (i>0 && queue.get(i-1).busPacketType == BusPacketType.ACTIVATE)
-								{
-									rowAccessCounters[(busPacket).rank][(busPacket).bank]++;
-									
-									//Test.outputLog.print("incrementing row access counter for bank " + busPacket.bank + " value is "
-									//								+ rowAccessCounters[(busPacket).rank][(busPacket).bank] +"\n");
-									
-									// i is being returned, but i-1 is being thrown away, so must delete it here 
-									
-									//changed by kushagra
-									queue.set(i-1,null);
-	
-									// remove both i-1 (the activate) and i (we've saved the pointer in *busPacket)
-									
-									//queue.remove(i-1);			//added by kushagra
-									queue.remove(i);
-									queue.remove(i-1);
-								}
-								else // there's no activate before this packet
-								{
-									//or just remove the one bus packet
-									queue.remove(i);
-								}
+								busPacket = removeOpenPage(queue, i);
 	
 								foundIssuable = true;
 								break;
@@ -582,7 +668,6 @@ public class CommandQueue {
 						}
 					}
 				}
-				while (true);
 	
 				//if nothing was issuable, see if we can issue a PRE to an open bank
 				//	that has no other commands waiting
@@ -598,7 +683,7 @@ public class CommandQueue {
 	
 					do // round robin over all ranks and banks
 					{
-						ArrayList<MainMemoryBusPacket> queue = getCommandQueue(nextRankPRE, nextBankPRE);
+						BusPacketQueue1D queue = getCommandQueue(nextRankPRE, nextBankPRE);
 						boolean found = false;
 						//check if bank is open
 						if (bankStates[nextRankPRE][nextBankPRE].currentBankState == CurrentBankState.ROW_ACTIVE)
@@ -660,12 +745,12 @@ public class CommandQueue {
 			nextBank=a[1];
 		}
 	
-		//if its an activate, add a tfaw counter
+		//if its an activate, add it to the tfaw window (isIssuable makes sure there is room)
 		if (busPacket.busPacketType==BusPacketType.ACTIVATE)
 		{
-			tFAWCountdown.get((busPacket).rank).add(mainMemoryConfig.tFAW);
-			//Main.debugPrinter.print("\nInsert into FAW Rank: "+(busPacket).rank+"\n");
-			//Main.debugPrinter.print("size of rank FAW: "+tFAWCountdown.get(busPacket.rank).size()+"\n");
+			int rank = busPacket.rank;
+			tFAWExpiry[rank][(tFAWHead[rank] + tFAWSize[rank]) % FAW_ACTIVATES] = ramCycle + mainMemoryConfig.tFAW;
+			tFAWSize[rank]++;
 		}
 	
 		return busPacket;
@@ -673,9 +758,237 @@ public class CommandQueue {
 	}
 	
 	
+	//removes the i-th packet of queue under the open page policy
+	MainMemoryBusPacket removeOpenPage(BusPacketQueue1D queue, int i)
+	{
+		MainMemoryBusPacket busPacket = queue.get(i);
+		
+		//if the bus packet before is an activate, that is the act that was
+		//	paired with the column access we are removing, so we have to remove
+		//	that activate as well (check i>0 because if i==0 then theres nothing before it)
+		if (i>0 && queue.get(i-1).busPacketType == BusPacketType.ACTIVATE)
+		{
+			rowAccessCounters[(busPacket).rank][(busPacket).bank]++;
+			
+			//Test.outputLog.print("incrementing row access counter for bank " + busPacket.bank + " value is "
+			//								+ rowAccessCounters[(busPacket).rank][(busPacket).bank] +"\n");
+			
+			// remove both i-1 (the activate) and i (we've saved the pointer in *busPacket)
+			remove(queue, i);
+			remove(queue, i-1);
+		}
+		else // there's no activate before this packet
+		{
+			//or just remove the one bus packet
+			remove(queue, i);
+		}
+		return busPacket;
+	}
+	
+	boolean isRoundRobin()
+	{
+		return MainMemoryConfig.schedulingPolicy == SchedulingPolicy.RankThenBankRoundRobin ||
+				MainMemoryConfig.schedulingPolicy == SchedulingPolicy.BankThenRankRoundRobin;
+	}
+	
+	/*
+	 * FRFCFS and PARBS : removes and returns the best issuable command of all the
+	 * queues, or null if none can be issued. The dependencies between the commands
+	 * of a queue are those of the round robin schedulers.
+	 */
+	MainMemoryBusPacket popFirstReady(long currentClockCycle)
+	{
+		boolean parbs = (MainMemoryConfig.schedulingPolicy == SchedulingPolicy.PARBS);
+		if (parbs && numMarked == 0)
+		{
+			formBatch();
+		}
+		
+		if (numQueuedWrites >= mainMemoryConfig.writeHighWatermark)
+		{
+			drainingWrites = true;
+		}
+		else if (numQueuedWrites <= mainMemoryConfig.writeLowWatermark)
+		{
+			drainingWrites = false;
+		}
+		
+		boolean openPage = (MainMemoryConfig.rowBufferPolicy == RowBufferPolicy.OpenPage);
+		boolean perRank = (MainMemoryConfig.queuingStructure == QueuingStructure.PerRank);
+		
+		MainMemoryBusPacket best = null;
+		BusPacketQueue1D bestQueue = null;
+		int bestIndex = -1;
+		
+		for (int rank=0;rank<mainMemoryConfig.numRanks;rank++)
+		{
+			//a rank waiting for a refresh takes nothing else until the refresh is sent
+			if (rank == refreshRank && refreshWaiting)
+			{
+				continue;
+			}
+			
+			for (int q=0;q<numBankQueues;q++)
+			{
+				BusPacketQueue1D queue = queues[rank][q];
+				if (queue.isEmpty() || !isReady(rank, q, currentClockCycle))
+				{
+					continue;
+				}
+				
+				//close page, per bank queues : nothing can go before the head
+				int end = (!openPage && !perRank) ? 1 : queue.size();
+				for (int i=0;i<end;i++)
+				{
+					MainMemoryBusPacket packet = queue.get(i);
+					if (best != null && !isBetter(packet, best, parbs))
+					{
+						continue;
+					}
+					
+					//skip (cheaply) what the bank cannot take
+					if (isColumnAccess(packet) ? getNumRowHits(rank, packet.bank) == 0
+							: (packet.busPacketType == BusPacketType.ACTIVATE && !canActivate(rank, packet.bank, currentClockCycle)))
+					{
+						continue;
+					}
+					if (!isIssuable(packet, currentClockCycle) || dependsOnEarlier(queue, i, openPage))
+					{
+						continue;
+					}
+					
+					best = packet;
+					bestQueue = queue;
+					bestIndex = i;
+				}
+			}
+		}
+		
+		if (best == null)
+		{
+			return null;
+		}
+		if (openPage)
+		{
+			return removeOpenPage(bestQueue, bestIndex);
+		}
+		return remove(bestQueue, bestIndex);
+	}
+	
+	//true if one of the banks of queue q of rank can take a column access or an activate now
+	boolean isReady(int rank, int q, long currentClockCycle)
+	{
+		int firstBank = (numBankQueues == 1) ? 0 : q;
+		int lastBank = (numBankQueues == 1) ? mainMemoryConfig.numBanks - 1 : q;
+		for (int bank=firstBank;bank<=lastBank;bank++)
+		{
+			if (getNumRowHits(rank, bank) > 0 || canActivate(rank, bank, currentClockCycle))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	//true if the i-th packet of queue must wait for an earlier packet of the queue
+	boolean dependsOnEarlier(BusPacketQueue1D queue, int i, boolean openPage)
+	{
+		MainMemoryBusPacket packet = queue.get(i);
+		if (openPage)
+		{
+			//an earlier access to the same row goes first
+			for (int j=0;j<i;j++)
+			{
+				MainMemoryBusPacket prevPacket = queue.get(j);
+				if (prevPacket.busPacketType != BusPacketType.ACTIVATE &&
+						prevPacket.bank == packet.bank &&
+						prevPacket.row == packet.row)
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		//close page : a read/write does not go before the activate it is paired with
+		return i>0 && queue.get(i-1).busPacketType==BusPacketType.ACTIVATE &&
+				queue.get(i-1).physicalAddress == packet.physicalAddress;
+	}
+	
+	//true if a is to be issued before b
+	boolean isBetter(MainMemoryBusPacket a, MainMemoryBusPacket b, boolean parbs)
+	{
+		if (parbs && a.marked != b.marked)
+		{
+			return a.marked;
+		}
+		//reads first, unless the writes are being drained
+		if (a.write != b.write)
+		{
+			return a.write == drainingWrites;
+		}
+		//an issuable column access is a row hit
+		boolean aHit = isColumnAccess(a);
+		if (aHit != isColumnAccess(b))
+		{
+			return aHit;
+		}
+		if (parbs && a.marked && sourceLoad[a.source] != sourceLoad[b.source])
+		{
+			return sourceLoad[a.source] < sourceLoad[b.source];
+		}
+		return a.arrival < b.arrival;
+	}
+	
+	//PAR-BS : marks the oldest batchingCap requests of every source to every bank
+	void formBatch()
+	{
+		int numSlots = numSources * mainMemoryConfig.numRanks * mainMemoryConfig.numBanks;
+		if (markCounts.length < numSlots)
+		{
+			markCounts = new int[numSlots];
+			sourceLoad = new int[numSources];
+		}
+		Arrays.fill(markCounts, 0);
+		Arrays.fill(sourceLoad, 0);
+		
+		for (int rank=0;rank<mainMemoryConfig.numRanks;rank++)
+		{
+			for (int q=0;q<numBankQueues;q++)
+			{
+				BusPacketQueue1D queue = queues[rank][q];
+				for (int i=0;i<queue.size();i++)
+				{
+					MainMemoryBusPacket packet = queue.get(i);
+					if (!isColumnAccess(packet))
+					{
+						continue;
+					}
+					int slot = (packet.source * mainMemoryConfig.numRanks + rank) * mainMemoryConfig.numBanks + packet.bank;
+					if (markCounts[slot] == mainMemoryConfig.batchingCap)
+					{
+						continue;
+					}
+					markCounts[slot]++;
+					sourceLoad[packet.source]++;
+					packet.marked = true;
+					numMarked++;
+					
+					//and the activate it is paired with
+					if (i>0 && queue.get(i-1).busPacketType == BusPacketType.ACTIVATE &&
+							queue.get(i-1).arrival == packet.arrival)
+					{
+						queue.get(i-1).marked = true;
+					}
+				}
+			}
+		}
+	}
+	
 	int[] nextRankAndBank(int rank, int bank)
 	{
-		if (mainMemoryConfig.schedulingPolicy == SchedulingPolicy.RankThenBankRoundRobin)
+		//the first-ready schedulers only use this to look for banks to close
+		if (MainMemoryConfig.schedulingPolicy != SchedulingPolicy.BankThenRankRoundRobin)
 		{
 			rank++;
 			if (rank == mainMemoryConfig.numRanks)
@@ -691,7 +1004,7 @@ public class CommandQueue {
 			return a;
 		}
 		//bank-then-rank round robin
-		else if (mainMemoryConfig.schedulingPolicy == SchedulingPolicy.BankThenRankRoundRobin)
+		else if (MainMemoryConfig.schedulingPolicy == SchedulingPolicy.BankThenRankRoundRobin)
 		{
 			bank++;
 			if (bank == mainMemoryConfig.numBanks)
@@ -715,15 +1028,15 @@ public class CommandQueue {
 	}	
 	
 	
-	ArrayList<MainMemoryBusPacket> getCommandQueue(int rank, int bank)
+	BusPacketQueue1D getCommandQueue(int rank, int bank)
 	{
 		if (mainMemoryConfig.queuingStructure == QueuingStructure.PerRankPerBank)
 		{
-			return queues.get(rank).get(bank);
+			return queues[rank][bank];
 		}
 		else if (mainMemoryConfig.queuingStructure == QueuingStructure.PerRank)
 		{
-			return queues.get(rank).get(0);
+			return queues[rank][0];
 		}
 		else
 		{
@@ -739,11 +1052,90 @@ public class CommandQueue {
 		refreshRank = rank;
 	}
 	
-	public boolean canPop()
+	//true if pop() is certain to return nothing until something is enqueued
+	//or a refresh is requested
+	public boolean isIdle()
+	{
+		if (refreshWaiting)
+		{
+			return false;
+		}
+		for (int i=0;i<mainMemoryConfig.numRanks;i++)
+		{
+			for (int j=0;j<numBankQueues;j++)
+			{
+				if (queues[i][j].size()>0)
+				{
+					return false;
+				}
+			}
+			//open page policy closes idle open rows
+			if (MainMemoryConfig.rowBufferPolicy==RowBufferPolicy.OpenPage)
+			{
+				for (int j=0;j<mainMemoryConfig.numBanks;j++)
+				{
+					if (bankStates[i][j].currentBankState == CurrentBankState.ROW_ACTIVE)
+					{
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+	
+	/*
+	 * after a pop() which found nothing to issue at currentClockCycle : the clock
+	 * cycle at which the next bank timing constraint is met, Long.MAX_VALUE if
+	 * nothing waits for one. Every constraint of isIssuable() and of the refresh
+	 * and precharge logic is of the form currentClockCycle >= next..., so pop()
+	 * finds nothing either before then (or before the next tFAW expiry), unless
+	 * the queues or the bank states change.
+	 */
+	public long getNextIssueTime(long currentClockCycle)
 	{
-		return(BusPacketQueue1D.size()>0);
+		if (isIdle())
+		{
+			return Long.MAX_VALUE;
+		}
+		long next = Long.MAX_VALUE;
+		for (int i=0;i<mainMemoryConfig.numRanks;i++)
+		{
+			for (int j=0;j<mainMemoryConfig.numBanks;j++)
+			{
+				BankState bankState = bankStates[i][j];
+				next = nextAfter(next, bankState.nextRead, currentClockCycle);
+				next = nextAfter(next, bankState.nextWrite, currentClockCycle);
+				next = nextAfter(next, bankState.nextActivate, currentClockCycle);
+				next = nextAfter(next, bankState.nextPrecharge, currentClockCycle);
+			}
+		}
+		return next;
+	}
+	
+	static long nextAfter(long next, long time, long currentClockCycle)
+	{
+		return (time > currentClockCycle && time < next) ? time : next;
 	}
 	
+	//RAM cycle at which the next activate leaves a tFAW window, Long.MAX_VALUE if none
+	//(or if there is nothing to activate)
+	public long getNextFAWExpiry()
+	{
+		if (isIdle())
+		{
+			return Long.MAX_VALUE;
+		}
+		long next = Long.MAX_VALUE;
+		for (int i=0;i<mainMemoryConfig.numRanks;i++)
+		{
+			if (tFAWSize[i]>0)
+			{
+				next = Math.min(next, tFAWExpiry[i][tFAWHead[i]]);
+			}
+		}
+		return next;
+	}
 	
 	public boolean hasRoomFor(int num, int rank, int bank)
 	{
@@ -759,11 +1151,11 @@ public class CommandQueue {
 			Main.outputLog.print("\n== Printing Per Rank Queue at Clock Cycle "+ GlobalClock.getCurrentTime() +"\n" );
 			for (int i=0;i< mainMemoryConfig.numRanks;i++)
 			{
-				Main.outputLog.print(" = Rank " + i + "  size : " + queues.get(i).get(0).size() + "\n");
-				for (int j=0;j < queues.get(i).get(0).size();j++)
+				Main.outputLog.print(" = Rank " + i + "  size : " + queues[i][0].size() + "\n");
+				for (int j=0;j < queues[i][0].size();j++)
 				{
 					Main.outputLog.print("    "+ j + "]");
-					queues.get(i).get(0).get(j).printTest();
+					queues[i][0].get(j).printTest();
 				}
 			}
 		}
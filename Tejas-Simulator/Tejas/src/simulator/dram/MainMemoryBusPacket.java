@@ -32,6 +32,14 @@ public class MainMemoryBusPacket implements Cloneable{
 	public long physicalAddress;
 	public BusPacketType busPacketType;
 	
+	//for the command scheduler : order of arrival of the request the packet
+	//belongs to, the element it came from, and whether it is a write
+	public long arrival;
+	public int source;
+	public boolean write;
+	//PAR-BS : the request is part of the current batch
+	public boolean marked;
+	
 	//for TEST
 	private static long numpackets = 0;
 	public long testid;
@@ -1,6 +1,7 @@
 package dram;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import config.MainMemoryConfig;
 import config.MainMemoryConfig.QueuingStructure;
 import config.MainMemoryConfig.RowBufferPolicy;
@@ -8,12 +9,11 @@ import config.MainMemoryConfig.SchedulingPolicy;
 import config.SystemConfig;
 import dram.BankState.CurrentBankState;
 import dram.MainMemoryBusPacket.BusPacketType;
-import generic.Core;
 import generic.Event;
 import generic.EventQueue;
 import generic.GlobalClock;
 import generic.RequestType;
-import main.ArchitecturalComponent;
+import generic.SimulationElement;
 import main.Main;
 import memorysystem.AddressCarryingEvent;
 import memorysystem.Cache;
@@ -44,12 +44,28 @@ public class MainMemoryDRAMController extends MainMemoryController{
 	long totalReadTransactions[][];
 	long totalWriteTransactions[][];
 	
+	//for the command scheduler : requests received, and an id per requesting element
+	long numRequests = 0;
+	HashMap<SimulationElement, Integer> sourceIds = new HashMap<SimulationElement, Integer>();
+	
+	//the controller and its ranks schedule their events on the queue of their channel
+	EventQueue eventQueue;
+	
 	ArrayList<MainMemoryBusPacket> pendingTransQueue;
 	//MainMemoryBusPacket pendingTransQueue[]; 	//to keep track of packets that could not be added to command queue 
 	BankState bankStates[][];						
 	CommandQueue commandQueue;
 	Rank ranks[];
-	int refreshCount[];
+	
+	//RAM cycles : the current one, and per rank the one in which its next refresh is requested
+	long ramCycle;
+	long refreshCycle[];
+	
+	//after a cycle in which nothing could be issued, the controller sleeps until the RAM
+	//cycle wakeCycle or the clock cycle wakeTime, or until its queues or bank states change
+	boolean sleeping;
+	long wakeCycle;
+	long wakeTime;
 
         public MainMemoryDRAMController(MainMemoryConfig mainMemoryConfig, boolean knl, int id) { super(knl, id); }
 	
@@ -62,6 +78,7 @@ public class MainMemoryDRAMController extends MainMemoryController{
 		}
 	
 		this.mainMemoryConfig = mainMemoryConfig;
+		eventQueue = new EventQueue();
 	
 		numTransactions = 0;
 		refreshRank=0;
@@ -83,10 +100,10 @@ public class MainMemoryDRAMController extends MainMemoryController{
 		
 		commandQueue = new CommandQueue(mainMemoryConfig,bankStates);
 		
-		refreshCount=new int[mainMemoryConfig.numRanks];
+		refreshCycle=new long[mainMemoryConfig.numRanks];
 		
 		for(int i=0;i<mainMemoryConfig.numRanks;i++){
-			refreshCount[i]=(int)((mainMemoryConfig.RefreshPeriod/mainMemoryConfig.tCK)/mainMemoryConfig.numRanks)*(i+1);
+			refreshCycle[i]=(int)((mainMemoryConfig.RefreshPeriod/mainMemoryConfig.tCK)/mainMemoryConfig.numRanks)*(i+1) + 1;
 		}
 		
 	}
@@ -119,6 +136,7 @@ public class MainMemoryDRAMController extends MainMemoryController{
 			long eventTime = event.getEventTime();		//IMP: the reference for timing should be the time previous event was generated
 														//and not the current clock cycle as these 2 may differ sometimes!
 			BankState bankState = bankStates[rank][bank];
+			sleeping = false;
 			
 			//FSM for commands with implicit state change
 			switch(bankState.lastCommand) {
@@ -169,6 +187,10 @@ public class MainMemoryDRAMController extends MainMemoryController{
 			//for TIMING
 			//create k6 style trace file
 			b.timeCreated = GlobalClock.getCurrentTime();
+			
+			b.arrival = numRequests++;
+			b.source = getSourceId(e.getRequestingElement());
+			b.write = (event.getRequestType() == RequestType.Cache_Write);
 		        //System.out.println("addr=" + b.physicalAddress + "(" + String.format("0x%08X", b.physicalAddress) + ")");
 			//if(event.getRequestType() == RequestType.Cache_Read)
      		//		Main.traceFile.print( String.format("0x%08X", b.physicalAddress) + " P_MEM_RD " + b.timeCreated + "\n");
@@ -203,7 +225,7 @@ public class MainMemoryDRAMController extends MainMemoryController{
 			totalReadTransactions[b.rank][b.bank]++;
 			totalTime += ( GlobalClock.getCurrentTime() - b.timeCreated);
 
-			AddressCarryingEvent event = new AddressCarryingEvent(eventQ, 0,
+			AddressCarryingEvent event = new AddressCarryingEvent(this.parentCache.getEventQueue(), 0,
 					this, this.parentCache,	RequestType.Mem_Response,
 					((AddressCarryingEvent)e).getAddress());
 			//TODO: how to make processing element as cache????
@@ -216,6 +238,17 @@ public class MainMemoryDRAMController extends MainMemoryController{
 	}
 	
 	
+	int getSourceId(SimulationElement requestingElement)
+	{
+		Integer id = sourceIds.get(requestingElement);
+		if(id == null)
+		{
+			id = sourceIds.size();
+			sourceIds.put(requestingElement, id);
+		}
+		return id;
+	}
+	
 	public void enqueueToCommandQ()
 	{
 
@@ -226,7 +259,7 @@ public class MainMemoryDRAMController extends MainMemoryController{
 			if(commandQueue.hasRoomFor(2,b.rank, b.bank))
 			{
 				numTransactions--;							//the transaction is no longer waiting in the controller
-				//pendingTransQueue.remove(0);
+				//pendingTransQueue.remove(i);
 				//create new ACTIVATE bus packet with the address we just decoded 
 				MainMemoryBusPacket ACTcommand = b.Clone();							//check cloning is ok
 				ACTcommand.setBusPacketType(BusPacketType.ACTIVATE);
@@ -241,6 +274,7 @@ public class MainMemoryDRAMController extends MainMemoryController{
 				
 				commandQueue.enqueue(ACTcommand);
 				commandQueue.enqueue(RWcommand);
+				sleeping = false;
 				
 				//Main.debugPrinter.print("Enqueued ACT command bus packet to queue as follows:");
 				ACTcommand.printPacketToFile();
@@ -248,7 +282,7 @@ public class MainMemoryDRAMController extends MainMemoryController{
 				RWcommand.printPacketToFile();
 				
 				//if enqueued, remove the pending packet
-				pendingTransQueue.remove(0);
+				pendingTransQueue.remove(i);
 
 				break;               //just enqueue the first one !! not all pending, break when first is enqueued
 
@@ -263,13 +297,19 @@ public class MainMemoryDRAMController extends MainMemoryController{
 	
 	public void oneCycleOperation(){
 		long currentTime = GlobalClock.getCurrentTime();
-		Core core0 = ArchitecturalComponent.getCores()[0];				//using core 0 queue similar to as in cache
+		ramCycle++;
+		
+		if (sleeping && ramCycle < wakeCycle && currentTime < wakeTime)
+		{
+			return;
+		}
+		sleeping = false;
 		
-		if (refreshCount[refreshRank]==0)
+		if (ramCycle == refreshCycle[refreshRank])
 		{
 			commandQueue.needRefresh(refreshRank);
 			ranks[refreshRank].refreshWaiting = true;
-			refreshCount[refreshRank] =	(int)(mainMemoryConfig.RefreshPeriod/mainMemoryConfig.tCK);
+			refreshCycle[refreshRank] = ramCycle + (int)(mainMemoryConfig.RefreshPeriod/mainMemoryConfig.tCK);
 			refreshRank++;
 			if (refreshRank == mainMemoryConfig.numRanks)
 			{
@@ -278,7 +318,7 @@ public class MainMemoryDRAMController extends MainMemoryController{
 		}
 		
 		MainMemoryBusPacket b = null;
-		b = commandQueue.pop(currentTime);
+		b = commandQueue.pop(currentTime, ramCycle);
 		//if(commandQueue.canPop()) 
 		
 		
@@ -297,7 +337,7 @@ public class MainMemoryDRAMController extends MainMemoryController{
 				
 				//Main.debugPrinter.print("\n\n Received a write, scheduling event for data packet for address " + dataPacketToSend.physicalAddress + "\n\n");
 				
-				RamBusAddressCarryingEvent event = new RamBusAddressCarryingEvent( core0.getEventQueue() , (currentTime + mainMemoryConfig.tWL), this,
+				RamBusAddressCarryingEvent event = new RamBusAddressCarryingEvent( eventQueue , (currentTime + mainMemoryConfig.tWL), this,
 						ranks[rank], RequestType.Main_Mem_Access, dataPacketToSend.physicalAddress, dataPacketToSend);
 				event.getEventQ().addEvent(event);
 				totalWriteTransactions[rank][bank]++;
@@ -318,7 +358,7 @@ public class MainMemoryDRAMController extends MainMemoryController{
 					//create and send event state update event
 					//sending to core 0 event queue currently
 					//keeping requesting and processing element same
-					StateUpdateEvent StUpdtEvent = new StateUpdateEvent(core0.getEventQueue(), (currentTime+mainMemoryConfig.ReadToPreDelay), this,
+					StateUpdateEvent StUpdtEvent = new StateUpdateEvent(eventQueue, (currentTime+mainMemoryConfig.ReadToPreDelay), this,
 							this, RequestType.Mem_Cntrlr_State_Update, rank, bank);
 					StUpdtEvent.getEventQ().addEvent(StUpdtEvent);
 				
@@ -376,7 +416,7 @@ public class MainMemoryDRAMController extends MainMemoryController{
 					//create and send event state update event
 					//sending to core 0 event queue currently
 					//keeping requesting and processing element same
-					StateUpdateEvent StUpdtEvent = new StateUpdateEvent(core0.getEventQueue(), (currentTime+mainMemoryConfig.WriteToPreDelay), this,
+					StateUpdateEvent StUpdtEvent = new StateUpdateEvent(eventQueue, (currentTime+mainMemoryConfig.WriteToPreDelay), this,
 																		this, RequestType.Mem_Cntrlr_State_Update, rank, bank);
 					StUpdtEvent.getEventQ().addEvent(StUpdtEvent);
 					
@@ -455,7 +495,7 @@ public class MainMemoryDRAMController extends MainMemoryController{
 				//create and send event state update event
 				//sending to core 0 event queue currently
 				//keeping requesting and processing element same
-				StateUpdateEvent StUpdtEvent = new StateUpdateEvent(core0.getEventQueue(), (currentTime+mainMemoryConfig.tRP - 1), this,
+				StateUpdateEvent StUpdtEvent = new StateUpdateEvent(eventQueue, (currentTime+mainMemoryConfig.tRP - 1), this,
 																	this, RequestType.Mem_Cntrlr_State_Update, rank, bank);
 				StUpdtEvent.getEventQ().addEvent(StUpdtEvent);
 			}
@@ -474,7 +514,7 @@ public class MainMemoryDRAMController extends MainMemoryController{
 				//keeping requesting and processing element same
 				
 				//Sending only 1 event, need to refresh all banks in the rank for this - do this in handle event
-				StateUpdateEvent StUpdtEvent = new StateUpdateEvent(core0.getEventQueue(), (currentTime+mainMemoryConfig.tRFC - 1), this,
+				StateUpdateEvent StUpdtEvent = new StateUpdateEvent(eventQueue, (currentTime+mainMemoryConfig.tRFC - 1), this,
 																	this, RequestType.Mem_Cntrlr_State_Update, rank, bank);
 				StUpdtEvent.getEventQ().addEvent(StUpdtEvent);
 			}
@@ -485,7 +525,7 @@ public class MainMemoryDRAMController extends MainMemoryController{
 			
 		//after state update
 		//schedule command packet as event to rank
-		RamBusAddressCarryingEvent event = new RamBusAddressCarryingEvent( core0.getEventQueue() , (currentTime + mainMemoryConfig.tCMD), this,
+		RamBusAddressCarryingEvent event = new RamBusAddressCarryingEvent( eventQueue , (currentTime + mainMemoryConfig.tCMD), this,
 					ranks[rank], RequestType.Main_Mem_Access, b.physicalAddress, b);
 		
 		event.getEventQ().addEvent(event);
@@ -494,18 +534,44 @@ public class MainMemoryDRAMController extends MainMemoryController{
 
 		else{
 			//Main.debugPrinter.print("Nothing to pop at this time\n");
-									//nothing to do this cycle as nothing popped
+			//nothing to do this cycle as nothing popped : nor will there be
+			//before the next refresh, tFAW expiry or bank timing constraint
+			sleeping = true;
+			wakeCycle = Math.min(refreshCycle[refreshRank], commandQueue.getNextFAWExpiry());
+			wakeTime = commandQueue.getNextIssueTime(currentTime);
 			}	
 		
-		
-		
-		for (int i=0;i<mainMemoryConfig.numRanks;i++)
+		return;	
+	
+	}
+	
+	public EventQueue getEventQueue()
+	{
+		return eventQueue;
+	}
+	
+	//number of upcoming RAM cycles in which oneCycleOperation() would do nothing,
+	//provided that the clock does not reach getWakeTime()
+	public long getNumIdleCycles()
+	{
+		if(pendingTransQueue.isEmpty() == false || sleeping == false)
 		{
-			refreshCount[i]--;
+			return 0;
 		}
-		
-		return;	
+		return Math.max(0, wakeCycle - ramCycle - 1);
+	}
 	
+	//clock cycle at which a sleeping controller wakes up, Long.MAX_VALUE if only
+	//a request, a refresh or an event can wake it up
+	public long getWakeTime()
+	{
+		return sleeping ? wakeTime : GlobalClock.getCurrentTime();
+	}
+	
+	//fast-forward over RAM cycles reported idle by getNumIdleCycles()
+	public void skipIdleCycles(long numCycles)
+	{
+		ramCycle += numCycles;
 	}
 	
 	//getter and setter for number of CPU cycles to next RAM clock posedge
@@ -16,9 +16,12 @@ import main.ArchitecturalComponent;
 import main.Main;
 import memorysystem.Cache;
 import memorysystem.MemorySystem;
+import pipeline.ParallelPipelineEngine;
 import pipeline.PipelineInterface;
 import config.MainMemoryConfig;
+import config.SimulationConfig;
 import config.SystemConfig;
+import dram.MainMemoryDRAMController;
 import emulatorinterface.ThreadBlockState.blockState;
 import emulatorinterface.communication.Encoding;
 import emulatorinterface.communication.IpcBase;
@@ -28,9 +31,11 @@ import emulatorinterface.translator.x86.objparser.ObjParser;
 import generic.BarrierTable;
 import generic.CircularPacketQueue;
 import generic.Core;
+import generic.EventQueue;
 import generic.GenericCircularQueue;
 import generic.GlobalClock;
 import generic.Instruction;
+import generic.SimulatorProfiler;
 import generic.Statistics;
 
 /*
@@ -72,6 +77,11 @@ public class RunnableThread implements Encoding, Runnable {
     // from other RunnableThreads
     // will need to interact.
     PipelineInterface[]                 pipelineInterfaces;
+    // steps pipelineInterfaces on several threads; null if stepped serially
+    ParallelPipelineEngine              parallelPipelineEngine;
+    
+    // times the DRAM cycles when the simulator profiles itself, null otherwise
+    SimulatorProfiler                   dramProfiler;
     long                                prevTotalInstructions,
             currentTotalInstructions;
     long[]                              prevCycles;
@@ -92,6 +102,10 @@ public class RunnableThread implements Encoding, Runnable {
     long                                RAMclock;
     long                                CoreClock;
     
+    // total events handled by the pipelines' event queues, as seen at the end
+    // of the previous cycle (used to detect idle cycles)
+    long                                lastNumEventsHandled  = -1;
+    
     /*
      * This keeps on reading from the appropriate index in the shared memory
      * till it gets a -1 after which it stops. NOTE this depends on each thread
@@ -395,6 +409,21 @@ public class RunnableThread implements Encoding, Runnable {
         if (SystemConfig.memControllerToUse == true)
             RAMclock = (long) (1 / (SystemConfig.mainMemoryConfig.tCK)
                     * 1000000000);
+        
+        // with one thread as well, so that the pipelines are stepped in the
+        // same order whatever the number of threads
+        parallelPipelineEngine = new ParallelPipelineEngine(
+                pipelineInterfaces, SimulationConfig.numPipelineThreads);
+        
+        if (SimulationConfig.profileSimulator == true
+                && SystemConfig.memControllerToUse == true) {
+            dramProfiler = new SimulatorProfiler(
+                    "DRAM of java thread " + this.javaTid);
+            for (int k = 0; k < SystemConfig.mainMemoryConfig.numChans; k++) {
+                ArchitecturalComponent.getMainMemoryDRAMController(null, k)
+                        .getEventQueue().setProfiler(dramProfiler);
+            }
+        }
     }
     
     protected void runPipelines() {
@@ -423,8 +452,8 @@ public class RunnableThread implements Encoding, Runnable {
              * simulation.
              * Order is:
              * MainMemoryController.oneCycleOperation()
-             * processEvents() [called from within oneCycleOperation of
-             * pipelines]
+             * processEvents() [of the queue of every channel, then from
+             * within oneCycleOperation of pipelines]
              * MainMemoryController.enqueueToCommandQ();
              */
             
@@ -433,6 +462,10 @@ public class RunnableThread implements Encoding, Runnable {
             if (SystemConfig.memControllerToUse == true) {
                 counter1 += RAMclock;
                 
+                if (dramProfiler != null) {
+                    dramProfiler.beginCycle();
+                }
+                
                 // added by harveenk
                 if (counter2 < counter1) {
                     
@@ -442,6 +475,9 @@ public class RunnableThread implements Encoding, Runnable {
                                 .getMainMemoryDRAMController(null, k)
                                 .oneCycleOperation();
                     }
+                    if (dramProfiler != null) {
+                        dramProfiler.endPhase(SimulatorProfiler.DRAM);
+                    }
                     // important - one cycle operation for dram must occur
                     // before events are processed
                     
@@ -449,10 +485,19 @@ public class RunnableThread implements Encoding, Runnable {
                     
                 }
                 
+                // the controllers and their ranks have an event queue per
+                // channel, drained every cycle
+                for (int k = 0; k < SystemConfig.mainMemoryConfig.numChans; k++) {
+                    ArchitecturalComponent
+                            .getMainMemoryDRAMController(null, k)
+                            .getEventQueue().processEvents();
+                }
+                if (dramProfiler != null) {
+                    dramProfiler.endPhase(SimulatorProfiler.DRAM);
+                }
+                
             }
-            for (int tidEmu = 0; tidEmu < maxCoreAssign; tidEmu++) {
-                pipelineInterfaces[tidEmu].oneCycleOperation();
-            }
+            parallelPipelineEngine.oneCycleOperation(maxCoreAssign);
             
             // added later by kush
             if (SystemConfig.memControllerToUse == true) {
@@ -463,6 +508,10 @@ public class RunnableThread implements Encoding, Runnable {
                 
                 if (RAMcyclerun == true) {
                     
+                    if (dramProfiler != null) {
+                        dramProfiler.startPhase();
+                    }
+                    
                     // add the packets pending at this cycle to the queue
                     
                     for (int k = 0; k < SystemConfig.mainMemoryConfig.numChans; k++) {
@@ -478,6 +527,10 @@ public class RunnableThread implements Encoding, Runnable {
                         
                     }
                     
+                    if (dramProfiler != null) {
+                        dramProfiler.endPhase(SimulatorProfiler.DRAM);
+                    }
+                    
                     RAMcyclerun = false;
                 }
                 
@@ -491,6 +544,10 @@ public class RunnableThread implements Encoding, Runnable {
                     c.noteMSHRStats();
                 }
             }
+            
+            if (SimulationConfig.skipIdleCycles == true) {
+                i1 += skipIdleCycles(minN - i1 - 1);
+            }
         }
         
         if (prevTotalInstructions == -1) {
@@ -498,6 +555,114 @@ public class RunnableThread implements Encoding, Runnable {
         }
     }
     
+    /*
+     * Fast-forward mode.
+     * If, in the cycle that just finished, no pipeline changed state and no
+     * event was handled, every following cycle is identical to it until the
+     * next event is due or a DRAM channel has something to do. Jump the clock
+     * directly over these cycles (at most maxCycles of them), keeping the
+     * RAM/core clock ratio and the per-cycle statistics as if they had been
+     * simulated. Returns the number of cycles skipped.
+     */
+    protected long skipIdleCycles(long maxCycles) {
+        long numEventsHandled = 0;
+        long nextEventTime = Long.MAX_VALUE;
+        boolean quiescent = true;
+        
+        for (int tidEmu = 0; tidEmu < maxCoreAssign; tidEmu++) {
+            EventQueue eventQ = pipelineInterfaces[tidEmu].getCore()
+                    .getEventQueue();
+            numEventsHandled += eventQ.getNumEventsHandled();
+            nextEventTime = Math.min(nextEventTime, eventQ.getNextEventTime());
+            if (pipelineInterfaces[tidEmu].isQuiescent() == false) {
+                quiescent = false;
+            }
+        }
+        if (SystemConfig.memControllerToUse == true) {
+            for (int k = 0; k < SystemConfig.mainMemoryConfig.numChans; k++) {
+                MainMemoryDRAMController controller = ArchitecturalComponent
+                        .getMainMemoryDRAMController(null, k);
+                EventQueue eventQ = controller.getEventQueue();
+                numEventsHandled += eventQ.getNumEventsHandled();
+                nextEventTime = Math.min(nextEventTime, eventQ.getNextEventTime());
+                // a sleeping controller wakes up when a bank timing constraint is met
+                nextEventTime = Math.min(nextEventTime, controller.getWakeTime());
+            }
+        }
+        
+        boolean eventsHandled = (numEventsHandled != lastNumEventsHandled);
+        lastNumEventsHandled = numEventsHandled;
+        
+        long currentTime = GlobalClock.getCurrentTime();
+        if (quiescent == false || eventsHandled == true
+                || nextEventTime <= currentTime || maxCycles <= 0) {
+            return 0;
+        }
+        
+        long numCycles = Math.min(nextEventTime - currentTime, maxCycles);
+        long numSkipped = numCycles;
+        long numRAMCycles = 0;
+        
+        if (SystemConfig.memControllerToUse == true) {
+            // the DRAM must still run every RAM cycle in which it has work
+            long numIdleRAMCycles = Long.MAX_VALUE;
+            for (int k = 0; k < SystemConfig.mainMemoryConfig.numChans; k++) {
+                numIdleRAMCycles = Math.min(numIdleRAMCycles,
+                        ArchitecturalComponent
+                                .getMainMemoryDRAMController(null, k)
+                                .getNumIdleCycles());
+            }
+            
+            // replay the RAM/core clock synchronisation over the skipped cycles
+            long c1 = counter1, c2 = counter2;
+            numSkipped = 0;
+            while (numSkipped < numCycles) {
+                long n1 = c1 + RAMclock, n2 = c2;
+                if (n2 < n1) {
+                    if (numRAMCycles == numIdleRAMCycles) {
+                        break;
+                    }
+                    n2 += CoreClock;
+                    numRAMCycles++;
+                }
+                if (n1 == n2) {
+                    n1 = 0;
+                    n2 = 0;
+                }
+                c1 = n1;
+                c2 = n2;
+                numSkipped++;
+            }
+            
+            if (numSkipped == 0) {
+                return 0;
+            }
+            
+            counter1 = c1;
+            counter2 = c2;
+            for (int k = 0; k < SystemConfig.mainMemoryConfig.numChans; k++) {
+                ArchitecturalComponent.getMainMemoryDRAMController(null, k)
+                        .skipIdleCycles(numRAMCycles);
+            }
+        }
+        
+        for (int tidEmu = 0; tidEmu < maxCoreAssign; tidEmu++) {
+            pipelineInterfaces[tidEmu].skipCycles(currentTime, numSkipped);
+        }
+        
+        // MSHR occupancy cannot change while idle; take the samples that the
+        // skipped cycles would have taken
+        long numSamples = (currentTime + numSkipped) / 1000 - currentTime / 1000;
+        for (long s = 0; s < numSamples; s++) {
+            for (Cache c : ArchitecturalComponent.getCacheList()) {
+                c.noteMSHRStats();
+            }
+        }
+        
+        GlobalClock.setCurrentTime(currentTime + numSkipped);
+        return numSkipped;
+    }
+    
     public void finishAllPipelines() {
         
         // added by harveenk
@@ -511,6 +676,11 @@ public class RunnableThread implements Encoding, Runnable {
         // these are small in number (around 1200 per core at max) and should
         // not affect the final statistics
         
+        if (parallelPipelineEngine != null) {
+            parallelPipelineEngine.shutdown();
+            parallelPipelineEngine = null;
+        }
+        
         for (int i = 0; i < maxCoreAssign; i++) {
             pipelineInterfaces[i].setExecutionComplete(true);
             pipelineInterfaces[i].setPerCoreMemorySystemStatistics();
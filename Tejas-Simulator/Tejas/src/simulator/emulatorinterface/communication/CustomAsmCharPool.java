@@ -17,6 +17,12 @@ public class CustomAsmCharPool {
 	}
 	
 	public void enqueue(int tidApp, byte inputBytes[], int offset)
+	{
+		enqueue(tidApp, inputBytes, offset, inputBytes.length - offset);
+	}
+	
+	//enqueues the length bytes of inputBytes starting at offset
+	public void enqueue(int tidApp, byte inputBytes[], int offset, int length)
 	{
 		// System.out.println("enqueue : " + new String(inputBytes, offset, 64));
 		
@@ -27,7 +33,7 @@ public class CustomAsmCharPool {
 		tail[tidApp] = (tail[tidApp]+1)%bufferSize;
 		//pool[tidApp][tail[tidApp]] = newBytes
 		for(int i=0; i<64; i++) {
-			if( (offset+i) < inputBytes.length) {
+			if(i < length) {
 				pool[tidApp][tail[tidApp]][i] = inputBytes[offset+i];	
 			} else {//asm packets for filePacket interface may have less than 64 characters
 				pool[tidApp][tail[tidApp]][i] = (byte)0;
@@ -0,0 +1,132 @@
+/*
+ * Bounded single-producer single-consumer ring of packets. It hands the packets decoded by a
+ * ReadAheadThread over to the simulation thread without locks : only the producer moves tail,
+ * only the consumer moves head, and each side caches the other's index until it runs out of
+ * slots.
+ *
+ * A slot holds the ip, value and tgt of a packet and, for an assembly packet, up to 64 bytes of
+ * assembly (asmLength[slot] bytes at asm[slot*ASM_BYTES]), which the consumer copies into the
+ * asm char pool.
+ *
+ * A consumer with nothing to read can block in awaitPacket; the producer unparks it when it
+ * publishes a packet or finishes.
+ * */
+
+package emulatorinterface.communication;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public class PacketRing {
+
+	public static final int ASM_BYTES = 64;
+
+	final int mask;
+	public final long ip[];
+	public final long value[];
+	public final long tgt[];
+	public final byte asm[];
+	public final int asmLength[];
+
+	final AtomicLong head = new AtomicLong(0);
+	final AtomicLong tail = new AtomicLong(0);
+	volatile boolean finished = false;
+	// consumer parked in awaitPacket, if any
+	volatile Thread waitingConsumer = null;
+
+	// producer's copy of head, consumer's copy of tail
+	long headSeenByProducer = 0;
+	long tailSeenByConsumer = 0;
+
+	// capacity must be a power of 2
+	public PacketRing(int capacity) {
+		if(capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+			misc.Error.showErrorAndExit("packet ring capacity must be a power of 2 : " + capacity);
+		}
+		mask = capacity - 1;
+		ip = new long[capacity];
+		value = new long[capacity];
+		tgt = new long[capacity];
+		asm = new byte[capacity * ASM_BYTES];
+		asmLength = new int[capacity];
+	}
+
+	/*** producer side ***/
+
+	// slot to fill with the next packet, or -1 if the ring is full
+	public int claimSlot() {
+		long t = tail.get();
+		if(t - headSeenByProducer > mask) {
+			headSeenByProducer = head.get();
+			if(t - headSeenByProducer > mask) {
+				return -1;
+			}
+		}
+		return (int)(t & mask);
+	}
+
+	// makes the claimed slot visible to the consumer
+	public void publish() {
+		// a full store : the consumer must not park after missing this packet
+		tail.set(tail.get() + 1);
+		wakeConsumer();
+	}
+
+	// no packet will be published any more
+	public void finish() {
+		finished = true;
+		wakeConsumer();
+	}
+
+	private void wakeConsumer() {
+		Thread consumer = waitingConsumer;
+		if(consumer != null) {
+			LockSupport.unpark(consumer);
+		}
+	}
+
+	/*** consumer side ***/
+
+	// number of packets that can be read
+	public int available() {
+		long h = head.get();
+		if(tailSeenByConsumer == h) {
+			tailSeenByConsumer = tail.get();
+		}
+		return (int)(tailSeenByConsumer - h);
+	}
+
+	// slot of the oldest packet; valid if available() > 0
+	public int headSlot() {
+		return (int)(head.get() & mask);
+	}
+
+	// frees the oldest packet
+	public void release() {
+		head.lazySet(head.get() + 1);
+	}
+
+	// true once the producer has finished and all its packets were read
+	public boolean isDrained() {
+		return finished && available() == 0;
+	}
+
+	/*
+	 * blocks until a packet can be read. Returns false if the producer has finished and all its
+	 * packets were read.
+	 */
+	public boolean awaitPacket() {
+		while(available() == 0) {
+			if(finished) {
+				// the last packets may have been published just before finishing
+				return available() != 0;
+			}
+			waitingConsumer = Thread.currentThread();
+			if(available() == 0 && !finished) {
+				LockSupport.park(this);
+			}
+			waitingConsumer = null;
+		}
+		return true;
+	}
+}
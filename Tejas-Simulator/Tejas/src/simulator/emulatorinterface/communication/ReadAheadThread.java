@@ -0,0 +1,76 @@
+/*
+ * Background thread that decodes the packet stream of one application thread into a PacketRing,
+ * so that inflating and parsing the stream overlaps with the timing simulation. The simulation
+ * thread drains the ring from fetchManyPackets.
+ *
+ * readPacket blocks (on I/O, or in claimSlot while the ring is full) as needed; the ring is
+ * finished when the stream ends or reading it fails. A failure, including a malformed packet
+ * (a RuntimeException from parsing), is kept in getError for the consumer to report.
+ * */
+
+package emulatorinterface.communication;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+public abstract class ReadAheadThread extends Thread {
+
+	// how long the producer sleeps when the ring is full
+	static final long FULL_RING_WAIT_NANOS = 100 * 1000;
+
+	protected final PacketRing ring;
+	protected final int tidApp;
+	volatile Exception error = null;
+
+	public ReadAheadThread(String name, int tidApp, PacketRing ring) {
+		super(name);
+		this.tidApp = tidApp;
+		this.ring = ring;
+		setDaemon(true);
+	}
+
+	public void run() {
+		try {
+			while(readPacket()) {
+			}
+		} catch (IOException e) {
+			error = e;
+		} catch (RuntimeException e) {
+			error = e;
+		} finally {
+			ring.finish();
+		}
+	}
+
+	// decodes the next packet of the stream into the ring, returns false at the end of the stream
+	protected abstract boolean readPacket() throws IOException;
+
+	// slot for the next packet, waiting for the consumer to free one if the ring is full
+	protected int claimSlot() {
+		int slot;
+		while((slot = ring.claimSlot()) < 0) {
+			LockSupport.parkNanos(FULL_RING_WAIT_NANOS);
+		}
+		return slot;
+	}
+
+	// copies length bytes of assembly (at most PacketRing.ASM_BYTES) into slot
+	protected void setAsm(int slot, byte bytes[], int offset, int length) {
+		length = Math.min(length, PacketRing.ASM_BYTES);
+		System.arraycopy(bytes, offset, ring.asm, slot * PacketRing.ASM_BYTES, length);
+		ring.asmLength[slot] = length;
+	}
+
+	// the error that ended the stream, if any
+	public Exception getError() {
+		return error;
+	}
+
+	/*
+	 * waits until the ring has a packet to read. Returns false if the stream has ended (use
+	 * getError to know whether it ended on an error).
+	 */
+	public boolean waitForPacket() {
+		return ring.awaitPacket();
+	}
+}
@@ -0,0 +1,44 @@
+package emulatorinterface.communication.filePacket;
+
+//Binary trace of one application thread ("<basename>_<tid>.tbt").
+//
+//	header	: int MAGIC, int VERSION
+//	blocks	: one after the other
+//	index	: per block, long offset, int stored length, int raw length,
+//			  int number of packets, int flags
+//	trailer	: long offset of the index, int number of blocks, int MAGIC
+//
+//A block holds up to BLOCK_SIZE raw bytes of packets and is deflated if
+//that makes it smaller (flags & COMPRESSED). Packets are varint encoded;
+//ip and tgt are deltas from the previous packet of the same block, so every
+//block decodes on its own :
+//	value	: zigzag varint
+//	ip		: zigzag varint, delta
+//	tgt		: zigzag varint, delta				(value != ASSEMBLY)
+//	asm		: varint length, then the bytes		(value == ASSEMBLY)
+//
+//Only the first 64 bytes of an assembly string are kept, that being all the
+//asm char pool holds.
+public class BinaryTraceFormat {
+
+	public static final int MAGIC = 0x544a4254; // "TJBT"
+	public static final int VERSION = 1;
+	public static final String EXTENSION = ".tbt";
+
+	public static final int HEADER_SIZE = 8;
+	public static final int INDEX_ENTRY_SIZE = 24;
+	public static final int TRAILER_SIZE = 16;
+
+	public static final int BLOCK_SIZE = 1 << 18;
+	public static final int MAX_ASM_LENGTH = 64;
+
+	public static final int COMPRESSED = 1;
+
+	static long zigzagEncode(long v) {
+		return (v << 1) ^ (v >> 63);
+	}
+
+	static long zigzagDecode(long v) {
+		return (v >>> 1) ^ -(v & 1);
+	}
+}
@@ -0,0 +1,188 @@
+package emulatorinterface.communication.filePacket;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import emulatorinterface.communication.Encoding;
+
+//Reads a binary trace (see BinaryTraceFormat) one packet at a time.
+//
+//The file is memory-mapped a window at a time, so that traces larger than
+//what a single mapping can hold are supported. Each block is decoded into a
+//buffer that is reused for the whole trace; the assembly string of a packet
+//is left in that buffer (asmBytes, asmOffset, asmLength) for the caller to
+//copy.
+public class BinaryTraceReader implements Encoding {
+
+	static final long WINDOW_SIZE = 1L << 28;
+
+	RandomAccessFile file;
+	FileChannel channel;
+	long fileLength;
+	MappedByteBuffer window;
+	long windowStart, windowEnd;
+
+	long blockOffset[];
+	int blockStoredLength[];
+	int blockRawLength[];
+	int blockNumPackets[];
+	int blockFlags[];
+	int numBlocks;
+
+	int nextBlock = 0;
+	int packetsLeftInBlock = 0;
+
+	byte raw[] = new byte[0];
+	byte stored[] = new byte[0];
+	int pos;
+	Inflater inflater = new Inflater();
+
+	long prevIp, prevTgt;
+
+	// fields of the last packet read
+	public long ip, value, tgt;
+	public byte asmBytes[];
+	public int asmOffset, asmLength;
+
+	public BinaryTraceReader(String fileName) throws IOException {
+		file = new RandomAccessFile(fileName, "r");
+		channel = file.getChannel();
+		fileLength = channel.size();
+
+		if(fileLength < BinaryTraceFormat.HEADER_SIZE + BinaryTraceFormat.TRAILER_SIZE) {
+			throw new IOException(fileName + " is not a binary trace");
+		}
+
+		map(0, BinaryTraceFormat.HEADER_SIZE);
+		if(window.getInt(0) != BinaryTraceFormat.MAGIC) {
+			throw new IOException(fileName + " is not a binary trace");
+		}
+		if(window.getInt(4) != BinaryTraceFormat.VERSION) {
+			throw new IOException(fileName + " : unsupported binary trace version " + window.getInt(4));
+		}
+
+		long trailer = fileLength - BinaryTraceFormat.TRAILER_SIZE;
+		map(trailer, BinaryTraceFormat.TRAILER_SIZE);
+		long indexOffset = window.getLong((int)(trailer - windowStart));
+		numBlocks = window.getInt((int)(trailer - windowStart) + 8);
+		if(window.getInt((int)(trailer - windowStart) + 12) != BinaryTraceFormat.MAGIC
+				|| indexOffset + (long)numBlocks * BinaryTraceFormat.INDEX_ENTRY_SIZE != trailer) {
+			throw new IOException(fileName + " : truncated binary trace");
+		}
+
+		blockOffset = new long[numBlocks];
+		blockStoredLength = new int[numBlocks];
+		blockRawLength = new int[numBlocks];
+		blockNumPackets = new int[numBlocks];
+		blockFlags = new int[numBlocks];
+		for(int i = 0; i < numBlocks; i++) {
+			long entry = indexOffset + (long)i * BinaryTraceFormat.INDEX_ENTRY_SIZE;
+			map(entry, BinaryTraceFormat.INDEX_ENTRY_SIZE);
+			int at = (int)(entry - windowStart);
+			blockOffset[i] = window.getLong(at);
+			blockStoredLength[i] = window.getInt(at + 8);
+			blockRawLength[i] = window.getInt(at + 12);
+			blockNumPackets[i] = window.getInt(at + 16);
+			blockFlags[i] = window.getInt(at + 20);
+		}
+	}
+
+	//makes sure [offset, offset+length) is in the mapped window
+	private void map(long offset, int length) throws IOException {
+		if(window != null && offset >= windowStart && offset + length <= windowEnd) {
+			return;
+		}
+		windowStart = offset;
+		windowEnd = Math.min(fileLength, offset + Math.max(WINDOW_SIZE, length));
+		window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+	}
+
+	private void loadBlock(int block) throws IOException {
+		int storedLength = blockStoredLength[block];
+		int rawLength = blockRawLength[block];
+		if(raw.length < rawLength) {
+			raw = new byte[rawLength];
+		}
+
+		map(blockOffset[block], storedLength);
+		window.position((int)(blockOffset[block] - windowStart));
+
+		if((blockFlags[block] & BinaryTraceFormat.COMPRESSED) != 0) {
+			if(stored.length < storedLength) {
+				stored = new byte[storedLength];
+			}
+			window.get(stored, 0, storedLength);
+			inflater.reset();
+			inflater.setInput(stored, 0, storedLength);
+			try {
+				int n = 0;
+				while(n < rawLength && !inflater.finished()) {
+					n += inflater.inflate(raw, n, rawLength - n);
+				}
+				if(n != rawLength) {
+					throw new IOException("corrupt block " + block + " in binary trace");
+				}
+			} catch (DataFormatException e) {
+				throw new IOException("corrupt block " + block + " in binary trace : " + e);
+			}
+		} else {
+			window.get(raw, 0, rawLength);
+		}
+
+		pos = 0;
+		packetsLeftInBlock = blockNumPackets[block];
+		prevIp = 0;
+		prevTgt = 0;
+	}
+
+	private long getVarint() {
+		long v = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = raw[pos++];
+			v |= (long)(b & 0x7F) << shift;
+			shift += 7;
+		} while(b < 0);
+		return v;
+	}
+
+	//reads the next packet into ip, value, tgt and, for an ASSEMBLY packet,
+	//asmBytes, asmOffset and asmLength. Returns false at the end of the trace.
+	public boolean readPacket() throws IOException {
+		while(packetsLeftInBlock == 0) {
+			if(nextBlock == numBlocks) {
+				return false;
+			}
+			loadBlock(nextBlock++);
+		}
+		packetsLeftInBlock--;
+
+		value = BinaryTraceFormat.zigzagDecode(getVarint());
+		ip = prevIp + BinaryTraceFormat.zigzagDecode(getVarint());
+		prevIp = ip;
+
+		if(value == ASSEMBLY) {
+			tgt = -1;
+			asmLength = (int)getVarint();
+			asmBytes = raw;
+			asmOffset = pos;
+			pos += asmLength;
+		} else {
+			tgt = prevTgt + BinaryTraceFormat.zigzagDecode(getVarint());
+			prevTgt = tgt;
+		}
+
+		return true;
+	}
+
+	public void close() throws IOException {
+		inflater.end();
+		channel.close();
+		file.close();
+	}
+}
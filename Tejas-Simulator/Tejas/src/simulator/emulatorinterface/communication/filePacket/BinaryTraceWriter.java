@@ -0,0 +1,218 @@
+package emulatorinterface.communication.filePacket;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.StringTokenizer;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import misc.Util;
+
+import emulatorinterface.communication.Encoding;
+
+//Writes a binary trace, see BinaryTraceFormat.
+//main converts the "<basename>_<tid>.gz" text traces read by FilePacket.
+public class BinaryTraceWriter implements Encoding {
+
+	DataOutputStream out;
+	long offset;
+
+	byte block[] = new byte[BinaryTraceFormat.BLOCK_SIZE + 16 + BinaryTraceFormat.MAX_ASM_LENGTH + 16];
+	int blockLength = 0;
+	int blockPackets = 0;
+	long prevIp = 0, prevTgt = 0;
+
+	Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	byte deflated[] = new byte[BinaryTraceFormat.BLOCK_SIZE * 2];
+
+	// index, grown as blocks are written
+	long blockOffset[] = new long[64];
+	int blockStoredLength[] = new int[64];
+	int blockRawLength[] = new int[64];
+	int blockNumPackets[] = new int[64];
+	int blockFlags[] = new int[64];
+	int numBlocks = 0;
+
+	public BinaryTraceWriter(String fileName) throws IOException {
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16));
+		out.writeInt(BinaryTraceFormat.MAGIC);
+		out.writeInt(BinaryTraceFormat.VERSION);
+		offset = BinaryTraceFormat.HEADER_SIZE;
+	}
+
+	public void writePacket(long ip, long value, long tgt) throws IOException {
+		if(value == ASSEMBLY) {
+			misc.Error.showErrorAndExit("assembly packets are written with writeAssembly");
+		}
+
+		putVarint(BinaryTraceFormat.zigzagEncode(value));
+		putVarint(BinaryTraceFormat.zigzagEncode(ip - prevIp));
+		putVarint(BinaryTraceFormat.zigzagEncode(tgt - prevTgt));
+		prevIp = ip;
+		prevTgt = tgt;
+		endPacket();
+	}
+
+	public void writeAssembly(long ip, byte asm[], int asmOffset, int asmLength) throws IOException {
+		asmLength = Math.min(asmLength, BinaryTraceFormat.MAX_ASM_LENGTH);
+
+		putVarint(BinaryTraceFormat.zigzagEncode(ASSEMBLY));
+		putVarint(BinaryTraceFormat.zigzagEncode(ip - prevIp));
+		putVarint(asmLength);
+		System.arraycopy(asm, asmOffset, block, blockLength, asmLength);
+		blockLength += asmLength;
+		prevIp = ip;
+		endPacket();
+	}
+
+	private void putVarint(long v) {
+		while((v & ~0x7FL) != 0) {
+			block[blockLength++] = (byte)((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		block[blockLength++] = (byte)v;
+	}
+
+	private void endPacket() throws IOException {
+		blockPackets++;
+		if(blockLength >= BinaryTraceFormat.BLOCK_SIZE) {
+			flushBlock();
+		}
+	}
+
+	private void flushBlock() throws IOException {
+		if(blockPackets == 0) {
+			return;
+		}
+
+		deflater.reset();
+		deflater.setInput(block, 0, blockLength);
+		deflater.finish();
+		int deflatedLength = 0;
+		while(!deflater.finished() && deflatedLength < deflated.length) {
+			deflatedLength += deflater.deflate(deflated, deflatedLength, deflated.length - deflatedLength);
+		}
+
+		int flags = 0;
+		int storedLength = blockLength;
+		if(deflater.finished() && deflatedLength < blockLength) {
+			flags = BinaryTraceFormat.COMPRESSED;
+			storedLength = deflatedLength;
+			out.write(deflated, 0, deflatedLength);
+		} else {
+			out.write(block, 0, blockLength);
+		}
+
+		if(numBlocks == blockOffset.length) {
+			growIndex();
+		}
+		blockOffset[numBlocks] = offset;
+		blockStoredLength[numBlocks] = storedLength;
+		blockRawLength[numBlocks] = blockLength;
+		blockNumPackets[numBlocks] = blockPackets;
+		blockFlags[numBlocks] = flags;
+		numBlocks++;
+
+		offset += storedLength;
+		blockLength = 0;
+		blockPackets = 0;
+		prevIp = 0;
+		prevTgt = 0;
+	}
+
+	private void growIndex() {
+		int size = blockOffset.length * 2;
+		long newOffset[] = new long[size];
+		int newStoredLength[] = new int[size];
+		int newRawLength[] = new int[size];
+		int newNumPackets[] = new int[size];
+		int newFlags[] = new int[size];
+		System.arraycopy(blockOffset, 0, newOffset, 0, numBlocks);
+		System.arraycopy(blockStoredLength, 0, newStoredLength, 0, numBlocks);
+		System.arraycopy(blockRawLength, 0, newRawLength, 0, numBlocks);
+		System.arraycopy(blockNumPackets, 0, newNumPackets, 0, numBlocks);
+		System.arraycopy(blockFlags, 0, newFlags, 0, numBlocks);
+		blockOffset = newOffset;
+		blockStoredLength = newStoredLength;
+		blockRawLength = newRawLength;
+		blockNumPackets = newNumPackets;
+		blockFlags = newFlags;
+	}
+
+	public void close() throws IOException {
+		flushBlock();
+
+		long indexOffset = offset;
+		for(int i = 0; i < numBlocks; i++) {
+			out.writeLong(blockOffset[i]);
+			out.writeInt(blockStoredLength[i]);
+			out.writeInt(blockRawLength[i]);
+			out.writeInt(blockNumPackets[i]);
+			out.writeInt(blockFlags[i]);
+		}
+		out.writeLong(indexOffset);
+		out.writeInt(numBlocks);
+		out.writeInt(BinaryTraceFormat.MAGIC);
+		out.close();
+		deflater.end();
+	}
+
+	//converts the text trace inputFileName, returns the number of packets
+	public static long convert(String inputFileName, String outputFileName) throws IOException {
+		BufferedReader input = new BufferedReader(
+				new InputStreamReader(
+				new GZIPInputStream(
+				new FileInputStream(inputFileName))));
+		BinaryTraceWriter writer = new BinaryTraceWriter(outputFileName);
+
+		long numPackets = 0;
+		String inputLine;
+		while((inputLine = input.readLine()) != null) {
+			StringTokenizer stringTokenizer = new StringTokenizer(inputLine);
+			long ip = Util.parseLong(stringTokenizer.nextToken());
+			long value = Long.parseLong(stringTokenizer.nextToken());
+
+			if(value != ASSEMBLY) {
+				writer.writePacket(ip, value, Util.parseLong(stringTokenizer.nextToken()));
+			} else {
+				// as FilePacket does, skip the separator before the assembly string
+				byte asm[] = stringTokenizer.nextToken("\n").getBytes();
+				writer.writeAssembly(ip, asm, 1, asm.length - 1);
+			}
+			numPackets++;
+		}
+
+		writer.close();
+		input.close();
+		return numPackets;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if(args.length == 0) {
+			System.out.println("usage : BinaryTraceWriter <trace basename> ...");
+			System.out.println("converts <basename>_<tid>.gz into <basename>_<tid>" + BinaryTraceFormat.EXTENSION);
+			System.exit(1);
+		}
+
+		for(String basename : args) {
+			for(int tid = 0; ; tid++) {
+				String inputFileName = basename + "_" + tid + ".gz";
+				if(!new File(inputFileName).exists()) {
+					if(tid == 0) {
+						misc.Error.showErrorAndExit("Error in reading input packet file " + inputFileName);
+					}
+					break;
+				}
+				String outputFileName = basename + "_" + tid + BinaryTraceFormat.EXTENSION;
+				long numPackets = convert(inputFileName, outputFileName);
+				System.out.println(inputFileName + " -> " + outputFileName + " : " + numPackets + " packets");
+			}
+		}
+	}
+}
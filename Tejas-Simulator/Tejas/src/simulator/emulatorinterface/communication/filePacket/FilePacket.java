@@ -1,6 +1,7 @@
 package emulatorinterface.communication.filePacket;
 
 import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -21,14 +22,26 @@ import config.SystemConfig;
 import emulatorinterface.communication.Encoding;
 import emulatorinterface.communication.IpcBase;
 import emulatorinterface.communication.Packet;
+import emulatorinterface.communication.PacketRing;
+import emulatorinterface.communication.ReadAheadThread;
 import generic.CircularPacketQueue;
 
 //This communication type reads from a file containing instructions in the format "ip value tgt"
 //where value is the type of the instruction and tgt is either assembly string(for assembly instruction) 
 //or a value for other instructions 
+//If a binary trace "<basename>_<tid>.tbt" (see BinaryTraceFormat) is present, it is read instead of the
+//"<basename>_<tid>.gz" text trace.
+//Each trace is decoded ahead by its own TraceReadAhead thread; fetchManyPackets drains its PacketRing,
+//waiting for the decoder if it falls behind, so the packets returned are the same as if the trace
+//was read inline.
 public class FilePacket extends IpcBase implements Encoding {
 
+	static final int READ_AHEAD_PACKETS = 4096;
+
 	BufferedReader inputBufferedReader[];
+	BinaryTraceReader binaryTraceReader[];
+	PacketRing packetRing[];
+	TraceReadAhead readAhead[];
 	int maxApplicationThreads = -1;
 	long totalFetchedAssemblyPackets = 0;
 	
@@ -36,10 +49,22 @@ public class FilePacket extends IpcBase implements Encoding {
 		this.maxApplicationThreads = SystemConfig.maxNumJavaThreads*SystemConfig.numEmuThreadsPerJavaThread;
 		
 		inputBufferedReader = new BufferedReader[maxApplicationThreads];
+		binaryTraceReader = new BinaryTraceReader[maxApplicationThreads];
 		
 		int numTotalThreads = 0;
 		for (int benchmark=0; benchmark<basenameForBenchmarks.length; benchmark++) {
 			for (int tid=0; ;tid++) {
+				String binaryFileName = basenameForBenchmarks[benchmark] + "_" + tid + BinaryTraceFormat.EXTENSION;
+				if(new File(binaryFileName).exists()) {
+					try {
+						binaryTraceReader[numTotalThreads] = new BinaryTraceReader(binaryFileName);
+						numTotalThreads++;
+						continue;
+					} catch (IOException e) {
+						misc.Error.showErrorAndExit("Error in reading input packet file " + binaryFileName + " : " + e);
+					}
+				}
+				
 				String inputFileName = basenameForBenchmarks[benchmark] + "_" + tid + ".gz";
 				try {
 					inputBufferedReader[numTotalThreads] = new BufferedReader(
@@ -58,6 +83,62 @@ public class FilePacket extends IpcBase implements Encoding {
 				}
 			}
 		}
+		
+		packetRing = new PacketRing[maxApplicationThreads];
+		readAhead = new TraceReadAhead[maxApplicationThreads];
+		for(int tidApp=0; tidApp<numTotalThreads; tidApp++) {
+			packetRing[tidApp] = new PacketRing(READ_AHEAD_PACKETS);
+			readAhead[tidApp] = new TraceReadAhead(tidApp, packetRing[tidApp]);
+			readAhead[tidApp].start();
+		}
+	}
+	
+	// decodes the trace of one application thread into its packet ring
+	class TraceReadAhead extends ReadAheadThread {
+		
+		TraceReadAhead(int tidApp, PacketRing ring) {
+			super("trace-read-ahead-" + tidApp, tidApp, ring);
+		}
+		
+		protected boolean readPacket() throws IOException {
+			if(binaryTraceReader[tidApp] != null) {
+				BinaryTraceReader reader = binaryTraceReader[tidApp];
+				if(!reader.readPacket()) {
+					return false;
+				}
+				int slot = claimSlot();
+				ring.ip[slot] = reader.ip;
+				ring.value[slot] = reader.value;
+				ring.tgt[slot] = reader.tgt;
+				if(reader.value == ASSEMBLY) {
+					setAsm(slot, reader.asmBytes, reader.asmOffset, reader.asmLength);
+				}
+				ring.publish();
+				return true;
+			}
+			
+			String inputLine = inputBufferedReader[tidApp].readLine();
+			if(inputLine == null) {
+				return false;
+			}
+			
+			StringTokenizer stringTokenizer = new StringTokenizer(inputLine);
+			int slot = claimSlot();
+			
+			ring.ip[slot] = Util.parseLong(stringTokenizer.nextToken());
+			long value = Long.parseLong(stringTokenizer.nextToken());
+			ring.value[slot] = value;
+			
+			if(value!=ASSEMBLY) {
+				ring.tgt[slot] = Util.parseLong(stringTokenizer.nextToken());
+			} else {
+				ring.tgt[slot] = -1;
+				byte asm[] = stringTokenizer.nextToken("\n").getBytes();
+				setAsm(slot, asm, 1, asm.length - 1);
+			}
+			ring.publish();
+			return true;
+		}
 	}
 
 	public void initIpc() {
@@ -70,67 +151,64 @@ public class FilePacket extends IpcBase implements Encoding {
 			misc.Error.showErrorAndExit("FilePacket cannot handle tid = " + tidApp);
 		}
 		
-		if(inputBufferedReader[tidApp]==null) {
+		if(readAhead[tidApp]==null) {
 			return 0;
 		}
 		
+		PacketRing ring = packetRing[tidApp];
 		int maxSize = fromEmulator.spaceLeft();
 		
 		for(int i=0; i<maxSize; i++) {
 			
-			try {
-				//Subset Simulation
-				if(SimulationConfig.subsetSimulation && totalFetchedAssemblyPackets >= (SimulationConfig.subsetSimSize + SimulationConfig.NumInsToIgnore)) {
-					fromEmulator.enqueue(totalFetchedAssemblyPackets-SimulationConfig.NumInsToIgnore, -2, -1);
-					return (i+1);
-				}
+			//Subset Simulation
+			if(SimulationConfig.subsetSimulation && totalFetchedAssemblyPackets >= (SimulationConfig.subsetSimSize + SimulationConfig.NumInsToIgnore)) {
+				fromEmulator.enqueue(totalFetchedAssemblyPackets-SimulationConfig.NumInsToIgnore, -2, -1);
+				return (i+1);
+			}
+			
+			if(readAhead[tidApp].waitForPacket()) {
 				
-				String inputLine = inputBufferedReader[tidApp].readLine();
+				int slot = ring.headSlot();
+				long ip = ring.ip[slot], value = ring.value[slot], tgt = ring.tgt[slot];
 				
-				if(inputLine != null) {
+				if(value==ASSEMBLY) {
+					CustomObjectPool.getCustomAsmCharPool().enqueue(tidApp, ring.asm,
+							slot*PacketRing.ASM_BYTES, ring.asmLength[slot]);
 					
-					long ip = -1, value = -1, tgt = -1;
-					StringTokenizer stringTokenizer = new StringTokenizer(inputLine);
+					totalFetchedAssemblyPackets += 1;
 					
-					ip = Util.parseLong(stringTokenizer.nextToken());
-					value = Long.parseLong(stringTokenizer.nextToken());
+					if(totalFetchedAssemblyPackets%1000000==0) {
+						System.out.println("Number of assembly instructions till now : " + totalFetchedAssemblyPackets);
+					}
+				}
+				ring.release();
 					
-					if(value!=ASSEMBLY) {
-						tgt = Util.parseLong(stringTokenizer.nextToken());
-					} else {
-						totalFetchedAssemblyPackets += 1;
-						
-						if(totalFetchedAssemblyPackets%1000000==0) {
-							System.out.println("Number of assembly instructions till now : " + totalFetchedAssemblyPackets);
-						}
-						
-						tgt = -1;
-						CustomObjectPool.getCustomAsmCharPool().enqueue(tidApp, stringTokenizer.nextToken("\n").getBytes(), 1);
+				//ignore these many instructions: NumInsToIgnore 
+				if(totalFetchedAssemblyPackets < SimulationConfig.NumInsToIgnore) {
+					if(value == ASSEMBLY) {
+						CustomObjectPool.getCustomAsmCharPool().dequeue(tidApp);
 					}
-						
-					//ignore these many instructions: NumInsToIgnore 
-					if(totalFetchedAssemblyPackets < SimulationConfig.NumInsToIgnore) {
-						if(value == ASSEMBLY) {
-							CustomObjectPool.getCustomAsmCharPool().dequeue(tidApp);
-						}
-						return 0;
-					// totalFetchedAssemblyPackets just became equal to NumInsToIgnore, so 
-					// we start setting fromEmulator packets
-					} else if(totalFetchedAssemblyPackets == SimulationConfig.NumInsToIgnore && value==ASSEMBLY) {
-						i=0;						
-					}	
+					return 0;
+				// totalFetchedAssemblyPackets just became equal to NumInsToIgnore, so 
+				// we start setting fromEmulator packets
+				} else if(totalFetchedAssemblyPackets == SimulationConfig.NumInsToIgnore && value==ASSEMBLY) {
+					i=0;						
+				}	
 
-					fromEmulator.enqueue(ip, value, tgt);					
-				} else {
-					return (i);
+				fromEmulator.enqueue(ip, value, tgt);					
+			} else {
+				// A truncated trace ends with an EOFException, which is taken as its end as
+				// before; any other error means the trace cannot be simulated.
+				Exception error = readAhead[tidApp].getError();
+				if(error != null && !(error instanceof EOFException)) {
+					error.printStackTrace();
+					misc.Error.showErrorAndExit("error in reading the trace of tid = " + tidApp + " : " + error);
 				}
-			} catch (IOException e) {
-				// We are expecting an end of file exception at the end of the trace.
+				// We are expecting an end of file at the end of the trace.
 				// Lets return the number of elements read till now.
 				// Hopefully some thread will contain a subset simulation complete packet
 				//System.out.println("Thread " + tidApp + " 's trace file has completed");
-				return i;
-				// misc.Error.showErrorAndExit("error in reading from file for tid = " + tidApp + "\n" + e);
+				return (i);
 			}
 		}
 		
@@ -147,6 +225,9 @@ public class FilePacket extends IpcBase implements Encoding {
 				if(inputBufferedReader[i] != null) {
 					inputBufferedReader[i].close();	
 				}
+				if(binaryTraceReader[i] != null) {
+					binaryTraceReader[i].close();
+				}
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
@@ -0,0 +1,292 @@
+package emulatorinterface.communication.filePacket;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import emulatorinterface.communication.Encoding;
+
+//Writes synthetic traces in the format read by FilePacket : one file per
+//application thread, <basename>_<tid>.gz (or, with -binary, the binary trace
+//<basename>_<tid>.tbt), ending with a THREADCOMPLETE packet.
+//
+//Every thread runs the same static program : codeSize instructions split in
+//basic blocks which end with a conditional branch. A branch either closes a
+//loop (taken until its trip count is reached) or, with probability
+//branchEntropy, goes to a random block half of the time. The other
+//instructions are loads, stores, floating point and integer operations in the
+//proportions of the mix. Half of the loads and stores stream through memory,
+//the other half access random addresses ; an access goes to the region shared
+//by all the threads with probability sharing, otherwise to the thread's
+//private region. Both regions are footprint bytes.
+public class SyntheticTraceGenerator implements Encoding {
+
+	static final long CODE_BASE = 0x400000L;
+	static final long SHARED_BASE = 0x10000000L;
+	static final long PRIVATE_BASE = 0x100000000L;
+	static final long PRIVATE_REGION = 0x10000000L;
+
+	static final int INTEGER = 0, FLOAT = 1, LOAD = 2, STORE = 3, BRANCH = 4;
+
+	static final String INTEGER_ASM[] = {"add rcx,rax", "imul rdx,rcx", "sub r8,0x1", "add rbx,0x40", "cmp r8,rax"};
+	static final String FLOAT_ASM[] = {"addsd xmm1,xmm0", "mulsd xmm2,xmm1"};
+	static final String LOAD_ASM[] = {"mov rax,qword ptr [rbx+0x8]", "movsd xmm0,qword ptr [rdi]"};
+	static final String STORE_ASM[] = {"mov qword ptr [rsi+0x10],rdx"};
+
+	// parameters
+	int numThreads = 1;
+	long numInstructions = 1000000;
+	long footprint = 1L << 24;
+	double sharing = 0.1;
+	double branchEntropy = 0.1;
+	int loadPercent = 25, storePercent = 10, branchPercent = 15, floatPercent = 10;
+	int codeSize = 4096;
+	long seed = 1;
+	boolean binary = false;
+
+	// the static program
+	int kind[];
+	String asm[];
+	boolean streaming[];
+	// per branch : the block it jumps to, its trip count (0 for a random branch)
+	int target[];
+	int tripCount[];
+	int blockStart[];
+
+	// the output of the current thread
+	BufferedWriter textOutput;
+	BinaryTraceWriter binaryOutput;
+
+	public static void main(String[] args) throws IOException {
+		SyntheticTraceGenerator generator = new SyntheticTraceGenerator();
+		String basename = generator.parseArguments(args);
+		if(basename == null) {
+			printUsage();
+			System.exit(1);
+		}
+		generator.generate(basename);
+	}
+
+	public static void printUsage() {
+		System.out.println("usage : SyntheticTraceGenerator [options] <trace basename>");
+		System.out.println("\t-threads <n>\t\tnumber of application threads (1)");
+		System.out.println("\t-instructions <n>\tinstructions per thread (1000000)");
+		System.out.println("\t-footprint <bytes>\tsize of the private and of the shared data (16M)");
+		System.out.println("\t-sharing <f>\t\tfraction of the accesses to shared data (0.1)");
+		System.out.println("\t-branchEntropy <f>\tfraction of the branches with a random outcome (0.1)");
+		System.out.println("\t-mix <l,s,b,f>\t\tpercentages of loads, stores, branches and floating point (25,10,15,10)");
+		System.out.println("\t-code <n>\t\tsize of the static program in instructions (4096)");
+		System.out.println("\t-seed <n>\t\trandom seed (1)");
+		System.out.println("\t-binary\t\t\twrite binary traces instead of text traces");
+	}
+
+	//returns the trace basename, or null if the arguments are wrong
+	public String parseArguments(String args[]) {
+		String basename = null;
+		try {
+			for(int i = 0; i < args.length; i++) {
+				String arg = args[i];
+				if(arg.equals("-threads")) {
+					numThreads = Integer.parseInt(args[++i]);
+				} else if(arg.equals("-instructions")) {
+					numInstructions = Long.parseLong(args[++i]);
+				} else if(arg.equals("-footprint")) {
+					footprint = parseSize(args[++i]);
+				} else if(arg.equals("-sharing")) {
+					sharing = Double.parseDouble(args[++i]);
+				} else if(arg.equals("-branchEntropy")) {
+					branchEntropy = Double.parseDouble(args[++i]);
+				} else if(arg.equals("-mix")) {
+					String mix[] = args[++i].split(",");
+					loadPercent = Integer.parseInt(mix[0]);
+					storePercent = Integer.parseInt(mix[1]);
+					branchPercent = Integer.parseInt(mix[2]);
+					floatPercent = Integer.parseInt(mix[3]);
+				} else if(arg.equals("-code")) {
+					codeSize = Integer.parseInt(args[++i]);
+				} else if(arg.equals("-seed")) {
+					seed = Long.parseLong(args[++i]);
+				} else if(arg.equals("-binary")) {
+					binary = true;
+				} else if(arg.startsWith("-") || basename != null) {
+					return null;
+				} else {
+					basename = arg;
+				}
+			}
+		} catch (RuntimeException e) {
+			// missing or malformed value
+			return null;
+		}
+
+		if(numThreads < 1 || numInstructions < 1 || footprint < 64 || codeSize < 2
+				|| branchPercent < 1 || branchPercent >= 100 || loadPercent + storePercent + branchPercent + floatPercent > 100) {
+			return null;
+		}
+		return basename;
+	}
+
+	// a size in bytes, with an optional K, M or G suffix
+	static long parseSize(String size) {
+		long unit = 1;
+		char suffix = Character.toUpperCase(size.charAt(size.length() - 1));
+		if(suffix == 'K' || suffix == 'M' || suffix == 'G') {
+			unit = (suffix == 'K') ? (1L << 10) : (suffix == 'M') ? (1L << 20) : (1L << 30);
+			size = size.substring(0, size.length() - 1);
+		}
+		return Long.parseLong(size) * unit;
+	}
+
+	public void generate(String basename) throws IOException {
+		buildProgram();
+		for(int tid = 0; tid < numThreads; tid++) {
+			String fileName = basename + "_" + tid + (binary ? BinaryTraceFormat.EXTENSION : ".gz");
+			if(binary) {
+				binaryOutput = new BinaryTraceWriter(fileName);
+			} else {
+				textOutput = new BufferedWriter(new OutputStreamWriter(
+						new GZIPOutputStream(new FileOutputStream(fileName), 1 << 16)), 1 << 16);
+			}
+			long numPackets = generateThread(tid);
+			if(binary) {
+				binaryOutput.close();
+			} else {
+				textOutput.close();
+			}
+			System.out.println(fileName + " : " + numInstructions + " instructions, " + numPackets + " packets");
+		}
+	}
+
+	// the static program, common to all the threads
+	void buildProgram() {
+		Random random = new Random(seed);
+		kind = new int[codeSize];
+		asm = new String[codeSize];
+		streaming = new boolean[codeSize];
+		target = new int[codeSize];
+		tripCount = new int[codeSize];
+		blockStart = new int[codeSize];
+
+		// blocks of about 100/branchPercent instructions, the last one being the branch
+		int meanBlockLength = Math.max(2, 100 / branchPercent);
+		int numBlocks = 0;
+		int start = 0;
+		while(start < codeSize) {
+			int length = Math.min(codeSize - start, Math.max(2, meanBlockLength / 2 + random.nextInt(meanBlockLength)));
+			blockStart[numBlocks] = start;
+			for(int i = start; i < start + length; i++) {
+				int r = random.nextInt(100 - branchPercent);
+				if(r < loadPercent) {
+					kind[i] = LOAD;
+					asm[i] = LOAD_ASM[random.nextInt(LOAD_ASM.length)];
+				} else if(r < loadPercent + storePercent) {
+					kind[i] = STORE;
+					asm[i] = STORE_ASM[random.nextInt(STORE_ASM.length)];
+				} else if(r < loadPercent + storePercent + floatPercent) {
+					kind[i] = FLOAT;
+					asm[i] = FLOAT_ASM[random.nextInt(FLOAT_ASM.length)];
+				} else {
+					kind[i] = INTEGER;
+					asm[i] = INTEGER_ASM[random.nextInt(INTEGER_ASM.length)];
+				}
+				streaming[i] = random.nextBoolean();
+			}
+			start += length;
+			numBlocks++;
+		}
+
+		// the last instruction of every block is its branch
+		for(int b = 0; b < numBlocks; b++) {
+			int end = (b + 1 < numBlocks) ? blockStart[b + 1] - 1 : codeSize - 1;
+			kind[end] = BRANCH;
+			if(random.nextDouble() < branchEntropy) {
+				target[end] = random.nextInt(numBlocks);
+				tripCount[end] = 0;
+			} else {
+				target[end] = b;
+				tripCount[end] = 2 + random.nextInt(31);
+			}
+			asm[end] = "jne 0x" + Long.toHexString(ipOf(blockStart[target[end]]));
+		}
+	}
+
+	static long ipOf(int instruction) {
+		return CODE_BASE + 4L * instruction;
+	}
+
+	// writes the trace of thread tid, returns the number of packets
+	long generateThread(int tid) throws IOException {
+		Random random = new Random(seed * 31 + tid + 1);
+		long streamOffset[] = new long[codeSize];
+		int iteration[] = new int[codeSize];
+		long privateBase = PRIVATE_BASE + tid * Math.max(PRIVATE_REGION, footprint);
+		long numWords = footprint / 8;
+		long numPackets = 0;
+
+		int pc = 0;
+		for(long n = 0; n < numInstructions; n++) {
+			long ip = ipOf(pc);
+			writeAssembly(ip, asm[pc]);
+			numPackets++;
+
+			switch(kind[pc]) {
+				case LOAD:
+				case STORE: {
+					long word;
+					if(streaming[pc]) {
+						word = streamOffset[pc];
+						streamOffset[pc] = (word + 1) % numWords;
+					} else {
+						word = (long)(random.nextDouble() * numWords);
+					}
+					long base = (random.nextDouble() < sharing) ? SHARED_BASE : privateBase;
+					writePacket(ip, (kind[pc] == LOAD) ? MEMREAD : MEMWRITE, base + word * 8);
+					numPackets++;
+					pc = (pc + 1) % codeSize;
+					break;
+				}
+				case BRANCH: {
+					boolean taken;
+					if(tripCount[pc] == 0) {
+						taken = random.nextBoolean();
+					} else {
+						iteration[pc] = (iteration[pc] + 1) % tripCount[pc];
+						taken = (iteration[pc] != 0);
+					}
+					long targetIp = ipOf(blockStart[target[pc]]);
+					writePacket(ip, taken ? TAKEN : NOTTAKEN, targetIp);
+					numPackets++;
+					pc = taken ? blockStart[target[pc]] : (pc + 1) % codeSize;
+					break;
+				}
+				default:
+					pc = (pc + 1) % codeSize;
+					break;
+			}
+		}
+
+		// the ip of the last packet is the number of instructions of the thread
+		writePacket(numInstructions, THREADCOMPLETE, 0);
+		return numPackets + 1;
+	}
+
+	void writeAssembly(long ip, String assembly) throws IOException {
+		if(binary) {
+			byte bytes[] = assembly.getBytes();
+			binaryOutput.writeAssembly(ip, bytes, 0, bytes.length);
+		} else {
+			textOutput.write(ip + " " + ASSEMBLY + " " + assembly + "\n");
+		}
+	}
+
+	void writePacket(long ip, long value, long tgt) throws IOException {
+		if(binary) {
+			binaryOutput.writePacket(ip, value, tgt);
+		} else {
+			textOutput.write(ip + " " + value + " " + tgt + "\n");
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package emulatorinterface.communication.network;
 
 import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
@@ -15,6 +16,8 @@ import config.SystemConfig;
 import emulatorinterface.communication.Encoding;
 import emulatorinterface.communication.IpcBase;
 import emulatorinterface.communication.Packet;
+import emulatorinterface.communication.PacketRing;
+import emulatorinterface.communication.ReadAheadThread;
 import generic.CircularPacketQueue;
 
 public class Network extends IpcBase implements Encoding {
@@ -25,17 +28,20 @@ public class Network extends IpcBase implements Encoding {
 	BufferedInputStream inputStream[];
 	int maxApplicationThreads;
 
-	// 2KB buffer for network data
+	// 16KB buffer for network data
 	final int bufferSize = 16 * 1024;
-	byte inputBytes[][];
-	int numOverflowBytes[];
+	
+	// the packets of each application thread are read by its own NetworkReadAhead thread
+	static final int READ_AHEAD_PACKETS = 4096;
+	PacketRing packetRing[];
+	NetworkReadAhead readAhead[];
 		
 	public Network() {
 		
 		this.maxApplicationThreads = (SystemConfig.maxNumJavaThreads*SystemConfig.numEmuThreadsPerJavaThread);
 		
-		inputBytes = new byte[maxApplicationThreads][bufferSize];
-		numOverflowBytes = new int[maxApplicationThreads];
+		packetRing = new PacketRing[maxApplicationThreads];
+		readAhead = new NetworkReadAhead[maxApplicationThreads];
 		serverSocket = new ServerSocket[maxApplicationThreads];
 		clientSocket = new Socket[maxApplicationThreads];
 		inputStream = new BufferedInputStream[maxApplicationThreads];
@@ -52,7 +58,6 @@ public class Network extends IpcBase implements Encoding {
 				serverSocket[tidApp].setSoTimeout(1000); // set time-out of 1 second.
 
 				clientSocket[tidApp] = null;
-				numOverflowBytes[tidApp] = 0;
 			} catch (Exception e) {
 				for(int i=0; i<tidApp; i++) {
 					try {
@@ -101,14 +106,62 @@ public class Network extends IpcBase implements Encoding {
 			misc.Error.showErrorAndExit("Network cannot handle tid=" + tidApp);
 		}
 		
-		// If you are reading from a thread for the first time, open the connection with thread first
-		if(clientSocket[tidApp]==null) {
-			
-			// This socket has been tested before.
-			if(serverSocket[tidApp]==null) {
-				return 0;
+		// If you are reading from a thread for the first time, start the thread which opens the
+		// connection with it and reads its packets
+		if(readAhead[tidApp]==null) {
+			packetRing[tidApp] = new PacketRing(READ_AHEAD_PACKETS);
+			readAhead[tidApp] = new NetworkReadAhead(tidApp, packetRing[tidApp]);
+			readAhead[tidApp].start();
+			return 0;
+		}
+		
+		PacketRing ring = packetRing[tidApp];
+		int numPacketsRead = 0;
+		int maxSize = Math.min(fromEmulator.spaceLeft(), ring.available());
+		
+		for(; numPacketsRead<maxSize; numPacketsRead++) {
+			int slot = ring.headSlot();
+			if(ring.value[slot]==ASSEMBLY) {
+				CustomObjectPool.getCustomAsmCharPool().enqueue(tidApp, ring.asm,
+						slot*PacketRing.ASM_BYTES, ring.asmLength[slot]);
 			}
+			fromEmulator.enqueue(ring.ip[slot], ring.value[slot], ring.tgt[slot]);
+			ring.release();
+		}
+		
+		if(numPacketsRead==0 && ring.isDrained() && readAhead[tidApp].getError()!=null) {
+			readAhead[tidApp].getError().printStackTrace();
+			misc.Error.showErrorAndExit("error in fetching packet for tidApp : " + tidApp);
+		}
+		
+		// print debug messages
+//		int numAsmPackets = 0;
+//		for(int i=0; i<numPacketsRead; i++) {
+//			if(fromEmulator.get(i).value==ASSEMBLY) {
+//				String assembly = new String(CustomObjectPool.
+//						getCustomAsmCharPool().peek(tidApp, positionInQueueBeforeReading + numAsmPackets));
+//				numAsmPackets++;
+//				System.out.println("$$$ :" + i + " : " + fromEmulator.get(i) + " : " + assembly);
+//			} else {
+//				System.out.println("$$$ :" + i + " : " + fromEmulator.get(i));
+//			}
+//		}
+		
+		return numPacketsRead;
+	}
 
+	// opens the connection with one application thread and reads its packets into its packet ring
+	class NetworkReadAhead extends ReadAheadThread {
+		
+		// ip + packet-type + disassembly
+		byte packetBytes[] = new byte[8+8+PacketRing.ASM_BYTES];
+		boolean endPacketReceived = false;
+		
+		NetworkReadAhead(int tidApp, PacketRing ring) {
+			super("network-read-ahead-" + tidApp, tidApp, ring);
+		}
+		
+		private boolean connect() {
 			try {
 				try{
 					clientSocket[tidApp] = serverSocket[tidApp].accept();
@@ -124,121 +177,80 @@ public class Network extends IpcBase implements Encoding {
 					serverSocket[tidApp].close();
 					serverSocket[tidApp] = null;
 					System.out.println("Network timed out for tidApp = " + tidApp);
-					return 0;
+					return false;
 				}
 				
 				String address = clientSocket[tidApp].getInetAddress().getHostName();
 				System.out.println("tidApp : "+ tidApp +" received connection request from " + address);
-				inputStream[tidApp] = new BufferedInputStream(clientSocket[tidApp].getInputStream());
-				
-				// ip +packet-type + disassembly
-				inputStream[tidApp].mark(8+8+64);
-
+				inputStream[tidApp] = new BufferedInputStream(clientSocket[tidApp].getInputStream(), bufferSize);
 			} catch (IOException ioe) {
 				ioe.printStackTrace();
 				misc.Error.showErrorAndExit("error in accepting connection for tidApp : " + tidApp);
 			}
+			return true;
 		}
-
-		int numPacketsRead = 0;
-
-		try {
-			int numBytesRead = inputStream[tidApp].available();
+		
+		private void readFully(int length) throws IOException {
+			int numBytesRead = 0;
+			while(numBytesRead < length) {
+				int n = inputStream[tidApp].read(packetBytes, numBytesRead, length - numBytesRead);
+				if(n < 0) {
+					throw new EOFException();
+				}
+				numBytesRead += n;
+			}
+		}
+		
+		protected boolean readPacket() throws IOException {
+			if(inputStream[tidApp]==null && !connect()) {
+				return false;
+			}
 			
-			// asynchronously determine the number of bytes available
-			if(numBytesRead == 0) {
-				return 0;
+			if(endPacketReceived) {
+				return false;
 			}
-
-			if(numBytesRead > (bufferSize-numOverflowBytes[tidApp])) {
-				numBytesRead = (bufferSize - numOverflowBytes[tidApp]);
+			
+			if(EmulatorConfig.emulatorType==EmulatorType.pin) {
+				// nothing is decoded from pin : drop the bytes
+				return (inputStream[tidApp].read(packetBytes) >= 0);
+			} else if (EmulatorConfig.emulatorType!=EmulatorType.qemu) {
+				misc.Error.showErrorAndExit("Invalid emulator type : " + EmulatorConfig.emulatorType);
 			}
 			
-			inputStream[tidApp].read(inputBytes[tidApp], numOverflowBytes[tidApp], numBytesRead);
+			try {
+				readFully(8+8);
+			} catch (EOFException e) {
+				// the emulator closed the connection
+				return false;
+			}
 			
-			numBytesRead += numOverflowBytes[tidApp];
-			numOverflowBytes[tidApp]=0;
+			int slot = claimSlot();
+			ring.ip[slot] = getLong(packetBytes, 0);
+			long value = getLong(packetBytes, 8);
+			ring.value[slot] = value;
 			
-			int numBytesConsumed = 0;
-			int maxSize = fromEmulator.spaceLeft();
-			if(EmulatorConfig.emulatorType==EmulatorType.pin) {
-				
-			} else if (EmulatorConfig.emulatorType==EmulatorType.qemu) {
+			if(value==ASSEMBLY) {
+				readFully(PacketRing.ASM_BYTES);
+				setAsm(slot, packetBytes, 0, PacketRing.ASM_BYTES);
+				ring.tgt[slot] = -1;
+			} else {
+				readFully(8);
+				ring.tgt[slot] = getLong(packetBytes, 0);
+			}
+			
+			if(value==-1) {
+				System.out.println("End packet received for tidApp = " + tidApp);
 				
-				for(int numPacketsAdded=0; numPacketsAdded<maxSize; numPacketsAdded++) {
-		
-					// we must be able to read at-least 3 longs
-					if((numBytesRead-numBytesConsumed) < (3*8)) {
-						resetInputBytes(tidApp, numBytesRead, numBytesConsumed); 
-						break;
-					} else {
-						long ip = getLong(inputBytes[tidApp], numBytesConsumed);
-						numBytesConsumed += 8;
-						long value = getLong(inputBytes[tidApp], numBytesConsumed);
-						numBytesConsumed += 8;
-						long tgt = -1;
-
-						if(value==ASSEMBLY) {
-							if((numBytesRead-numBytesConsumed)<64) {
-								numBytesConsumed -= 16; // return two longs
-								resetInputBytes(tidApp, numBytesRead, numBytesConsumed);
-								break;
-							} else {
-								CustomObjectPool.getCustomAsmCharPool().enqueue(tidApp, inputBytes[tidApp], numBytesConsumed);
-								numBytesConsumed += 64;
-							}
-						} else {
-							tgt = getLong(inputBytes[tidApp], numBytesConsumed);
-							numBytesConsumed += 8;
-						}
-						
-						numPacketsRead++;
-						
-						if(value==-1) {
-							System.out.println("End packet received for tidApp = " + tidApp);
-							
-							if(numBytesConsumed!=numBytesRead) {
-								misc.Error.showErrorAndExit("For tidApp = " + tidApp + " : Some bytes are in the " +
-										"stream even after the last packet(-1)");
-							}
-						}
-						
-						fromEmulator.enqueue(ip, value, tgt);
-					}
+				if(inputStream[tidApp].available()!=0) {
+					misc.Error.showErrorAndExit("For tidApp = " + tidApp + " : Some bytes are in the " +
+							"stream even after the last packet(-1)");
 				}
-				
-			} else {
-				misc.Error.showErrorAndExit("Invalid emulator type : " + EmulatorConfig.emulatorType);
+				endPacketReceived = true;
 			}
-		} catch (IOException e) {
-			e.printStackTrace();
-			misc.Error.showErrorAndExit("error in fetching packet for tidApp : " + tidApp);
-		}
-		
-		// print debug messages
-//		int numAsmPackets = 0;
-//		for(int i=0; i<numPacketsRead; i++) {
-//			if(fromEmulator.get(i).value==ASSEMBLY) {
-//				String assembly = new String(CustomObjectPool.
-//						getCustomAsmCharPool().peek(tidApp, positionInQueueBeforeReading + numAsmPackets));
-//				numAsmPackets++;
-//				System.out.println("$$$ :" + i + " : " + fromEmulator.get(i) + " : " + assembly);
-//			} else {
-//				System.out.println("$$$ :" + i + " : " + fromEmulator.get(i));
-//			}
-//		}
-		
-		return numPacketsRead;
-	}
-
-	private void resetInputBytes(int tidApp, int numBytesRead,
-			int numBytesConsumed) {
-		
-		for(int i=0; i<(numBytesRead-numBytesConsumed); i++) {
-			inputBytes[tidApp][i] = inputBytes[tidApp][i+numBytesConsumed];
+			
+			ring.publish();
+			return true;
 		}
-		
-		numOverflowBytes[tidApp] = numBytesRead - numBytesConsumed;
 	}
 
 	private long getLong(byte[] inputBytes, int offset) {
@@ -31,6 +31,9 @@ public class SharedMem extends  IpcBase
 	public int idToShmGet;
 	
 	private int lastCounterValue = 0;
+	// packets read by shmreadMult, one buffer per application thread as each
+	// is read by a single RunnableThread; reused across calls
+	private long readBuffers[][];
 	private boolean shm_debug_queue = false;
 	
 	public SharedMem(int pid) 
@@ -79,6 +82,7 @@ public class SharedMem extends  IpcBase
 		for(int tidApp = 0; tidApp<SystemConfig.maxNumJavaThreads * SystemConfig.numEmuThreadsPerJavaThread; tidApp++) {
 			readerLocation[tidApp] = 0;
 		}
+		readBuffers = new long[SystemConfig.maxNumJavaThreads * SystemConfig.numEmuThreadsPerJavaThread][];
 	}
 	static int bar_wait = 0;
 	static int numSharedMemPackets = 0;
@@ -101,7 +105,11 @@ public class SharedMem extends  IpcBase
 			}
 		}
 		 
-		long[] ret  = new long[3*numPackets]; 
+		long[] ret = readBuffers[tidApp];
+		if(ret == null || ret.length < 3*numPackets) {
+			ret = new long[Math.max(3*numPackets, 3*COUNT)];
+			readBuffers[tidApp] = ret;
+		}
 		SharedMem.shmreadMult(tidApp, shmAddress, readerLocation[tidApp], numPackets,ret);
 			for (int i=0; i<numPackets; i++) {
 				// System.out.println("$sharedMem " + (++numSharedMemPackets) + " : " + ret[3*i]);
@@ -406,10 +406,6 @@ public class ObjParser
 		return -1;
 	}
 	
-	private static String concatenateStringArray(String[] strArray) {
-		String concatenatedString = new String(strArray[0] + strArray[1] + strArray[2] + strArray[3]);
-		return concatenatedString;
-	}
 	// for  a line of assembly code, this would return the
 	// linear address, operation, operand1,operand2, operand3
 	private static String[] tokenizeQemuAssemblyCode(byte[] asmBytes) {
@@ -523,18 +519,9 @@ public class ObjParser
 			if(p.value==Encoding.ASSEMBLY) {   
  				byte asmBytes[] = CustomObjectPool.getCustomAsmCharPool().dequeue(tidApp);
 // 				System.out.println(asmBytes);
-				String assemblyTokens[] = tokenizeQemuAssemblyCode(asmBytes);
-				String asmText = concatenateStringArray(assemblyTokens);
 				//check if present in translated-instruction cache
-				if(TranslatedInstructionCache.isPresent(asmText)) {
-					assemblyPacketList = TranslatedInstructionCache.getInstructionList(asmText);
-					for(int j=0; j<assemblyPacketList.length(); j++) {
-						
-						assemblyPacketList.setCISCProgramCounter(j, p.ip);
-					}
-					
-				}
-			else {
+				if(!TranslatedInstructionCache.lookup(p.ip, asmBytes, assemblyPacketList)) {
+					String assemblyTokens[] = tokenizeQemuAssemblyCode(asmBytes);
 					long ProgramCounter = p.ip;
 					String operation, operand1, operand2, operand3;
 					operation = assemblyTokens[1];
@@ -543,7 +530,7 @@ public class ObjParser
 					operation,operand1, operand2, operand3, 
 						assemblyPacketList);
 					//Add to translated-instruction cache
-					TranslatedInstructionCache.add(asmText, assemblyPacketList);
+					TranslatedInstructionCache.add(p.ip, asmBytes, assemblyPacketList);
 //					System.out.println(operation+" : "+operand1+" : "+operand2+" : "+operand3);
 					
 				}
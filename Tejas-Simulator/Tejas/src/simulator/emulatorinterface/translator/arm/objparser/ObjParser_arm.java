@@ -244,10 +244,6 @@ public class ObjParser_arm
 		return -1;
 	}
 	
-	private static String concatenateStringArray(String[] strArray) {
-		String concatenatedString = new String(strArray[0] + strArray[1] + strArray[2] + strArray[3]);
-		return concatenatedString;
-	}
 	// for  a line of assembly code, this would return the
 	// linear address, operation, operand1,operand2, operand3
 	private static String[] tokenizeQemuAssemblyCode(byte[] asmBytes) {
@@ -408,7 +404,6 @@ public class ObjParser_arm
 		
 		int numSourceIns = 1;
 		int microOpIndex = -1;
-		String asmText=null;
 		boolean removedFromTail = false;		
 		// Riscify the assembly packets
 		if(EmulatorConfig.emulatorType==EmulatorType.none) {
@@ -420,20 +415,11 @@ public class ObjParser_arm
 			
 			if(p.value==Encoding.ASSEMBLY) {
 				byte asmBytes[] = CustomObjectPool.getCustomAsmCharPool().dequeue(tidApp);
-				String assemblyTokens[] = tokenizeQemuAssemblyCode(asmBytes);
 				
-				//String asmText = concatenateStringArray(assemblyTokens);
-				asmText = concatenateStringArray(assemblyTokens);
 				//check if present in translated-instruction cache
-				if(TranslatedInstructionCache.isPresent(asmText)) {
-					assemblyPacketList = TranslatedInstructionCache.getInstructionList(asmText);
-					
-					for(int j=0; j<assemblyPacketList.length(); j++) {
-						assemblyPacketList.setCISCProgramCounter(j, p.ip);
-					}
-					
-				} else {
+				if(!TranslatedInstructionCache.lookup(p.ip, asmBytes, assemblyPacketList)) {
 					// System.out.println(i + " : " + assemblyLine);
+					String assemblyTokens[] = tokenizeQemuAssemblyCode(asmBytes);
 					long instructionPointer = p.ip;
 					String instructionPrefix, operation, operand1, operand2, operand3;
 					instructionPrefix = assemblyTokens[0]; operation = assemblyTokens[1];
@@ -445,7 +431,7 @@ public class ObjParser_arm
 						assemblyPacketList);
 					
 					//Add to translated-instruction cache
-					TranslatedInstructionCache.add(asmText, assemblyPacketList);
+					TranslatedInstructionCache.add(p.ip, asmBytes, assemblyPacketList);
 				}
 			} else {
 				return;
@@ -4,27 +4,29 @@ package emulatorinterface.translator.qemuTranslationCache;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
-import main.CustomObjectPool;
-import generic.InstructionList;
+import generic.Instruction;
 
-public class LRUCache extends LinkedHashMap<String, InstructionList> {
+public class LRUCache extends LinkedHashMap<TranslationKey, Instruction[]> {
 	private static final float loadFactor = 1f;
 	private final int cacheSize;
+	private long numEvictions = 0;
 	
 	public LRUCache(final int cacheSize) {
 		super((int)Math.ceil(cacheSize/loadFactor) + 1, loadFactor, true);
 		this.cacheSize = cacheSize;
 	}
 	
-	@Override protected boolean removeEldestEntry(final Map.Entry<String, InstructionList> eldest) {
+	// the templates are not pooled objects : dropping the entry is enough
+	@Override protected boolean removeEldestEntry(final Map.Entry<TranslationKey, Instruction[]> eldest) {
 		if(super.size() > cacheSize) {
-			InstructionList eldestList = eldest.getValue();
-			for(int i=0; i<eldestList.length(); i++) {
-				CustomObjectPool.getInstructionPool().returnObject(eldestList.get(i));	
-			}
+			numEvictions++;
 			return true;
 		} else {
 			return false;
 		}
 	}
-}
\ No newline at end of file
+	
+	public long getNumEvictions() {
+		return numEvictions;
+	}
+}
@@ -5,64 +5,76 @@ import main.CustomObjectPool;
 import generic.Instruction;
 import generic.InstructionList;
 
-//Translation Cache for caching translations of qemu assembly instructions to micro-ops
+//Translation Cache for caching translations of qemu assembly instructions to micro-ops.
+//
+//An entry is keyed by the instruction pointer and the raw assembly bytes dequeued from the asm
+//char pool, so a lookup neither tokenizes the assembly nor builds a String. It holds template
+//micro-ops which are never handed out : a hit appends copies of them, borrowed from the
+//instruction pool, to the caller's list.
+//
+//synchronized : instructions may be fused on several java threads
 public class TranslatedInstructionCache {
 	private static final int cacheSize = 100000;
 	private static long cacheHit =0;
 	private static long cacheMiss =0;
-	public static  LRUCache translatedInstructionTable;
+	private static LRUCache translatedInstructionTable = new LRUCache(cacheSize);
+	private static final TranslationKey probe = new TranslationKey();
 	
-	private static void createTranslatedInstructionTable(){
-		translatedInstructionTable = new LRUCache(cacheSize);
+	// length of the assembly string in an asm char pool buffer
+	private static int asmLength(byte asmBytes[]) {
+		int i=0;
+		while(i<asmBytes.length && asmBytes[i]!=0) {
+			i++;
+		}
+		return i;
 	}
 	
-	public static void add(String asmText, InstructionList instructionList){
-		if(translatedInstructionTable == null) {
-			createTranslatedInstructionTable();
+	/*
+	 * appends the micro-ops of the instruction (ip, asmBytes) to instructionList if it is cached.
+	 * Returns false on a miss.
+	 */
+	public static synchronized boolean lookup(long ip, byte asmBytes[], InstructionList instructionList) {
+		probe.set(ip, asmBytes, asmLength(asmBytes));
+		Instruction templates[] = translatedInstructionTable.get(probe);
+		probe.asmBytes = null;
+		
+		if(templates==null) {
+			cacheMiss++;
+			return false;
 		}
 		
-		InstructionList instList = new InstructionList(instructionList.length());
-		for(int i=0; i<instructionList.length(); i++) {
+		cacheHit++;
+		for(int i=0; i<templates.length; i++) {
 			Instruction newInsn = CustomObjectPool.getInstructionPool().borrowObject();
-			newInsn.copy(instructionList.get(i));
-			instList.appendInstruction(newInsn);
+			newInsn.copy(templates[i]);
+			instructionList.appendInstruction(newInsn);
 		}
-		
-		translatedInstructionTable.put(asmText, instList);
+		return true;
 	}
 	
-	public static InstructionList getInstructionList(String instText) {
-		if(translatedInstructionTable == null) {
-			return null;
+	// caches the micro-ops the instruction (ip, asmBytes) was translated into
+	public static synchronized void add(long ip, byte asmBytes[], InstructionList instructionList) {
+		Instruction templates[] = new Instruction[instructionList.length()];
+		for(int i=0; i<templates.length; i++) {
+			templates[i] = new Instruction();
+			templates[i].copy(instructionList.get(i));
 		}
-		else {
-			InstructionList instructionList = translatedInstructionTable.get(instText);
-			InstructionList instructionListToReturn = new InstructionList(instructionList.getListSize());
 		
-			// increment references for each argument for each instruction
-			for(int i=0; i<instructionList.length(); i++) {
-				Instruction newInstruction = new Instruction();
-				newInstruction.copy(instructionList.get(i));
-				instructionListToReturn.appendInstruction(newInstruction);
-			}
-			return instructionListToReturn;
-		}
+		probe.set(ip, asmBytes, asmLength(asmBytes));
+		translatedInstructionTable.put(probe.copy(), templates);
+		probe.asmBytes = null;
 	}
 	
-	public static boolean isPresent(String instText) {
-		if(translatedInstructionTable == null) {
-			return false;
-		} else {
-			boolean ret = translatedInstructionTable.containsKey(instText);
-			
-			if (ret) {
-				cacheHit++;
-			} else {
-				cacheMiss++;
-			}
-			
-			return ret;
-		}
+	public static long getNumHits() {
+		return cacheHit;
+	}
+	
+	public static long getNumMisses() {
+		return cacheMiss;
+	}
+	
+	public static long getNumEvictions() {
+		return translatedInstructionTable.getNumEvictions();
 	}
 	
 	public static float getHitRate() {
@@ -73,4 +85,3 @@ public class TranslatedInstructionCache {
 		}
 	}
 }
-
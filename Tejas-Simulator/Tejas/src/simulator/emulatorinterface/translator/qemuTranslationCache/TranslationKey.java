@@ -0,0 +1,58 @@
+package emulatorinterface.translator.qemuTranslationCache;
+
+import java.util.Arrays;
+
+//Key of the translation cache : the instruction pointer and the assembly bytes of an instruction.
+//The cache looks up with a single probe key that refers to the asm char pool buffer; only the
+//keys of inserted entries own a copy of the bytes.
+class TranslationKey {
+	long ip;
+	byte asmBytes[];
+	int asmLength;
+	int hash;
+	
+	void set(long ip, byte asmBytes[], int asmLength) {
+		this.ip = ip;
+		this.asmBytes = asmBytes;
+		this.asmLength = asmLength;
+		
+		int h = (int)(ip ^ (ip >>> 32)) * 0x9E3779B9;
+		for(int i=0; i<asmLength; i++) {
+			h = 31*h + asmBytes[i];
+		}
+		this.hash = h;
+	}
+	
+	TranslationKey copy() {
+		TranslationKey key = new TranslationKey();
+		key.ip = ip;
+		key.asmBytes = Arrays.copyOf(asmBytes, asmLength);
+		key.asmLength = asmLength;
+		key.hash = hash;
+		return key;
+	}
+	
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if(!(o instanceof TranslationKey)) {
+			return false;
+		}
+		
+		TranslationKey key = (TranslationKey)o;
+		if(key.hash!=hash || key.ip!=ip || key.asmLength!=asmLength) {
+			return false;
+		}
+		
+		for(int i=0; i<asmLength; i++) {
+			if(key.asmBytes[i]!=asmBytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
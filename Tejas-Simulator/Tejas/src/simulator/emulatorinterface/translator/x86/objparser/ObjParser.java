@@ -72,6 +72,7 @@ public class ObjParser
 	private static InstructionTable ciscIPtoRiscIP = null;
 	private static InstructionList staticMicroOpList = null;
 	private static InstructionList threadMicroOpsList[] = null;
+	private static StaticTranslationCache staticTranslationCache = null;
 	
 	public static void initializeThreadMicroOpsList(int maxApplicationThreads) {
 		threadMicroOpsList = new InstructionList[maxApplicationThreads];
@@ -123,6 +124,20 @@ public class ObjParser
 	{
 		BufferedReader input;
 
+		StaticTranslationCache cache = getStaticTranslationCache(executableFile);
+		if(cache!=null && cache.isValid()) {
+			ciscIPtoRiscIP = new InstructionTable(cache.getNoOfLines());
+			staticMicroOpList = new InstructionList(cache.getNoOfLines()*3);
+			
+			if(cache.load(staticMicroOpList, ciscIPtoRiscIP)) {
+				System.out.println("The executable has " + cache.getNoOfLines() + " assembly lines (cached translation)");
+				System.out.println("Total number of micro-operations = " + staticMicroOpList.length());
+				Statistics.setStaticCoverage(((double)cache.getHandled()/
+						(double)(cache.getHandled()+cache.getNotHandled()))*(double)100);
+				return;
+			}
+		}
+		
 		long noOfLines = noOfLines(executableFile);
 		if(noOfLines==0) {
 			misc.Error.showErrorAndExit("error in reading the output of objdump on " + executableFile);
@@ -148,6 +163,15 @@ public class ObjParser
 		
 		long handled = 0, notHandled = 0;
 		
+		// (ip, index) pairs added to the hash-table, for the static translation cache
+		long cachedCiscIP[] = null;
+		int cachedMicroOpIndex[] = null;
+		int numCachedEntries = 0;
+		if(cache!=null) {
+			cachedCiscIP = new long[(int)noOfLines];
+			cachedMicroOpIndex = new int[(int)noOfLines];
+		}
+		
 		// Read from the obj-dump output
 		while ((line = readNextLineOfObjDump(input)) != null) 
 		{
@@ -185,6 +209,12 @@ public class ObjParser
 
 			// add instruction's index into the hash-table
 			ciscIPtoRiscIP.addInstruction(instructionPointer, microOpsIndexBefore);
+			
+			if(cache!=null) {
+				cachedCiscIP[numCachedEntries] = instructionPointer;
+				cachedMicroOpIndex[numCachedEntries] = microOpsIndexBefore;
+				numCachedEntries++;
+			}
 		}
 		
 		System.out.println("Total number of assembly lines = " + (handled + notHandled)); 
@@ -195,6 +225,20 @@ public class ObjParser
 		catch (IOException ioe) {Error.showErrorAndExit("\n\tError in closing the buffered reader !!");}
 
 		Statistics.setStaticCoverage(((double)handled/(double)(handled+notHandled))*(double)100);
+		
+		if(cache!=null) {
+			cache.store((int)noOfLines, handled, notHandled, staticMicroOpList,
+					cachedCiscIP, cachedMicroOpIndex, numCachedEntries);
+		}
+	}
+	
+	// the static translation cache of the executable, or null if the cache is disabled
+	private static StaticTranslationCache getStaticTranslationCache(String executableFile)
+	{
+		if(staticTranslationCache==null) {
+			staticTranslationCache = StaticTranslationCache.open(executableFile);
+		}
+		return staticTranslationCache;
 	}
 
 	private static int riscifyInstruction(
@@ -304,6 +348,16 @@ public class ObjParser
 		return input;
 	}
 	
+	// Counts number of lines in the objdump output of the executable. Objdump is not run
+	// if the static translation cache holds the executable.
+	public static int noOfLinesCached(String executableFileName) {
+		StaticTranslationCache cache = getStaticTranslationCache(executableFileName);
+		if(cache!=null && cache.isValid()) {
+			return cache.getNoOfLines();
+		}
+		return noOfLines(executableFileName);
+	}
+	
 	// Counts number of lines in a file.
 	public static int noOfLines(String executableFileName) {
 		int numLines = 0;
@@ -500,10 +554,6 @@ public class ObjParser
 		return -1;
 	}
 	
-	private static String concatenateStringArray(String[] strArray) {
-		String concatenatedString = new String(strArray[0] + strArray[1] + strArray[2] + strArray[3]);
-		return concatenatedString;
-	}
 	// for  a line of assembly code, this would return the
 	// linear address, operation, operand1,operand2, operand3
 	private static String[] tokenizeQemuAssemblyCode(byte[] asmBytes) {
@@ -623,19 +673,11 @@ public class ObjParser
 			
 			if(p.value==Encoding.ASSEMBLY) {
 				byte asmBytes[] = CustomObjectPool.getCustomAsmCharPool().dequeue(tidApp);
-				String assemblyTokens[] = tokenizeQemuAssemblyCode(asmBytes);
-				String asmText = concatenateStringArray(assemblyTokens);
 		
 				//check if present in translated-instruction cache
-				if(TranslatedInstructionCache.isPresent(asmText)) {
-					assemblyPacketList = TranslatedInstructionCache.getInstructionList(asmText);
-					
-					for(int j=0; j<assemblyPacketList.length(); j++) {
-						assemblyPacketList.setCISCProgramCounter(j, p.ip);
-					}
-					
-				} else {
+				if(!TranslatedInstructionCache.lookup(p.ip, asmBytes, assemblyPacketList)) {
 					// System.out.println(i + " : " + assemblyLine);
+					String assemblyTokens[] = tokenizeQemuAssemblyCode(asmBytes);
 					long instructionPointer = p.ip;
 					String instructionPrefix, operation, operand1, operand2, operand3;
 					instructionPrefix = assemblyTokens[0]; operation = assemblyTokens[1];
@@ -647,7 +689,7 @@ public class ObjParser
 						assemblyPacketList);
 					
 					//Add to translated-instruction cache
-					TranslatedInstructionCache.add(asmText, assemblyPacketList);
+					TranslatedInstructionCache.add(p.ip, asmBytes, assemblyPacketList);
 				}
 			} else {
 				return;
@@ -0,0 +1,362 @@
+/*****************************************************************************
+				Tejas Simulator
+------------------------------------------------------------------------------------------------------------
+
+   Copyright [2010] [Indian Institute of Technology, Delhi]
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+------------------------------------------------------------------------------------------------------------
+
+*****************************************************************************/
+
+package emulatorinterface.translator.x86.objparser;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import config.EmulatorConfig;
+import generic.Instruction;
+import generic.InstructionList;
+import generic.InstructionTable;
+import generic.Operand;
+import generic.OperandType;
+import generic.OperationType;
+import main.CustomObjectPool;
+
+/**
+ * On-disk cache of the static translation of an executable (PIN mode) : the
+ * micro-op list and the cisc-ip to micro-op index built by
+ * ObjParser.buildStaticInstructionTable, so that later runs on the same
+ * executable neither run objdump nor riscify it again.
+ *
+ * The cache files live in EmulatorConfig.StaticTranslationCache and are keyed
+ * by the path, size and CRC32 of the executable. A cache file is
+ * memory-mapped when it is loaded.
+ *
+ * Nothing ties a cache file to the translator that wrote it but VERSION, so
+ * the cache is off unless a configuration names its directory; the shipped
+ * configurations leave the tag commented out.
+ *
+ *	header		: int MAGIC, int VERSION, long size, long CRC32,
+ *				  int path length, path (UTF-8), int number of objdump lines,
+ *				  long handled, long not handled, int number of micro-ops,
+ *				  int number of index entries
+ *	micro-ops	: byte operation type, long cisc-ip, byte branch taken,
+ *				  long branch target, then the two source operands and the
+ *				  destination operand
+ *	index		: per entry, long cisc-ip, int micro-op index
+ *
+ * An operand is a byte kind (NONE, INTEGER_REGISTER + short register,
+ * FLOAT_REGISTER + short register, IMMEDIATE, or MEMORY + its two operands).
+ * Operands are pre-allocated and shared (see Operand.preAllocateOperands);
+ * they are read back through the same factory methods.
+ */
+class StaticTranslationCache
+{
+	static final int MAGIC = 0x544a5354; // "TJST"
+	// bump whenever the translator changes the micro-ops it emits
+	static final int VERSION = 1;
+	static final String EXTENSION = ".tst";
+
+	static final byte NONE = 0;
+	static final byte INTEGER_REGISTER = 1;
+	static final byte FLOAT_REGISTER = 2;
+	static final byte IMMEDIATE = 3;
+	static final byte MEMORY = 4;
+
+	private final String executablePath;
+	private final long executableSize;
+	private final long executableHash;
+	private final File cacheFile;
+
+	// the mapped cache file, positioned after the header, if it holds the executable
+	private MappedByteBuffer buffer = null;
+	private int noOfLines;
+	private long handled, notHandled;
+	private int numMicroOps, numIndexEntries;
+
+	/**
+	 * Returns the cache for executableFile, or null if there is no cache
+	 * directory in the configuration.
+	 */
+	static StaticTranslationCache open(String executableFile)
+	{
+		if(EmulatorConfig.StaticTranslationCache==null) {
+			return null;
+		}
+
+		try {
+			StaticTranslationCache cache = new StaticTranslationCache(executableFile);
+			cache.map();
+			return cache;
+		} catch (IOException ioe) {
+			System.out.println("static translation cache disabled : " + ioe.getMessage());
+			return null;
+		}
+	}
+
+	private StaticTranslationCache(String executableFile) throws IOException
+	{
+		File executable = new File(executableFile).getCanonicalFile();
+		executablePath = executable.getPath();
+		executableSize = executable.length();
+		executableHash = crc32(executable);
+
+		File directory = new File(EmulatorConfig.StaticTranslationCache);
+		if(!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("cannot create directory " + directory);
+		}
+
+		// the hash of the path tells apart executables of the same name and contents
+		cacheFile = new File(directory, executable.getName() + "-"
+				+ Long.toHexString(executableHash) + "-"
+				+ Integer.toHexString(executablePath.hashCode()) + EXTENSION);
+	}
+
+	private static long crc32(File file) throws IOException
+	{
+		CRC32 crc = new CRC32();
+		byte bytes[] = new byte[1 << 16];
+		FileInputStream input = new FileInputStream(file);
+		try {
+			int n;
+			while((n = input.read(bytes)) > 0) {
+				crc.update(bytes, 0, n);
+			}
+		} finally {
+			input.close();
+		}
+		return crc.getValue();
+	}
+
+	// maps the cache file if it exists and holds this executable
+	private void map() throws IOException
+	{
+		if(!cacheFile.isFile()) {
+			return;
+		}
+
+		RandomAccessFile file = new RandomAccessFile(cacheFile, "r");
+		try {
+			MappedByteBuffer mapped = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+
+			if(mapped.getInt()!=MAGIC || mapped.getInt()!=VERSION
+				|| mapped.getLong()!=executableSize || mapped.getLong()!=executableHash) {
+				return;
+			}
+
+			byte path[] = new byte[mapped.getInt()];
+			mapped.get(path);
+			if(!new String(path, "UTF-8").equals(executablePath)) {
+				return;
+			}
+
+			noOfLines = mapped.getInt();
+			handled = mapped.getLong();
+			notHandled = mapped.getLong();
+			numMicroOps = mapped.getInt();
+			numIndexEntries = mapped.getInt();
+			buffer = mapped;
+		} catch (BufferUnderflowException e) {
+			// truncated : it is rewritten after the translation
+		} finally {
+			file.close();
+		}
+	}
+
+	// true if the translation can be loaded from the cache
+	boolean isValid()
+	{
+		return buffer!=null;
+	}
+
+	int getNoOfLines()
+	{
+		return noOfLines;
+	}
+
+	long getHandled()
+	{
+		return handled;
+	}
+
+	long getNotHandled()
+	{
+		return notHandled;
+	}
+
+	/**
+	 * Appends the cached micro-ops to microOpList and their indices to
+	 * ciscIPtoRiscIP. Returns false if the cache file is corrupt; the
+	 * micro-ops read until then are returned to the instruction pool.
+	 */
+	boolean load(InstructionList microOpList, InstructionTable ciscIPtoRiscIP)
+	{
+		OperationType operationTypes[] = OperationType.values();
+		int initialLength = microOpList.length();
+
+		try {
+			for(int i=0; i<numMicroOps; i++) {
+				// appended first, so that it is released with the others if reading it fails
+				Instruction microOp = CustomObjectPool.getInstructionPool().borrowObject();
+				microOpList.appendInstruction(microOp);
+				microOp.setOperationType(operationTypes[buffer.get()]);
+				microOp.setCISCProgramCounter(buffer.getLong());
+				microOp.setBranchTaken(buffer.get()!=0);
+				microOp.setBranchTargetAddress(buffer.getLong());
+				microOp.setSourceOperand1(readOperand());
+				microOp.setSourceOperand2(readOperand());
+				microOp.setDestinationOperand(readOperand());
+			}
+
+			for(int i=0; i<numIndexEntries; i++) {
+				long instructionPointer = buffer.getLong();
+				ciscIPtoRiscIP.addInstruction(instructionPointer, buffer.getInt());
+			}
+		} catch (RuntimeException e) {
+			// out of range operation type or operand, or truncated file
+			System.out.println("static translation cache " + cacheFile + " is corrupt : " + e);
+			while(microOpList.length() > initialLength) {
+				microOpList.removeLastInstr();
+			}
+			return false;
+		} finally {
+			buffer = null;
+		}
+
+		return true;
+	}
+
+	private Operand readOperand()
+	{
+		byte kind = buffer.get();
+		switch(kind) {
+			case NONE:
+				return null;
+			case INTEGER_REGISTER:
+				return Operand.getIntegerRegister(buffer.getShort());
+			case FLOAT_REGISTER:
+				return Operand.getFloatRegister(buffer.getShort());
+			case IMMEDIATE:
+				return Operand.getImmediateOperand();
+			case MEMORY:
+				Operand first = readOperand();
+				Operand second = readOperand();
+				return Operand.getMemoryOperand(first, second);
+			default:
+				throw new IllegalStateException("invalid operand kind " + kind);
+		}
+	}
+
+	/**
+	 * Writes the translation of the executable : its micro-ops and the
+	 * numIndexEntries (ciscIP, microOpIndex) pairs, in the order they were
+	 * added to the instruction table.
+	 */
+	void store(int noOfLines, long handled, long notHandled, InstructionList microOpList,
+			long ciscIP[], int microOpIndex[], int numIndexEntries)
+	{
+		// several simulations may translate the same executable at the same time : each one
+		// writes its own file and renames it
+		File tempFile = new File(cacheFile.getPath() + "." + Long.toHexString(System.nanoTime()));
+
+		try {
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(tempFile), 1 << 16));
+
+			try {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeLong(executableSize);
+				output.writeLong(executableHash);
+				byte path[] = executablePath.getBytes("UTF-8");
+				output.writeInt(path.length);
+				output.write(path);
+				output.writeInt(noOfLines);
+				output.writeLong(handled);
+				output.writeLong(notHandled);
+				output.writeInt(microOpList.length());
+				output.writeInt(numIndexEntries);
+
+				for(int i=0; i<microOpList.length(); i++) {
+					Instruction microOp = microOpList.get(i);
+					output.writeByte(microOp.getOperationType().ordinal());
+					output.writeLong(microOp.getCISCProgramCounter());
+					output.writeByte(microOp.isBranchTaken() ? 1 : 0);
+					output.writeLong(microOp.getBranchTargetAddress());
+					writeOperand(output, microOp.getSourceOperand1());
+					writeOperand(output, microOp.getSourceOperand2());
+					writeOperand(output, microOp.getDestinationOperand());
+				}
+
+				for(int i=0; i<numIndexEntries; i++) {
+					output.writeLong(ciscIP[i]);
+					output.writeInt(microOpIndex[i]);
+				}
+			} finally {
+				output.close();
+			}
+
+			if(!tempFile.renameTo(cacheFile)) {
+				throw new IOException("cannot rename " + tempFile + " to " + cacheFile);
+			}
+		} catch (IOException ioe) {
+			tempFile.delete();
+			System.out.println("static translation of " + executablePath + " not cached : " + ioe.getMessage());
+		}
+	}
+
+	private static void writeOperand(DataOutputStream output, Operand operand) throws IOException
+	{
+		if(operand==null) {
+			output.writeByte(NONE);
+			return;
+		}
+
+		OperandType type = operand.getOperandType();
+		if(type==OperandType.integerRegister && operand==Operand.getIntegerRegister(operand.getValue())) {
+			output.writeByte(INTEGER_REGISTER);
+			output.writeShort((int)operand.getValue());
+		} else if(type==OperandType.floatRegister && operand==Operand.getFloatRegister(operand.getValue())) {
+			output.writeByte(FLOAT_REGISTER);
+			output.writeShort((int)operand.getValue());
+		} else if(type==OperandType.immediate && operand==Operand.getImmediateOperand()) {
+			output.writeByte(IMMEDIATE);
+		} else if(type==OperandType.memory && isSharedMemoryOperand(operand)) {
+			output.writeByte(MEMORY);
+			writeOperand(output, operand.getMemoryLocationFirstOperand());
+			writeOperand(output, operand.getMemoryLocationSecondOperand());
+		} else {
+			// a private operand could not be shared again when it is read back
+			throw new IOException("operand " + operand + " is not a pre-allocated operand");
+		}
+	}
+
+	private static boolean isSharedMemoryOperand(Operand operand)
+	{
+		Operand first = operand.getMemoryLocationFirstOperand();
+		if(first==null || (first.getOperandType()!=OperandType.integerRegister
+				&& first.getOperandType()!=OperandType.immediate)) {
+			return false;
+		}
+		return operand==Operand.getMemoryOperand(first, operand.getMemoryLocationSecondOperand());
+	}
+}
@@ -20,6 +20,7 @@ import pipeline.outoforder.OutOrderExecutionEngine;
 import config.CoreConfig;
 import config.EnergyConfig;
 import config.PipelineType;
+import config.SimulationConfig;
 import config.SystemConfig;
 
 /**
@@ -69,6 +70,9 @@ public class Core extends SimulationElement{
 		coreConfig = SystemConfig.core[core_number];
 		
 		this.eventQueue = new EventQueue();
+		if(SimulationConfig.profileSimulator) {
+			this.eventQueue.setProfiler(new SimulatorProfiler("core " + core_number));
+		}
 		this.frequency = coreConfig.frequency;
 				
 		this.core_number = core_number;
@@ -380,6 +384,10 @@ public class Core extends SimulationElement{
 		for(Cache cache : getExecEngine().getCoreMemorySystem().getCoreCacheList()) {
 			cache.setComInterface(comInterface);
 		}
+		//the L1 data cache answers page walk loads through the interconnect
+		if(getExecEngine().getCoreMemorySystem().getPageWalker() != null) {
+			getExecEngine().getCoreMemorySystem().getPageWalker().setComInterface(comInterface);
+		}
 	}
 
 	public EnergyConfig calculateAndPrintEnergy(FileWriter outputFileWriter, String componentName) throws IOException
@@ -103,7 +103,8 @@ public class CustomInstructionPool {
 				maxPoolSize, true);
 	}
 	
-	public Instruction borrowObject()
+	//synchronized : pipelines may be stepped on several threads
+	public synchronized Instruction borrowObject()
 	{
 //		if(pool.isEmpty()) {
 //			misc.Error.showErrorAndExit("instruction pool empty!!");
@@ -113,7 +114,7 @@ public class CustomInstructionPool {
 		return pool.removeObjectAtHead();		
 	}
 	
-	public void returnObject(Instruction arg0)
+	public synchronized void returnObject(Instruction arg0)
 	{
 //		System.out.println("ip = " + arg0.getCISCProgramCounter());
 		
@@ -1,5 +1,7 @@
 package generic;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import main.Main;
 import memorysystem.MemorySystem;
 
@@ -19,13 +21,18 @@ public abstract class Event implements Cloneable
 	private long priority;
 	public int coreId;
 	public long serializationID = 0;
-	public static long globalSerializationID = 0;
+	//events are created by the pipelines of many cores at once (see PipelineThreads)
+	public static final AtomicLong globalSerializationID = new AtomicLong(0);
 	public RequestType payloadRequestType;	
 	public SimulationElement payloadElement;
 	
+	//intrusive link and insertion order used by the EventQueue
+	Event queueNext;
+	long queueOrder;
+	boolean queued;
+	
 	public void incrementSerializationID() {
-		globalSerializationID++;
-		serializationID = globalSerializationID;
+		serializationID = globalSerializationID.incrementAndGet();
 	}
 
 	public Event clone()
@@ -33,7 +40,10 @@ public abstract class Event implements Cloneable
 		incrementSerializationID();
 		
 		try {
-			return (Event) (super.clone());
+			Event clonedEvent = (Event) (super.clone());
+			clonedEvent.queueNext = null;
+			clonedEvent.queued = false;
+			return clonedEvent;
 		} catch (CloneNotSupportedException e) {
 			misc.Error.showErrorAndExit("Error in cloning event object");
 			return null;
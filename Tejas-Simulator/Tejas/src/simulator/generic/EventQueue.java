@@ -1,60 +1,282 @@
 package generic;
 
-import java.lang.reflect.Array;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.PriorityQueue;
+/*
+ * Calendar queue of events.
+ *
+ * The near future (the next wheelSize cycles) is held in a timing wheel whose
+ * buckets are intrusive singly linked lists threaded through Event.queueNext,
+ * so adding an event never allocates. Events scheduled further ahead (DRAM
+ * refresh, StateUpdateEvents, etc.) are kept in an overflow heap ordered by
+ * (eventTime, insertion order) and migrate into the wheel as the wheel turns.
+ *
+ * Buckets are indexed by absolute time, so an event is always handled in the
+ * cycle it was scheduled for, however far ahead that is. Events that are
+ * already late are appended to the bucket that is being (or will next be)
+ * drained, exactly as the old ring of LinkedLists did.
+ *
+ * An event object can be present in the queue only once : adding it again
+ * before it has been handled throws an IllegalStateException.
+ */
+public class EventQueue
+{
+	static final int wheelBits = 10;
+	static final int wheelSize = 1 << wheelBits;
+	static final int wheelMask = wheelSize - 1;
 
-import main.ArchitecturalComponent;
-import main.Main;
-import memorysystem.AddressCarryingEvent;
+	Event bucketHead[];
+	Event bucketTail[];
 
+	//one bit per bucket : set if the bucket holds at least one event
+	long occupied[];
 
-public class EventQueue 
-{
-	static final int queueSize = 1024;
-	LinkedList<Event> myPriorityQueue[];
-	int head = 0;
-	
-	public EventQueue() 
+	//absolute time of the bucket which is drained next
+	long wheelTime;
+	int numEventsInWheel;
+
+	Event overflow[];
+	int numEventsInOverflow;
+	long insertionCounter;
+
+	long numEventsHandled;
+
+	//null unless the simulator profiles itself
+	SimulatorProfiler profiler;
+
+	public EventQueue()
 	{
-		myPriorityQueue = (LinkedList<Event>[]) Array.newInstance(LinkedList.class, queueSize);
-		for(int i=0; i<queueSize; i++) {
-			myPriorityQueue[i] = new LinkedList<Event>(); 
-		}
-	}
-	
-	int getIndex(int index) {
-		return (head+index)%queueSize;
+		bucketHead = new Event[wheelSize];
+		bucketTail = new Event[wheelSize];
+		occupied = new long[wheelSize >>> 6];
+		overflow = new Event[64];
+		wheelTime = GlobalClock.getCurrentTime();
 	}
-	
+
 	public void addEvent(Event event)
 	{
-		long currentClockTime = GlobalClock.currentTime;
+		if(event.queued) {
+			throw new IllegalStateException("event " + event.getRequestType()
+					+ " at time " + event.getEventTime() + " is already in an event queue");
+		}
+		event.queued = true;
+
 		long eventTime = event.getEventTime();
-		if(eventTime<currentClockTime) {
-			myPriorityQueue[getIndex(0)].add(event);
+		if(eventTime < wheelTime) {
+			eventTime = wheelTime;
+		}
+
+		event.queueOrder = insertionCounter++;
+
+		if(eventTime - wheelTime < wheelSize) {
+			addToBucket(event, (int)(eventTime & wheelMask));
 		} else {
-			int diffTime = (int)(eventTime - currentClockTime);
-			myPriorityQueue[getIndex(diffTime)].add(event);
+			addToOverflow(event);
 		}
 	}
-	
+
 	public void processEvents()
 	{
-		LinkedList<Event> eventList = myPriorityQueue[head];
-		
+		long currentClockTime = GlobalClock.getCurrentTime();
+
+		if(profiler != null) {
+			profiler.noteOccupancy(size());
+		}
+
+		//catch up with the clock if this queue was not drained for a while
+		while(wheelTime < currentClockTime) {
+			long nextEventTime = getNextEventTime();
+			if(nextEventTime >= currentClockTime) {
+				advanceWheelTo(currentClockTime);
+				break;
+			}
+			if(nextEventTime > wheelTime) {
+				advanceWheelTo(nextEventTime);
+			}
+			drainBucket((int)(wheelTime & wheelMask));
+			advanceWheelTo(wheelTime + 1);
+		}
+
+		//already drained this cycle
+		if(wheelTime > currentClockTime) {
+			return;
+		}
+
 		//Main.debugPrinter.print("Processing events at time " + GlobalClock.getCurrentTime() + "\n");
-		//System.out.println("Processing events at time " + GlobalClock.getCurrentTime() + "\n");
+		drainBucket((int)(wheelTime & wheelMask));
+		advanceWheelTo(wheelTime + 1);
+	}
+
+	/*
+	 * returns the time of the earliest pending event, or Long.MAX_VALUE if
+	 * the queue is empty. Late events report the time of the bucket in which
+	 * they will be handled.
+	 */
+	public long getNextEventTime()
+	{
+		if(numEventsInWheel > 0) {
+			int start = (int)(wheelTime & wheelMask);
+			int bucket = nextOccupiedBucket(start);
+			if(bucket < 0) {
+				bucket = nextOccupiedBucket(0);
+			}
+			return wheelTime + ((bucket - start) & wheelMask);
+		}
 
-		while(eventList.isEmpty()==false) {
-			Event e = eventList.pollFirst();
-		        //if ((e!=null)&&(e.coreId==28)) System.out.println("[DEBUG] core 28 process");
-			e.getProcessingElement().handleEvent(this, e);
-			
+		if(numEventsInOverflow > 0) {
+			return overflow[0].getEventTime();
 		}
-	
-		head = (head + 1) % queueSize;
-		
+
+		return Long.MAX_VALUE;
+	}
+
+	public boolean isEmpty()
+	{
+		return numEventsInWheel == 0 && numEventsInOverflow == 0;
+	}
+
+	public int size()
+	{
+		return numEventsInWheel + numEventsInOverflow;
+	}
+
+	public long getNumEventsHandled()
+	{
+		return numEventsHandled;
+	}
+
+	public SimulatorProfiler getProfiler()
+	{
+		return profiler;
+	}
+
+	public void setProfiler(SimulatorProfiler profiler)
+	{
+		this.profiler = profiler;
+	}
+
+	private void drainBucket(int bucket)
+	{
+		//events added to this bucket while it is being drained are handled
+		//in the same call, in the order in which they were added.
+		while(bucketHead[bucket] != null) {
+			Event e = bucketHead[bucket];
+			bucketHead[bucket] = e.queueNext;
+			e.queueNext = null;
+			e.queued = false;
+			numEventsInWheel--;
+			if(bucketHead[bucket] == null) {
+				bucketTail[bucket] = null;
+				occupied[bucket >>> 6] &= ~(1L << bucket);
+			}
+
+			numEventsHandled++;
+			if(profiler != null) {
+				profiler.handleEvent(this, e);
+			} else {
+				e.getProcessingElement().handleEvent(this, e);
+			}
+		}
+	}
+
+	private void advanceWheelTo(long newWheelTime)
+	{
+		wheelTime = newWheelTime;
+
+		//bring in far-future events that have now come within the wheel's
+		//horizon. This happens before any direct insertion can target their
+		//bucket, so order of insertion is preserved within a cycle.
+		while(numEventsInOverflow > 0
+				&& overflow[0].getEventTime() - wheelTime < wheelSize) {
+			Event e = removeFromOverflow();
+			long eventTime = e.getEventTime() < wheelTime ? wheelTime : e.getEventTime();
+			addToBucket(e, (int)(eventTime & wheelMask));
+		}
+	}
+
+	private void addToBucket(Event event, int bucket)
+	{
+		event.queueNext = null;
+		if(bucketTail[bucket] == null) {
+			bucketHead[bucket] = event;
+			occupied[bucket >>> 6] |= (1L << bucket);
+		} else {
+			bucketTail[bucket].queueNext = event;
+		}
+		bucketTail[bucket] = event;
+		numEventsInWheel++;
+	}
+
+	private int nextOccupiedBucket(int from)
+	{
+		int word = from >>> 6;
+		long bits = occupied[word] & (-1L << from);
+		while(true) {
+			if(bits != 0) {
+				return (word << 6) + Long.numberOfTrailingZeros(bits);
+			}
+			word++;
+			if(word == occupied.length) {
+				return -1;
+			}
+			bits = occupied[word];
+		}
+	}
+
+	/*
+	 * overflow : binary min-heap on (eventTime, queueOrder)
+	 */
+	private static boolean before(Event a, Event b)
+	{
+		if(a.getEventTime() != b.getEventTime()) {
+			return a.getEventTime() < b.getEventTime();
+		}
+		return a.queueOrder < b.queueOrder;
+	}
+
+	private void addToOverflow(Event event)
+	{
+		if(numEventsInOverflow == overflow.length) {
+			Event grown[] = new Event[overflow.length * 2];
+			System.arraycopy(overflow, 0, grown, 0, numEventsInOverflow);
+			overflow = grown;
+		}
+
+		int i = numEventsInOverflow++;
+		while(i > 0) {
+			int parent = (i - 1) >>> 1;
+			if(!before(event, overflow[parent])) {
+				break;
+			}
+			overflow[i] = overflow[parent];
+			i = parent;
+		}
+		overflow[i] = event;
+	}
+
+	private Event removeFromOverflow()
+	{
+		Event top = overflow[0];
+		Event last = overflow[--numEventsInOverflow];
+		overflow[numEventsInOverflow] = null;
+
+		if(numEventsInOverflow > 0) {
+			int i = 0;
+			while(true) {
+				int child = 2 * i + 1;
+				if(child >= numEventsInOverflow) {
+					break;
+				}
+				if(child + 1 < numEventsInOverflow && before(overflow[child + 1], overflow[child])) {
+					child++;
+				}
+				if(!before(overflow[child], last)) {
+					break;
+				}
+				overflow[i] = overflow[child];
+				i = child;
+			}
+			overflow[i] = last;
+		}
+
+		return top;
 	}
 }
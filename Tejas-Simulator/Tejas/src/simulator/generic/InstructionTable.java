@@ -21,34 +21,87 @@
 
 package generic;
 
-import java.util.Hashtable;
+import java.util.Arrays;
 
-//Hashtable record : instructionPointer - index
+//Hash table record : instructionPointer - index
+//
+//Open addressing with linear probing over primitive arrays, so that a lookup
+//neither boxes the instruction pointer nor takes a lock. The table is filled
+//once, while the executable is translated, and only read afterwards.
 
 public class InstructionTable 
 {
-	private Hashtable<Long, Integer> instructionHashTable;
+	private static final int EMPTY = -1;
+	
+	private long instructionPointers[];
+	private int indices[];
+	private int mask;
+	private int shift;
+	private int size;
 
 	public InstructionTable(int n)
 	{
-		this.instructionHashTable = new Hashtable<Long, Integer>(n); 
+		allocate(Math.max(n, 16));
+	}
+	
+	// room for n entries with a load factor of at most 1/2
+	private void allocate(int n)
+	{
+		int capacity = Integer.highestOneBit(n - 1) << 2;
+		instructionPointers = new long[capacity];
+		indices = new int[capacity];
+		Arrays.fill(indices, EMPTY);
+		mask = capacity - 1;
+		shift = 64 - Integer.numberOfTrailingZeros(capacity);
+		size = 0;
 	}
 	
-	public void addInstruction(Long instructionPointer, int index)
+	private int slot(long instructionPointer)
 	{
-		instructionHashTable.put(instructionPointer, index);
+		return (int)((instructionPointer * 0x9E3779B97F4A7C15L) >>> shift);
 	}
 	
-	public int getMicroOpIndex(Long instructionPointer)
+	public void addInstruction(long instructionPointer, int index)
 	{
-		try
-		{
-			return instructionHashTable.get(instructionPointer);	
+		if(index < 0) {
+			misc.Error.showErrorAndExit("invalid micro-op index " + index + " for ip " + instructionPointer);
 		}
-		catch(Exception exception)
-		{
-			return -1;
+		
+		if(2 * (size + 1) > indices.length) {
+			long oldInstructionPointers[] = instructionPointers;
+			int oldIndices[] = indices;
+			allocate(indices.length);
+			for(int i=0; i<oldIndices.length; i++) {
+				if(oldIndices[i] != EMPTY) {
+					addInstruction(oldInstructionPointers[i], oldIndices[i]);
+				}
+			}
 		}
 		
+		int i = slot(instructionPointer);
+		while(indices[i] != EMPTY) {
+			if(instructionPointers[i] == instructionPointer) {
+				indices[i] = index;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		
+		instructionPointers[i] = instructionPointer;
+		indices[i] = index;
+		size++;
+	}
+	
+	// returns -1 if the instruction pointer is not in the table
+	public int getMicroOpIndex(long instructionPointer)
+	{
+		int i = slot(instructionPointer);
+		while(indices[i] != EMPTY) {
+			if(instructionPointers[i] == instructionPointer) {
+				return indices[i];
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,232 @@
+package generic;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * Self-profiling of the simulator (Simulation/ProfileSimulator).
+ *
+ * A profiler is attached to the event queue of every core, and one to every
+ * RunnableThread for the DRAM controllers. It counts the events handled per
+ * class of processing element and per request type, and the occupancy of its
+ * event queue. One cycle in SAMPLE_PERIOD is timed with System.nanoTime : the
+ * pipeline phases, the handling of every event (per element class) and the
+ * DRAM cycle. Sampled times are scaled by SAMPLE_PERIOD in the report.
+ *
+ * When profiling is off no profiler exists, and the instrumented code only
+ * tests a null reference. A profiler is only used by the thread that steps its
+ * core, so it needs no synchronisation.
+ */
+public class SimulatorProfiler {
+
+	static final int SAMPLE_PERIOD = 64;
+
+	// pipeline phases, in the order in which they are reported
+	public static final int FETCH = 0, DECODE = 1, RENAME = 2, IW_PUSH = 3, SELECT = 4,
+			EXECUTE = 5, MEMORY = 6, WRITEBACK = 7, COMMIT = 8, EVENTS = 9, DRAM = 10;
+	static final String phaseNames[] = {"fetch", "decode", "rename", "IW push", "select",
+			"execute", "memory", "writeback", "commit", "events", "DRAM cycle"};
+
+	static final int numRequestTypes = RequestType.values().length;
+
+	// all the profilers, merged in the report
+	static ArrayList<SimulatorProfiler> profilers = new ArrayList<SimulatorProfiler>();
+
+	String name;
+
+	long numCycles;
+	long numSampledCycles;
+	boolean sampling;
+	long mark;
+	long phaseTime[] = new long[phaseNames.length];
+
+	// per class of processing element : events handled, per request type
+	HashMap<Class<?>, long[]> eventCounts = new HashMap<Class<?>, long[]>();
+	// per class of processing element : time spent handling its events in sampled cycles
+	HashMap<Class<?>, long[]> eventTimes = new HashMap<Class<?>, long[]>();
+	Class<?> lastClass;
+	long lastCounts[];
+
+	long occupancySum;
+	long numOccupancySamples;
+	int maxOccupancy;
+
+	public SimulatorProfiler(String name) {
+		this.name = name;
+		synchronized(profilers) {
+			profilers.add(this);
+		}
+	}
+
+	// called at the start of every simulated cycle
+	public void beginCycle() {
+		numCycles++;
+		sampling = (numCycles % SAMPLE_PERIOD) == 0;
+		if(sampling) {
+			numSampledCycles++;
+			mark = System.nanoTime();
+		}
+	}
+
+	public boolean isSampling() {
+		return sampling;
+	}
+
+	// restarts the timing of the next phase without accounting the time since the last one
+	public void startPhase() {
+		if(sampling) {
+			mark = System.nanoTime();
+		}
+	}
+
+	// accounts the time since the end of the last phase to phase
+	public void endPhase(int phase) {
+		if(sampling) {
+			long now = System.nanoTime();
+			phaseTime[phase] += now - mark;
+			mark = now;
+		}
+	}
+
+	public void noteOccupancy(int numEvents) {
+		occupancySum += numEvents;
+		numOccupancySamples++;
+		if(numEvents > maxOccupancy) {
+			maxOccupancy = numEvents;
+		}
+	}
+
+	// handles event on behalf of eventQ, counting (and in sampled cycles, timing) it
+	public void handleEvent(EventQueue eventQ, Event event) {
+		SimulationElement element = event.getProcessingElement();
+		Class<?> elementClass = element.getClass();
+
+		if(elementClass != lastClass) {
+			lastCounts = eventCounts.get(elementClass);
+			if(lastCounts == null) {
+				lastCounts = new long[numRequestTypes + 1];
+				eventCounts.put(elementClass, lastCounts);
+			}
+			lastClass = elementClass;
+		}
+		RequestType requestType = event.getRequestType();
+		lastCounts[(requestType == null) ? numRequestTypes : requestType.ordinal()]++;
+
+		if(sampling == false) {
+			element.handleEvent(eventQ, event);
+			return;
+		}
+
+		long start = System.nanoTime();
+		element.handleEvent(eventQ, event);
+		long time = System.nanoTime() - start;
+
+		long times[] = eventTimes.get(elementClass);
+		if(times == null) {
+			times = new long[1];
+			eventTimes.put(elementClass, times);
+		}
+		times[0] += time;
+	}
+
+	/*
+	 * writes the [Simulator Profile] section of the statistics file
+	 */
+	public static void printProfile(FileWriter outputFileWriter) throws IOException {
+		long phaseTime[] = new long[phaseNames.length];
+		TreeMap<String, long[]> eventCounts = new TreeMap<String, long[]>();
+		TreeMap<String, Long> eventTimes = new TreeMap<String, Long>();
+		long totalEventTime = 0, nocTime = 0;
+
+		for(SimulatorProfiler profiler : profilers) {
+			for(int p = 0; p < phaseNames.length; p++) {
+				phaseTime[p] += profiler.phaseTime[p];
+			}
+			for(Map.Entry<Class<?>, long[]> entry : profiler.eventCounts.entrySet()) {
+				long counts[] = eventCounts.get(entry.getKey().getName());
+				if(counts == null) {
+					counts = new long[numRequestTypes + 1];
+					eventCounts.put(entry.getKey().getName(), counts);
+				}
+				for(int r = 0; r <= numRequestTypes; r++) {
+					counts[r] += entry.getValue()[r];
+				}
+			}
+			for(Map.Entry<Class<?>, long[]> entry : profiler.eventTimes.entrySet()) {
+				String className = entry.getKey().getName();
+				long time = entry.getValue()[0];
+				Long previous = eventTimes.get(className);
+				eventTimes.put(className, (previous == null) ? time : previous + time);
+				totalEventTime += time;
+				if(className.startsWith("net.")) {
+					nocTime += time;
+				}
+			}
+		}
+
+		long totalPhaseTime = 0;
+		for(int p = 0; p < phaseNames.length; p++) {
+			totalPhaseTime += phaseTime[p];
+		}
+
+		outputFileWriter.write("\n[Simulator Profile]\n");
+		outputFileWriter.write("Sampling period\t=\t" + SAMPLE_PERIOD + " cycles\n");
+		outputFileWriter.write("Times are estimated from the sampled cycles\n\n");
+
+		outputFileWriter.write("Wall time per phase\n");
+		for(int p = 0; p < phaseNames.length; p++) {
+			if(phaseTime[p] != 0) {
+				outputFileWriter.write(phaseNames[p] + "\t=\t" + formatTime(phaseTime[p])
+						+ " s\t" + formatPercent(phaseTime[p], totalPhaseTime) + " %\n");
+			}
+		}
+		if(nocTime != 0) {
+			outputFileWriter.write("of which NoC events\t=\t" + formatTime(nocTime)
+					+ " s\t" + formatPercent(nocTime, totalPhaseTime) + " %\n");
+		}
+
+		outputFileWriter.write("\nEvents handled per element\n");
+		for(Map.Entry<String, long[]> entry : eventCounts.entrySet()) {
+			long counts[] = entry.getValue();
+			long total = 0;
+			for(int r = 0; r <= numRequestTypes; r++) {
+				total += counts[r];
+			}
+			Long time = eventTimes.get(entry.getKey());
+			outputFileWriter.write(entry.getKey() + "\t=\t" + total + " events");
+			if(time != null) {
+				outputFileWriter.write("\t" + formatTime(time) + " s\t"
+						+ formatPercent(time, totalEventTime) + " % of the event time");
+			}
+			outputFileWriter.write("\n");
+			for(int r = 0; r <= numRequestTypes; r++) {
+				if(counts[r] != 0) {
+					String requestType = (r == numRequestTypes) ? "none" : RequestType.values()[r].name();
+					outputFileWriter.write("\t" + requestType + "\t=\t" + counts[r] + "\n");
+				}
+			}
+		}
+
+		outputFileWriter.write("\nEvent queue occupancy\n");
+		for(SimulatorProfiler profiler : profilers) {
+			if(profiler.numOccupancySamples != 0) {
+				outputFileWriter.write(profiler.name + "\t=\tmean "
+						+ Statistics.formatDouble((double)profiler.occupancySum / profiler.numOccupancySamples)
+						+ "\tmax " + profiler.maxOccupancy + "\tin " + profiler.numOccupancySamples + " cycles\n");
+			}
+		}
+		outputFileWriter.write("\n");
+	}
+
+	static String formatTime(long sampledNanoseconds) {
+		return Statistics.formatDouble(sampledNanoseconds * (double)SAMPLE_PERIOD / 1e9);
+	}
+
+	static String formatPercent(long part, long total) {
+		return Statistics.formatDouble((total == 0) ? 0 : 100.0 * part / total);
+	}
+}
@@ -18,6 +18,7 @@ import memorysystem.Cache;
 import memorysystem.CoreMemorySystem;
 import memorysystem.MainMemoryController;
 import memorysystem.MemorySystem;
+import memorysystem.PageWalker;
 import memorysystem.coherence.Coherence;
 import memorysystem.nuca.NucaCache;
 import memorysystem.nuca.NucaCache.NucaType;
@@ -466,6 +467,21 @@ public class Statistics {
                 printCacheStatistics("dTLB[" + core_n + "]",
                         coreMemSys[i].getdTLB().getTlbHits(),
                         coreMemSys[i].getdTLB().getTlbMisses());
+                if (coreMemSys[i].getsTLB() != null) {
+                    printCacheStatistics("sTLB[" + core_n + "]",
+                            coreMemSys[i].getsTLB().getTlbHits(),
+                            coreMemSys[i].getsTLB().getTlbMisses());
+                }
+                PageWalker pageWalker = coreMemSys[i].getPageWalker();
+                if (pageWalker != null) {
+                    outputFileWriter.write("\n\nPage walks\t=\t"
+                            + pageWalker.getNumWalks());
+                    outputFileWriter.write("\nPage walk loads\t=\t"
+                            + pageWalker.getNumWalkLoads());
+                    printCacheStatistics("PageWalkCache[" + core_n + "]",
+                            pageWalker.getWalkCacheHits(),
+                            pageWalker.getWalkCacheMisses());
+                }
                 
                 for (Cache c : coreMemSys[i].getCoreCacheList()) {
                     printCacheStats(c);
@@ -1184,15 +1200,30 @@ public class Statistics {
         }
         
         Statistics.printSimulationTime();
+        
+        if (SimulationConfig.profileSimulator) {
+            try {
+                SimulatorProfiler.printProfile(outputFileWriter);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        
         Statistics.printEnergyStatistics();
         
         // Qemu translation cache stats
         if (TranslatedInstructionCache.getHitRate() != -1) {
             try {
                 outputFileWriter.write("[Qemu translation cache]\n");
+                outputFileWriter.write("Hits\t=\t"
+                        + TranslatedInstructionCache.getNumHits() + "\n");
+                outputFileWriter.write("Misses\t=\t"
+                        + TranslatedInstructionCache.getNumMisses() + "\n");
+                outputFileWriter.write("Evictions\t=\t"
+                        + TranslatedInstructionCache.getNumEvictions() + "\n");
                 outputFileWriter.write("Hit-rate = "
                         + (TranslatedInstructionCache.getHitRate() * 100)
-                        + " %");
+                        + " %\n");
             } catch (IOException ioe) {
                 ioe.printStackTrace();
             }
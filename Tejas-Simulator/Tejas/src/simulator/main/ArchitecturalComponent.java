@@ -24,7 +24,9 @@ import memorysystem.CoreMemorySystem;
 import dram.MainMemoryDRAMController;
 import memorysystem.MemorySystem;
 import memorysystem.MainMemoryController;
+import memorysystem.PageTable;
 import memorysystem.coherence.CHA;
+import memorysystem.coherence.CHAHomeResolver;
 import memorysystem.coherence.Coherence;
 import memorysystem.coherence.Directory;
 import memorysystem.nuca.NucaCache;
@@ -89,6 +91,25 @@ public class ArchitecturalComponent {
             e.printStackTrace();
         }
         
+        try {
+            SystemConfig.pageTable = PageTable.load(SystemConfig.addrFilePath);
+            if (SystemConfig.pageTable != null
+                    && SystemConfig.pageTable.isComplete()
+                    && SystemConfig.pageTable.getNumRanges() > 0) {
+                SystemConfig.mcdramAddr = SystemConfig.pageTable
+                        .getFirstVirtualAddress();
+            } else {
+                // no address file, or one that could not be read fully
+                SystemConfig.mcdramAddr = 0;
+            }
+        } catch (IOException e) {
+            misc.Error.showErrorAndExit("Error in reading address file "
+                    + SystemConfig.addrFilePath + " : " + e);
+        }
+        
+        if (!SystemConfig.chaList.isEmpty()) {
+            SystemConfig.chaHomeResolver = new CHAHomeResolver();
+        }
     }
     
     private static void createElementsOfBus() {
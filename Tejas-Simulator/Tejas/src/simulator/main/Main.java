@@ -39,6 +39,9 @@ public class Main {
 	public static long startTime, endTime;
 	public static boolean printStatisticsOnAsynchronousTermination = false;
 	
+	// run once the statistics are written, before the simulator exits (the shut down hook halts the JVM)
+	public static Runnable simulationEndHook = null;
+	
 	public static BenchmarkThreadMapping benchmarkThreadMapping;
 	
 	//public static DebugPrinter debugPrinter;
@@ -143,6 +146,10 @@ public class Main {
 		statFileWritten = true;
 		
 		System.out.println("\n\nSimulation completed !!");
+		
+		if(simulationEndHook!=null) {
+			simulationEndHook.run();
+		}
 		System.exit(0);
 	}
 
@@ -152,7 +159,7 @@ public class Main {
 		
 		if(EmulatorConfig.emulatorType == EmulatorType.pin) {
 			// approximately 3 micro-operations are required per cisc instruction
-			numStaticInstructions = ObjParser.noOfLines(getEmulatorFile()) * 3;
+			numStaticInstructions = ObjParser.noOfLinesCached(getEmulatorFile()) * 3;
 		} else {
 			
 		}
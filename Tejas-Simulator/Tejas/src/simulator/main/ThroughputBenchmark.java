@@ -0,0 +1,308 @@
+package main;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+import emulatorinterface.communication.filePacket.SyntheticTraceGenerator;
+
+//End-to-end simulation throughput : simulates a synthetic trace (see
+//SyntheticTraceGenerator) with a configuration, and reports the simulation
+//speed in KIPS along with the wall time, the peak heap and the GC time of
+//the simulator. It needs neither an emulator nor benchmark binaries.
+//
+//Each run is a separate JVM running Main on a copy of the configuration that
+//reads the traces from files (EmulatorType none, CommunicationType file, no
+//subset simulation). The JVM is measured from within (-probe) by
+//Main.simulationEndHook, since Main ends with System.exit.
+//
+//A NocConfigFile of the configuration that does not exist (the shipped
+//configurations name their authors' home directories) is looked for, by its
+//file name, in the directory of the configuration.
+//
+//usage : ThroughputBenchmark [-runs <n>] [-jvm "<jvm arguments>"] [-dir <work directory>]
+//            <config file> [SyntheticTraceGenerator options]
+public class ThroughputBenchmark {
+
+	static final String PROBE = "-probe";
+
+	int numRuns = 3;
+	String jvmArguments = "-Xmx2g";
+	File directory = null;
+	String configFileName = null;
+	ArrayList<String> generatorArguments = new ArrayList<String>();
+
+	public static void main(String[] args) throws Exception {
+		if(args.length > 0 && args[0].equals(PROBE)) {
+			probe(args[1], Arrays.copyOfRange(args, 2, args.length));
+			return;
+		}
+
+		ThroughputBenchmark benchmark = new ThroughputBenchmark();
+		if(!benchmark.parseArguments(args)) {
+			printUsage();
+			System.exit(1);
+		}
+		benchmark.run();
+	}
+
+	static void printUsage() {
+		System.out.println("usage : ThroughputBenchmark [options] <config file> [trace generator options]");
+		System.out.println("\t-runs <n>\t\tnumber of simulations (3)");
+		System.out.println("\t-jvm \"<arguments>\"\tJVM arguments of the simulator (-Xmx2g)");
+		System.out.println("\t-dir <directory>\twhere the traces, configuration and statistics are written (temporary directory)");
+		System.out.println("the trace generator options are :");
+		SyntheticTraceGenerator.printUsage();
+	}
+
+	boolean parseArguments(String args[]) {
+		int i = 0;
+		try {
+			for(; i < args.length && args[i].startsWith("-"); i++) {
+				if(args[i].equals("-runs")) {
+					numRuns = Integer.parseInt(args[++i]);
+				} else if(args[i].equals("-jvm")) {
+					jvmArguments = args[++i];
+				} else if(args[i].equals("-dir")) {
+					directory = new File(args[++i]);
+				} else {
+					return false;
+				}
+			}
+		} catch (RuntimeException e) {
+			return false;
+		}
+
+		if(i == args.length || numRuns < 1) {
+			return false;
+		}
+		configFileName = args[i++];
+		generatorArguments.addAll(Arrays.asList(args).subList(i, args.length));
+		return true;
+	}
+
+	void run() throws Exception {
+		if(directory == null) {
+			directory = File.createTempFile("tejas-throughput", "");
+			directory.delete();
+		}
+		if(!directory.isDirectory() && !directory.mkdirs()) {
+			misc.Error.showErrorAndExit("cannot create directory " + directory);
+		}
+
+		// the traces
+		String traceBasename = new File(directory, "trace").getPath();
+		SyntheticTraceGenerator generator = new SyntheticTraceGenerator();
+		generatorArguments.add(traceBasename);
+		if(generator.parseArguments(generatorArguments.toArray(new String[0])) == null) {
+			printUsage();
+			System.exit(1);
+		}
+		generator.generate(traceBasename);
+
+		String config = new File(directory, "config.xml").getPath();
+		writeFileConfig(configFileName, config);
+
+		double kips[] = new double[numRuns];
+		double wallTime[] = new double[numRuns];
+		for(int run = 0; run < numRuns; run++) {
+			String statistics = new File(directory, "statistics_" + run + ".txt").getPath();
+			String log = new File(directory, "log_" + run + ".txt").getPath();
+			String result = new File(directory, "result_" + run + ".properties").getPath();
+
+			long start = System.currentTimeMillis();
+			int exitValue = simulate(log, result, config, statistics, traceBasename);
+			wallTime[run] = (System.currentTimeMillis() - start) / 1000.0;
+			// the simulator exits with 0 even on errors, but then it does not complete
+			if(exitValue != 0 || !new File(result).exists()) {
+				misc.Error.showErrorAndExit("the simulation failed (exit value " + exitValue + "), see " + log);
+			}
+
+			Properties measured = new Properties();
+			FileInputStream input = new FileInputStream(result);
+			try {
+				measured.load(input);
+			} finally {
+				input.close();
+			}
+
+			long numInstructions = readCount(statistics, "Number of handled CISC instructions");
+			long simulationTime = Long.parseLong(measured.getProperty("simulationTime"));
+			kips[run] = (double)numInstructions / Math.max(1, simulationTime);
+
+			System.out.println("run " + (run + 1) + " : "
+					+ format(kips[run]) + " KIPS (" + numInstructions + " instructions in "
+					+ format(simulationTime / 1000.0) + " s), wall time " + format(wallTime[run]) + " s, "
+					+ "peak heap " + (Long.parseLong(measured.getProperty("peakHeap")) >> 20) + " MB, "
+					+ "GC " + measured.getProperty("gcTime") + " ms ("
+					+ measured.getProperty("gcCount") + " collections)");
+		}
+
+		System.out.println("median : " + format(median(kips)) + " KIPS, wall time " + format(median(wallTime)) + " s");
+		System.out.println("traces, configuration, statistics and logs are in " + directory);
+	}
+
+	// copy of the configuration which simulates the traces written to files
+	static void writeFileConfig(String configFileName, String copyFileName) throws Exception {
+		Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new File(configFileName));
+		setElement(doc, "EmulatorType", "none");
+		setElement(doc, "CommunicationType", "file");
+		setElement(doc, "subsetSim", "false");
+		resolveNocConfigFiles(doc, new File(configFileName).getAbsoluteFile().getParentFile());
+		TransformerFactory.newInstance().newTransformer().transform(
+				new DOMSource(doc), new StreamResult(new File(copyFileName)));
+	}
+
+	static void resolveNocConfigFiles(Document doc, File configDirectory) {
+		NodeList nodes = doc.getElementsByTagName("NocConfigFile");
+		for(int i = 0; i < nodes.getLength(); i++) {
+			File nocConfigFile = new File(nodes.item(i).getTextContent().trim());
+			if(nocConfigFile.isFile()) {
+				continue;
+			}
+			File local = new File(configDirectory, nocConfigFile.getName());
+			if(!local.isFile()) {
+				misc.Error.showErrorAndExit("NocConfigFile " + nocConfigFile + " exists neither as such nor in " + configDirectory);
+			}
+			nodes.item(i).setTextContent(local.getPath());
+		}
+	}
+
+	static void setElement(Document doc, String tagName, String value) {
+		NodeList nodes = doc.getElementsByTagName(tagName);
+		if(nodes.getLength() == 0) {
+			misc.Error.showErrorAndExit("no " + tagName + " in the configuration file");
+		}
+		nodes.item(0).setTextContent(value);
+	}
+
+	// runs Main in a new JVM, returns its exit value
+	int simulate(String log, String result, String config, String statistics, String traceBasename)
+			throws IOException, InterruptedException {
+		ArrayList<String> command = new ArrayList<String>();
+		command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+		for(String argument : jvmArguments.trim().split("\\s+")) {
+			if(argument.length() > 0) {
+				command.add(argument);
+			}
+		}
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(ThroughputBenchmark.class.getName());
+		command.add(PROBE);
+		command.add(result);
+		command.add(config);
+		command.add(statistics);
+		command.add(traceBasename);
+
+		ProcessBuilder processBuilder = new ProcessBuilder(command);
+		processBuilder.redirectErrorStream(true);
+		Process process = processBuilder.start();
+
+		InputStream output = process.getInputStream();
+		OutputStream logFile = new FileOutputStream(log);
+		try {
+			byte buffer[] = new byte[1 << 16];
+			int n;
+			while((n = output.read(buffer)) > 0) {
+				logFile.write(buffer, 0, n);
+			}
+		} finally {
+			logFile.close();
+		}
+		return process.waitFor();
+	}
+
+	// the value of a "name = value" line of the statistics file
+	static long readCount(String statistics, String name) throws IOException {
+		byte bytes[] = new byte[(int)new File(statistics).length()];
+		FileInputStream input = new FileInputStream(statistics);
+		try {
+			int n = 0;
+			while(n < bytes.length) {
+				n += input.read(bytes, n, bytes.length - n);
+			}
+		} finally {
+			input.close();
+		}
+
+		Matcher matcher = Pattern.compile(Pattern.quote(name) + "\\s*=\\s*(\\d+)").matcher(new String(bytes));
+		if(!matcher.find()) {
+			misc.Error.showErrorAndExit("no \"" + name + "\" in " + statistics);
+		}
+		return Long.parseLong(matcher.group(1));
+	}
+
+	static double median(double values[]) {
+		double sorted[] = values.clone();
+		Arrays.sort(sorted);
+		int n = sorted.length;
+		return (n % 2 == 1) ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2;
+	}
+
+	static String format(double value) {
+		return String.format("%.2f", value);
+	}
+
+	/*
+	 * runs in the JVM of a simulation : runs Main with mainArguments, and writes
+	 * what was measured to resultFileName once the simulation has completed.
+	 */
+	static void probe(final String resultFileName, String mainArguments[]) {
+		Main.simulationEndHook = new Runnable() {
+			public void run() {
+				Properties measured = new Properties();
+				measured.setProperty("simulationTime", Long.toString(Main.endTime - Main.startTime));
+
+				long peakHeap = 0;
+				for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+					if(pool.getType() == MemoryType.HEAP) {
+						peakHeap += pool.getPeakUsage().getUsed();
+					}
+				}
+				measured.setProperty("peakHeap", Long.toString(peakHeap));
+
+				long gcTime = 0, gcCount = 0;
+				for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+					gcTime += Math.max(0, collector.getCollectionTime());
+					gcCount += Math.max(0, collector.getCollectionCount());
+				}
+				measured.setProperty("gcTime", Long.toString(gcTime));
+				measured.setProperty("gcCount", Long.toString(gcCount));
+
+				try {
+					FileOutputStream output = new FileOutputStream(resultFileName);
+					try {
+						measured.store(output, "measured by ThroughputBenchmark");
+					} finally {
+						output.close();
+					}
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+
+		Main.main(mainArguments);
+	}
+}
@@ -20,10 +20,7 @@
  *****************************************************************************/
 package memorysystem;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 
 import generic.Core;
@@ -38,7 +35,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
-import java.util.StringTokenizer;
 import java.util.TreeSet;
 
 import net.ID;
@@ -49,6 +45,9 @@ import memorysystem.nuca.NucaCache.NucaType;
 import misc.Util;
 import config.CacheConfig;
 import config.CacheConfig.WritePolicy;
+import memorysystem.replacement.RRIPReplacement;
+import memorysystem.replacement.ReplacementPolicy;
+import memorysystem.replacement.TreePLRUReplacement;
 import config.CacheDataType;
 import config.CacheEnergyConfig;
 import config.EnergyConfig;
@@ -87,6 +86,9 @@ public class Cache extends SimulationElement {
                                               // in the cache
                                               // hierarchy
     protected CacheLine            lines[];
+    protected CacheTagStore        tagStore;
+    protected CacheLine            evictedLine; // view on the evicted slot
+    protected ReplacementPolicy    replacementPolicy; // null : LRU
     
     public long                    noOfRequests;
     public long[]                  reqCHA          = new long[38];
@@ -119,6 +121,13 @@ public class Cache extends SimulationElement {
     public CacheConfig cacheConfig;
     public int         id;
     
+    // index of this cache in directory sharer sets
+    private int        sharerId;
+    
+    public int getSharerId() {
+        return sharerId;
+    }
+    
     // to check the source
     protected MSHR     mshr;
     
@@ -173,6 +182,7 @@ public class Cache extends SimulationElement {
         
         this.cacheName = cacheName;
         this.id = id;
+        this.sharerId = SharerSet.register(this);
         
         if (cacheParameters.nextLevel == "") {
             this.isLastLevel = true;
@@ -196,6 +206,8 @@ public class Cache extends SimulationElement {
         this.evictions = 0;
         // make the cache
         makeCache(cacheParameters.isDirectory);
+        this.replacementPolicy = createReplacementPolicy(
+                cacheParameters.replacement);
         
         this.mshr = new MSHR(cacheConfig.mshrSize, blockSizeBits, this);
         
@@ -211,17 +223,7 @@ public class Cache extends SimulationElement {
     }
     
     public int numberOfLinesOfSetInMSHR(long addr) {
-        int count = 0;
-        int startIdx = getStartIdx(addr);
-        
-        for (int idx = 0; idx < assoc; idx++) {
-            int index = getNextIdx(startIdx, idx);
-            CacheLine ll = lines[index];
-            if (mshr.isAddrInMSHR(ll.getAddress())) {
-                count++;
-            }
-        }
-        return count;
+        return mshr.getNumLockedWays(addr);
     }
     
     private boolean printCacheDebugMessages = false;
@@ -432,9 +434,6 @@ public class Cache extends SimulationElement {
             Event e) {
         Cache c = this.nextLevel;
         AddressCarryingEvent event = null;
-        if ((SystemConfig.mcdramAddr == -1)) {
-            checkAddr();
-        }
         if (c != null) {
             if (c.nucaType != NucaType.NONE) {
                 c = ((NucaCache) c).getBank(
@@ -456,9 +455,6 @@ public class Cache extends SimulationElement {
                 core = ArchitecturalComponent.getCore(e.coreId);
             }
             MainMemoryDRAMController memController;
-            if (SystemConfig.mcdramAddr == -1) {
-                checkAddr();
-            }
             
             int modulo = (int) (addr % 512L);
             int q = this.id % 4;
@@ -477,42 +473,6 @@ public class Cache extends SimulationElement {
         }
     }
     
-    // added by markos to check the address file
-    private void checkAddr() {
-        BufferedReader br = null;
-        try {
-            System.out.println("checkAddr function has been called!");
-            File orgFile = new File(SystemConfig.addrFilePath);
-            br = new BufferedReader(new FileReader(orgFile));
-            StringBuilder sb = new StringBuilder();
-            String line = br.readLine();
-            StringTokenizer st = new StringTokenizer(line, "\t");
-            long size = Long.parseLong(st.nextToken());
-            long virt = Long.parseLong(st.nextToken());
-            long phys = Long.parseLong(st.nextToken());
-            SystemConfig.physAddr.put(virt, phys);
-            SystemConfig.mcdramAddr = virt;
-            line = br.readLine();
-            while (line != null) {
-                st = new StringTokenizer(line, "\t");
-                size = Long.parseLong(st.nextToken());
-                virt = Long.parseLong(st.nextToken());
-                phys = Long.parseLong(st.nextToken());
-                SystemConfig.physAddr.put(virt, phys);
-                line = br.readLine();
-            }
-        } catch (Exception e) {
-            // ugly hack...
-            SystemConfig.mcdramAddr = 0;
-        } finally {
-            try {
-                br.close();
-            } catch (Exception e) {
-                System.out.println("Something went wrong closing file...");
-            }
-        }
-    }
-    
     // added by kush
     public static int findChannelNumber(long physicalAddress) {
         long tempA, tempB;
@@ -641,7 +601,7 @@ public class Cache extends SimulationElement {
     }
     
     protected void processEventsInMSHR(long addr) {
-        LinkedList<AddressCarryingEvent> missList = mshr
+        ArrayList<AddressCarryingEvent> missList = mshr
                 .removeEventsFromMSHR(addr);
         AddressCarryingEvent writeEvent = null;
         
@@ -670,6 +630,7 @@ public class Cache extends SimulationElement {
                 case EvictCacheLine: {
                     updateStateOfCacheLine(addr, MESIF.INVALID);
                     addUnprocessedEventsToEventQueue(missList);
+                    mshr.releaseWaitingEvents(missList);
                     
                     processEventsInPendingList();
                     return;
@@ -677,6 +638,8 @@ public class Cache extends SimulationElement {
             }
         }
         
+        mshr.releaseWaitingEvents(missList);
+        
         if (writeEvent != null && writePolicy == WritePolicy.WRITE_THROUGH) {
             sendRequestToNextLevel(addr, RequestType.Cache_Write);
         }
@@ -735,7 +698,7 @@ public class Cache extends SimulationElement {
     }
     
     private void addUnprocessedEventsToEventQueue(
-            LinkedList<AddressCarryingEvent> missList) {
+            ArrayList<AddressCarryingEvent> missList) {
         int timeToSet = missList.size() * -1;
         boolean startAddition = false;
         for (AddressCarryingEvent event : missList) {
@@ -802,38 +765,22 @@ public class Cache extends SimulationElement {
     }
     
     public CacheLine access(long addr) {
-        /* compute startIdx and the tag */
-        int startIdx = getStartIdx(addr);
-        long tag = computeTag(addr);
-        
-        /* search in a set */
-        for (int idx = 0; idx < assoc; idx++) {
-            // calculate the index
-            int index = getNextIdx(startIdx, idx);
-            // fetch the cache line
-            CacheLine ll = this.lines[index];
-            // If the tag is matching, we have a hit
-            if (ll.hasTagMatch(tag)) {
-                return ll;
-            }
-        }
-        return null;
+        return access(addr, this);
     }
     
     public CacheLine access(long addr, Cache c) {
         /* compute startIdx and the tag */
         int startIdx = getStartIdx(addr);
         long tag = computeTag(addr);
+        long tags[] = c.tagStore.tag;
         
         /* search in a set */
         for (int idx = 0; idx < assoc; idx++) {
             // calculate the index
             int index = getNextIdx(startIdx, idx);
-            // fetch the cache line
-            CacheLine ll = c.lines[index];
             // If the tag is matching, we have a hit
-            if (ll.hasTagMatch(tag)) {
-                return ll;
+            if (tags[index] == tag) {
+                return c.lines[index];
             }
         }
         return null;
@@ -850,9 +797,32 @@ public class Cache extends SimulationElement {
     }
     
     private void makeCache(boolean isDirectory) {
+        tagStore = new CacheTagStore(numLines);
         lines = new CacheLine[numLines];
         for (int i = 0; i < numLines; i++) {
-            lines[i] = new CacheLine(isDirectory);
+            lines[i] = new CacheLine(tagStore, i, isDirectory);
+        }
+        evictedLine = new CacheLine(tagStore, tagStore.evictedSlot,
+                isDirectory);
+    }
+    
+    private ReplacementPolicy createReplacementPolicy(
+            CacheConfig.Replacement replacement) {
+        int numSets = 1 << numSetsBits;
+        switch (replacement) {
+            case PLRU:
+                return new TreePLRUReplacement(numSets, assoc);
+            case SRRIP:
+                return new RRIPReplacement(numSets, assoc,
+                        RRIPReplacement.InsertionPolicy.STATIC);
+            case BRRIP:
+                return new RRIPReplacement(numSets, assoc,
+                        RRIPReplacement.InsertionPolicy.BIMODAL);
+            case DRRIP:
+                return new RRIPReplacement(numSets, assoc,
+                        RRIPReplacement.InsertionPolicy.DYNAMIC);
+            default:
+                return null;
         }
     }
     
@@ -865,155 +835,110 @@ public class Cache extends SimulationElement {
         CacheLine cl = accessValid(addr);
         if (cl != null) {
             mark(cl);
+            if (replacementPolicy != null) {
+                replacementPolicy.onHit(getStartIdx(addr),
+                        cl.getIndex() >>> numSetsBits);
+            }
         }
         return cl;
     }
     
     public CacheLine fill(long addr, MESIF stateToSet) {
-        CacheLine evictedLine = null;
-        /* compute startIdx and the tag */
-        int startIdx = getStartIdx(addr);
-        long tag = computeTag(addr);
-        boolean addressAlreadyPresent = false;
-        /* find any invalid lines -- no eviction */
-        CacheLine fillLine = null;
-        boolean evicted = false;
-        
-        // ------- Check if address is in cache ---------
-        for (int idx = 0; idx < assoc; idx++) {
-            int nextIdx = getNextIdx(startIdx, idx);
-            CacheLine ll = this.lines[nextIdx];
-            if (ll.getTag() == tag) {
-                addressAlreadyPresent = true;
-                fillLine = ll;
-                break;
-            }
-        }
-        
-        // ------- Check if there's an invalid line ---------
-        for (int idx = 0; !addressAlreadyPresent && idx < assoc; idx++) {
-            int nextIdx = getNextIdx(startIdx, idx);
-            CacheLine ll = this.lines[nextIdx];
-            if (ll.isValid() == false
-                    && mshr.isAddrInMSHR(ll.getAddress()) == false
-                    || (this.nucaType != NucaType.NONE
-                            && ll.isValid() == false)) {
-                fillLine = ll;
-                break;
-            }
-        }
-        
-        // ------- Check if there's an unlocked valid line ---------
-        if (fillLine == null) {
-            evicted = true; // We need eviction in this case
-            double minTimeStamp = Double.MAX_VALUE;
-            for (int idx = 0; idx < assoc; idx++) {
-                int index = getNextIdx(startIdx, idx);
-                CacheLine ll = this.lines[index];
-                
-                if (mshr.isAddrInMSHR(ll.getAddress()) == true) {
-                    continue;
-                }
-                
-                if (minTimeStamp > ll.getTimestamp()) {
-                    minTimeStamp = ll.getTimestamp();
-                    fillLine = ll;
-                }
-            }
-        }
-        
-        if (fillLine == null) {
-            misc.Error.showErrorAndExit("Unholy mess !!");
-        }
-        
-        /* if there has been an eviction */
-        if (evicted) {
-            evictedLine = (CacheLine) fillLine.clone();
-            long evictedLinetag = evictedLine.getTag();
-            evictedLinetag = (evictedLinetag << numSetsBits)
-                    + (startIdx / assoc);
-            evictedLine.setTag(evictedLinetag);
-            this.evictions++;
-        }
-        
-        /* This is the new fill line */
-        fillLine.setState(stateToSet);
-        fillLine.setAddress(addr);
-        mark(fillLine, tag);
-        return evictedLine;
+        return fill(addr, stateToSet, this);
     }
     
+    /*
+     * Fills addr in the lines of cache c (using the geometry and MSHR of this
+     * cache; c's own MSHR is told about the line that changed). Returns the
+     * evicted line, if any. The evicted line is a view on c's evicted slot :
+     * it is only valid until the next fill of c.
+     */
     public CacheLine fill(long addr, MESIF stateToSet, Cache c) {
-        CacheLine evictedLine = null;
         /* compute startIdx and the tag */
         int startIdx = getStartIdx(addr);
         long tag = computeTag(addr);
-        boolean addressAlreadyPresent = false;
-        /* find any invalid lines -- no eviction */
-        CacheLine fillLine = null;
-        boolean evicted = false;
+        CacheTagStore store = c.tagStore;
+        boolean invalidLinesUsable = (c.nucaType != NucaType.NONE);
         
-        // ------- Check if address is in cache ---------
+        // Single pass over the set. In order of preference, the line to fill
+        // is :
+        // 1) the line that already has this tag
+        // 2) the first invalid line which is not locked in the MSHR
+        // (any invalid line for NUCA caches)
+        // 3) the replacement policy's victim among the lines which are not
+        // locked in the MSHR (by default, the least recently used one)
+        int matchIdx = -1;
+        int invalidIdx = -1;
+        int lruIdx = -1;
+        long minTimeStamp = Long.MAX_VALUE;
+        long candidateWays = 0;
         for (int idx = 0; idx < assoc; idx++) {
-            int nextIdx = getNextIdx(startIdx, idx);
-            CacheLine ll = c.lines[nextIdx];
-            if (ll.getTag() == tag) {
-                addressAlreadyPresent = true;
-                fillLine = ll;
+            int index = getNextIdx(startIdx, idx);
+            if (store.tag[index] == tag) {
+                matchIdx = index;
                 break;
             }
-        }
-        
-        // ------- Check if there's an invalid line ---------
-        for (int idx = 0; !addressAlreadyPresent && idx < assoc; idx++) {
-            int nextIdx = getNextIdx(startIdx, idx);
-            CacheLine ll = c.lines[nextIdx];
-            if (ll.isValid() == false
-                    && mshr.isAddrInMSHR(ll.getAddress()) == false
-                    || (c.nucaType != NucaType.NONE && ll.isValid() == false)) {
-                fillLine = ll;
-                break;
+            
+            boolean invalid = (store.state[index] == CacheTagStore.INVALID);
+            if (invalid && invalidIdx == -1 && invalidLinesUsable) {
+                invalidIdx = index;
+                continue;
             }
-        }
-        
-        // ------- Check if there's an unlocked valid line ---------
-        if (fillLine == null) {
-            evicted = true; // We need eviction in this case
-            double minTimeStamp = Double.MAX_VALUE;
-            for (int idx = 0; idx < assoc; idx++) {
-                int index = getNextIdx(startIdx, idx);
-                CacheLine ll = c.lines[index];
-                
-                if (mshr.isAddrInMSHR(ll.getAddress()) == true) {
-                    continue;
-                }
-                
-                if (minTimeStamp > ll.getTimestamp()) {
-                    minTimeStamp = ll.getTimestamp();
-                    fillLine = ll;
-                }
+            
+            if (mshr.isAddrInMSHR(store.address[index])) {
+                continue;
+            }
+            
+            if (invalid && invalidIdx == -1) {
+                invalidIdx = index;
+            }
+            
+            candidateWays |= (1L << idx);
+            if (minTimeStamp > store.timestamp[index]) {
+                minTimeStamp = store.timestamp[index];
+                lruIdx = index;
             }
         }
         
-        if (fillLine == null) {
-            misc.Error.showErrorAndExit("Unholy mess !!");
-        }
-        
-        /* if there has been an eviction */
-        if (evicted) {
-            evictedLine = (CacheLine) fillLine.clone();
-            long evictedLinetag = evictedLine.getTag();
-            evictedLinetag = (evictedLinetag << numSetsBits)
+        int fillIdx;
+        CacheLine evicted = null;
+        if (matchIdx != -1) {
+            fillIdx = matchIdx;
+        } else if (invalidIdx != -1) {
+            fillIdx = invalidIdx;
+        } else {
+            fillIdx = lruIdx;
+            if (fillIdx != -1 && c.replacementPolicy != null) {
+                fillIdx = getNextIdx(startIdx,
+                        c.replacementPolicy.getVictim(startIdx, candidateWays));
+            }
+            if (fillIdx == -1) {
+                misc.Error.showErrorAndExit("Unholy mess !!");
+            }
+            
+            /* there has been an eviction */
+            store.copyToEvictedSlot(fillIdx);
+            store.tag[store.evictedSlot] = (store.tag[fillIdx] << numSetsBits)
                     + (startIdx / assoc);
-            evictedLine.setTag(evictedLinetag);
+            c.evictedLine.copyDirectoryInfoFrom(c.lines[fillIdx]);
+            evicted = c.evictedLine;
             c.evictions++;
         }
         
         /* This is the new fill line */
+        CacheLine fillLine = c.lines[fillIdx];
         fillLine.setState(stateToSet);
+        c.mshr.lineAddressChanged(store.address[fillIdx], addr);
         fillLine.setAddress(addr);
         mark(fillLine, tag);
-        return evictedLine;
+        if (c.replacementPolicy != null) {
+            if (matchIdx != -1) {
+                c.replacementPolicy.onHit(startIdx, fillIdx >>> numSetsBits);
+            } else {
+                c.replacementPolicy.onFill(startIdx, fillIdx >>> numSetsBits);
+            }
+        }
+        return evicted;
     }
     
     public LinkedList<AddressCarryingEvent> eventsWaitingOnMSHR = new LinkedList<AddressCarryingEvent>();
@@ -20,29 +20,28 @@
  *****************************************************************************/
 package memorysystem;
 
-import java.util.LinkedList;
-
 import javax.swing.text.html.HTMLDocument.HTMLReader.IsindexAction;
 
-public class CacheLine implements Cloneable {
-    private long              tag;
-    private long              timestamp;
-    private long              address;
-    private MESIF             state       = MESIF.INVALID;
+/*
+ * View on line 'index' of a CacheTagStore. Tag, state, timestamp and address
+ * live in the store; the directory information (sharers, forwarder) lives
+ * here.
+ */
+public class CacheLine {
+    private CacheTagStore     store;
+    private int               index;
     private Cache             fw          = null;
     private boolean           isDirectory = false;
     
-    private LinkedList<Cache> sharers     = null;
+    private SharerSet         sharers     = null;
     
-    public CacheLine(boolean isDirectory) {
-        this.setTag(-1);
-        this.setState(MESIF.INVALID);
-        this.setTimestamp(0);
-        this.setAddress(-1);
+    public CacheLine(CacheTagStore store, int index, boolean isDirectory) {
+        this.store = store;
+        this.index = index;
         this.isDirectory = isDirectory;
         
         if (isDirectory == true) {
-            sharers = new LinkedList<Cache>();
+            sharers = new SharerSet();
         }
     }
     
@@ -64,7 +63,7 @@ public class CacheLine implements Cloneable {
         if (sharers.size() == 0) {
             return null;
         } else if (sharers.size() == 1) {
-            return sharers.get(0);
+            return sharers.getFirst();
         } else {
             misc.Error.showErrorAndExit(
                     "This directory entry has multiple owners : " + this);
@@ -74,7 +73,7 @@ public class CacheLine implements Cloneable {
     
     public boolean isSharer(Cache c) {
         checkIsDirectory();
-        return (this.sharers.indexOf(c) != -1);
+        return this.sharers.contains(c);
     }
     
     public boolean isFw(Cache c) {
@@ -86,7 +85,7 @@ public class CacheLine implements Cloneable {
     
     public void addSharer(Cache c) {
         checkIsDirectory();
-        if (this.state == MESIF.INVALID) {
+        if (this.getState() == MESIF.INVALID) {
             misc.Error.showErrorAndExit("Unholy mess !!");
         }
         
@@ -95,8 +94,8 @@ public class CacheLine implements Cloneable {
         // sent multiple requests for
         // the same cache line which triggered the memResponse multiple times.
         // For the time being, just ignore this hack.
-        if (this.state == MESIF.MODIFIED && this.sharers.size() > 0
-                && this.sharers.get(0) != c) {
+        if (this.getState() == MESIF.MODIFIED && this.sharers.size() > 0
+                && this.sharers.getFirst() != c) {
             misc.Error.showErrorAndExit(
                     "You cannot have multiple owners for a modified state !!\n"
                             + "currentOwner : "
@@ -112,8 +111,8 @@ public class CacheLine implements Cloneable {
         // sent multiple requests for
         // the same cache line which triggered the memResponse multiple times.
         // For the time being, just ignore this hack.
-        if (this.state == MESIF.EXCLUSIVE && this.sharers.size() > 0
-                && this.sharers.get(0) != c) {
+        if (this.getState() == MESIF.EXCLUSIVE && this.sharers.size() > 0
+                && this.sharers.getFirst() != c) {
             misc.Error.showErrorAndExit(
                     "You cannot have multiple owners for exclusive state !!\n"
                             + "currentOwner : "
@@ -160,14 +159,17 @@ public class CacheLine implements Cloneable {
         if (sharers!=null) this.sharers.remove(c);
     }
     
-    public Object clone() {
-        try {
-            // call clone in Object.
-            return super.clone();
-        } catch (CloneNotSupportedException e) {
-            System.out.println("Cloning not allowed.");
-            return this;
-        }
+    int getIndex() {
+        return index;
+    }
+    
+    /*
+     * makes this line share the directory information of line l, as a
+     * shallow copy of l would
+     */
+    void copyDirectoryInfoFrom(CacheLine l) {
+        this.sharers = l.sharers;
+        this.fw = l.fw;
     }
     
     public boolean hasTagMatch(long tag) {
@@ -175,51 +177,51 @@ public class CacheLine implements Cloneable {
     }
     
     public long getTag() {
-        return tag;
+        return store.tag[index];
     }
     
     public void setTag(long tag) {
-        this.tag = tag;
+        store.tag[index] = tag;
     }
     
     public boolean isValid() {
-        return (state != MESIF.INVALID);
+        return (store.state[index] != CacheTagStore.INVALID);
     }
     
     public double getTimestamp() {
-        return timestamp;
+        return store.timestamp[index];
     }
     
     public void setTimestamp(long timestamp) {
-        this.timestamp = timestamp;
+        store.timestamp[index] = timestamp;
     }
     
     public boolean isModified() {
-        if (state == MESIF.MODIFIED)
+        if (getState() == MESIF.MODIFIED)
             return true;
         else
             return false;
     }
     
     public MESIF getState() {
-        return state;
+        return CacheTagStore.states[store.state[index]];
     }
     
     public void setState(MESIF state) {
-        this.state = state;
+        store.state[index] = (byte) state.ordinal();
     }
     
     public long getAddress() {
-        return address;
+        return store.address[index];
     }
     
     public void setAddress(long address) {
-        this.address = address;
+        store.address[index] = address;
     }
     
-    public LinkedList<Cache> getSharers() {
+    public SharerSet getSharers() {
         checkIsDirectory();
-        LinkedList<Cache> tmp = sharers;
+        SharerSet tmp = sharers;
         if (this.fw != null)
             tmp.add(this.fw);
         return tmp;
@@ -230,7 +232,7 @@ public class CacheLine implements Cloneable {
         if (fw != null) {
             return fw;
         }
-        return sharers.get(0);
+        return sharers.getFirst();
     }
     
     public String toString() {
@@ -0,0 +1,43 @@
+package memorysystem;
+
+/*
+ * Tag store of a cache, kept as parallel primitive arrays indexed by line
+ * index (see Cache.getNextIdx), so that a set can be searched without
+ * touching the CacheLine objects. CacheLine is a view on one index of this
+ * store.
+ *
+ * The store has one more slot than the cache has lines : slot numLines holds
+ * a copy of the line evicted by the last fill of the cache.
+ */
+public class CacheTagStore {
+    static final MESIF  states[] = MESIF.values();
+    static final byte   INVALID  = (byte) MESIF.INVALID.ordinal();
+
+    final long          tag[];
+    final long          timestamp[];
+    final long          address[];
+    final byte          state[];
+    final int           evictedSlot;
+
+    public CacheTagStore(int numLines) {
+        tag = new long[numLines + 1];
+        timestamp = new long[numLines + 1];
+        address = new long[numLines + 1];
+        state = new byte[numLines + 1];
+        evictedSlot = numLines;
+
+        for (int i = 0; i <= numLines; i++) {
+            tag[i] = -1;
+            timestamp[i] = 0;
+            address[i] = -1;
+            state[i] = INVALID;
+        }
+    }
+
+    void copyToEvictedSlot(int index) {
+        tag[evictedSlot] = tag[index];
+        timestamp[evictedSlot] = timestamp[index];
+        address[evictedSlot] = address[index];
+        state[evictedSlot] = state[index];
+    }
+}
@@ -38,6 +38,8 @@ public abstract class CoreMemorySystem extends SimulationElement
 	protected Cache l1Cache;
 	protected TLB iTLB;
 	protected TLB dTLB;
+	protected TLB sTLB;
+	protected PageWalker pageWalker;
 	protected LSQ lsqueue;
 	
 	protected long numInstructionSetChunksNoted = 0;
@@ -89,6 +91,7 @@ public abstract class CoreMemorySystem extends SimulationElement
 				SystemConfig.core[coreID].ITLBLatency,
 				this,
 				SystemConfig.core[coreID].ITLBSize,
+				SystemConfig.core[coreID].ITLBAssociativity,
 				SystemConfig.mainMemoryLatency * numPageLevels,
 				SystemConfig.core[coreID].iTLBPower);
 		
@@ -98,9 +101,26 @@ public abstract class CoreMemorySystem extends SimulationElement
 				SystemConfig.core[coreID].DTLBLatency,
 				this,
 				SystemConfig.core[coreID].DTLBSize,
+				SystemConfig.core[coreID].DTLBAssociativity,
 				SystemConfig.mainMemoryLatency * numPageLevels,
 				SystemConfig.core[coreID].dTLBPower);
 		
+		if(SystemConfig.core[coreID].STLBSize > 0) {
+			sTLB = new TLB(PortType.Unlimited, -1, -1,
+					SystemConfig.core[coreID].STLBLatency,
+					this,
+					SystemConfig.core[coreID].STLBSize,
+					SystemConfig.core[coreID].STLBAssociativity,
+					SystemConfig.mainMemoryLatency * numPageLevels,
+					SystemConfig.core[coreID].dTLBPower);
+		}
+		
+		if(SystemConfig.core[coreID].pageWalkerEnabled) {
+			pageWalker = new PageWalker(this, sTLB,
+					SystemConfig.core[coreID].pageSizeBits,
+					SystemConfig.core[coreID].pageWalkCacheSize);
+		}
+		
 		//Initialise the LSQ
 		lsqueue = new LSQ(SystemConfig.core[coreID].LSQPortType,
 		                    SystemConfig.core[coreID].LSQAccessPorts, 
@@ -194,6 +214,49 @@ public abstract class CoreMemorySystem extends SimulationElement
 		}
 	}
 
+	/*
+	 * Puts event on the port of its processing element once its address is
+	 * translated by tlb :
+	 * 	- on a hit, right away
+	 * 	- without a page walker, after the fixed TLB miss penalty
+	 * 	- on an STLB hit, after the STLB latency
+	 * 	- otherwise, when the page walker has walked the page table
+	 */
+	protected void sendTranslatedRequest(TLB tlb, AddressCarryingEvent event)
+	{
+		if(translateOnHit(tlb, event)) {
+			event.getProcessingElement().getPort().put(event);
+		}
+	}
+	
+	/*
+	 * As sendTranslatedRequest, except that on a TLB hit the event is left to
+	 * the caller : returns true on a hit, false if the event will be put on
+	 * its port once translated
+	 */
+	protected boolean translateOnHit(TLB tlb, AddressCarryingEvent event)
+	{
+		long address = event.getAddress();
+		
+		if(pageWalker == null) {
+			if(tlb.searchTLBForPhyAddr(address)) {
+				return true;
+			}
+			event.addEventTime(tlb.getMemoryPenalty());
+		} else if(tlb.lookup(address)) {
+			return true;
+		} else if(sTLB != null && sTLB.lookup(address)) {
+			tlb.addTLBEntry(address, pageWalker.getPageSizeBits());
+			event.addEventTime(sTLB.getLatency());
+		} else {
+			pageWalker.walk(tlb, event);
+			return false;
+		}
+		
+		event.getProcessingElement().getPort().put(event);
+		return false;
+	}
+	
 	public abstract void issueRequestToInstrCache(long address);
 	
 	public abstract boolean issueRequestToL1Cache(RequestType requestType, long address);
@@ -213,6 +276,14 @@ public abstract class CoreMemorySystem extends SimulationElement
 	public TLB getdTLB() {
 		return dTLB;
 	}
+	
+	public TLB getsTLB() {
+		return sTLB;
+	}
+	
+	public PageWalker getPageWalker() {
+		return pageWalker;
+	}
 
 	public Cache getiCache() {
 		return iCache;
@@ -319,25 +319,17 @@ public class LSQ extends SimulationElement
 
 	public void handleAddressReady(EventQueue eventQ, Event event)
 	{
-		LSQEntry lsqEntry = ((LSQEntryContainingEvent)(event)).getLsqEntry();
-		long virtualAddr = lsqEntry.getAddr();
-
-		if (this.containingMemSys.dTLB.searchTLBForPhyAddr(virtualAddr))
-		{
-			this.handleAddrValidate(eventQ, event);
-		}
-		else
+		LSQEntryContainingEvent lsqEvent = (LSQEntryContainingEvent) event;
+		long readyTime = lsqEvent.getEventTime();
+
+		//On a DTLB miss, the entry is validated once the STLB or the page
+		//walker has translated its address
+		lsqEvent.setAddress(lsqEvent.getLsqEntry().getAddr());
+		lsqEvent.update(eventQ, 0, null, this, RequestType.Validate_LSQ_Addr);
+		if (this.containingMemSys.translateOnHit(this.containingMemSys.dTLB, lsqEvent))
 		{
-			//Fetch the physical address from from Page table
-			//Now, we directly check TLB as a function and schedule a validate event 
-			// assuming a constant delay equal to TLB miss penalty
-			this.getPort().put(
-					event.update(
-							eventQ,
-							this.containingMemSys.dTLB.getMemoryPenalty(),
-							null,
-							this,
-							RequestType.Validate_LSQ_Addr));
+			lsqEvent.setEventTime(readyTime);
+			this.handleAddrValidate(eventQ, lsqEvent);
 		}
 
 		//incrementNumAccesses(1);
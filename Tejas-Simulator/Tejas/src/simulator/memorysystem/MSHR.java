@@ -2,31 +2,66 @@ package memorysystem;
 
 import generic.RequestType;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 
+/*
+ * Miss status holding register.
+ *
+ * Entries are keyed by line address in an open-addressing (linear probing)
+ * hash table, so looking up, adding to or removing an entry does not depend
+ * on the number of outstanding misses. The waiting events of an entry are kept
+ * in an ArrayList taken from a pool; removeEventsFromMSHR hands the list over
+ * to the caller, who returns it with releaseWaitingEvents once done.
+ *
+ * isMSHRFull(addr) needs the number of ways of addr's set in the containing
+ * cache whose line has an MSHR entry. This is kept up to date in lockedWays[]
+ * as entries come and go, and as lines of the containing cache are filled,
+ * also by other caches such as the CHAs filling the global directory (see
+ * lineAddressChanged), so it need not scan the set.
+ */
 public class MSHR {
         private int mshrMaxSize;
         private int mshrSize;
-        private LinkedList<LinkedList<AddressCarryingEvent>> missRegister;
         private int blockSizeBits;
         private Cache containingCache;
-        
+
+        private long entryLineAddr[];
+        private ArrayList<AddressCarryingEvent> entryEvents[];
+        private int numEntries;
+        private int tableMask;
+
+        private int lockedWays[];
+
+        private ArrayList<ArrayList<AddressCarryingEvent>> freeEventLists;
+
+        @SuppressWarnings("unchecked")
         public MSHR(int mshrMaxSize, int blockSizeBits, Cache containingCache) {
                 this.mshrMaxSize = mshrMaxSize;
-                missRegister = new LinkedList<LinkedList<AddressCarryingEvent>>();
                 this.blockSizeBits = blockSizeBits;
                 this.containingCache = containingCache;
+
+                int tableSize = 16;
+                while (tableSize < 2 * mshrMaxSize) {
+                        tableSize <<= 1;
+                }
+                entryLineAddr = new long[tableSize];
+                entryEvents = (ArrayList<AddressCarryingEvent>[]) new ArrayList<?>[tableSize];
+                tableMask = tableSize - 1;
+
+                lockedWays = new int[1 << containingCache.numSetsBits];
+
+                freeEventLists = new ArrayList<ArrayList<AddressCarryingEvent>>();
         }
 
         public void addToMSHR(AddressCarryingEvent event) {
                 long addr = event.getAddress();
 
-                // First try to add it to the linked list of addr
-                // If the linked list is not there, create a new MSHR entry
-                LinkedList<AddressCarryingEvent> missList = getWaitingEventsInMSHR(addr);
+                // First try to add it to the list of addr
+                // If the list is not there, create a new MSHR entry
+                ArrayList<AddressCarryingEvent> missList = getWaitingEventsInMSHR(addr);
                 if (missList != null) {
                         if(event.getRequestType() == RequestType.Cache_Write
-                                        && missList.getLast().getRequestType() == RequestType.Cache_Write)
+                                        && missList.get(missList.size() - 1).getRequestType() == RequestType.Cache_Write)
                         {
                                 return;
                         }
@@ -38,130 +73,242 @@ public class MSHR {
                 mshrSize++;
         }
 
-        public LinkedList<AddressCarryingEvent> removeEventsFromMSHR(long addr) {
-                LinkedList<AddressCarryingEvent> missList = getWaitingEventsInMSHR(addr);
-                if (missList == null) {
+        public ArrayList<AddressCarryingEvent> removeEventsFromMSHR(long addr) {
+                long lineAddr = getLineAddr(addr);
+                int slot = findSlot(lineAddr);
+                if (slot < 0) {
                         misc.Error.showErrorAndExit("No pending event in MSHR for addr : "
                                         + addr + ". Cache : " + this);
                 }
 
-                missRegister.remove(missList);
+                ArrayList<AddressCarryingEvent> missList = entryEvents[slot];
+                removeSlot(slot);
+                lockedWays[setOf(lineAddr)] -= numWaysHoldingLine(lineAddr);
                 mshrSize-=missList.size();
                 return missList;
         }
 
+        /*
+         * gives back a list obtained from removeEventsFromMSHR
+         */
+        public void releaseWaitingEvents(ArrayList<AddressCarryingEvent> missList) {
+                missList.clear();
+                freeEventLists.add(missList);
+        }
+
         public boolean isAddrInMSHR(long addr) {
                 if(isMSHREmpty()) {
                         return false;
                 } else {
-                        return (getWaitingEventsInMSHR(addr) != null);
+                        return (findSlot(getLineAddr(addr)) >= 0);
                 }
         }
 
         private boolean isMSHREmpty() {
-                return mshrSize==0;
+                return numEntries==0;
         }
 
         public boolean isMSHRFull(long addr) {
             if (mshrSize >= mshrMaxSize) return true;
-            return (containingCache.numberOfLinesOfSetInMSHR(addr) >= containingCache.assoc - 1);
+            return (getNumLockedWays(addr) >= containingCache.assoc - 1);
         }
-        
+
         public boolean isMSHRFull() {
                 return (mshrSize >= mshrMaxSize);
         }
 
+        /*
+         * number of ways of addr's set (in the containing cache) whose line
+         * is in the MSHR
+         */
+        public int getNumLockedWays(long addr) {
+                return lockedWays[setOf(getLineAddr(addr))];
+        }
+
+        /*
+         * to be called whenever the address held by one of the containing
+         * cache's lines changes, whichever cache did the fill
+         */
+        public void lineAddressChanged(long oldAddr, long newAddr) {
+                if (isMSHREmpty()) {
+                        return;
+                }
+                long oldLineAddr = getLineAddr(oldAddr);
+                long newLineAddr = getLineAddr(newAddr);
+                if (oldLineAddr == newLineAddr) {
+                        return;
+                }
+                if (findSlot(oldLineAddr) >= 0) {
+                        lockedWays[setOf(oldLineAddr)]--;
+                }
+                if (findSlot(newLineAddr) >= 0) {
+                        lockedWays[setOf(newLineAddr)]++;
+                }
+        }
+
         public void printMSHR() {
                 System.out.println("\nMSHR of " + this + "\n");
-                for (LinkedList<AddressCarryingEvent> missList : missRegister) {
-                        System.out.println("\nLineAddr : " + getLineAddr(missList.peek().getAddress()));
-                        for (AddressCarryingEvent event : missList) {
+                for (int slot = 0; slot <= tableMask; slot++) {
+                        if (entryEvents[slot] == null) {
+                                continue;
+                        }
+                        System.out.println("\nLineAddr : " + entryLineAddr[slot]);
+                        for (AddressCarryingEvent event : entryEvents[slot]) {
                                 System.out.println(event);
                         }
                 }
         }
 
         public void createMSHREntry(AddressCarryingEvent event) {
-                LinkedList<AddressCarryingEvent> missList = new LinkedList<AddressCarryingEvent>();
+                ArrayList<AddressCarryingEvent> missList;
+                if (freeEventLists.isEmpty()) {
+                        missList = new ArrayList<AddressCarryingEvent>();
+                } else {
+                        missList = freeEventLists.remove(freeEventLists.size() - 1);
+                }
                 missList.add(event);
-                missRegister.add(missList);
+
+                long lineAddr = getLineAddr(event.getAddress());
+                insertSlot(lineAddr, missList);
+                lockedWays[setOf(lineAddr)] += numWaysHoldingLine(lineAddr);
         }
-        
+
         private long getLineAddr(long addr) {
                 return (addr>>blockSizeBits);
         }
 
-        public LinkedList<AddressCarryingEvent> getWaitingEventsInMSHR(long addr) {
-                long lineAddr = getLineAddr(addr);
-                for (LinkedList<AddressCarryingEvent> missList : missRegister) {
-                        if (getLineAddr(missList.peek().getAddress()) == lineAddr) {
-                                return missList;
+        private int setOf(long lineAddr) {
+                return (int) (lineAddr & (lockedWays.length - 1));
+        }
+
+        private int numWaysHoldingLine(long lineAddr) {
+                int count = 0;
+                int startIdx = setOf(lineAddr);
+                long address[] = containingCache.tagStore.address;
+                for (int idx = 0; idx < containingCache.assoc; idx++) {
+                        if (getLineAddr(address[containingCache.getNextIdx(startIdx, idx)]) == lineAddr) {
+                                count++;
                         }
                 }
+                return count;
+        }
 
-                return null;
+        public ArrayList<AddressCarryingEvent> getWaitingEventsInMSHR(long addr) {
+                int slot = findSlot(getLineAddr(addr));
+                return (slot < 0) ? null : entryEvents[slot];
         }
-        
+
         public AddressCarryingEvent getFirstWaitingEventInMSHR(long addr) {
-                long lineAddr = getLineAddr(addr);
-                for (LinkedList<AddressCarryingEvent> missList : missRegister) {
-                        if (getLineAddr(missList.peek().getAddress()) == lineAddr) {
-                                return missList.getFirst();
+                int slot = findSlot(getLineAddr(addr));
+                if (slot < 0) {
+                        misc.Error.showErrorAndExit("No event for addr : " + addr);
+                }
+                return entryEvents[slot].get(0);
+        }
+
+        /*
+         * open-addressing table : linear probing, backward-shift deletion
+         */
+        private int hash(long lineAddr) {
+                long h = lineAddr * 0x9E3779B97F4A7C15L;
+                return (int) (h ^ (h >>> 32)) & tableMask;
+        }
+
+        private int findSlot(long lineAddr) {
+                int slot = hash(lineAddr);
+                while (entryEvents[slot] != null) {
+                        if (entryLineAddr[slot] == lineAddr) {
+                                return slot;
                         }
+                        slot = (slot + 1) & tableMask;
                 }
+                return -1;
+        }
 
-                misc.Error.showErrorAndExit("No event for addr : " + addr);
-                return null;
+        private void insertSlot(long lineAddr, ArrayList<AddressCarryingEvent> missList) {
+                if (2 * (numEntries + 1) > tableMask + 1) {
+                        growTable();
+                }
+                int slot = hash(lineAddr);
+                while (entryEvents[slot] != null) {
+                        slot = (slot + 1) & tableMask;
+                }
+                entryLineAddr[slot] = lineAddr;
+                entryEvents[slot] = missList;
+                numEntries++;
         }
 
-        public void removeFirstEventFromMSHR(long addr) {
-                long lineAddr = getLineAddr(addr);
-                for (LinkedList<AddressCarryingEvent> missList : missRegister) {
-                        if (getLineAddr(missList.peek().getAddress()) == lineAddr) {
-                                missList.remove(0);
-                                return;
+        private void removeSlot(int slot) {
+                entryEvents[slot] = null;
+                numEntries--;
+
+                // pull back the entries of the cluster that follows, so that
+                // every entry stays reachable from its home slot
+                int hole = slot;
+                int next = (slot + 1) & tableMask;
+                while (entryEvents[next] != null) {
+                        int home = hash(entryLineAddr[next]);
+                        if (((next - home) & tableMask) >= ((next - hole) & tableMask)) {
+                                entryLineAddr[hole] = entryLineAddr[next];
+                                entryEvents[hole] = entryEvents[next];
+                                entryEvents[next] = null;
+                                hole = next;
                         }
+                        next = (next + 1) & tableMask;
                 }
-                
-                misc.Error.showErrorAndExit("No event for addr : " + addr);
         }
-        
-        
+
+        @SuppressWarnings("unchecked")
+        private void growTable() {
+                long oldLineAddr[] = entryLineAddr;
+                ArrayList<AddressCarryingEvent> oldEvents[] = entryEvents;
+
+                entryLineAddr = new long[oldLineAddr.length * 2];
+                entryEvents = (ArrayList<AddressCarryingEvent>[]) new ArrayList<?>[oldEvents.length * 2];
+                tableMask = entryEvents.length - 1;
+                numEntries = 0;
+
+                for (int slot = 0; slot < oldEvents.length; slot++) {
+                        if (oldEvents[slot] != null) {
+                                insertSlot(oldLineAddr[slot], oldEvents[slot]);
+                        }
+                }
+        }
+
+
         public long sumEventsPendingInMSHR = 0,  sumNumMSHREntries = 0;
         public long freqEventsPendingInMSHR = 0;
-        
+
         public void noteMSHRStats() {
                 sumEventsPendingInMSHR += mshrSize;
                 freqEventsPendingInMSHR++;
-                sumNumMSHREntries += missRegister.size();
+                sumNumMSHREntries += numEntries;
         }
-        
+
         public double getAvgNumEventsPendingInMSHR() {
                 return (double)sumEventsPendingInMSHR/(double)freqEventsPendingInMSHR;
         }
-        
+
         public double getAvgNumEventsPendingInMSHREntry() {
                 return (double)sumEventsPendingInMSHR/(double)(sumNumMSHREntries);
         }
 
         public int getNumPendingEventsForAddr(long addr) {
-                
-                long lineAddr = getLineAddr(addr);
+                int slot = findSlot(getLineAddr(addr));
+                if (slot < 0) {
+                        return 0;
+                }
+
                 int numRet = 0;
-                for (LinkedList<AddressCarryingEvent> missList : missRegister) {
-                        if (getLineAddr(missList.peek().getAddress()) == lineAddr) {
-                                for(AddressCarryingEvent e : missList) {
-                                        if(e.getRequestType()==RequestType.EvictCacheLine ||
+                for(AddressCarryingEvent e : entryEvents[slot]) {
+                        if(e.getRequestType()==RequestType.EvictCacheLine ||
 e.getRequestType()==RequestType.DirectoryEvictedFromCoherentCache) {
-                                                return numRet;
-                                        } else {
-                                                numRet++;
-                                        }
-                                }
+                                return numRet;
+                        } else {
+                                numRet++;
                         }
                 }
-                
+
                 return numRet;
         }
 }
-
@@ -0,0 +1,306 @@
+package memorysystem;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.NoSuchElementException;
+import java.util.StringTokenizer;
+
+/*
+ * Virtual to physical address translation of the simulated application, used
+ * to home lines on the KNL CHAs.
+ *
+ * The translation is a sorted list of non-overlapping ranges
+ * (virtual start, size in bytes, physical start). Lookups binary search the
+ * list, after trying the range of the previous lookup.
+ *
+ * Binary format (big endian) :
+ * 	int magic ('TJPT'), int version, long number of ranges
+ * 	then, for each range : long virtual start, long size, long physical start
+ * The binary file is memory mapped, so loading it costs nothing up front and
+ * the ranges stay off the Java heap.
+ *
+ * The text format has one range per line :
+ * 	size \t virtual start \t physical start
+ * As with the old parser, reading a text file stops at the first line that
+ * cannot be parsed; isComplete() then returns false. The ranges read before it
+ * are kept. This is the case of the tagged file written by the PIN tool
+ * (causalityTool, "MCDRAM \t size \t virtual start"), which holds no
+ * physical addresses.
+ *
+ * A text file can be converted with :
+ * 	java memorysystem.PageTable <text file> <binary file>
+ * Adjacent ranges that are contiguous both in virtual and physical memory are
+ * merged during the conversion.
+ */
+public class PageTable {
+    static final int  magic      = 0x544A5054;
+    static final int  version    = 1;
+    static final int  headerSize = 16;
+    static final int  rangeSize  = 3;             // longs per range
+    
+    private LongBuffer ranges;
+    private int        numRanges;
+    private int        lastRange = 0;
+    private boolean    complete;
+    
+    private PageTable(LongBuffer ranges, int numRanges, boolean complete) {
+        this.ranges = ranges;
+        this.numRanges = numRanges;
+        this.complete = complete;
+    }
+    
+    // ranges parsed from a text file
+    static class TextRanges {
+        long    triples[];
+        boolean complete;
+        String  badLine;
+        int     badLineNumber;
+    }
+    
+    /*
+     * loads a binary or a text page table. Returns null if the file does not
+     * exist.
+     */
+    public static PageTable load(String fileName) throws IOException {
+        File file = new File(fileName);
+        if (!file.exists()) {
+            return null;
+        }
+        
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            if (raf.length() >= headerSize && raf.readInt() == magic) {
+                int fileVersion = raf.readInt();
+                if (fileVersion != version) {
+                    misc.Error.showErrorAndExit("Unsupported page table version "
+                            + fileVersion + " in " + fileName);
+                }
+                long n = raf.readLong();
+                FileChannel channel = raf.getChannel();
+                MappedByteBuffer buffer = channel.map(
+                        FileChannel.MapMode.READ_ONLY, headerSize,
+                        n * rangeSize * 8);
+                buffer.order(ByteOrder.BIG_ENDIAN);
+                return new PageTable(buffer.asLongBuffer(), (int) n, true);
+            }
+        } finally {
+            // the mapping stays valid after the file is closed
+            raf.close();
+        }
+        
+        TextRanges parsed = readTextRanges(fileName);
+        if (!parsed.complete) {
+            System.out.println("Address file " + fileName + " : cannot parse line "
+                    + parsed.badLineNumber + " \"" + parsed.badLine
+                    + "\", ignoring it and the lines after it");
+        }
+        return new PageTable(LongBuffer.wrap(parsed.triples),
+                parsed.triples.length / rangeSize, parsed.complete);
+    }
+    
+    /*
+     * false if a text file had a line which could not be parsed
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+    
+    public int getNumRanges() {
+        return numRanges;
+    }
+    
+    public long getFirstVirtualAddress() {
+        return (numRanges == 0) ? -1 : ranges.get(0);
+    }
+    
+    /*
+     * returns the physical address of virtAddr, or -1 if it is not mapped
+     */
+    public long translate(long virtAddr) {
+        if (numRanges == 0) {
+            return -1;
+        }
+        
+        int r = lastRange;
+        if (!inRange(r, virtAddr)) {
+            // last range whose start is <= virtAddr
+            int lo = 0, hi = numRanges - 1;
+            r = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (ranges.get(mid * rangeSize) <= virtAddr) {
+                    r = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            if (r == -1 || !inRange(r, virtAddr)) {
+                return -1;
+            }
+            lastRange = r;
+        }
+        
+        return ranges.get(r * rangeSize + 2) + (virtAddr - ranges.get(r * rangeSize));
+    }
+    
+    private boolean inRange(int r, long virtAddr) {
+        long start = ranges.get(r * rangeSize);
+        return virtAddr >= start && virtAddr - start < ranges.get(r * rangeSize + 1);
+    }
+    
+    /*
+     * parses the text formats into sorted, merged (virt, size, phys) triples
+     */
+    static TextRanges readTextRanges(String fileName) throws IOException {
+        TextRanges result = new TextRanges();
+        result.complete = true;
+        long triples[] = new long[rangeSize * 1024];
+        int n = 0;
+        
+        BufferedReader br = new BufferedReader(new FileReader(fileName));
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = br.readLine()) != null) {
+                lineNumber++;
+                StringTokenizer st = new StringTokenizer(line, "\t");
+                if (!st.hasMoreTokens()) {
+                    continue;
+                }
+                if (n * rangeSize == triples.length) {
+                    long grown[] = new long[triples.length * 2];
+                    System.arraycopy(triples, 0, grown, 0, triples.length);
+                    triples = grown;
+                }
+                try {
+                    long size = Long.parseLong(st.nextToken());
+                    triples[n * rangeSize] = Long.parseLong(st.nextToken());
+                    triples[n * rangeSize + 1] = size;
+                    triples[n * rangeSize + 2] = Long.parseLong(st.nextToken());
+                } catch (NumberFormatException e) {
+                    result.complete = false;
+                } catch (NoSuchElementException e) {
+                    result.complete = false;
+                }
+                if (!result.complete) {
+                    result.badLine = line;
+                    result.badLineNumber = lineNumber;
+                    break;
+                }
+                n++;
+            }
+        } finally {
+            br.close();
+        }
+        
+        sortByVirtualStart(triples, n);
+        
+        // merge contiguous ranges
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            long virt = triples[i * rangeSize];
+            long size = triples[i * rangeSize + 1];
+            long phys = triples[i * rangeSize + 2];
+            if (m > 0) {
+                int last = (m - 1) * rangeSize;
+                long lastEnd = triples[last] + triples[last + 1];
+                if (virt < lastEnd) {
+                    misc.Error.showErrorAndExit("Overlapping ranges in "
+                            + fileName + " at virtual address " + virt);
+                }
+                if (virt == lastEnd
+                        && phys == triples[last + 2] + triples[last + 1]) {
+                    triples[last + 1] += size;
+                    continue;
+                }
+            }
+            triples[m * rangeSize] = virt;
+            triples[m * rangeSize + 1] = size;
+            triples[m * rangeSize + 2] = phys;
+            m++;
+        }
+        
+        result.triples = new long[m * rangeSize];
+        System.arraycopy(triples, 0, result.triples, 0, result.triples.length);
+        return result;
+    }
+    
+    // heap sort of the first n triples on their first element
+    private static void sortByVirtualStart(long triples[], int n) {
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(triples, i, n);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(triples, 0, end);
+            siftDown(triples, 0, end);
+        }
+    }
+    
+    private static void siftDown(long triples[], int i, int n) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= n) {
+                return;
+            }
+            if (child + 1 < n && triples[(child + 1) * rangeSize] > triples[child * rangeSize]) {
+                child++;
+            }
+            if (triples[i * rangeSize] >= triples[child * rangeSize]) {
+                return;
+            }
+            swap(triples, i, child);
+            i = child;
+        }
+    }
+    
+    private static void swap(long triples[], int i, int j) {
+        for (int k = 0; k < rangeSize; k++) {
+            long t = triples[i * rangeSize + k];
+            triples[i * rangeSize + k] = triples[j * rangeSize + k];
+            triples[j * rangeSize + k] = t;
+        }
+    }
+    
+    public static void convert(String textFileName, String binaryFileName)
+            throws IOException {
+        TextRanges parsed = readTextRanges(textFileName);
+        if (!parsed.complete) {
+            throw new IOException(textFileName + " : cannot parse line "
+                    + parsed.badLineNumber + " \"" + parsed.badLine + "\"");
+        }
+        long triples[] = parsed.triples;
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(binaryFileName)));
+        try {
+            out.writeInt(magic);
+            out.writeInt(version);
+            out.writeLong(triples.length / rangeSize);
+            for (int i = 0; i < triples.length; i++) {
+                out.writeLong(triples[i]);
+            }
+        } finally {
+            out.close();
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage : java memorysystem.PageTable <text page table> <binary page table>");
+            System.exit(1);
+        }
+        convert(args[0], args[1]);
+        PageTable table = load(args[1]);
+        System.out.println("Wrote " + table.getNumRanges() + " ranges to " + args[1]);
+    }
+}
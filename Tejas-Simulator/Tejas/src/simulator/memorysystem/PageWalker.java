@@ -0,0 +1,239 @@
+package memorysystem;
+
+import java.util.ArrayList;
+
+import generic.*;
+
+/*
+ * Walks a 4-level (x86-64 style) page table on a miss in the TLBs of a core.
+ * Every level of a walk is a load of an 8-byte entry through the L1 data
+ * cache of the core, issued once the load of the level above has completed.
+ *
+ * The page table is synthetic : all the tables of a level are laid out
+ * contiguously in a region above the user address space, so the entries of
+ * neighbouring pages share cache lines as they would on a real machine.
+ *
+ * The page walk cache holds, for every level above the leaf, the entries
+ * recently read at that level. A walk starts below the deepest level that
+ * hits in it.
+ *
+ * The requests held by a walk are put on the port of their processing
+ * element once the translation has been added to the TLBs. A request for a
+ * page that is being walked waits for that walk.
+ */
+public class PageWalker extends SimulationElement
+{
+	static final int numLevels = 4;
+	static final long pageTableBase = 1L << 47;
+
+	CoreMemorySystem containingMemSys;
+	TLB sTLB;
+	int pageSizeBits;
+	int leafLevel;
+	//indexed by level, null for the levels that are not cached
+	TranslationCache walkCache[];
+
+	ArrayList<PageWalk> activeWalks = new ArrayList<PageWalk>();
+	ArrayList<PageWalk> freeWalks = new ArrayList<PageWalk>();
+
+	protected long numWalks = 0;
+	protected long numWalkLoads = 0;
+	protected long walkCacheHits = 0;
+	protected long walkCacheMisses = 0;
+
+	class PageWalk
+	{
+		long virtualAddr;
+		long pageID;
+		int level;
+		long pendingAddr;
+		ArrayList<AddressCarryingEvent> waitingEvents = new ArrayList<AddressCarryingEvent>();
+		ArrayList<TLB> waitingTLBs = new ArrayList<TLB>();
+	}
+
+	public PageWalker(CoreMemorySystem containingMemSys, TLB sTLB,
+			int pageSizeBits, int pageWalkCacheSize)
+	{
+		super(PortType.Unlimited, -1, -1, 0, -1);
+
+		this.containingMemSys = containingMemSys;
+		this.sTLB = sTLB;
+		this.pageSizeBits = pageSizeBits;
+		this.leafLevel = (pageSizeBits - MemorySystem.PAGE_OFFSET_BITS) / 9 + 1;
+
+		walkCache = new TranslationCache[numLevels + 1];
+		if(pageWalkCacheSize > 0)
+		{
+			for(int level = leafLevel + 1; level <= numLevels; level++)
+			{
+				walkCache[level] = new TranslationCache(pageWalkCacheSize, pageWalkCacheSize);
+			}
+		}
+	}
+
+	public int getPageSizeBits() {
+		return pageSizeBits;
+	}
+
+	public Core getCore() {
+		return containingMemSys.getCore();
+	}
+
+	private static int getLevelShift(int level)
+	{
+		return MemorySystem.PAGE_OFFSET_BITS + 9 * (level - 1);
+	}
+
+	private static long getEntryAddress(int level, long virtualAddr)
+	{
+		return pageTableBase + ((long)level << 40) + ((virtualAddr >>> getLevelShift(level)) << 3);
+	}
+
+	private static long getWalkCacheKey(int level, long virtualAddr)
+	{
+		return (virtualAddr >>> getLevelShift(level)) << 2;
+	}
+
+	/**
+	 * Holds event until the translation of its address is in tlb
+	 */
+	public void walk(TLB tlb, AddressCarryingEvent event)
+	{
+		long virtualAddr = event.getAddress();
+		long pageID = virtualAddr >>> pageSizeBits;
+
+		for(int i = 0; i < activeWalks.size(); i++)
+		{
+			PageWalk walk = activeWalks.get(i);
+			if(walk.pageID == pageID)
+			{
+				walk.waitingEvents.add(event);
+				walk.waitingTLBs.add(tlb);
+				return;
+			}
+		}
+
+		numWalks++;
+		PageWalk walk = freeWalks.isEmpty() ? new PageWalk() : freeWalks.remove(freeWalks.size() - 1);
+		walk.virtualAddr = virtualAddr;
+		walk.pageID = pageID;
+		walk.level = numLevels;
+		for(int level = leafLevel + 1; level <= numLevels; level++)
+		{
+			if(walkCache[level] == null)
+			{
+				break;
+			}
+			if(walkCache[level].lookup(getWalkCacheKey(level, virtualAddr)))
+			{
+				walkCacheHits++;
+				walk.level = level - 1;
+				break;
+			}
+			walkCacheMisses++;
+		}
+		walk.waitingEvents.add(event);
+		walk.waitingTLBs.add(tlb);
+		activeWalks.add(walk);
+
+		issueLoad(walk);
+	}
+
+	private void issueLoad(PageWalk walk)
+	{
+		numWalkLoads++;
+		walk.pendingAddr = getEntryAddress(walk.level, walk.virtualAddr);
+
+		Cache l1Cache = containingMemSys.getL1Cache();
+		AddressCarryingEvent load = new AddressCarryingEvent(getCore().getEventQueue(),
+				0, this, l1Cache, RequestType.Cache_Read, walk.pendingAddr);
+		load.setCoreId(getCore().getCore_number());
+
+		if(l1Cache.isBusy(walk.pendingAddr))
+		{
+			//as for the lower level caches (see Cache.addEventAtLowerCache),
+			//the load waits for the MSHR of the cache to free up
+			l1Cache.eventsWaitingOnMSHR.add(load);
+		}
+		else
+		{
+			l1Cache.getPort().put(load);
+		}
+	}
+
+	public void handleEvent(EventQueue eventQ, Event event)
+	{
+		if(event.getRequestType() != RequestType.Mem_Response)
+		{
+			misc.Error.showErrorAndExit("Invalid event sent to page walker : " + event);
+		}
+
+		long addr = ((AddressCarryingEvent)event).getAddress();
+		PageWalk walk = null;
+		for(int i = 0; i < activeWalks.size(); i++)
+		{
+			if(activeWalks.get(i).pendingAddr == addr)
+			{
+				walk = activeWalks.get(i);
+				break;
+			}
+		}
+		if(walk == null)
+		{
+			misc.Error.showErrorAndExit("No page walk waiting for addr : " + addr);
+		}
+		walk.pendingAddr = -1;
+
+		if(walk.level > leafLevel)
+		{
+			if(walkCache[walk.level] != null)
+			{
+				walkCache[walk.level].insert(getWalkCacheKey(walk.level, walk.virtualAddr));
+			}
+			walk.level--;
+			issueLoad(walk);
+		}
+		else
+		{
+			completeWalk(walk);
+		}
+	}
+
+	private void completeWalk(PageWalk walk)
+	{
+		activeWalks.remove(walk);
+
+		if(sTLB != null)
+		{
+			sTLB.addTLBEntry(walk.virtualAddr, pageSizeBits);
+		}
+		for(int i = 0; i < walk.waitingEvents.size(); i++)
+		{
+			walk.waitingTLBs.get(i).addTLBEntry(walk.virtualAddr, pageSizeBits);
+
+			AddressCarryingEvent event = walk.waitingEvents.get(i);
+			event.setEventTime(0);
+			event.getProcessingElement().getPort().put(event);
+		}
+
+		walk.waitingEvents.clear();
+		walk.waitingTLBs.clear();
+		freeWalks.add(walk);
+	}
+
+	public long getNumWalks() {
+		return numWalks;
+	}
+
+	public long getNumWalkLoads() {
+		return numWalkLoads;
+	}
+
+	public long getWalkCacheHits() {
+		return walkCacheHits;
+	}
+
+	public long getWalkCacheMisses() {
+		return walkCacheMisses;
+	}
+}
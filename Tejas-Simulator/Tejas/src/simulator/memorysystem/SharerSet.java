@@ -0,0 +1,130 @@
+package memorysystem;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*
+ * Set of caches sharing a line, as a bit vector indexed by the sharer id of
+ * each cache (Cache.getSharerId). Ids are handed out once, in order of
+ * construction of the caches, so they are stable for the whole simulation.
+ *
+ * Iteration and getFirst go by increasing id, so the sharer that supplies
+ * the data and the order of the invalidations only depend on which caches
+ * share the line. A cache is only present once.
+ *
+ * Iterate as :
+ * 	for (Cache c : sharerSet) {
+ * 	}
+ * The set must not be changed while it is iterated.
+ */
+public class SharerSet implements Iterable<Cache> {
+    private static Cache registeredCaches[] = new Cache[64];
+    private static int   numRegisteredCaches = 0;
+
+    private long         words[];
+
+    public SharerSet() {
+        words = new long[Math.max(1, (numRegisteredCaches + 63) >>> 6)];
+    }
+
+    static synchronized int register(Cache c) {
+        if (numRegisteredCaches == registeredCaches.length) {
+            Cache grown[] = new Cache[registeredCaches.length * 2];
+            System.arraycopy(registeredCaches, 0, grown, 0, numRegisteredCaches);
+            registeredCaches = grown;
+        }
+        registeredCaches[numRegisteredCaches] = c;
+        return numRegisteredCaches++;
+    }
+
+    public static Cache getCache(int id) {
+        return registeredCaches[id];
+    }
+
+    public boolean contains(Cache c) {
+        int id = c.getSharerId();
+        int word = id >>> 6;
+        return word < words.length && (words[word] & (1L << id)) != 0;
+    }
+
+    public void add(Cache c) {
+        int id = c.getSharerId();
+        int word = id >>> 6;
+        if (word >= words.length) {
+            long grown[] = new long[word + 1];
+            System.arraycopy(words, 0, grown, 0, words.length);
+            words = grown;
+        }
+        words[word] |= (1L << id);
+    }
+
+    public void remove(Cache c) {
+        int id = c.getSharerId();
+        int word = id >>> 6;
+        if (word < words.length) {
+            words[word] &= ~(1L << id);
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < words.length; i++) {
+            words[i] = 0;
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < words.length; i++) {
+            size += Long.bitCount(words[i]);
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        for (int i = 0; i < words.length; i++) {
+            if (words[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * the sharer with the lowest id, or null if the set is empty
+     */
+    public Cache getFirst() {
+        for (int i = 0; i < words.length; i++) {
+            if (words[i] != 0) {
+                return registeredCaches[(i << 6) + Long.numberOfTrailingZeros(words[i])];
+            }
+        }
+        return null;
+    }
+
+    public Iterator<Cache> iterator() {
+        return new Iterator<Cache>() {
+            int  word = 0;
+            long bits = words[0];      // bits of word not returned yet
+
+            public boolean hasNext() {
+                while (bits == 0 && word < words.length - 1) {
+                    bits = words[++word];
+                }
+                return bits != 0;
+            }
+
+            public Cache next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int id = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                return registeredCaches[id];
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -22,19 +22,29 @@ package memorysystem;
 
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.*;
 
 import config.EnergyConfig;
-import config.SystemConfig;
 
 import generic.*;
 
+/*
+ * Set-associative TLB. A translation maps a 4KB, 2MB or 1GB page; a lookup
+ * probes the TLB once for every page size it holds translations of.
+ *
+ * searchTLBForPhyAddr is the old, self-contained model : a miss fills the
+ * TLB after a fixed memoryPenalty. With a page walker, the core memory
+ * system uses lookup instead and fills the TLB once the walk is done (see
+ * CoreMemorySystem.sendTranslatedRequest).
+ */
 public class TLB extends SimulationElement
 {
+	static final int pageSizeBits[] = {MemorySystem.PAGE_OFFSET_BITS, 21, 30};
+	
 	CoreMemorySystem containingMemSys;
-	protected Hashtable<Long, TLBEntry> TLBuffer;
+	protected TranslationCache entries;
 	protected int TLBSize; //Number of entries
-	protected double timestamp;
+	//bit i is set once a translation for a page of pageSizeBits[i] was added
+	protected int pageSizesPresent;
 	protected long tlbRequests = 0;
 	protected long tlbHits = 0;
 	protected long tlbMisses = 0;
@@ -52,151 +62,91 @@ public class TLB extends SimulationElement
 		return memoryPenalty;
 	}
 	
-	//Outstanding Request Table : Stores pageID v/s LSQEntryIndex
-	protected Hashtable<Long, ArrayList<LSQEntry>> missStatusHoldingRegister
-			= new Hashtable<Long, ArrayList<LSQEntry>>();
-	
-	//For telling that what addresses are processed this cycle (for BANKED multi-port option)
-	protected ArrayList<Long> addressesProcessedThisCycle = new ArrayList<Long>();
-	
-	//For telling how many requests are processed this cycle (for GENUINELY multi-ported option)
-	protected int requestsProcessedThisCycle = 0;
-	
 	public TLB(PortType portType, int noOfPorts, long occupancy, long latency,
-			CoreMemorySystem containingMemSys, int tlbSize, int memoryPenalty,
-			EnergyConfig power) 
+			CoreMemorySystem containingMemSys, int tlbSize, int associativity,
+			int memoryPenalty, EnergyConfig power) 
 	{
 		super(portType, noOfPorts, occupancy, latency, containingMemSys.getCore().getFrequency());
 		
 		TLBSize = tlbSize;
-		this.timestamp = 0;
-		TLBuffer = new Hashtable<Long, TLBEntry>(TLBSize);
+		entries = new TranslationCache(tlbSize, associativity);
 		this.containingMemSys =containingMemSys;
 		this.memoryPenalty = memoryPenalty;		
 		this.power = power;
 	}
 	
+	private static int getPageSizeIndex(int sizeBits)
+	{
+		for(int i = 0; i < pageSizeBits.length; i++)
+		{
+			if(pageSizeBits[i] == sizeBits)
+			{
+				return i;
+			}
+		}
+		misc.Error.showErrorAndExit("Unsupported page size : 2^" + sizeBits + " bytes");
+		return -1;
+	}
+	
 	/**
-	 * Removes the page offset bits from the address
 	 * @param virtualAddr : Complete virtual address
-	 * @return pageID obtained by removing page offset bits from virtual address
+	 * @param sizeIndex : index of the page size in pageSizeBits
+	 * @return key of the translation of virtualAddr for that page size
 	 */
-	protected static long getPageID(long virtualAddr)
+	private static long getKey(long virtualAddr, int sizeIndex)
 	{
-		long pageID = virtualAddr >>> MemorySystem.PAGE_OFFSET_BITS;
-		return pageID;
+		return ((virtualAddr >>> pageSizeBits[sizeIndex]) << 2) | sizeIndex;
 	}
 	
-	public boolean searchTLBForPhyAddr(long virtualAddr) //Returns whether the address was already in the TLB or not
+	/**
+	 * Looks the address up without acting on a miss
+	 * @return whether a translation of virtualAddr is in the TLB
+	 */
+	public boolean lookup(long virtualAddr)
 	{
 		noOfAccesses++;
-		
 		tlbRequests++;
-		timestamp += 1.0; //Increment the timestamp to be set in this search
-		boolean isEntryFoundInTLB;
-		
-		long pageID = getPageID(virtualAddr); //Remove the page offset bits from the address
-		TLBEntry entry;
-		
-		if ((TLBuffer.isEmpty()) || ((entry = TLBuffer.get(pageID)) == null)) //Entry not found in the TLB
-		{
-			tlbMisses++;
-			//Fetch the TLB entry from Main memory through the event TLBAddrSearchEvent
-			AddressCarryingEvent addressEvent = new AddressCarryingEvent(getCore().getEventQueue(), memoryPenalty, this, 
-					this, RequestType.Tlb_Miss_Response, pageID);
-			
-			addressEvent.setCoreId(getCore().getCore_number());
-			this.getPort().put(addressEvent);
-									
-			//return pageID;
-			isEntryFoundInTLB = false;
-		}
-		else //Entry found in the page table
-		{
-			tlbHits++;
-			entry.setTimestamp(timestamp);
-			//return entry.getPhyAddr();
-			isEntryFoundInTLB = true;
-		}
-		return isEntryFoundInTLB;
-	}
-	
-	//Just have to provide the full address.
-	//The pageID is calculated within
-	private void addTLBEntry(long pageID)
-	{
-		noOfAccesses++;
 		
-		long addressForTLB = pageID << MemorySystem.PAGE_OFFSET_BITS;
-		
-		TLBEntry entry = new TLBEntry();
-		entry.setPhyAddr(addressForTLB);
-		entry.setTimestamp(timestamp);
-		
-		if (!(TLBuffer.size() < TLBSize)) // If there is no space in the TLB
-		{
-			long keyToRemove = searchOldestTimestamp(); //We use LRU replacement
-			TLBuffer.remove(keyToRemove);
-		}
-		TLBuffer.put(pageID, entry);
-	}
-	
-	
-	private long searchOldestTimestamp()
-	{
-		long oldestAddr = 0;
-		double minTimestamp = Double.MAX_VALUE;
-		for (Enumeration<TLBEntry> entriesEnum = TLBuffer.elements(); entriesEnum.hasMoreElements(); )
+		for(int i = 0; i < pageSizeBits.length; i++)
 		{
-			TLBEntry entry = entriesEnum.nextElement();
-			if (entry.getTimestamp() < minTimestamp)
+			if((pageSizesPresent & (1 << i)) != 0 && entries.lookup(getKey(virtualAddr, i)))
 			{
-				oldestAddr = entry.getPhyAddr();
-				minTimestamp = entry.getTimestamp();
+				tlbHits++;
+				return true;
 			}
 		}
-		return (getPageID(oldestAddr));
+		
+		tlbMisses++;
+		return false;
 	}
 	
-	/**
-	 * Tells whether the request of current event can be processed in the current cycle (due to device port availability)
-	 * @return A boolean value :TRUE if the request can be processed and FALSE otherwise
-	 */
-/*	protected boolean canServiceRequest()
+	public boolean searchTLBForPhyAddr(long virtualAddr) //Returns whether the address was already in the TLB or not
 	{
-		//TLB is a Genuinely multi-ported element
-		//So if number of requests this cycle has not reached the total number of ports
-		if (this.requestsProcessedThisCycle < this.ports)
+		if(lookup(virtualAddr))
 		{
-			requestsProcessedThisCycle++;
 			return true;
 		}
-		else
-			return false;
-	}*/
+		
+		//Fetch the TLB entry from Main memory through the event TLBAddrSearchEvent
+		AddressCarryingEvent addressEvent = new AddressCarryingEvent(getCore().getEventQueue(), memoryPenalty, this, 
+				this, RequestType.Tlb_Miss_Response, virtualAddr);
+		
+		addressEvent.setCoreId(getCore().getCore_number());
+		this.getPort().put(addressEvent);
+		return false;
+	}
 	
 	/**
-	 * Used when a new request is made to a cache and there is a miss.
-	 * This adds the request to the outstanding requests buffer of the cache
-	 * @param pageID : pageID requested
-	 * @return Whether the entry was already there or not
+	 * Adds the translation of the page of sizeBits containing virtualAddr
 	 */
-//	protected boolean addOutstandingRequest(long pageID, LSQEntry lsqEntry)
-//	{
-//		boolean entryAlreadyThere;
-//		
-//		if (!/*NOT*/missStatusHoldingRegister.containsKey(pageID))
-//		{
-//			entryAlreadyThere = false;
-//			missStatusHoldingRegister.put(pageID, new ArrayList<LSQEntry>());
-//		}
-//		else
-//			entryAlreadyThere = true;
-//		
-//		missStatusHoldingRegister.get(pageID).add(lsqEntry);
-//		
-//		return entryAlreadyThere;
-//	}
+	public void addTLBEntry(long virtualAddr, int sizeBits)
+	{
+		noOfAccesses++;
+		
+		int sizeIndex = getPageSizeIndex(sizeBits);
+		pageSizesPresent |= (1 << sizeIndex);
+		entries.insert(getKey(virtualAddr, sizeIndex));
+	}
 	
 	public long getTlbHits() {
 		return tlbHits;
@@ -225,8 +175,8 @@ public class TLB extends SimulationElement
 	public void handleEvent(EventQueue eventQ, Event event)
 	{
 		if(event.getRequestType()==RequestType.Tlb_Miss_Response) {
-			long pageId = ((AddressCarryingEvent)event).getAddress();
-			addTLBEntry(pageId);
+			long virtualAddr = ((AddressCarryingEvent)event).getAddress();
+			addTLBEntry(virtualAddr, MemorySystem.PAGE_OFFSET_BITS);
 		} else {
 			misc.Error.showErrorAndExit("Invalid event sent to TLB : " + event);
 		}
@@ -1,48 +0,0 @@
-/*****************************************************************************
-				Tejas Simulator
-------------------------------------------------------------------------------------------------------------
-
-   Copyright [2010] [Indian Institute of Technology, Delhi]
-   Licensed under the Apache License, Version 2.0 (the "License");
-   you may not use this file except in compliance with the License.
-   You may obtain a copy of the License at
-
-       http://www.apache.org/licenses/LICENSE-2.0
-
-   Unless required by applicable law or agreed to in writing, software
-   distributed under the License is distributed on an "AS IS" BASIS,
-   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
-   See the License for the specific language governing permissions and
-   limitations under the License.
-------------------------------------------------------------------------------------------------------------
-
-	Contributors:  Moksh Upadhyay
-*****************************************************************************/
-package memorysystem;
-
-public class TLBEntry 
-{
-	private long phyAddr;
-	private double timestamp;
-	
-	public TLBEntry()
-	{
-		this.timestamp = 0;
-	}
-
-	public long getPhyAddr() {
-		return phyAddr;
-	}
-
-	public void setPhyAddr(long phyAddr) {
-		this.phyAddr = phyAddr;
-	}
-
-	public double getTimestamp() {
-		return timestamp;
-	}
-
-	public void setTimestamp(double timestamp) {
-		this.timestamp = timestamp;
-	}
-}
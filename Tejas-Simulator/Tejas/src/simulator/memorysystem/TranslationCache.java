@@ -0,0 +1,83 @@
+package memorysystem;
+
+/*
+ * Set-associative array of translations, held in primitive arrays and
+ * replaced LRU within a set. It backs the TLBs and the page walk cache.
+ *
+ * A key is a non-negative long. Its two low bits are left out of the set
+ * index : the TLB keeps the page size of the translation there, so that the
+ * translations of a page id for different page sizes fall in the same set.
+ */
+class TranslationCache
+{
+	final int numSets;
+	final int assoc;
+	final long keys[];
+	final long lastUse[];
+	long useCounter;
+
+	TranslationCache(int numEntries, int assoc)
+	{
+		if(numEntries <= 0 || assoc <= 0 || numEntries % assoc != 0)
+		{
+			misc.Error.showErrorAndExit("Invalid translation cache : " + numEntries
+					+ " entries, associativity " + assoc);
+		}
+
+		this.assoc = assoc;
+		this.numSets = numEntries / assoc;
+		keys = new long[numEntries];
+		lastUse = new long[numEntries];
+		for(int i = 0; i < numEntries; i++)
+		{
+			keys[i] = -1;
+		}
+	}
+
+	private int getFirstWay(long key)
+	{
+		return (int)((key >>> 2) % numSets) * assoc;
+	}
+
+	/*
+	 * returns true and marks the translation as most recently used if key is
+	 * present
+	 */
+	boolean lookup(long key)
+	{
+		int first = getFirstWay(key);
+		for(int way = first; way < first + assoc; way++)
+		{
+			if(keys[way] == key)
+			{
+				lastUse[way] = ++useCounter;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * adds key, replacing an invalid or else the least recently used
+	 * translation of its set
+	 */
+	void insert(long key)
+	{
+		int first = getFirstWay(key);
+		int victim = first;
+		for(int way = first; way < first + assoc; way++)
+		{
+			if(keys[way] == key)
+			{
+				victim = way;
+				break;
+			}
+			if(keys[victim] != -1 && (keys[way] == -1 || lastUse[way] < lastUse[victim]))
+			{
+				victim = way;
+			}
+		}
+		keys[victim] = key;
+		lastUse[victim] = ++useCounter;
+	}
+}
@@ -24,7 +24,6 @@ import misc.Util;
 import config.CacheConfig;
 import config.EnergyConfig;
 import config.SystemConfig;
-import java.util.Random;
 import java.util.Arrays;
 
 // Unlock function should call the state change function. This is called using
@@ -70,33 +69,7 @@ public class CHA extends Cache implements Coherence {
     
     // made for Quadrant cluster mode
     public CHA getDestinationChaQuadrant(long addr, Event e) {
-        long mapLine = 0;
-        long offset = addr % 64;
-        long virtLine = addr - offset;
-        if (SystemConfig.physAddr.containsKey(virtLine)) {
-            long physLine = SystemConfig.physAddr.get(virtLine);
-            long physAddr = (offset + physLine);
-            long physOffset = physAddr - SystemConfig.mcdramPhysStartAddr;
-            if (physOffset < 0) {
-                misc.Error.showErrorAndExit("This should never ever happen");
-            }
-            mapLine = physOffset >> 6;
-        } else {
-            Random rand = new Random();
-            mapLine = rand.nextInt(38);
-        }
-        
-        // find CHA in list and return it
-        CHA c = null;
-        int cha = SystemConfig.mappingKNL[(int) mapLine];
-        for (int i = 0; i < SystemConfig.mappingCHA.length; ++i) {
-            CHA chaTmp = (CHA) SystemConfig.chaList.get(i);
-            if (chaTmp.id == cha) {
-                c = chaTmp;
-            }
-        }
-
-        return c;
+        return SystemConfig.chaHomeResolver.getHome(addr);
     }
     
     private AddressCarryingEvent sendAnEventFromCacheToDirectory(long addr,
@@ -0,0 +1,74 @@
+package memorysystem.coherence;
+
+import config.SystemConfig;
+import memorysystem.PageTable;
+
+/*
+ * Finds the home CHA (the directory slice) of a line.
+ *
+ * Built once, when the chip has been created : the CHAs are indexed by id in
+ * an array and the mapping file (SystemConfig.mappingKNL) is used directly.
+ *
+ * A line whose physical address is known (SystemConfig.pageTable) is homed
+ * according to its offset in MCDRAM. Any other line is homed on one of the
+ * first numCHAs entries of the mapping, chosen by a seeded hash of the line
+ * address : the same line always has the same home, and a run can be
+ * repeated exactly.
+ */
+public class CHAHomeResolver {
+    static final long homeHashSeed = 0x5DEECE66DL;
+
+    CHA               chaById[];
+    byte              mapping[];
+    PageTable         pageTable;
+    int               numCHAs;
+
+    public CHAHomeResolver() {
+        int maxId = -1;
+        for (int i = 0; i < SystemConfig.chaList.size(); i++) {
+            maxId = Math.max(maxId, ((CHA) SystemConfig.chaList.get(i)).id);
+        }
+        chaById = new CHA[maxId + 1];
+        for (int i = 0; i < SystemConfig.chaList.size(); i++) {
+            CHA cha = (CHA) SystemConfig.chaList.get(i);
+            chaById[cha.id] = cha;
+        }
+
+        mapping = SystemConfig.mappingKNL;
+        pageTable = SystemConfig.pageTable;
+        // the hashed home must stay inside the mapping file
+        numCHAs = Math.min(SystemConfig.mappingCHA.length, mapping.length);
+    }
+
+    public CHA getHome(long addr) {
+        long offset = addr & 63;
+        long virtLine = addr - offset;
+        long mapLine;
+
+        long physLine = (pageTable == null) ? -1 : pageTable.translate(virtLine);
+        if (physLine != -1) {
+            long physOffset = offset + physLine - SystemConfig.mcdramPhysStartAddr;
+            if (physOffset < 0) {
+                misc.Error.showErrorAndExit("This should never ever happen");
+            }
+            mapLine = physOffset >> 6;
+            if (mapLine >= mapping.length) {
+                // beyond the mapping file : homed as an unmapped line
+                mapLine = hashLine(virtLine) % numCHAs;
+            }
+        } else {
+            mapLine = hashLine(virtLine) % numCHAs;
+        }
+
+        return chaById[mapping[(int) mapLine]];
+    }
+
+    static long hashLine(long line) {
+        // splitmix64 finalizer
+        long h = line ^ homeHashSeed;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        h = h ^ (h >>> 31);
+        return h >>> 1;
+    }
+}
@@ -0,0 +1,105 @@
+package memorysystem.replacement;
+
+/*
+ * Re-reference interval prediction (Jaleel et al., ISCA 2010), with 2-bit
+ * re-reference prediction values (RRPV) packed 32 ways to a long.
+ *
+ * Hits are predicted near-immediate (RRPV 0). The victim is the first
+ * candidate way with a distant RRPV (3), after ageing the set just enough for
+ * one to exist. Fills are predicted :
+ * 	STATIC (SRRIP)  : long (2)
+ * 	BIMODAL (BRRIP) : distant, and long once every 32 fills
+ * 	DYNAMIC (DRRIP) : as SRRIP or BRRIP, chosen by set dueling
+ */
+public class RRIPReplacement implements ReplacementPolicy {
+    public static enum InsertionPolicy {
+        STATIC, BIMODAL, DYNAMIC
+    }
+
+    static final int  rrpvBits      = 2;
+    static final int  maxRRPV       = (1 << rrpvBits) - 1;
+    static final int  waysPerWord   = 64 / rrpvBits;
+    static final int  bimodalPeriod = 32;
+
+    long              rrpv[];
+    int               wordsPerSet;
+    int               assoc;
+    InsertionPolicy   insertionPolicy;
+    int               bimodalCounter;
+    SetDuelingMonitor duelingMonitor;
+
+    public RRIPReplacement(int numSets, int assoc, InsertionPolicy insertionPolicy) {
+        if (assoc > 64) {
+            misc.Error.showErrorAndExit("RRIP supports at most 64 ways : " + assoc);
+        }
+        this.assoc = assoc;
+        this.wordsPerSet = (assoc + waysPerWord - 1) / waysPerWord;
+        this.insertionPolicy = insertionPolicy;
+
+        // all lines start distant
+        rrpv = new long[numSets * wordsPerSet];
+        for (int i = 0; i < rrpv.length; i++) {
+            rrpv[i] = -1L;
+        }
+
+        if (insertionPolicy == InsertionPolicy.DYNAMIC) {
+            duelingMonitor = new SetDuelingMonitor(numSets, 32, 10);
+        }
+    }
+
+    private int getRRPV(int set, int way) {
+        long word = rrpv[set * wordsPerSet + way / waysPerWord];
+        return (int) (word >>> ((way % waysPerWord) * rrpvBits)) & maxRRPV;
+    }
+
+    private void setRRPV(int set, int way, int value) {
+        int i = set * wordsPerSet + way / waysPerWord;
+        int shift = (way % waysPerWord) * rrpvBits;
+        rrpv[i] = (rrpv[i] & ~((long) maxRRPV << shift)) | ((long) value << shift);
+    }
+
+    public void onHit(int set, int way) {
+        setRRPV(set, way, 0);
+    }
+
+    public void onFill(int set, int way) {
+        boolean bimodal;
+        if (insertionPolicy == InsertionPolicy.DYNAMIC) {
+            duelingMonitor.recordMiss(set);
+            bimodal = !duelingMonitor.usePolicyA(set);
+        } else {
+            bimodal = (insertionPolicy == InsertionPolicy.BIMODAL);
+        }
+
+        if (bimodal) {
+            bimodalCounter = (bimodalCounter + 1) % bimodalPeriod;
+            setRRPV(set, way, (bimodalCounter == 0) ? maxRRPV - 1 : maxRRPV);
+        } else {
+            setRRPV(set, way, maxRRPV - 1);
+        }
+    }
+
+    public int getVictim(int set, long candidateWays) {
+        int oldest = -1;
+        int victim = -1;
+        for (int way = 0; way < assoc; way++) {
+            if ((candidateWays & (1L << way)) == 0) {
+                continue;
+            }
+            int value = getRRPV(set, way);
+            if (value > oldest) {
+                oldest = value;
+                victim = way;
+            }
+        }
+
+        // age the whole set until the victim is distant
+        int age = maxRRPV - oldest;
+        if (victim != -1 && age > 0) {
+            for (int way = 0; way < assoc; way++) {
+                setRRPV(set, way, Math.min(maxRRPV, getRRPV(set, way) + age));
+            }
+        }
+        return victim;
+    }
+}
@@ -0,0 +1,16 @@
+package memorysystem.replacement;
+
+/*
+ * Replacement policy of a cache, other than the default LRU which the cache
+ * does itself on the timestamps of its tag store.
+ *
+ * Ways are numbered 0..assoc-1 within a set. Victims are chosen among a set of
+ * candidate ways given as a bit mask (bit w set : way w may be evicted); the
+ * cache leaves out the ways whose line is locked in the MSHR. Hence
+ * associativity is limited to 64 ways.
+ */
+public interface ReplacementPolicy {
+    public abstract void onHit(int set, int way);
+    public abstract void onFill(int set, int way);
+    public abstract int getVictim(int set, long candidateWays);
+}
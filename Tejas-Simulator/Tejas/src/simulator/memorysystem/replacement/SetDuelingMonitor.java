@@ -0,0 +1,56 @@
+package memorysystem.replacement;
+
+/*
+ * Set dueling between two policies A and B.
+ *
+ * A few leader sets always follow A, as many always follow B, and the other
+ * (follower) sets follow whichever of the two misses less in its leader sets.
+ * A saturating counter (PSEL) goes up on misses in A's leader sets and down on
+ * misses in B's leader sets.
+ */
+public class SetDuelingMonitor {
+    public static final int FOLLOWER = 0;
+    public static final int LEADER_A = 1;
+    public static final int LEADER_B = 2;
+
+    int stride;
+    int psel;
+    int pselMax;
+
+    public SetDuelingMonitor(int numSets, int numLeaderSets, int pselBits) {
+        this.stride = Math.max(2, numSets / Math.max(1, numLeaderSets));
+        this.pselMax = (1 << pselBits) - 1;
+        this.psel = (pselMax + 1) / 2;
+    }
+
+    public int getSetType(int set) {
+        int offset = set % stride;
+        if (offset == 0) {
+            return LEADER_A;
+        } else if (offset == 1) {
+            return LEADER_B;
+        } else {
+            return FOLLOWER;
+        }
+    }
+
+    public void recordMiss(int set) {
+        int type = getSetType(set);
+        if (type == LEADER_A && psel < pselMax) {
+            psel++;
+        } else if (type == LEADER_B && psel > 0) {
+            psel--;
+        }
+    }
+
+    public boolean usePolicyA(int set) {
+        int type = getSetType(set);
+        if (type == LEADER_A) {
+            return true;
+        } else if (type == LEADER_B) {
+            return false;
+        } else {
+            return psel < (pselMax + 1) / 2;
+        }
+    }
+}
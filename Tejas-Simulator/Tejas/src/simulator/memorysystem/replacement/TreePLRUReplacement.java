@@ -0,0 +1,74 @@
+package memorysystem.replacement;
+
+/*
+ * Tree pseudo-LRU. Each set has a binary tree of assoc-1 bits, kept in one
+ * long : node n has children 2n+1 and 2n+2, and its bit points to the half
+ * which holds the next victim (0 : lower half, 1 : upper half).
+ * Associativity must be a power of two.
+ */
+public class TreePLRUReplacement implements ReplacementPolicy {
+    long treeBits[];
+    int  assoc;
+
+    public TreePLRUReplacement(int numSets, int assoc) {
+        if (Integer.bitCount(assoc) != 1 || assoc > 64) {
+            misc.Error.showErrorAndExit("Tree PLRU needs a power of two associativity (at most 64) : " + assoc);
+        }
+        this.treeBits = new long[numSets];
+        this.assoc = assoc;
+    }
+
+    public void onHit(int set, int way) {
+        touch(set, way);
+    }
+
+    public void onFill(int set, int way) {
+        touch(set, way);
+    }
+
+    // make every node on the path to way point away from it
+    private void touch(int set, int way) {
+        long bits = treeBits[set];
+        int node = 0;
+        int lo = 0;
+        int size = assoc;
+        while (size > 1) {
+            size >>= 1;
+            if (way < lo + size) {
+                bits |= (1L << node);
+                node = 2 * node + 1;
+            } else {
+                bits &= ~(1L << node);
+                lo += size;
+                node = 2 * node + 2;
+            }
+        }
+        treeBits[set] = bits;
+    }
+
+    // follow the tree, except into a half that has no candidate way
+    public int getVictim(int set, long candidateWays) {
+        long bits = treeBits[set];
+        int node = 0;
+        int lo = 0;
+        int size = assoc;
+        while (size > 1) {
+            size >>= 1;
+            boolean upper = ((bits >>> node) & 1) != 0;
+            long upperHalf = waysMask(lo + size, size) & candidateWays;
+            long lowerHalf = waysMask(lo, size) & candidateWays;
+            if (upper ? upperHalf == 0 : lowerHalf != 0) {
+                node = 2 * node + 1;
+            } else {
+                lo += size;
+                node = 2 * node + 2;
+            }
+        }
+        return lo;
+    }
+
+    private static long waysMask(int from, int num) {
+        long mask = (num == 64) ? -1L : ((1L << num) - 1);
+        return mask << from;
+    }
+}
@@ -156,6 +156,12 @@ public class NOC extends InterConnect {
 			ConnectNOCElementsFatTree(networkElements, numColumns, nocConfig);
 			break;
 		}
+		
+		for(int i=0; i<numRows; i++) {
+			for(int j=0; j<numColumns; j++) {
+				networkElements[i][j].getRouter().buildRouteTable();
+			}
+		}
 	}
 
 	/************************************************************************
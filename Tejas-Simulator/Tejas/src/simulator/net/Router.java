@@ -43,7 +43,9 @@ public class Router extends Switch {
     protected int            numberOfColumns;
     private ID               id;
     protected int            latencyBetweenNOCElements;
-    protected Vector<Router> neighbours;
+    protected Router         neighbours[];
+    // next hop towards each destination [row][column], see encodeRoute
+    protected byte           routeTable[][];
     EnergyConfig             power;
     public static int        incoming    = 0;
     public static int        outgoing    = 0;
@@ -62,7 +64,7 @@ public class Router extends Switch {
         this.numberOfRows = nocConfig.numberOfRows;
         this.numberOfColumns = nocConfig.numberOfColumns;
         this.latencyBetweenNOCElements = nocConfig.latencyBetweenNOCElements;
-        this.neighbours = new Vector<Router>(4);
+        this.neighbours = new Router[DIRECTION.values().length];
         this.hopCounters = 0;
         power = nocConfig.power;
         
@@ -77,7 +79,7 @@ public class Router extends Switch {
      ***************************************************/
     public void SetConnectedNOCElements(RoutingAlgo.DIRECTION dir,
             NocInterface networkElements) {
-        this.neighbours.add(dir.ordinal(), networkElements.getRouter());
+        this.neighbours[dir.ordinal()] = networkElements.getRouter();
     }
     
     /***************************************************
@@ -86,10 +88,10 @@ public class Router extends Switch {
      * @param dir
      ***************************************************/
     public void SetConnectedNOCElements(RoutingAlgo.DIRECTION dir) {
-        this.neighbours.add(dir.ordinal(), null);
+        this.neighbours[dir.ordinal()] = null;
     }
     
-    public Vector<Router> GetNeighbours() {
+    public Router[] GetNeighbours() {
         return this.neighbours;
     }
     
@@ -104,19 +106,18 @@ public class Router extends Switch {
     public boolean CheckNeighbourBuffer(RoutingAlgo.DIRECTION nextId,
             boolean reqOrReply) // request for neighbour buffer
     {
-        return ((Router) this.neighbours.elementAt(nextId.ordinal()))
-                .AllocateBuffer(nextId);
+        return this.neighbours[nextId.ordinal()].AllocateBuffer(nextId);
     }
     
     /***************************************************************************************
-     * Method Name : RouteComputation
-     * Purpose : computing next bank id,Adaptive algorithm selects less
-     * contention path
+     * Method Name : computeRouteChoices
+     * Purpose : candidate directions from current to destination, in order
+     * of preference
      * Parameters : current and destination bank id
-     * Return : next bank id
+     * Return : candidate directions
      ***************************************************************************************/
-    public RoutingAlgo.DIRECTION RouteComputation(ID current, ID destination) {
-        // find the route to go
+    public Vector<RoutingAlgo.DIRECTION> computeRouteChoices(ID current,
+            ID destination) {
         Vector<RoutingAlgo.DIRECTION> choices = new Vector<RoutingAlgo.DIRECTION>();
         switch (rAlgo) {
             case WESTFIRST:
@@ -141,17 +142,77 @@ public class Router extends Switch {
                         this.topology, this.numberOfRows, this.numberOfColumns);
                 break;
         }
-        if (selScheme == SELSCHEME.ADAPTIVE && choices.size() > 1) {
-            if (((Router) this.neighbours
-                    .elementAt(choices.elementAt(0).ordinal()))
-                            .bufferSize() > ((Router) this.neighbours
-                                    .elementAt(choices.elementAt(1).ordinal()))
-                                            .bufferSize())
-                return choices.elementAt(0);
+        return choices;
+    }
+    
+    /***************************************************************************************
+     * Method Name : buildRouteTable
+     * Purpose : precompute the route choices towards every destination. The
+     * routing algorithms only depend on the current and destination ids, so
+     * this is done once, when the NOC elements are connected.
+     * Parameters : none
+     * Return : void
+     ***************************************************************************************/
+    public void buildRouteTable() {
+        routeTable = new byte[numberOfRows][numberOfColumns];
+        for (int i = 0; i < numberOfRows; i++) {
+            for (int j = 0; j < numberOfColumns; j++) {
+                ID destination = new ID(i, j);
+                if (destination.equals(id)) {
+                    continue;
+                }
+                routeTable[i][j] = encodeRoute(computeRouteChoices(id,
+                        destination));
+            }
+        }
+    }
+    
+    /*
+     * A route is a byte : bits 0-1 hold the first choice, bits 2-3 the second
+     * choice, bits 4-5 the number of choices
+     */
+    static final DIRECTION directions[] = DIRECTION.values();
+    
+    static byte encodeRoute(Vector<RoutingAlgo.DIRECTION> choices) {
+        int route = Math.min(choices.size(), 2) << 4;
+        for (int c = 0; c < choices.size() && c < 2; c++) {
+            route |= choices.elementAt(c).ordinal() << (2 * c);
+        }
+        return (byte) route;
+    }
+    
+    /***************************************************************************************
+     * Method Name : RouteComputation
+     * Purpose : computing next bank id,Adaptive algorithm selects less
+     * contention path
+     * Parameters : current and destination bank id
+     * Return : next bank id
+     ***************************************************************************************/
+    public RoutingAlgo.DIRECTION RouteComputation(ID current, ID destination) {
+        if (routeTable == null || !current.equals(id)) {
+            return decodeRoute(encodeRoute(computeRouteChoices(current,
+                    destination)));
+        }
+        return decodeRoute(routeTable[destination.getx()][destination.gety()]);
+    }
+    
+    private RoutingAlgo.DIRECTION decodeRoute(int route) {
+        int numChoices = (route >>> 4) & 3;
+        if (numChoices == 0) {
+            misc.Error.showErrorAndExit("No route from " + id + " with "
+                    + rAlgo + " routing");
+        }
+        DIRECTION first = directions[route & 3];
+        if (selScheme == SELSCHEME.ADAPTIVE && numChoices > 1) {
+            DIRECTION second = directions[(route >>> 2) & 3];
+            if (this.neighbours[first.ordinal()]
+                    .bufferSize() > this.neighbours[second.ordinal()]
+                            .bufferSize())
+                return first;
             else
-                return choices.elementAt(1);
+                return second;
         }
-        return choices.elementAt(0);
+        return first;
     }
     
     public boolean reqOrReply(ID currentId, ID destinationId) {
@@ -268,17 +329,16 @@ public class Router extends Switch {
                 // to guarantee that is only counted once, right?
                 this.countPacketType(requestType);
                 ((AddressCarryingEvent) event).hopLength++;
-                this.GetNeighbours().elementAt(nextID.ordinal()).getPort()
+                this.neighbours[nextID.ordinal()].getPort()
                         .put(event.update(eventQ, latency, // this.getLatency()
-                                this, this.GetNeighbours().elementAt(
-                                        nextID.ordinal()),
+                                this, this.neighbours[nextID.ordinal()],
                                 requestType));
                 this.FreeBuffer();
             }
             // If buffer is not available in next router keep the message here
             // itself
             else { // post event to this ID
-                this.GetNeighbours().elementAt(nextID.ordinal()).collision();
+                this.neighbours[nextID.ordinal()].collision();
                 this.getPort().put(event.update(this, this));
             }
         }
@@ -14,12 +14,14 @@ import pipeline.branchpredictor.BranchPredictor;
 import pipeline.branchpredictor.GAgpredictor;
 import pipeline.branchpredictor.GApPredictor;
 import pipeline.branchpredictor.GShare;
+import pipeline.branchpredictor.HashedPerceptronPredictor;
 import pipeline.branchpredictor.NoPredictor;
 import pipeline.branchpredictor.PAgPredictor;
 import pipeline.branchpredictor.PApPredictor;
 import pipeline.branchpredictor.PerfectPredictor;
 import pipeline.branchpredictor.TournamentPredictor;
 import pipeline.branchpredictor.TAGE;
+import pipeline.branchpredictor.TAGESCL;
 import generic.Core;
 import generic.GenericCircularQueue;
 import generic.Instruction;
@@ -86,6 +88,15 @@ public abstract class ExecutionEngine {
                         this.branchPredictor = new TAGE(this,
                                         coreConfig.branchPredictor.PCBits,
                                         coreConfig.branchPredictor.saturating_bits);
+		else if(coreConfig.branchPredictor.predictorMode == BP.TAGESCL)
+			this.branchPredictor = new TAGESCL(this, coreConfig.branchPredictor.TAGETables,
+					coreConfig.branchPredictor.TAGETableBits,
+					coreConfig.branchPredictor.TAGEMinHistory,
+					coreConfig.branchPredictor.TAGEMaxHistory);
+		else if(coreConfig.branchPredictor.predictorMode == BP.HashedPerceptron)
+			this.branchPredictor = new HashedPerceptronPredictor(this, coreConfig.branchPredictor.PerceptronTables,
+					coreConfig.branchPredictor.PerceptronTableBits,
+					coreConfig.branchPredictor.PerceptronMaxHistory);
 
 	}
 	
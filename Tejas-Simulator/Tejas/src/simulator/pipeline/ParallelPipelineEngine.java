@@ -0,0 +1,166 @@
+package pipeline;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+import config.SimulationConfig;
+
+/*
+ * Steps the pipelines of many cores in lock-step on a fixed pool of threads.
+ *
+ * Every cycle is executed in four phases :
+ * 	1) back end (commit, write-back, select) of all pipelines, in parallel
+ * 	2) events of all pipelines, serially and in core order
+ * 	3) front end (IW push, rename, decode, fetch) of all pipelines, in parallel
+ * 	4) barrier arrivals of the front ends, serially and in core order
+ *
+ * The back and front ends only touch the state of their own core; whatever
+ * they send to the memory system is an event in that core's own event queue.
+ * All cross-core traffic (shared caches, CHA, directory, NOC) is therefore
+ * handled in the serial events phase, and the barriers shared by the cores in
+ * the serial barrier phase. This keeps the simulation deterministic whatever
+ * the number of threads; with a single thread, the phases are run in the same
+ * order on the calling thread.
+ *
+ * Pipeline i is always stepped by thread (i % numThreads); thread 0 is the
+ * calling thread.
+ */
+public class ParallelPipelineEngine
+{
+	static final int BACK_END = 0;
+	static final int FRONT_END = 1;
+	static final int SHUTDOWN = 2;
+
+	PipelineInterface pipelines[];
+	int numThreads;
+	int numPipelinesToStep;
+	volatile int phase;
+
+	CyclicBarrier phaseStart;
+	CyclicBarrier phaseEnd;
+	Thread workers[];
+
+	public ParallelPipelineEngine(PipelineInterface pipelines[], int numThreads)
+	{
+		if(numThreads < 1)
+		{
+			misc.Error.showErrorAndExit("PipelineThreads must be at least 1 : " + numThreads);
+		}
+		// the PinPoints slice statistics are shared by all cores and updated at commit
+		if(numThreads > 1 && SimulationConfig.pinpointsSimulation)
+		{
+			misc.Error.showErrorAndExit("PipelineThreads must be 1 with a PinPoints simulation : " + numThreads);
+		}
+		this.pipelines = pipelines;
+		this.numThreads = numThreads;
+
+		phaseStart = new CyclicBarrier(numThreads);
+		phaseEnd = new CyclicBarrier(numThreads);
+
+		workers = new Thread[numThreads];
+		for(int i = 1; i < numThreads; i++)
+		{
+			workers[i] = new Thread(new Worker(i), "pipeline-worker-" + i);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+	}
+
+	/*
+	 * equivalent of calling oneCycleOperation() on the first numPipelines
+	 * pipelines, except that each phase is run for all pipelines before the
+	 * next one
+	 */
+	public void oneCycleOperation(int numPipelines)
+	{
+		numPipelinesToStep = numPipelines;
+
+		runPhase(BACK_END);
+
+		for(int i = 0; i < numPipelines; i++)
+		{
+			pipelines[i].oneCycleOperationEvents();
+		}
+
+		runPhase(FRONT_END);
+
+		for(int i = 0; i < numPipelines; i++)
+		{
+			pipelines[i].oneCycleOperationBarriers();
+		}
+	}
+
+	public void shutdown()
+	{
+		if(numThreads == 1)
+		{
+			return;
+		}
+		phase = SHUTDOWN;
+		await(phaseStart);
+	}
+
+	void runPhase(int newPhase)
+	{
+		if(numThreads == 1)
+		{
+			stepPipelines(0, newPhase);
+			return;
+		}
+		phase = newPhase;
+		await(phaseStart);
+		stepPipelines(0, newPhase);
+		await(phaseEnd);
+	}
+
+	void stepPipelines(int threadID, int currentPhase)
+	{
+		for(int i = threadID; i < numPipelinesToStep; i += numThreads)
+		{
+			if(currentPhase == BACK_END)
+			{
+				pipelines[i].oneCycleOperationBackEnd();
+			}
+			else
+			{
+				pipelines[i].oneCycleOperationFrontEnd();
+			}
+		}
+	}
+
+	static void await(CyclicBarrier barrier)
+	{
+		try {
+			barrier.await();
+		} catch (InterruptedException e) {
+			misc.Error.showErrorAndExit("pipeline worker interrupted");
+		} catch (BrokenBarrierException e) {
+			misc.Error.showErrorAndExit("pipeline worker barrier broken");
+		}
+	}
+
+	class Worker implements Runnable
+	{
+		int threadID;
+
+		Worker(int threadID)
+		{
+			this.threadID = threadID;
+		}
+
+		public void run()
+		{
+			while(true)
+			{
+				await(phaseStart);
+				int currentPhase = phase;
+				if(currentPhase == SHUTDOWN)
+				{
+					return;
+				}
+				stepPipelines(threadID, currentPhase);
+				await(phaseEnd);
+			}
+		}
+	}
+}
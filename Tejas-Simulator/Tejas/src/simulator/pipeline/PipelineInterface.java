@@ -7,6 +7,15 @@ import generic.Instruction;
 public interface PipelineInterface {
 	
 	public void oneCycleOperation();	
+	
+	//oneCycleOperation() split into its four phases, for engines that step
+	//many pipelines in lock-step. Only the events and barriers phases may touch
+	//state shared with other cores : the front end leaves the barriers it
+	//arrives at to the barriers phase.
+	public void oneCycleOperationBackEnd();
+	public void oneCycleOperationEvents();
+	public void oneCycleOperationFrontEnd();
+	public void oneCycleOperationBarriers();
 	public boolean isExecutionComplete();
 	public void setcoreStepSize(int stepSize);
 	public int getCoreStepSize();
@@ -18,4 +27,10 @@ public interface PipelineInterface {
 	public void setExecutionComplete(boolean status);
 	public void adjustRunningThreads(int adjval);
 	public void setInputToPipeline(GenericCircularQueue<Instruction>[] inputToPipeline);
+	
+	//true if the last cycle did not change the state of the pipeline, i.e. every
+	//cycle until the next event is handled would be identical to it
+	public boolean isQuiescent();
+	//account the per-cycle statistics of cycles that were fast-forwarded
+	public void skipCycles(long fromTime, long numCycles);
 }
@@ -0,0 +1,165 @@
+package pipeline.branchpredictor;
+
+import misc.Error;
+import pipeline.ExecutionEngine;
+
+/*
+ * Hashed perceptron : numTables tables of 8-bit weights. Table 0 is indexed with the PC
+ * only (the bias weight). The other tables are indexed with the PC hashed with global
+ * histories of geometrically increasing lengths, up to maxHistory. The prediction is
+ * the sign of the sum of the selected weights.
+ *
+ * The weights are trained on a misprediction, or when the sum is within theta of 0.
+ * Theta adapts so that about as many branches are trained for being mispredicted as
+ * for being predicted with low confidence.
+ *
+ * The global history is a ring of outcomes. The folded histories used to index the
+ * tables are updated incrementally on every branch. The per branch work is a few
+ * straight loops over int and byte arrays, one iteration per table. As in TAGESCL,
+ * Train() reuses the lookup done by predict() for the same branch.
+ */
+public class HashedPerceptronPredictor extends BranchPredictor {
+
+	static final int WEIGHT_MAX = 127, WEIGHT_MIN = -128;
+	static final int THETA_COUNTER_MAX = 63;
+
+	int numTables;
+	int tableBits, tableMask;
+	byte weights[];					//table t holds the weights t << tableBits to ((t + 1) << tableBits) - 1
+	int historyLength[];
+	int indexShift[];
+	int theta;
+	int thetaCounter;
+
+	//global history, newest outcome at historyPointer, and its folding for each table
+	byte history[];
+	int historyMask;
+	int historyPointer;
+	int foldValue[];
+	int foldOutPoint[];
+
+	//lookup of the last predicted branch
+	long lastAddress = -1;
+	int index[];
+	int sum;
+
+	public HashedPerceptronPredictor(ExecutionEngine containingExecEngine, int numTables, int tableBits,
+			int maxHistory)
+	{
+		super(containingExecEngine);
+
+		if(numTables < 3 || tableBits < 2 || tableBits > 24 || maxHistory < numTables)
+		{
+			Error.showErrorAndExit("Hashed perceptron : invalid configuration (" + numTables + " tables of 2^"
+					+ tableBits + " weights, history of " + maxHistory + ")");
+		}
+
+		this.numTables = numTables;
+		this.tableBits = tableBits;
+		tableMask = (1 << tableBits) - 1;
+		weights = new byte[numTables << tableBits];
+
+		//table 0 has no history, the others a geometric series from 2 to maxHistory
+		historyLength = new int[numTables];
+		indexShift = new int[numTables];
+		foldOutPoint = new int[numTables];
+		for(int t = 1; t < numTables; t++)
+		{
+			double ratio = (double) (t - 1) / (numTables - 2);
+			historyLength[t] = (int) (2 * Math.pow(maxHistory / 2.0, ratio) + 0.5);
+			if(historyLength[t] <= historyLength[t - 1])
+				historyLength[t] = historyLength[t - 1] + 1;
+			foldOutPoint[t] = historyLength[t] % tableBits;
+		}
+		for(int t = 0; t < numTables; t++)
+		{
+			indexShift[t] = tableBits - t % (tableBits - 1);
+		}
+
+		history = new byte[Integer.highestOneBit(historyLength[numTables - 1]) << 1];
+		historyMask = history.length - 1;
+		foldValue = new int[numTables];
+
+		theta = (int) (2.14 * numTables + 20.58);
+		index = new int[numTables];
+	}
+
+	public boolean predict(long address, boolean outcome)
+	{
+		lookup(address & 0x0000FFFFFFFFFFFFL);
+		return sum >= 0;
+	}
+
+	public void Train(long address, boolean outcome, boolean predict)
+	{
+		address &= 0x0000FFFFFFFFFFFFL;
+		if(address != lastAddress)
+			lookup(address);
+
+		boolean mispredicted = (sum >= 0) != outcome;
+		if(mispredicted || Math.abs(sum) <= theta)
+		{
+			int step = outcome ? 1 : -1;
+			for(int t = 0; t < numTables; t++)
+			{
+				int w = weights[index[t]] + step;
+				if(w <= WEIGHT_MAX && w >= WEIGHT_MIN)
+					weights[index[t]] = (byte) w;
+			}
+
+			//adaptive threshold
+			if(mispredicted)
+			{
+				if(++thetaCounter > THETA_COUNTER_MAX)
+				{
+					theta++;
+					thetaCounter = 0;
+				}
+			}
+			else if(--thetaCounter < -THETA_COUNTER_MAX - 1)
+			{
+				if(theta > 0)
+					theta--;
+				thetaCounter = 0;
+			}
+		}
+
+		updateHistory(outcome);
+
+		//the histories changed : the next branch must be looked up again
+		lastAddress = -1;
+	}
+
+	void lookup(long address)
+	{
+		lastAddress = address;
+		int pc = (int) (address ^ (address >>> 32));
+
+		for(int t = 0; t < numTables; t++)
+		{
+			index[t] = (t << tableBits) | ((pc ^ (pc >>> indexShift[t]) ^ foldValue[t]) & tableMask);
+		}
+
+		int s = 0;
+		for(int t = 0; t < numTables; t++)
+		{
+			s += weights[index[t]];
+		}
+		sum = s;
+	}
+
+	void updateHistory(boolean outcome)
+	{
+		historyPointer = (historyPointer - 1) & historyMask;
+		int newBit = outcome ? 1 : 0;
+		history[historyPointer] = (byte) newBit;
+
+		for(int t = 1; t < numTables; t++)
+		{
+			int v = (foldValue[t] << 1) | newBit;
+			v ^= history[(historyPointer + historyLength[t]) & historyMask] << foldOutPoint[t];
+			v ^= v >>> tableBits;
+			foldValue[t] = v & tableMask;
+		}
+	}
+}
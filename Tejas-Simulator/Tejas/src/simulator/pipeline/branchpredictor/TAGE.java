@@ -86,7 +86,7 @@ public class TAGE extends BranchPredictor {
 
         
 
-        public static int predictions = 0;
+        public int predictions = 0;
 
         public static int aging = 256000;
 
@@ -100,19 +100,19 @@ public class TAGE extends BranchPredictor {
 
         public static int u_bits = 2;
 
-        public static int table_altPred = -1;
+        public int table_altPred = -1;
 
-        public static int table_Pred = -1;
+        public int table_Pred = -1;
 
-        public static boolean defPred = false;
+        public boolean defPred = false;
 
-        public static boolean alt_Pred = false;
+        public boolean alt_Pred = false;
 
-        public static boolean pred = false;
+        public boolean pred = false;
 
         
 
-        public static int[] L;
+        public int[] L;
 
         
 
@@ -154,7 +154,7 @@ public class TAGE extends BranchPredictor {
 
         
 
-        public static TT[] T;
+        public TT[] T;
 
 
 
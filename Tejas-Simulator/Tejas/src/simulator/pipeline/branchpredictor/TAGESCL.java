@@ -0,0 +1,518 @@
+package pipeline.branchpredictor;
+
+import misc.Error;
+import pipeline.ExecutionEngine;
+
+/*
+ * TAGE-SC-L : a TAGE predictor whose prediction is corrected by a loop predictor and
+ * then by a statistical corrector (SC).
+ *
+ * TAGE : a bimodal table and numTables tagged tables indexed with the PC hashed with
+ * global histories of geometrically increasing lengths (minHistory to maxHistory) and
+ * with the path history. The longest matching table provides the prediction, unless
+ * its entry is newly allocated (weak) and the alternate prediction has proven better
+ * (useAltOnNA). On a misprediction an entry is allocated in a longer table whose
+ * useful counter is 0. The useful counters age (are halved) when allocations keep
+ * failing.
+ *
+ * Loop predictor : learns the trip count of regular loops, and overrides TAGE on its
+ * branches once the same trip count was seen LOOP_CONFIDENCE times in a row.
+ *
+ * SC : a bias table and GEHL tables on short global histories, all indexed with the
+ * TAGE (or loop) prediction as well. It reverts that prediction when the sum of its
+ * counters disagrees with it by more than a threshold, which adapts to how often
+ * doing so is right.
+ *
+ * The global history is a ring of outcomes. The folded (compressed) histories used in
+ * the hashes are updated incrementally on every branch. All the state belongs to the
+ * instance, in primitive arrays. The pipeline calls Train() right after predict() for
+ * the same branch, so the lookup done by predict() is reused by Train().
+ */
+public class TAGESCL extends BranchPredictor {
+
+	static final int CTR_MAX = 3, CTR_MIN = -4;			//3-bit prediction counters
+	static final int U_MAX = 3;							//2-bit useful counters
+	static final int BIMODAL_MAX = 3;					//2-bit bimodal counters
+	static final int USE_ALT_MAX = 7, USE_ALT_MIN = -8;
+	static final int TICK_MAX = 1023;
+	static final int PATH_BITS = 16;
+
+	static final int LOOP_BITS = 6;
+	static final int LOOP_TAG_BITS = 10;
+	static final int LOOP_MAX_ITERATIONS = 1023;
+	static final int LOOP_CONFIDENCE = 3;
+	static final int LOOP_AGE_MAX = 7;
+	static final int WITH_LOOP_MAX = 63, WITH_LOOP_MIN = -64;
+
+	static final int SC_HISTORY[] = {4, 10, 24};		//history lengths of the GEHL tables
+	static final int SC_CTR_MAX = 31, SC_CTR_MIN = -32;	//6-bit counters
+	static final int SC_THRESHOLD_MIN = 6, SC_THRESHOLD_MAX = 127;
+	static final int SC_THRESHOLD_COUNTER_MAX = 31;
+
+	//TAGE
+	int numTables;
+	int tableBits, tableMask;
+	int historyLength[];
+	int tagMask[];
+	int indexShift[];		//per table hashing constants
+	int pathMask[];
+	int pathRotate[];
+	byte ctr[][];
+	short tag[][];
+	byte u[][];
+	byte bimodal[];
+	int bimodalMask;
+	int useAltOnNA;
+	int tick;
+
+	//global history, newest outcome at historyPointer
+	byte history[];
+	int historyMask;
+	int historyPointer;
+	int pathHistory;
+
+	//folded histories : index of every table, two for its tag, one per GEHL table
+	int numFolds;
+	int foldValue[];
+	int foldLength[];
+	int foldWidth[];
+	int foldMask[];
+	int foldOutPoint[];
+
+	//loop predictor
+	short loopTag[];
+	short loopCurrent[];
+	short loopPast[];
+	byte loopConfidence[];
+	byte loopAge[];
+	boolean loopDirection[];
+	int withLoop;
+
+	//statistical corrector : the bias table, then the GEHL tables
+	int scBits, scMask;
+	byte sc[][];
+	int scThreshold;
+	int scThresholdCounter;
+
+	int randomSeed = 0x2545F491;
+
+	//lookup of the last predicted branch
+	long lastAddress = -1;
+	int pc;
+	int index[];
+	int tagOf[];
+	int bimodalIndex;
+	int provider, alt;
+	boolean providerPred, altPred, weakProvider, tagePred;
+	int loopIndex;
+	boolean loopHit, loopValid, loopPred;
+	boolean interPred;
+	int scIndex[];
+	int scSum;
+	boolean scPred, finalPred;
+
+	public TAGESCL(ExecutionEngine containingExecEngine, int numTables, int tableBits,
+			int minHistory, int maxHistory)
+	{
+		super(containingExecEngine);
+
+		if(numTables < 2 || tableBits < 2 || tableBits > 20 || minHistory < 1 || maxHistory < minHistory)
+		{
+			Error.showErrorAndExit("TAGE-SC-L : invalid configuration (" + numTables + " tables of 2^"
+					+ tableBits + " entries, histories of " + minHistory + " to " + maxHistory + ")");
+		}
+
+		this.numTables = numTables;
+		this.tableBits = tableBits;
+		tableMask = (1 << tableBits) - 1;
+
+		//geometric series of history lengths
+		historyLength = new int[numTables];
+		tagMask = new int[numTables];
+		indexShift = new int[numTables];
+		pathMask = new int[numTables];
+		pathRotate = new int[numTables];
+		for(int i = 0; i < numTables; i++)
+		{
+			double ratio = (double) i / (numTables - 1);
+			historyLength[i] = (int) (minHistory * Math.pow((double) maxHistory / minHistory, ratio) + 0.5);
+			if(i > 0 && historyLength[i] <= historyLength[i - 1])
+				historyLength[i] = historyLength[i - 1] + 1;
+			tagMask[i] = (1 << (8 + (4 * i) / numTables)) - 1;
+			indexShift[i] = tableBits - i % (tableBits - 1);
+			pathMask[i] = (1 << Math.min(PATH_BITS, historyLength[i])) - 1;
+			pathRotate[i] = i % tableBits;
+		}
+
+		ctr = new byte[numTables][1 << tableBits];
+		tag = new short[numTables][1 << tableBits];
+		u = new byte[numTables][1 << tableBits];
+		bimodal = new byte[1 << (tableBits + 2)];
+		bimodalMask = bimodal.length - 1;
+		for(int i = 0; i < bimodal.length; i++)
+			bimodal[i] = 2;
+
+		int longest = Math.max(historyLength[numTables - 1], SC_HISTORY[SC_HISTORY.length - 1]);
+		history = new byte[Integer.highestOneBit(longest) << 1];
+		historyMask = history.length - 1;
+
+		numFolds = 3 * numTables + SC_HISTORY.length;
+		foldValue = new int[numFolds];
+		foldLength = new int[numFolds];
+		foldWidth = new int[numFolds];
+		foldMask = new int[numFolds];
+		foldOutPoint = new int[numFolds];
+		scBits = tableBits;
+		scMask = (1 << scBits) - 1;
+		for(int i = 0; i < numTables; i++)
+		{
+			setFold(i, historyLength[i], tableBits);
+			setFold(numTables + i, historyLength[i], Integer.bitCount(tagMask[i]));
+			setFold(2 * numTables + i, historyLength[i], Integer.bitCount(tagMask[i]) - 1);
+		}
+		for(int t = 0; t < SC_HISTORY.length; t++)
+		{
+			setFold(3 * numTables + t, SC_HISTORY[t], scBits);
+		}
+
+		loopTag = new short[1 << LOOP_BITS];
+		loopCurrent = new short[1 << LOOP_BITS];
+		loopPast = new short[1 << LOOP_BITS];
+		loopConfidence = new byte[1 << LOOP_BITS];
+		loopAge = new byte[1 << LOOP_BITS];
+		loopDirection = new boolean[1 << LOOP_BITS];
+
+		sc = new byte[1 + SC_HISTORY.length][1 << scBits];
+		scThreshold = 35;
+
+		index = new int[numTables];
+		tagOf = new int[numTables];
+		scIndex = new int[1 + SC_HISTORY.length];
+	}
+
+	void setFold(int fold, int length, int width)
+	{
+		foldLength[fold] = length;
+		foldWidth[fold] = width;
+		foldMask[fold] = (1 << width) - 1;
+		foldOutPoint[fold] = length % width;
+	}
+
+	public boolean predict(long address, boolean outcome)
+	{
+		lookup(address & 0x0000FFFFFFFFFFFFL);
+		return finalPred;
+	}
+
+	public void Train(long address, boolean outcome, boolean predict)
+	{
+		address &= 0x0000FFFFFFFFFFFFL;
+		if(address != lastAddress)
+			lookup(address);
+
+		trainSC(outcome);
+		trainLoop(outcome);
+		trainTAGE(outcome);
+		updateHistory(outcome);
+
+		//the histories changed : the next branch must be looked up again
+		lastAddress = -1;
+	}
+
+	void lookup(long address)
+	{
+		lastAddress = address;
+		pc = (int) (address ^ (address >>> 32));
+
+		//TAGE
+		provider = alt = -1;
+		for(int i = numTables - 1; i >= 0; i--)
+		{
+			index[i] = (pc ^ (pc >>> indexShift[i]) ^ foldValue[i] ^ pathHash(i)) & tableMask;
+			tagOf[i] = (pc ^ foldValue[numTables + i] ^ (foldValue[2 * numTables + i] << 1)) & tagMask[i];
+			if(tag[i][index[i]] == tagOf[i])
+			{
+				if(provider == -1)
+					provider = i;
+				else if(alt == -1)
+					alt = i;
+			}
+		}
+		bimodalIndex = pc & bimodalMask;
+		boolean bimodalPred = bimodal[bimodalIndex] > BIMODAL_MAX / 2;
+		altPred = (alt >= 0) ? ctr[alt][index[alt]] >= 0 : bimodalPred;
+		if(provider >= 0)
+		{
+			int c = ctr[provider][index[provider]];
+			providerPred = c >= 0;
+			weakProvider = (c == 0 || c == -1);
+			tagePred = (weakProvider && useAltOnNA >= 0) ? altPred : providerPred;
+		}
+		else
+		{
+			providerPred = altPred;
+			weakProvider = false;
+			tagePred = altPred;
+		}
+
+		//loop predictor
+		loopIndex = pc & ((1 << LOOP_BITS) - 1);
+		loopHit = loopAge[loopIndex] > 0 && loopTag[loopIndex] == ((pc >>> LOOP_BITS) & ((1 << LOOP_TAG_BITS) - 1));
+		loopValid = loopHit && loopConfidence[loopIndex] == LOOP_CONFIDENCE;
+		loopPred = (loopCurrent[loopIndex] == loopPast[loopIndex]) ? !loopDirection[loopIndex] : loopDirection[loopIndex];
+		interPred = (loopValid && withLoop >= 0) ? loopPred : tagePred;
+
+		//statistical corrector
+		int predBit = interPred ? 1 : 0;
+		scIndex[0] = ((pc << 1) | predBit) & scMask;
+		scSum = 2 * sc[0][scIndex[0]] + 1;
+		for(int t = 1; t <= SC_HISTORY.length; t++)
+		{
+			int h = pc ^ (pc >>> (scBits - t)) ^ foldValue[3 * numTables + t - 1];
+			scIndex[t] = ((h << 1) | predBit) & scMask;
+			scSum += 2 * sc[t][scIndex[t]] + 1;
+		}
+		scPred = scSum >= 0;
+		finalPred = (scPred != interPred && Math.abs(scSum) >= scThreshold) ? scPred : interPred;
+	}
+
+	//path history folded to the index width of table bank
+	int pathHash(int bank)
+	{
+		int a = pathHistory & pathMask[bank];
+		int a1 = a & tableMask;
+		int a2 = a >>> tableBits;
+		int b = pathRotate[bank];
+		a2 = ((a2 << b) & tableMask) + (a2 >>> (tableBits - b));
+		a = a1 ^ a2;
+		a = ((a << b) & tableMask) + (a >>> (tableBits - b));
+		return a;
+	}
+
+	void trainSC(boolean outcome)
+	{
+		boolean confident = Math.abs(scSum) >= scThreshold;
+
+		//the threshold goes up when reverting was wrong, down when it would have been right
+		if(scPred != interPred)
+		{
+			if(confident && scPred != outcome)
+				scThresholdCounter++;
+			else if(!confident && scPred == outcome)
+				scThresholdCounter--;
+			if(scThresholdCounter > SC_THRESHOLD_COUNTER_MAX)
+			{
+				scThreshold = Math.min(SC_THRESHOLD_MAX, scThreshold + 1);
+				scThresholdCounter = 0;
+			}
+			else if(scThresholdCounter < -SC_THRESHOLD_COUNTER_MAX - 1)
+			{
+				scThreshold = Math.max(SC_THRESHOLD_MIN, scThreshold - 1);
+				scThresholdCounter = 0;
+			}
+		}
+
+		if(scPred != outcome || !confident)
+		{
+			for(int t = 0; t < sc.length; t++)
+			{
+				int c = sc[t][scIndex[t]];
+				if(outcome && c < SC_CTR_MAX)
+					sc[t][scIndex[t]] = (byte) (c + 1);
+				else if(!outcome && c > SC_CTR_MIN)
+					sc[t][scIndex[t]] = (byte) (c - 1);
+			}
+		}
+	}
+
+	void trainLoop(boolean outcome)
+	{
+		int i = loopIndex;
+		if(loopHit)
+		{
+			if(loopValid && loopPred != tagePred)
+			{
+				if(loopPred == outcome)
+					withLoop = Math.min(WITH_LOOP_MAX, withLoop + 1);
+				else
+					withLoop = Math.max(WITH_LOOP_MIN, withLoop - 1);
+			}
+
+			if(outcome == loopDirection[i])
+			{
+				loopCurrent[i]++;
+				if(loopCurrent[i] > LOOP_MAX_ITERATIONS)
+				{
+					//not a loop we can follow
+					loopAge[i] = 0;
+				}
+				else if(loopPast[i] != 0 && loopCurrent[i] > loopPast[i])
+				{
+					//longer trip than learnt
+					loopPast[i] = 0;
+					loopConfidence[i] = 0;
+				}
+			}
+			else
+			{
+				//loop exit
+				if(loopCurrent[i] == 0)
+				{
+					loopAge[i] = 0;
+				}
+				else if(loopCurrent[i] == loopPast[i])
+				{
+					if(loopConfidence[i] < LOOP_CONFIDENCE)
+						loopConfidence[i]++;
+					if(loopValid && loopAge[i] < LOOP_AGE_MAX)
+						loopAge[i]++;
+				}
+				else
+				{
+					loopPast[i] = loopCurrent[i];
+					loopConfidence[i] = 0;
+				}
+				loopCurrent[i] = 0;
+			}
+		}
+		else if(tagePred != outcome)
+		{
+			//allocate on a TAGE misprediction, most likely at the exit of a loop
+			if(loopAge[i] > 0)
+			{
+				loopAge[i]--;
+			}
+			else
+			{
+				loopTag[i] = (short) ((pc >>> LOOP_BITS) & ((1 << LOOP_TAG_BITS) - 1));
+				loopDirection[i] = !outcome;
+				loopCurrent[i] = 0;
+				loopPast[i] = 0;
+				loopConfidence[i] = 0;
+				loopAge[i] = LOOP_AGE_MAX;
+			}
+		}
+	}
+
+	void trainTAGE(boolean outcome)
+	{
+		boolean allocate = (tagePred != outcome) && provider < numTables - 1;
+
+		if(provider >= 0 && weakProvider && providerPred != altPred)
+		{
+			//a new entry : learn whether to trust such entries
+			if(altPred == outcome)
+				useAltOnNA = Math.min(USE_ALT_MAX, useAltOnNA + 1);
+			else
+				useAltOnNA = Math.max(USE_ALT_MIN, useAltOnNA - 1);
+			if(providerPred == outcome)
+				allocate = false;
+		}
+
+		if(allocate)
+			allocateEntry(outcome);
+
+		if(provider >= 0)
+		{
+			updateCounter(provider, outcome);
+			if(u[provider][index[provider]] == 0)
+			{
+				if(alt >= 0)
+					updateCounter(alt, outcome);
+				else
+					updateBimodal(outcome);
+			}
+			if(providerPred != altPred)
+			{
+				int v = u[provider][index[provider]];
+				if(providerPred == outcome && v < U_MAX)
+					u[provider][index[provider]] = (byte) (v + 1);
+				else if(providerPred != outcome && v > 0)
+					u[provider][index[provider]] = (byte) (v - 1);
+			}
+		}
+		else
+		{
+			updateBimodal(outcome);
+		}
+	}
+
+	//allocates an entry in a table longer than the provider, one whose useful counter is 0
+	void allocateEntry(boolean outcome)
+	{
+		int start = provider + 1;
+		if(start < numTables - 1 && (nextRandom() & 1) == 1)
+			start++;
+
+		boolean allocated = false;
+		for(int i = start; i < numTables; i++)
+		{
+			if(u[i][index[i]] == 0)
+			{
+				tag[i][index[i]] = (short) tagOf[i];
+				ctr[i][index[i]] = (byte) (outcome ? 0 : -1);
+				allocated = true;
+				break;
+			}
+		}
+
+		//aging of the useful counters, when too many allocations fail
+		if(allocated)
+		{
+			if(tick > 0)
+				tick--;
+		}
+		else if(++tick > TICK_MAX)
+		{
+			for(int i = 0; i < numTables; i++)
+			{
+				byte table[] = u[i];
+				for(int j = 0; j < table.length; j++)
+					table[j] >>= 1;
+			}
+			tick = 0;
+		}
+	}
+
+	void updateCounter(int table, boolean outcome)
+	{
+		int c = ctr[table][index[table]];
+		if(outcome && c < CTR_MAX)
+			ctr[table][index[table]] = (byte) (c + 1);
+		else if(!outcome && c > CTR_MIN)
+			ctr[table][index[table]] = (byte) (c - 1);
+	}
+
+	void updateBimodal(boolean outcome)
+	{
+		int c = bimodal[bimodalIndex];
+		if(outcome && c < BIMODAL_MAX)
+			bimodal[bimodalIndex] = (byte) (c + 1);
+		else if(!outcome && c > 0)
+			bimodal[bimodalIndex] = (byte) (c - 1);
+	}
+
+	void updateHistory(boolean outcome)
+	{
+		historyPointer = (historyPointer - 1) & historyMask;
+		history[historyPointer] = (byte) (outcome ? 1 : 0);
+		pathHistory = ((pathHistory << 1) | ((pc ^ (pc >>> 2)) & 1)) & ((1 << PATH_BITS) - 1);
+
+		int newBit = history[historyPointer];
+		for(int f = 0; f < numFolds; f++)
+		{
+			int v = (foldValue[f] << 1) | newBit;
+			v ^= history[(historyPointer + foldLength[f]) & historyMask] << foldOutPoint[f];
+			v ^= v >>> foldWidth[f];
+			foldValue[f] = v & foldMask[f];
+		}
+	}
+
+	int nextRandom()
+	{
+		randomSeed ^= randomSeed << 13;
+		randomSeed ^= randomSeed >>> 17;
+		randomSeed ^= randomSeed << 5;
+		return randomSeed;
+	}
+}
@@ -35,6 +35,8 @@ public class FetchUnitIn_MII extends SimulationElement
 	private boolean fetchBufferStatus[];  // To check whether request to ICache is complete or not
 	
 	private boolean sleep;		//The boolean to stall the pipeline when a sync request is received
+	private boolean barrierArrivalPending;	//a sync was fetched this cycle, see handleBarrierArrival
+	private long pendingBarrierAddress;
 	int syncCount;
 	long numRequestsSent;
 	int numRequestsAcknowledged;
@@ -154,63 +156,13 @@ public class FetchUnitIn_MII extends SimulationElement
 
 					if(ins.getOperationType()==OperationType.sync)
 					{
+						//the arrival at the barrier (shared between cores) and the rest
+						//of this cycle's fetch are left to handleBarrierArrival
 						this.fetchFillCount--;
 						this.fetchBufferIndex = (this.fetchBufferIndex+1)%this.fetchBufferCapacity;
-						long barrierAddress = ins.getCISCProgramCounter();
-						Barrier bar = BarrierTable.barrierList.get(barrierAddress);
-						bar.incrementThreads();
-						if(this.core.TreeBarrier == true){
-							setSleep(true);
-							int coreId = this.core.getCore_number();
-							ArchitecturalComponent.coreBroadcastBus.getPort().put(new AddressCarryingEvent(
-									0,this.core.eventQueue,
-									 this.core.barrier_latency,
-									 ArchitecturalComponent.coreBroadcastBus, 
-									 ArchitecturalComponent.coreBroadcastBus, 
-									 RequestType.TREE_BARRIER, 
-									 barrierAddress,
-									 coreId));
-						}
-						else{
-							if(bar.timeToCross())
-							{
-								sleepThePipeline();
-								int bar_lat;
-								
-								if(this.core.barrierUnit == 0){
-									if(GlobalClock.getCurrentTime() < bar.time + 35)
-									{
-										bar_lat = (int)(this.core.barrier_latency + GlobalClock.getCurrentTime() - bar.time);
-									}
-									else
-										bar_lat = this.core.barrier_latency;
-								}
-								else{
-									if(GlobalClock.getCurrentTime() < bar.time + 4)
-									{
-										bar_lat = (int)(this.core.barrier_latency + GlobalClock.getCurrentTime() - bar.time);
-									}
-									else
-										bar_lat = this.core.barrier_latency;
-								}
-								for(int i=0; i<bar.getNumThreads(); i++ ){
-									ArchitecturalComponent.coreBroadcastBus.addToResumeCore(bar.getBlockedThreads().elementAt(i));
-								}
-								ArchitecturalComponent.coreBroadcastBus.getPort().put(new AddressCarryingEvent(
-										 this.core.eventQueue,
-										 bar_lat,
-										 ArchitecturalComponent.coreBroadcastBus, 
-										 ArchitecturalComponent.coreBroadcastBus, 
-										 RequestType.PIPELINE_RESUME, 
-										 0));
-	
-							}
-							else
-							{
-								sleepThePipeline();
-								return;
-							}
-						}
+						this.barrierArrivalPending = true;
+						this.pendingBarrierAddress = ins.getCISCProgramCounter();
+						return;
 					}
 					else{
 						this.ifId_latch.add(ins, GlobalClock.getCurrentTime() + 1);
@@ -230,6 +182,78 @@ public class FetchUnitIn_MII extends SimulationElement
 		fillFetchBuffer(inorderPipeline);
 	}
 	
+	/*
+	 * arrives at the barrier reached by this cycle's fetch, then fills the fetch
+	 * buffer unless the pipeline waits for the other threads. Called serially,
+	 * in core order, after the front ends of all cores
+	 */
+	public void handleBarrierArrival(MultiIssueInorderPipeline inorderPipeline)
+	{
+		if(!barrierArrivalPending)
+		{
+			return;
+		}
+		barrierArrivalPending = false;
+		
+		long barrierAddress = pendingBarrierAddress;
+		Barrier bar = BarrierTable.barrierList.get(barrierAddress);
+		bar.incrementThreads();
+		if(this.core.TreeBarrier == true){
+			setSleep(true);
+			int coreId = this.core.getCore_number();
+			ArchitecturalComponent.coreBroadcastBus.getPort().put(new AddressCarryingEvent(
+					0,this.core.eventQueue,
+					 this.core.barrier_latency,
+					 ArchitecturalComponent.coreBroadcastBus, 
+					 ArchitecturalComponent.coreBroadcastBus, 
+					 RequestType.TREE_BARRIER, 
+					 barrierAddress,
+					 coreId));
+		}
+		else{
+			if(bar.timeToCross())
+			{
+				sleepThePipeline();
+				int bar_lat;
+				
+				if(this.core.barrierUnit == 0){
+					if(GlobalClock.getCurrentTime() < bar.time + 35)
+					{
+						bar_lat = (int)(this.core.barrier_latency + GlobalClock.getCurrentTime() - bar.time);
+					}
+					else
+						bar_lat = this.core.barrier_latency;
+				}
+				else{
+					if(GlobalClock.getCurrentTime() < bar.time + 4)
+					{
+						bar_lat = (int)(this.core.barrier_latency + GlobalClock.getCurrentTime() - bar.time);
+					}
+					else
+						bar_lat = this.core.barrier_latency;
+				}
+				for(int i=0; i<bar.getNumThreads(); i++ ){
+					ArchitecturalComponent.coreBroadcastBus.addToResumeCore(bar.getBlockedThreads().elementAt(i));
+				}
+				ArchitecturalComponent.coreBroadcastBus.getPort().put(new AddressCarryingEvent(
+						 this.core.eventQueue,
+						 bar_lat,
+						 ArchitecturalComponent.coreBroadcastBus, 
+						 ArchitecturalComponent.coreBroadcastBus, 
+						 RequestType.PIPELINE_RESUME, 
+						 0));
+
+			}
+			else
+			{
+				sleepThePipeline();
+				return;
+			}
+		}
+		
+		fillFetchBuffer(inorderPipeline);
+	}
+	
 	public void setSleep(boolean _sleep){
 		this.sleep=_sleep;
 	}
@@ -21,22 +21,18 @@ public class InorderCoreMemorySystem_MII extends CoreMemorySystem {
 	}
 	
 	//To issue the request directly to L1 cache
-	//missPenalty field has been added to accomodate the missPenalty incurred due to TLB miss
+	//the request is delayed until the address is translated by the DTLB
 	public boolean issueRequestToL1Cache(RequestType requestType, 
 											long address)
 	{
-		MultiIssueInorderPipeline inorderPipeline = (MultiIssueInorderPipeline)core.getPipelineInterface();
-
-		int tlbMissPenalty = performDTLBLookup(address, inorderPipeline);
-		
-		AddressCarryingEvent addressEvent = new AddressCarryingEvent(getCore().getEventQueue(),
-			tlbMissPenalty, this, l1Cache, requestType, address);
-		
 		if(l1Cache.isBusy()) {
 			return false;
 		}
 		
-		this.l1Cache.getPort().put(addressEvent);
+		AddressCarryingEvent addressEvent = new AddressCarryingEvent(getCore().getEventQueue(),
+			0, this, l1Cache, requestType, address);
+		
+		sendTranslatedRequest(dTLB, addressEvent);
 		
 		containingExecEngine.updateNoOfMemRequests(1);
 		if(requestType == RequestType.Cache_Read) {
@@ -51,35 +47,11 @@ public class InorderCoreMemorySystem_MII extends CoreMemorySystem {
 	//To issue the request to instruction cache
 	public void issueRequestToInstrCache(long address)
 	{
-		MultiIssueInorderPipeline inorderPipeline = (MultiIssueInorderPipeline)core.getPipelineInterface();
-		
-		int tlbMissPenalty = performITLBLookup(address, inorderPipeline);
-		
 		AddressCarryingEvent addressEvent = new AddressCarryingEvent(getCore().getEventQueue(),
-			tlbMissPenalty, this, iCache, RequestType.Cache_Read, address);
+			0, this, iCache, RequestType.Cache_Read, address);
 		
 		//attempt issue to lower level cache
-		this.iCache.getPort().put(addressEvent);
-	}
-	
-	private int performITLBLookup(long address, MultiIssueInorderPipeline inorderPipeline)
-	{
-		boolean tLBHit = iTLB.searchTLBForPhyAddr(address);
-		int missPenalty = 0;
-		if(!tLBHit){
-			missPenalty = iTLB.getMemoryPenalty();
-		}
-		return missPenalty;
-	}
-	
-	private int performDTLBLookup(long address, MultiIssueInorderPipeline inorderPipeline)
-	{
-		boolean tLBHit = dTLB.searchTLBForPhyAddr(address);
-		int missPenalty = 0;
-		if(!tLBHit){
-			missPenalty = dTLB.getMemoryPenalty();
-		}
-		return missPenalty;
+		sendTranslatedRequest(iTLB, addressEvent);
 	}
 
 	@Override
@@ -6,6 +6,7 @@ import generic.EventQueue;
 import generic.GenericCircularQueue;
 import generic.GlobalClock;
 import generic.Instruction;
+import generic.SimulatorProfiler;
 
 public class MultiIssueInorderPipeline implements PipelineInterface{
 	
@@ -32,20 +33,64 @@ public class MultiIssueInorderPipeline implements PipelineInterface{
 	}
 	
 	public void oneCycleOperation(){
+		oneCycleOperationBackEnd();
+		oneCycleOperationEvents();
+		oneCycleOperationFrontEnd();
+		oneCycleOperationBarriers();
+	}
+	
+	public void oneCycleOperationBackEnd(){
+		SimulatorProfiler profiler = eventQ.getProfiler();
+		if(profiler != null){
+			profiler.beginCycle();
+		}
 		long currentTime = GlobalClock.getCurrentTime();
 		if(currentTime % getCoreStepSize()==0
 				&& containingExecutionEngine.isExecutionBegun() == true
 				&& !containingExecutionEngine.getExecutionComplete()){
 			writeback();
+			if(profiler != null){
+				profiler.endPhase(SimulatorProfiler.WRITEBACK);
+			}
+		}
+	}
+	
+	public void oneCycleOperationEvents(){
+		SimulatorProfiler profiler = eventQ.getProfiler();
+		if(profiler != null){
+			profiler.startPhase();
 		}
 		drainEventQueue();		//Process Memory Requests
+		if(profiler != null){
+			profiler.endPhase(SimulatorProfiler.EVENTS);
+		}
+	}
+	
+	public void oneCycleOperationFrontEnd(){
+		SimulatorProfiler profiler = eventQ.getProfiler();
+		long currentTime = GlobalClock.getCurrentTime();
 		if(currentTime % getCoreStepSize()==0
 				&& containingExecutionEngine.isExecutionBegun() == true
 				&& !containingExecutionEngine.getExecutionComplete()){
+			if(profiler != null){
+				profiler.startPhase();
+			}
 			mem();
+			if(profiler != null){
+				profiler.endPhase(SimulatorProfiler.MEMORY);
+			}
 			exec();
+			if(profiler != null){
+				profiler.endPhase(SimulatorProfiler.EXECUTE);
+			}
 			decode();
+			if(profiler != null){
+				profiler.endPhase(SimulatorProfiler.DECODE);
+			}
 			fetch();
+			if(profiler != null){
+				profiler.endPhase(SimulatorProfiler.FETCH);
+			}
 
 //			if(this.containingExecutionEngine.getStallFetch()>0){
 //				this.containingExecutionEngine.decrementStallFetch(1); 
@@ -53,6 +98,10 @@ public class MultiIssueInorderPipeline implements PipelineInterface{
 		}
 	}
 
+	public void oneCycleOperationBarriers(){
+		containingExecutionEngine.getFetchUnitIn().handleBarrierArrival(this);
+	}
+
 	private void drainEventQueue(){
 		eventQ.processEvents();		
 	}
@@ -134,6 +183,19 @@ public class MultiIssueInorderPipeline implements PipelineInterface{
 		this.core.getExecEngine().setInputToPipeline(inputToPipeline);
 	}
 
+	@Override
+	public boolean isQuiescent() {
+		//stalls of the in-order pipeline are not tracked; fast-forward only
+		//while the core is not running
+		return containingExecutionEngine.isExecutionBegun() == false
+				|| containingExecutionEngine.getExecutionComplete() == true;
+	}
+
+	@Override
+	public void skipCycles(long fromTime, long numCycles) {
+		// no per-cycle statistics while not running
+	}
+
 	@Override
 	public void setTimingStatistics() {
 		// Not needed here, set by inorderexecutionengine
@@ -79,6 +79,7 @@ public class DecodeLogic extends SimulationElement {
 				
 				decodeBuffer.enqueue(newROBEntry);
 				fetchBuffer.dequeue();
+				containingExecutionEngine.markProgress();
 				
 				incrementNumAccesses(1);
 				
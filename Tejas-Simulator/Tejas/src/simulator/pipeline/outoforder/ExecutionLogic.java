@@ -121,23 +121,17 @@ public class ExecutionLogic extends SimulationElement {
 		{
 			WakeUpLogic.wakeUpLogic(core,
 									reorderBufferEntry.getInstruction().getDestinationOperand().getOperandType(),
-									reorderBufferEntry.getPhysicalDestinationRegister(),
-									reorderBufferEntry.getThreadID(),
-									(reorderBufferEntry.pos + 1)%ROB.MaxROBSize);
+									reorderBufferEntry.getPhysicalDestinationRegister());
 		}
 		else if(reorderBufferEntry.getInstruction().getOperationType() == OperationType.xchg)
 		{
 			WakeUpLogic.wakeUpLogic(core,
 									reorderBufferEntry.getInstruction().getSourceOperand1().getOperandType(),
-									reorderBufferEntry.getOperand1PhyReg1(),
-									reorderBufferEntry.getThreadID(),
-									(reorderBufferEntry.pos + 1)%ROB.MaxROBSize);
+									reorderBufferEntry.getOperand1PhyReg1());
 			
 			WakeUpLogic.wakeUpLogic(core,
 									reorderBufferEntry.getInstruction().getSourceOperand2().getOperandType(),
-									reorderBufferEntry.getOperand2PhyReg1(),
-									reorderBufferEntry.getThreadID(),
-									(reorderBufferEntry.pos + 1)%ROB.MaxROBSize);
+									reorderBufferEntry.getOperand2PhyReg1());
 		}
 	}
 	
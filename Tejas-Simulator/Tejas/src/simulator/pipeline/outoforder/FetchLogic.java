@@ -1,5 +1,7 @@
 package pipeline.outoforder;
 
+import java.util.ArrayList;
+
 import config.SimulationConfig;
 import main.ArchitecturalComponent;
 import main.CustomObjectPool;
@@ -28,6 +30,9 @@ public class FetchLogic extends SimulationElement {
 	int fetchWidth;
 	OperationType[] instructionsToBeDropped;
 	boolean sleep;
+	boolean stalledOnICache;
+	//barriers reached by this cycle's fetch, see handleBarrierArrivals
+	ArrayList<Long> pendingBarrierArrivals = new ArrayList<Long>();
 
 	public FetchLogic(Core core, OutOrderExecutionEngine execEngine)
 	{
@@ -45,6 +50,54 @@ public class FetchLogic extends SimulationElement {
 													};
 	}
 	
+	/*
+	 * arrives at the barriers reached by this cycle's fetch. Called serially,
+	 * in core order, after the front ends of all cores
+	 */
+	public void handleBarrierArrivals()
+	{
+		for(int i = 0; i < pendingBarrierArrivals.size(); i++)
+		{
+			long barrierAddress = pendingBarrierArrivals.get(i);
+			Barrier bar = BarrierTable.barrierList.get(barrierAddress);
+			bar.incrementThreads();
+			if(this.core.TreeBarrier == true){
+				int coreId = this.core.getCore_number();
+				ArchitecturalComponent.coreBroadcastBus.getPort().put(new AddressCarryingEvent(
+						0,
+						this.core.eventQueue,
+						 1,
+						 ArchitecturalComponent.coreBroadcastBus, 
+						 ArchitecturalComponent.coreBroadcastBus, 
+						 RequestType.TREE_BARRIER, 
+						 barrierAddress,
+						 coreId));
+			}
+			else{
+				if(bar.timeToCross())
+				{
+					System.out.println("    Time to cross " + bar.getBarrierAddress());
+					for(int j=0; j<bar.getNumThreads(); j++ ){
+						ArchitecturalComponent.coreBroadcastBus.addToResumeCore(bar.getBlockedThreads().elementAt(j));
+					}
+					ArchitecturalComponent.coreBroadcastBus.getPort().put(new AddressCarryingEvent(
+							this.core.eventQueue,
+							 1,
+							 ArchitecturalComponent.coreBroadcastBus, 
+							 ArchitecturalComponent.coreBroadcastBus, 
+							 RequestType.PIPELINE_RESUME, 
+							 0));
+
+				}
+				else
+				{
+					System.out.println("Total on bar " + bar.getBarrierAddress() + " is " + bar.getNumThreadsArrived());
+				}
+			}
+		}
+		pendingBarrierArrivals.clear();
+	}
+	
 	public void performFetch()
 	{
 		//to detach pipeline
@@ -71,6 +124,7 @@ public class FetchLogic extends SimulationElement {
 		}
 		
 		Instruction newInstruction;
+		stalledOnICache = false;
 		
 		if(!execEngine.isToStall1() &&
 				!execEngine.isToStall2() &&
@@ -91,10 +145,12 @@ public class FetchLogic extends SimulationElement {
 				if(newInstruction != null)
 				{
 					fetchBuffer.enqueue(newInstruction);
+					execEngine.markProgress();
 				}
 				else
 				{
 					this.core.getExecEngine().incrementInstructionMemStall(1); 
+					stalledOnICache = true;
 					break;
 				}
 			}
@@ -111,47 +167,11 @@ public class FetchLogic extends SimulationElement {
 			
 			newInstruction = inputToPipeline[inputPipeToReadNext].peek(0);
 			
-			//process sync operation(Barrier)
+			//process sync operation(Barrier) : the pipeline sleeps right away, the
+			//arrival at the barrier (shared between cores) is left to the barriers phase
 			if(newInstruction.getOperationType() == OperationType.sync){
-				long barrierAddress = newInstruction.getCISCProgramCounter();
-				Barrier bar = BarrierTable.barrierList.get(barrierAddress);
-				bar.incrementThreads();
-				if(this.core.TreeBarrier == true){
-					setSleep(true);
-					int coreId = this.core.getCore_number();
-					ArchitecturalComponent.coreBroadcastBus.getPort().put(new AddressCarryingEvent(
-							0,
-							this.core.eventQueue,
-							 1,
-							 ArchitecturalComponent.coreBroadcastBus, 
-							 ArchitecturalComponent.coreBroadcastBus, 
-							 RequestType.TREE_BARRIER, 
-							 barrierAddress,
-							 coreId));
-				}
-				else{
-					if(bar.timeToCross())
-					{
-						System.out.println("    Time to cross " + bar.getBarrierAddress());
-						setSleep(true);
-						for(int j=0; j<bar.getNumThreads(); j++ ){
-							ArchitecturalComponent.coreBroadcastBus.addToResumeCore(bar.getBlockedThreads().elementAt(j));
-						}
-						ArchitecturalComponent.coreBroadcastBus.getPort().put(new AddressCarryingEvent(
-								this.core.eventQueue,
-								 1,
-								 ArchitecturalComponent.coreBroadcastBus, 
-								 ArchitecturalComponent.coreBroadcastBus, 
-								 RequestType.PIPELINE_RESUME, 
-								 0));
-	
-					}
-					else
-					{
-						System.out.println("Total on bar " + bar.getBarrierAddress() + " is " + bar.getNumThreadsArrived());
-						setSleep(true);
-					}
-				}
+				setSleep(true);
+				pendingBarrierArrivals.add(newInstruction.getCISCProgramCounter());
 			}
 			
 			//drop instructions on the drop list
@@ -159,6 +179,7 @@ public class FetchLogic extends SimulationElement {
 			{
 				inputToPipeline[inputPipeToReadNext].pollFirst();
 				CustomObjectPool.getInstructionPool().returnObject(newInstruction);
+				execEngine.markProgress();
 				i--;
 				continue;
 			}
@@ -171,6 +192,7 @@ public class FetchLogic extends SimulationElement {
 				{
 					inputToPipeline[inputPipeToReadNext].pollFirst();
 					CustomObjectPool.getInstructionPool().returnObject(newInstruction);
+					execEngine.markProgress();
 					i--;
 					continue;
 				}
@@ -180,6 +202,7 @@ public class FetchLogic extends SimulationElement {
 			if(!iCacheBuffer.isFull() && execEngine.getCoreMemorySystem().getiCache().isBusy()==false)
 			{
 				iCacheBuffer.addToBuffer(inputToPipeline[inputPipeToReadNext].pollFirst());
+				execEngine.markProgress();
 				if(SimulationConfig.detachMemSysInsn == false && newInstruction.getOperationType() != OperationType.inValid)
 				{
 						// The first micro-operation of an instruction has a valid CISC IP. All the subsequent 
@@ -244,6 +267,10 @@ public class FetchLogic extends SimulationElement {
 		this.iCacheBuffer = iCacheBuffer;
 	}
 
+	public boolean isStalledOnICache() {
+		return stalledOnICache;
+	}
+
 	public boolean isSleep() {
 		return sleep;
 	}
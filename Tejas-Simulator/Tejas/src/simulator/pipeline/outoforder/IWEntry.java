@@ -23,6 +23,7 @@ public class IWEntry {
 	ReorderBufferEntry associatedROBEntry;
 	OperationType opType;
 	boolean isValid;
+	boolean isReady;		//in the ready list of the instruction window
 	int pos;
 
 	public IWEntry(Core core, int pos,
@@ -160,6 +161,10 @@ public class IWEntry {
 			return true;
 		}
 		
+		//FUs become available with the passage of time, not on an event;
+		//so this cycle cannot be fast-forwarded over
+		execEngine.markProgress();
+		
 		return false;
 	}
 
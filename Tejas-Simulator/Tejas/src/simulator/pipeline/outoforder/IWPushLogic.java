@@ -79,6 +79,7 @@ public class IWPushLogic extends SimulationElement {
 					
 				//remove from rename buffer
 				renameBuffer.dequeue();
+				execEngine.markProgress();
 				
 				execEngine.setToStall1(false);
 			}
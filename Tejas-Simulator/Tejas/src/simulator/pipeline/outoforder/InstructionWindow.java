@@ -16,7 +16,8 @@ public class InstructionWindow extends SimulationElement {
 	
 	/*
 	 * IW is implemented as an unordered buffer
-	 * the precedence required when issuing instructions, is achieved by the ordering of the ROB
+	 * the precedence required when issuing instructions, is achieved by the ready list :
+	 * the entries whose source operands are all available, kept in program order
 	 */
 	
 	Core core;
@@ -27,6 +28,9 @@ public class InstructionWindow extends SimulationElement {
 	int availListHead;
 	int availListTail;
 	
+	IWEntry[] readyList;
+	int readyListSize;
+	
 	long numAccesses;
 	
 	public InstructionWindow(Core core, OutOrderExecutionEngine executionEngine)
@@ -45,6 +49,8 @@ public class InstructionWindow extends SimulationElement {
 		availListHead = 0;
 		availListTail = maxIWSize - 1;
 		
+		readyList = new IWEntry[maxIWSize];
+		readyListSize = 0;
 	}
 	
 	public IWEntry addToWindow(ReorderBufferEntry ROBEntry)
@@ -64,6 +70,11 @@ public class InstructionWindow extends SimulationElement {
 		
 		ROBEntry.setAssociatedIWEntry(newEntry);
 		
+		if(ROBEntry.isOperand1Available() && ROBEntry.isOperand2Available())
+		{
+			addToReadyList(newEntry);
+		}
+		
 		incrementNumAccesses(1);
 		
 		return newEntry;
@@ -92,6 +103,7 @@ public class InstructionWindow extends SimulationElement {
 	
 	public void removeFromWindow(IWEntry entryToBeRemoved)
 	{
+		removeFromReadyList(entryToBeRemoved);
 		entryToBeRemoved.setValid(false);
 		availListTail = (availListTail + 1)%maxIWSize;
 		availList[availListTail] = entryToBeRemoved.pos;
@@ -108,7 +120,62 @@ public class InstructionWindow extends SimulationElement {
 		for(int i = 0; i < maxIWSize; i++)
 		{
 			IW[i].setValid(false);
+			IW[i].isReady = false;
+		}
+		for(int i = 0; i < readyListSize; i++)
+		{
+			readyList[i] = null;
+		}
+		readyListSize = 0;
+	}
+	
+	/*
+	 * called when the last source operand of an entry becomes available
+	 */
+	public void addToReadyList(IWEntry entry)
+	{
+		if(entry.isReady)
+		{
+			return;
+		}
+		
+		//entries usually become ready roughly in program order; search from the youngest
+		long sequenceNumber = entry.getAssociatedROBEntry().getSequenceNumber();
+		int i = readyListSize;
+		while(i > 0 && readyList[i-1].getAssociatedROBEntry().getSequenceNumber() > sequenceNumber)
+		{
+			readyList[i] = readyList[i-1];
+			i--;
+		}
+		readyList[i] = entry;
+		readyListSize++;
+		entry.isReady = true;
+	}
+	
+	void removeFromReadyList(IWEntry entry)
+	{
+		if(entry.isReady == false)
+		{
+			return;
 		}
+		
+		int i = 0;
+		while(readyList[i] != entry)
+		{
+			i++;
+		}
+		System.arraycopy(readyList, i + 1, readyList, i, readyListSize - i - 1);
+		readyListSize--;
+		readyList[readyListSize] = null;
+		entry.isReady = false;
+	}
+	
+	public IWEntry getReadyEntry(int index) {
+		return readyList[index];
+	}
+	
+	public int getReadyListSize() {
+		return readyListSize;
 	}
 
 	public IWEntry[] getIW() {
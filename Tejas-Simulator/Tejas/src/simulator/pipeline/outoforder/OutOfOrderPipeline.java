@@ -5,6 +5,7 @@ import generic.EventQueue;
 import generic.GenericCircularQueue;
 import generic.GlobalClock;
 import generic.Instruction;
+import generic.SimulatorProfiler;
 
 public class OutOfOrderPipeline implements pipeline.PipelineInterface {
 	
@@ -21,36 +22,104 @@ public class OutOfOrderPipeline implements pipeline.PipelineInterface {
 	@Override
 	public void oneCycleOperation() {
 		
+		oneCycleOperationBackEnd();
+		
+		//handle events
+		oneCycleOperationEvents();
+		
+		oneCycleOperationFrontEnd();
+		
+		oneCycleOperationBarriers();
+		
+	}
+	
+	@Override
+	public void oneCycleOperationBackEnd() {
+		
 		coreStepSize = core.getStepSize();
 		
 		OutOrderExecutionEngine execEngine;
 		
 		execEngine = (OutOrderExecutionEngine) core.getExecEngine();
 		
+		SimulatorProfiler profiler = eventQ.getProfiler();
+		if(profiler != null) {
+			profiler.beginCycle();
+		}
+		
 		long currentTime = GlobalClock.getCurrentTime();
 		if(currentTime % coreStepSize == 0
 				&& execEngine.isExecutionBegun() == true
 				&& execEngine.isExecutionComplete() == false)
 		{
+			execEngine.setProgressMade(false);
 			execEngine.getReorderBuffer().performCommits();
+			if(profiler != null) {
+				profiler.endPhase(SimulatorProfiler.COMMIT);
+			}
 			execEngine.getWriteBackLogic().performWriteBack();
+			if(profiler != null) {
+				profiler.endPhase(SimulatorProfiler.WRITEBACK);
+			}
 			execEngine.getSelector().performSelect();
+			if(profiler != null) {
+				profiler.endPhase(SimulatorProfiler.SELECT);
+			}
+		}
+	}
+	
+	@Override
+	public void oneCycleOperationEvents() {
+		SimulatorProfiler profiler = eventQ.getProfiler();
+		if(profiler != null) {
+			profiler.startPhase();
 		}
-		
-		//handle events
 		eventQ.processEvents();
+		if(profiler != null) {
+			profiler.endPhase(SimulatorProfiler.EVENTS);
+		}
+	}
+	
+	@Override
+	public void oneCycleOperationFrontEnd() {
+		
+		OutOrderExecutionEngine execEngine;
+		
+		execEngine = (OutOrderExecutionEngine) core.getExecEngine();
+		
+		SimulatorProfiler profiler = eventQ.getProfiler();
 		
+		long currentTime = GlobalClock.getCurrentTime();
 		if(currentTime % coreStepSize == 0
 				&& execEngine.isExecutionBegun() == true
 				&& execEngine.isExecutionComplete() == false)
 		{
+			if(profiler != null) {
+				profiler.startPhase();
+			}
 			execEngine.getIWPusher().performIWPush();
+			if(profiler != null) {
+				profiler.endPhase(SimulatorProfiler.IW_PUSH);
+			}
 			execEngine.getRenamer().performRename();
+			if(profiler != null) {
+				profiler.endPhase(SimulatorProfiler.RENAME);
+			}
 			execEngine.getDecoder().performDecode();
+			if(profiler != null) {
+				profiler.endPhase(SimulatorProfiler.DECODE);
+			}
 			execEngine.getFetcher().performFetch();
+			if(profiler != null) {
+				profiler.endPhase(SimulatorProfiler.FETCH);
+			}
 		}
-		
 	}
+	@Override
+	public void oneCycleOperationBarriers() {
+		((OutOrderExecutionEngine) core.getExecEngine()).getFetcher().handleBarrierArrivals();
+	}
+	
 	public Core getCore() {
 		return core;
 	}
@@ -121,6 +190,44 @@ public class OutOfOrderPipeline implements pipeline.PipelineInterface {
 		
 	}
 
+	@Override
+	public boolean isQuiescent() {
+		
+		OutOrderExecutionEngine execEngine = (OutOrderExecutionEngine) core.getExecEngine();
+		if(execEngine.isExecutionBegun() == false
+				|| execEngine.isExecutionComplete() == true)
+		{
+			return true;
+		}
+		return execEngine.isProgressMade() == false;
+	}
+
+	@Override
+	public void skipCycles(long fromTime, long numCycles) {
+		
+		OutOrderExecutionEngine execEngine = (OutOrderExecutionEngine) core.getExecEngine();
+		if(execEngine.isExecutionBegun() == false
+				|| execEngine.isExecutionComplete() == true)
+		{
+			return;
+		}
+		
+		//number of skipped cycles in which the pipeline stages would have run
+		int stepSize = core.getStepSize();
+		long firstStep = ((fromTime + stepSize - 1) / stepSize) * stepSize;
+		long numSteps = 0;
+		if(firstStep < fromTime + numCycles)
+		{
+			numSteps = (fromTime + numCycles - 1 - firstStep) / stepSize + 1;
+		}
+		
+		execEngine.getReorderBuffer().accountSkippedCycles(numSteps);
+		if(execEngine.getFetcher().isStalledOnICache())
+		{
+			execEngine.incrementInstructionMemStall((int) numSteps);
+		}
+	}
+
 	@Override
 	public void setInputToPipeline(
 			GenericCircularQueue<Instruction>[] inputToPipeline) {
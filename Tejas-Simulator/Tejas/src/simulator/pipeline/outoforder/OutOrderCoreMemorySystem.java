@@ -29,15 +29,13 @@ public class OutOrderCoreMemorySystem extends CoreMemorySystem {
 	//To issue the request to instruction cache
 	public void issueRequestToInstrCache(long address)
 	{
-		int tlbMissPenalty = performITLBLookup(address);
-		
 		AddressCarryingEvent addressEvent = new AddressCarryingEvent(getCore().getEventQueue(),
-			tlbMissPenalty, this, iCache, RequestType.Cache_Read, address);
+			0, this, iCache, RequestType.Cache_Read, address);
 
 	        addressEvent.setCoreId(getCore().getCore_number());
 
 		//attempt issue to lower level cache
-		this.iCache.getPort().put(addressEvent);
+		sendTranslatedRequest(iTLB, addressEvent);
 	}
 	
 	public void allocateLSQEntry(boolean isLoad, long address, ReorderBufferEntry robEntry)
@@ -101,17 +99,6 @@ public class OutOrderCoreMemorySystem extends CoreMemorySystem {
 						this.coreID));
 	}
 	
-	private int performITLBLookup(long address)
-	{
-		boolean tLBHit = iTLB.searchTLBForPhyAddr(address);
-		int missPenalty = 0;
-		if(!tLBHit){
-			missPenalty = iTLB.getMemoryPenalty();
-		}
-		
-		return missPenalty;
-	}
-
 	@Override
 	public void handleEvent(EventQueue eventQ, Event event) {
 		
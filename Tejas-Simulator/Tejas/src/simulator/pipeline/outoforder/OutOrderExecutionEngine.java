@@ -61,6 +61,10 @@ public class OutOrderExecutionEngine extends ExecutionEngine {
 	private boolean toStall5;					//if branch mis-predicted
 	//fetcher stall
 
+	private boolean progressMade;				//if any stage changed the state of
+	//the pipeline in the current cycle
+	//used to fast-forward over idle cycles
+
 
 	public long prevCycles;
 
@@ -95,6 +99,7 @@ public class OutOrderExecutionEngine extends ExecutionEngine {
 		toStall3 = false;
 		toStall4 = false;
 		toStall5 = false;
+		progressMade = true;
 		prevCycles=0;
 	}
 
@@ -143,6 +148,10 @@ public class OutOrderExecutionEngine extends ExecutionEngine {
 	}
 
 	public void setToStall1(boolean toStall1) {
+		if(this.toStall1 != toStall1)
+		{
+			progressMade = true;
+		}
 		this.toStall1 = toStall1;
 	}
 
@@ -151,6 +160,10 @@ public class OutOrderExecutionEngine extends ExecutionEngine {
 	}
 
 	public void setToStall2(boolean toStall2) {
+		if(this.toStall2 != toStall2)
+		{
+			progressMade = true;
+		}
 		this.toStall2 = toStall2;
 	}
 
@@ -159,6 +172,10 @@ public class OutOrderExecutionEngine extends ExecutionEngine {
 	}
 
 	public void setToStall3(boolean toStall3) {
+		if(this.toStall3 != toStall3)
+		{
+			progressMade = true;
+		}
 		this.toStall3 = toStall3;
 	}
 
@@ -167,6 +184,10 @@ public class OutOrderExecutionEngine extends ExecutionEngine {
 	}
 
 	public void setToStall4(boolean toStall4) {
+		if(this.toStall4 != toStall4)
+		{
+			progressMade = true;
+		}
 		this.toStall4 = toStall4;
 	}
 
@@ -175,9 +196,25 @@ public class OutOrderExecutionEngine extends ExecutionEngine {
 	}
 
 	public void setToStall5(boolean toStall5) {
+		if(this.toStall5 != toStall5)
+		{
+			progressMade = true;
+		}
 		this.toStall5 = toStall5;
 	}
 
+	public boolean isProgressMade() {
+		return progressMade;
+	}
+
+	public void setProgressMade(boolean progressMade) {
+		this.progressMade = progressMade;
+	}
+
+	public void markProgress() {
+		this.progressMade = true;
+	}
+
 	public GenericCircularQueue<Instruction> getFetchBuffer() {
 		return fetchBuffer;
 	}
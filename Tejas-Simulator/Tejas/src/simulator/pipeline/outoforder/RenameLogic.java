@@ -76,11 +76,15 @@ public class RenameLogic extends SimulationElement {
 						checkOperand2Availability();
 					}
 					
+					//wait on the producers of the unavailable operands
+					addToConsumerLists();
+					
 					//assign register for destination operand(s)
 					processDestOperand(reorderBufferEntry);
 					
 					renameBuffer.enqueue(decodeBuffer.dequeue());
 					reorderBufferEntry.setRenameDone(true);
+					execEngine.markProgress();
 					
 					execEngine.setToStall2(false);
 					
@@ -566,6 +570,63 @@ public class RenameLogic extends SimulationElement {
 		}
 	}
 
+	/*
+	 * register the instruction with the physical registers it still waits on,
+	 * so that it is woken up by their producers' broadcast
+	 */
+	void addToConsumerLists()
+	{
+		if(reorderBufferEntry.isOperand1Available() == false)
+		{
+			addToConsumerLists(instruction.getSourceOperand1(),
+					reorderBufferEntry.getOperand1PhyReg1(), reorderBufferEntry.getOperand1PhyReg2(),
+					reorderBufferEntry.isOperand11Available(), reorderBufferEntry.isOperand12Available());
+		}
+		if(reorderBufferEntry.isOperand2Available() == false)
+		{
+			addToConsumerLists(instruction.getSourceOperand2(),
+					reorderBufferEntry.getOperand2PhyReg1(), reorderBufferEntry.getOperand2PhyReg2(),
+					reorderBufferEntry.isOperand21Available(), reorderBufferEntry.isOperand22Available());
+		}
+	}
+	
+	private void addToConsumerLists(Operand opnd, int phyReg1, int phyReg2,
+			boolean isAvailable1, boolean isAvailable2)
+	{
+		if(opnd.getOperandType() == OperandType.memory)
+		{
+			if(isAvailable1 == false)
+			{
+				addToConsumerList(opnd.getMemoryLocationFirstOperand(), phyReg1);
+			}
+			if(isAvailable2 == false)
+			{
+				addToConsumerList(opnd.getMemoryLocationSecondOperand(), phyReg2);
+			}
+		}
+		else
+		{
+			addToConsumerList(opnd, phyReg1);
+		}
+	}
+	
+	private void addToConsumerList(Operand opnd, int phyReg)
+	{
+		if(opnd == null || phyReg < 0)
+		{
+			return;
+		}
+		
+		if(opnd.getOperandType() == OperandType.integerRegister)
+		{
+			execEngine.getIntegerRenameTable().addConsumer(phyReg, reorderBufferEntry);
+		}
+		else if(opnd.getOperandType() == OperandType.floatRegister)
+		{
+			execEngine.getFloatingPointRenameTable().addConsumer(phyReg, reorderBufferEntry);
+		}
+	}
+
 	@Override
 	public void handleEvent(EventQueue eventQ, Event event) {
 		
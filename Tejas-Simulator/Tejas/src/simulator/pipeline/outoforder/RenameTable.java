@@ -23,6 +23,11 @@ public class RenameTable extends SimulationElement{
 	boolean[] valueValid;
 	private ReorderBufferEntry[] producerROBEntry;
 	
+	//renamed instructions waiting for the value of each physical register;
+	//the producer's broadcast wakes up only these (see WakeUpLogic)
+	private ReorderBufferEntry[][] consumers;
+	private int[] numConsumers;
+	
 	int[][] archToPhyMapping;
 	
 	RegisterFile associatedRegisterFile;
@@ -50,6 +55,8 @@ public class RenameTable extends SimulationElement{
 		mappingValid = new boolean[this.nPhyRegisters];
 		valueValid = new boolean[this.nPhyRegisters];
 		producerROBEntry = new ReorderBufferEntry[this.nPhyRegisters];
+		consumers = new ReorderBufferEntry[this.nPhyRegisters][4];
+		numConsumers = new int[this.nPhyRegisters];
 		
 		if(noOfThreads * this.nArchRegisters > this.nPhyRegisters)
 		{
@@ -178,6 +185,42 @@ public class RenameTable extends SimulationElement{
 		this.producerROBEntry[index] = producerROBEntry;
 	}	
 
+	public void addConsumer(int phyReg, ReorderBufferEntry consumer)
+	{
+		int n = numConsumers[phyReg];
+		if(n > 0 && consumers[phyReg][n-1] == consumer)
+		{
+			//both source operands read this register
+			return;
+		}
+		if(n == consumers[phyReg].length)
+		{
+			ReorderBufferEntry[] grown = new ReorderBufferEntry[2 * n];
+			System.arraycopy(consumers[phyReg], 0, grown, 0, n);
+			consumers[phyReg] = grown;
+		}
+		consumers[phyReg][n] = consumer;
+		numConsumers[phyReg] = n + 1;
+	}
+	
+	public ReorderBufferEntry[] getConsumers(int phyReg) {
+		return consumers[phyReg];
+	}
+	
+	public int getNumConsumers(int phyReg) {
+		return numConsumers[phyReg];
+	}
+	
+	public void clearConsumers(int phyReg)
+	{
+		ReorderBufferEntry[] list = consumers[phyReg];
+		for(int i = 0; i < numConsumers[phyReg]; i++)
+		{
+			list[i] = null;
+		}
+		numConsumers[phyReg] = 0;
+	}
+
 	public RegisterFile getAssociatedRegisterFile() {
 		return associatedRegisterFile;
 	}
@@ -38,6 +38,7 @@ public class ReorderBuffer extends SimulationElement{
 	long branchCount;
 	long mispredCount;
 	long lastValidIPSeen;
+	long nextSequenceNumber;
 	
 	long numAccesses;
 
@@ -66,6 +67,7 @@ public class ReorderBuffer extends SimulationElement{
 		mispredCount = 0;
 		branchCount = 0;
 		lastValidIPSeen = -1;		
+		nextSequenceNumber = 0;
 	}
 	
 	//creates a  new ROB entry, initialises it, and returns it
@@ -88,6 +90,7 @@ public class ReorderBuffer extends SimulationElement{
 			
 			newReorderBufferEntry.setInstruction(newInstruction);
 			newReorderBufferEntry.setThreadID(threadID);
+			newReorderBufferEntry.setSequenceNumber(nextSequenceNumber++);
 			newReorderBufferEntry.setOperand1PhyReg1(-1);
 			newReorderBufferEntry.setOperand1PhyReg2(-1);
 			newReorderBufferEntry.setOperand2PhyReg1(-1);
@@ -117,6 +120,34 @@ public class ReorderBuffer extends SimulationElement{
 		return null;
 	}
 	
+	/*
+	 * stall counts for cycles that were fast-forwarded over;
+	 * the stall flags cannot change in such cycles
+	 */
+	public void accountSkippedCycles(long numCycles)
+	{
+		if(execEngine.isToStall1())
+		{
+			stall1Count += numCycles;
+		}
+		if(execEngine.isToStall2())
+		{
+			stall2Count += numCycles;
+		}
+		if(execEngine.isToStall3())
+		{
+			stall3Count += numCycles;
+		}
+		if(execEngine.isToStall4())
+		{
+			stall4Count += numCycles;
+		}
+		if(execEngine.isToStall5())
+		{
+			stall5Count += numCycles;
+		}
+	}
+	
 	public void performCommits()
 	{	
 		if(execEngine.isToStall1())
@@ -274,6 +305,7 @@ public class ReorderBuffer extends SimulationElement{
 	
 	void retireInstructionAtHead()
 	{
+		execEngine.markProgress();
 		ROB[head].setValid(false);
 		ROB[head].setInstruction(null);
 		if(head == tail)
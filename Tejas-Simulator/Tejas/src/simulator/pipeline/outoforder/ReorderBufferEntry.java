@@ -28,6 +28,7 @@ public class ReorderBufferEntry {
 	private boolean isWriteBackDone2;
 	private IWEntry associatedIWEntry;
 	private LSQEntry lsqEntry = null;
+	private long sequenceNumber;						//program order; orders the IW ready list
 	
 	int pos;
 	
@@ -224,6 +225,14 @@ public class ReorderBufferEntry {
 		this.isRenameDone = isRenameDone;
 	}
 
+	public long getSequenceNumber() {
+		return sequenceNumber;
+	}
+
+	public void setSequenceNumber(long sequenceNumber) {
+		this.sequenceNumber = sequenceNumber;
+	}
+
 	public boolean isValid() {
 		return isValid;
 	}
@@ -26,7 +26,9 @@ public class SelectLogic extends SimulationElement {
 	 * ready instructions' issue are attempted (maximum of 'issueWidth' number of issues)
 	 * important - all issues must be attempted first; only then must awakening be done
 	 * 		this is because an awakened instruction is a
-	 * 		candidate for issue ONLY in the next cycle 
+	 * 		candidate for issue ONLY in the next cycle
+	 * 
+	 * only the IW's ready list is walked, oldest first; an entry that issues leaves the list
 	 */
 	public void performSelect()
 	{
@@ -40,32 +42,29 @@ public class SelectLogic extends SimulationElement {
 		execEngine.getExecutionCore().clearPortUsage();
 		
 		int noIssued = 0;
-		int i;
-		ReorderBufferEntry ROBEntry;
+		int i = 0;
+		IWEntry readyEntry;
 		
-		i = ROB.head;
-		do
+		while(i < IW.getReadyListSize())
 		{
-			ROBEntry = ROB.ROB[i];
+			readyEntry = IW.getReadyEntry(i);
 			
-			if(ROBEntry.getIssued() == false &&
-					ROBEntry.getAssociatedIWEntry() != null)
+			if(readyEntry.issueInstruction())
 			{
-				if(ROBEntry.getAssociatedIWEntry().issueInstruction())
+				//if issued; removed from the ready list along with the window
+				noIssued++;
+				execEngine.markProgress();
+				
+				if(noIssued >= issueWidth)
 				{
-					//if issued
-					noIssued++;						
+					break;
 				}
 			}
-			
-			if(noIssued >= issueWidth)
+			else
 			{
-				break;
+				i++;
 			}
-			
-			i = (i+1)%ROB.MaxROBSize;
-			
-		}while(i != (ROB.tail+1)%ROB.MaxROBSize);
+		}
 	}
 
 	@Override
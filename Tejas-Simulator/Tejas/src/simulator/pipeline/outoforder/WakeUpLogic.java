@@ -4,29 +4,39 @@ import generic.Core;
 import generic.Instruction;
 import generic.Operand;
 import generic.OperandType;
-import generic.OperationType;
 
 public class WakeUpLogic {
 	
 	/*
 	 * given an operand type, and the physical register, of instruction that just completed execution
-	 * all current entries in the IW are scanned
-	 * all those entries that have one or both of their source operands matching the given operand type and physical register
-	 * sets the availability flags appropriately
+	 * the consumers registered with that physical register at rename are woken up :
+	 * those that have one or both of their source operands matching the given operand type and physical register
+	 * get the availability flags set appropriately
 	 * 
-	 * startIndex
-	 * only those ROB entries that appear after the initiating instruction in program order must be considered
-	 * startIndex must be set to index of the completing instruction in the ROB
-	 * 
-	 * threadID is applicable only if opndType is machine specific register
+	 * consumers are renamed after the producer, and register only for the physical registers
+	 * they read, so no other ROB entry needs to be looked at
 	 */
 	
-	static public void wakeUpLogic(Core core, OperandType opndType, int physicalRegister, int threadID, int startIndex)
+	static public void wakeUpLogic(Core core, OperandType opndType, int physicalRegister)
 	{
 		OutOrderExecutionEngine execEngine = (OutOrderExecutionEngine)core.getExecEngine();
+		RenameTable renameTable;
+		if(opndType == OperandType.integerRegister)
+		{
+			renameTable = execEngine.getIntegerRenameTable();
+		}
+		else if(opndType == OperandType.floatRegister)
+		{
+			renameTable = execEngine.getFloatingPointRenameTable();
+		}
+		else
+		{
+			return;
+		}
+		
+		ReorderBufferEntry[] consumers = renameTable.getConsumers(physicalRegister);
+		int numConsumers = renameTable.getNumConsumers(physicalRegister);
 		ReorderBufferEntry ROBEntry;
-		ReorderBuffer ROB = execEngine.getReorderBuffer();
-		ReorderBufferEntry[] ROBEntries = ROB.getROB();
 		
 		Instruction instruction;
 		Operand opnd1;
@@ -34,36 +44,16 @@ public class WakeUpLogic {
 		OperandType opnd1Type;
 		OperandType opnd2Type;
 		
-		int i, ctr = 0;
-		if(startIndex != -1)
-		{
-			i = startIndex;
-		}
-		else
-		{
-			i = ROB.head;
-		}
-		
-		while(ROBEntries[i].isValid() && ctr < ROB.MaxROBSize)
+		for(int i = 0; i < numConsumers; i++)
 		{
-			ctr++;
-			
-			ROBEntry = ROBEntries[i];
+			ROBEntry = consumers[i];
 			
 			boolean IWEntryUpdated = false;
 			
-			if(ROBEntries[i].isRenameDone() == false)
-			{
-				break;
-			}
-			
-			if(ROBEntries[i].getIssued() == true
-					/*|| ROBEntries[i].getAssociatedIWEntry() == null*/)
+			if(ROBEntry.isValid() == false
+					|| ROBEntry.isRenameDone() == false
+					|| ROBEntry.getIssued() == true)
 			{
-				//all ROB entries that are renamed, and not issued are candidates
-				//this means all entries in the IW and the rename-logic/IW-push-logic
-				//	are candidates
-				i = (i + 1) % ROB.MaxROBSize;
 				continue;
 			}
 			
@@ -144,29 +134,16 @@ public class WakeUpLogic {
 			if(IWEntryUpdated == true)
 			{
 				execEngine.getInstructionWindow().incrementNumAccesses(1);
+				
+				if(ROBEntry.isOperand1Available() && ROBEntry.isOperand2Available()
+						&& ROBEntry.getAssociatedIWEntry() != null)
+				{
+					//instructions still in the rename buffer enter the ready list when pushed into the IW
+					execEngine.getInstructionWindow().addToReadyList(ROBEntry.getAssociatedIWEntry());
+				}
 			}
-			
-			if(ROBEntry.getPhysicalDestinationRegister() == physicalRegister &&
-					ROBEntry.getInstruction().getDestinationOperand() != null &&
-					ROBEntry.getInstruction().getDestinationOperand().getOperandType() == opndType
-					||
-					ROBEntry.getInstruction().getOperationType() == OperationType.xchg &&
-					ROBEntry.getInstruction().getSourceOperand1() != null &&
-					ROBEntry.getInstruction().getSourceOperand1().getOperandType() == opndType &&
-					ROBEntry.getOperand1PhyReg1() == physicalRegister
-					||
-					ROBEntry.getInstruction().getOperationType() == OperationType.xchg &&
-					ROBEntry.getInstruction().getSourceOperand2() != null &&
-					ROBEntry.getInstruction().getSourceOperand2().getOperandType() == opndType &&
-					ROBEntry.getOperand2PhyReg1() == physicalRegister)
-			{
-				//this particular instruction also writes to the same register as the one that initiated
-				//the wake-up. all subsequent consumers of this register should not be woken up.
-				break;
-			}
-			
-			i = (i + 1) % ROB.MaxROBSize;
 		}
+		renameTable.clearConsumers(physicalRegister);
 		
 		/*
 		 * aiding decoded instructions that are not yet in the IW.
@@ -179,14 +156,7 @@ public class WakeUpLogic {
 		 * the below code is part of the solution, the remainder is at the write-back stage
 		 * 
 		 */
-		if(opndType == OperandType.integerRegister)
-		{
-			execEngine.getIntegerRenameTable().setValueValid(true, physicalRegister);
-		}
-		else if(opndType == OperandType.floatRegister)
-		{
-			execEngine.getFloatingPointRenameTable().setValueValid(true, physicalRegister);
-		}
+		renameTable.setValueValid(true, physicalRegister);
 	}
 
 }
\ No newline at end of file
@@ -56,6 +56,7 @@ public class WriteBackLogic extends SimulationElement {
 			{
 				buffer[i].setWriteBackDone1(true);
 				buffer[i].setWriteBackDone2(true);
+				execEngine.markProgress();
 				
 				/*
 				 * aiding decoded instructions that are not yet in the IW.
@@ -64,7 +65,7 @@ public class WriteBackLogic extends SimulationElement {
 				 */
 				if(buffer[i].getInstruction().getOperationType() == OperationType.load)
 				{
-					WakeUpLogic.wakeUpLogic(core, buffer[i].getInstruction().getDestinationOperand().getOperandType(), buffer[i].getPhysicalDestinationRegister(), buffer[i].getThreadID(), (buffer[i].pos + 1)%ROB.MaxROBSize);
+					WakeUpLogic.wakeUpLogic(core, buffer[i].getInstruction().getDestinationOperand().getOperandType(), buffer[i].getPhysicalDestinationRegister());
 				}
 				
 				